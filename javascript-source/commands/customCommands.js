@@ -70,7 +70,7 @@
      * @returns 1 | 0 - Not a boolean
      */
     function payCom(command) {
-        return ($.inidb.exists('paycom', command) ? 0 : 1);
+        return ($.commandPolicy(command, '').isPaid() ? 0 : 1);
     }
 
     /*
@@ -81,7 +81,7 @@
      * @returns {Number}
      */
     function getCommandPay(command) {
-        return $.getIniDbNumber('paycom', command, 0);
+        return $.commandPolicy(command, '').pay();
     }
 
     /*
@@ -290,6 +290,34 @@
             return;
         }
 
+        /*
+         * @commandpath apicachecom [command] [seconds] - Sets how long successful responses of the (customapi) and (customapijson) tags in a command are cached. Omit the seconds to use the default, or 0 to disable
+         */
+        if ($.equalsIgnoreCase(command, 'apicachecom')) {
+            if (action === undefined) {
+                $.say($.whisperPrefix(sender) + $.lang.get('customcommands.apicache.usage'));
+                return;
+            }
+
+            action = action.replace('!', '').toLowerCase();
+
+            if (!$.commandExists(action)) {
+                $.say($.whisperPrefix(sender) + $.lang.get('cmd.404', action));
+                return;
+            }
+
+            if (subAction === undefined) {
+                $.inidb.RemoveKey('customapicachettl', '', action);
+                $.say($.whisperPrefix(sender) + $.lang.get('customcommands.apicache.default', action));
+            } else if (isNaN(parseInt(subAction)) || parseInt(subAction) < 0) {
+                $.say($.whisperPrefix(sender) + $.lang.get('customcommands.apicache.usage'));
+            } else {
+                $.inidb.SetInteger('customapicachettl', '', action, parseInt(subAction));
+                $.say($.whisperPrefix(sender) + $.lang.get('customcommands.apicache.success', action, parseInt(subAction)));
+            }
+            return;
+        }
+
         /*
          * @commandpath delcom [command] - Delete that custom command
          */
@@ -318,6 +346,7 @@
             $.inidb.del('disabledCommands', action);
             $.inidb.del('hiddenCommands', action);
             $.inidb.del('commandtoken', action);
+            $.inidb.del('customapicachettl', action);
             $.unregisterChatCommand(action);
             _lock.lock();
             try {
@@ -809,6 +838,7 @@
         $.registerChatCommand('./commands/customCommands.js', 'delcom', $.PERMISSION.Mod);
         $.registerChatCommand('./commands/customCommands.js', 'editcom', $.PERMISSION.Mod);
         $.registerChatCommand('./commands/customCommands.js', 'tokencom', $.PERMISSION.Mod);
+        $.registerChatCommand('./commands/customCommands.js', 'apicachecom', $.PERMISSION.Mod);
         $.registerChatCommand('./commands/customCommands.js', 'permcom', $.PERMISSION.Admin);
         $.registerChatCommand('./commands/customCommands.js', 'commands', $.PERMISSION.Viewer);
         $.registerChatCommand('./commands/customCommands.js', 'hidecom', $.PERMISSION.Admin);
@@ -21,18 +21,29 @@
  * This module stores the dates of when users have last seen in the channel.
  */
 (function() {
+    // Last seen times are kept in memory and written in batches
+    var _presence = Packages.tv.phantombot.cache.PresenceCache.instance();
+
     /*
      * @event ircChannelJoin
      */
     $.bind('ircChannelJoin', function(event) {
-        $.inidb.set('lastseen', event.getUser().toLowerCase(), $.systemTime());
+        _presence.seen(event.getUser());
     });
 
     /*
      * @event ircChannelLeave
      */
     $.bind('ircChannelLeave', function(event) {
-        $.inidb.set('lastseen', event.getUser().toLowerCase(), $.systemTime());
+        _presence.seen(event.getUser());
+    });
+
+    /*
+     * @event ircChannelUsersUpdate
+     */
+    $.bind('ircChannelUsersUpdate', function(event) {
+        _presence.seen(event.joins());
+        _presence.seen(event.parts());
     });
 
     /*
@@ -56,10 +67,10 @@
 
             target = $.user.sanitize(target);
 
-            let lastseen = $.optIniDbNumber('lastseen', target.toLowerCase());
+            let lastseen = _presence.lastSeen(target);
 
             if (lastseen.isPresent()) {
-                date = new Date(lastseen.get());
+                date = new Date(lastseen.get().longValue());
                 $.say($.whisperPrefix(sender) + $.lang.get('lastseen.response', $.viewer.getByLogin(target).name(), date.toLocaleDateString(), date.toLocaleTimeString()));
             } else {
                 $.say($.whisperPrefix(sender) + $.lang.get('lastseen.404', $.viewer.getByLogin(target).name()));
@@ -22,6 +22,8 @@
             timeouts = [],
             whiteList = [],
             blackList = [],
+            blackListMatcher = Packages.com.gmt2001.PhraseMatcher.EMPTY,
+            blackListFallback = [],
             spamTracker = {},
             linksToggle = $.getSetIniDbBoolean('chatModerator', 'linksToggle', false),
             linksMessage = $.getSetIniDbString('chatModerator', 'linksMessage', 'you were timed out for linking.'),
@@ -310,30 +312,41 @@
      * @function loadBlackList
      */
     function loadBlackList() {
-        var keys = $.inidb.GetKeyList('blackList', '');
+        var PhraseMatcher = Packages.com.gmt2001.PhraseMatcher,
+                keys = $.inidb.GetKeyList('blackList', ''),
+                builder = PhraseMatcher.builder();
         blackList = [];
+        blackListFallback = [];
 
         for (i = 0; i < keys.length; i++) {
             var json = JSON.parse($.getIniDbString('blackList', keys[i]));
 
             if (json !== null) {
                 if (json.isRegex) {
+                    json.phrase = json.phrase.replace('regex:', '');
                     try {
-                        json.phrase = new RegExp(json.phrase.replace('regex:', ''));
+                        json.regex = new RegExp(json.phrase);
                     } catch (ex) {
-                        // Failed to create regex, use as non-regex.
-                        json.phrase = json.phrase.replace('regex:', '').toLowerCase();
-                        json.isRegex = false;
+                        // Failed to create regex, skip it.
                         continue;
                     }
+
+                    // Regexes which are only valid in JavaScript are checked by checkBlackList
+                    if (!PhraseMatcher.isValidRegex(json.phrase)) {
+                        blackListFallback.push(blackList.length);
+                    }
+                    builder.regex(json.phrase, true);
                 } else {
                     json.phrase = json.phrase.toLowerCase();
+                    builder.literal(json.phrase, true, PhraseMatcher.Mode.SUBSTRING);
                 }
                 json.isBan = parseInt(json.timeout) === -1;
 
                 blackList.push(json);
             }
         }
+
+        blackListMatcher = builder.build();
     }
 
     /**
@@ -546,54 +559,42 @@
      * @param {string} sender
      * @param {string} message
      * @param {map} tags
+     * @param {Number} groupId the group id of the sender
      */
-    function checkBlackList(sender, event, message, tags) {
-        for (i in blackList) {
-            if (blackList[i].isRegex) {
-                if ($.test(message, blackList[i].phrase)) {
-                    if (blackList[i].excludeRegulars && $.checkUserPermission(sender, tags, $.PERMISSION.Regular) || blackList[i].excludeSubscribers && $.checkUserPermission(sender, tags, $.PERMISSION.Sub) || blackList[i].excludeVips && $.checkUserPermission(sender, tags, $.PERMISSION.VIP)) {
-                        return false;
-                    }
+    function checkBlackList(sender, event, message, tags, groupId) {
+        var idx = blackListMatcher.first(message),
+                entry;
 
-                    try {
-                        if (blackList[i].isBan) {
-                            banUser(sender, blackList[i].banReason);
-                            warning = $.lang.get('chatmoderator.ban');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        } else {
-                            timeoutDeleteUser(sender, blackList[i].timeout, blackList[i].banReason, tags);
-                            warning = $.lang.get('chatmoderator.timeout');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        }
-                        return true;
-                    } finally {
-                        event.moderated();
-                    }
-                }
-            } else {
-                if (message.indexOf(blackList[i].phrase) !== -1) {
-                    if (blackList[i].excludeRegulars && $.checkUserPermission(sender, tags, $.PERMISSION.Regular) || blackList[i].excludeSubscribers && $.checkUserPermission(sender, tags, $.PERMISSION.Sub) || blackList[i].excludeVips && $.checkUserPermission(sender, tags, $.PERMISSION.VIP)) {
-                        return false;
-                    }
+        for (var j = 0; j < blackListFallback.length && (idx === -1 || blackListFallback[j] < idx); j++) {
+            if ($.test(message, blackList[blackListFallback[j]].regex)) {
+                idx = blackListFallback[j];
+                break;
+            }
+        }
 
-                    try {
-                        if (blackList[i].isBan) {
-                            banUser(sender, blackList[i].banReason);
-                            warning = $.lang.get('chatmoderator.ban');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        } else {
-                            timeoutDeleteUser(sender, blackList[i].timeout, blackList[i].banReason, tags);
-                            warning = $.lang.get('chatmoderator.timeout');
-                            sendMessage(sender, blackList[i].message, blackList[i].isSilent);
-                        }
-                        return true;
-                    } finally {
-                        event.moderated();
-                    }
-                }
+        if (idx === -1) {
+            return false;
+        }
+
+        entry = blackList[idx];
+        if (entry.excludeRegulars && groupId <= $.PERMISSION.Regular || entry.excludeSubscribers && groupId <= $.PERMISSION.Sub || entry.excludeVips && groupId <= $.PERMISSION.VIP) {
+            return false;
+        }
+
+        try {
+            if (entry.isBan) {
+                banUser(sender, entry.banReason);
+                warning = $.lang.get('chatmoderator.ban');
+                sendMessage(sender, entry.message, entry.isSilent);
+            } else {
+                timeoutDeleteUser(sender, entry.timeout, entry.banReason, tags);
+                warning = $.lang.get('chatmoderator.timeout');
+                sendMessage(sender, entry.message, entry.isSilent);
             }
+            return true;
+        } finally {
+            event.moderated();
         }
-        return false;
     }
 
     /**
@@ -641,27 +642,43 @@
         return false;
     }
 
+    /**
+     * @function isExempt
+     *
+     * @param {string} filter
+     * @param {Number} groupId the group id of the sender
+     * @returns {boolean} true if the group of the sender is not moderated by the filter
+     */
+    function isExempt(filter, groupId) {
+        return (!regulars[filter] && groupId <= $.PERMISSION.Regular) || (!subscribers[filter] && groupId <= $.PERMISSION.Sub) || (!vips[filter] && groupId <= $.PERMISSION.VIP);
+    }
+
     /*
      * @event ircModeration
      */
     $.bind('ircModeration', function (event) {
         var sender = event.getSender(),
                 message = event.getMessage().toLowerCase(),
-                messageLength = $.strlen(message),
-                tags = event.getTags();
+                tags = event.getTags(),
+                groupId = $.getUserGroupId(sender, tags),
+                stats,
+                messageLength;
 
-        if (!$.checkUserPermission(sender, tags, $.PERMISSION.Mod)) {
+        if (groupId > $.PERMISSION.Mod) {
             // Blacklist
-            if (checkBlackList(sender, event, message, tags)) {
+            if (checkBlackList(sender, event, message, tags, groupId)) {
                 return;
             }
 
+            stats = Packages.tv.phantombot.scripts.core.MessageStats.analyze(event.getMessage(), tags.get('emotes'), linksToggle);
+            messageLength = stats.length();
+
             // Links filter
-            if (linksToggle && $.patternDetector.hasLinks(event)) {
+            if (linksToggle && stats.hasLinks()) {
                 if (checkYoutubePlayer(message) || checkPermitList(sender) || checkWhiteList(message)) {
                     return;
                 }
-                if ((!regulars.Links && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Links && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Links && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+                if (isExempt('Links', groupId)) {
                     return;
                 }
 
@@ -677,8 +694,8 @@
 
             // Symbol filter
             if (symbolsToggle && messageLength >= symbolsTriggerLength) {
-                if ($.patternDetector.getLongestNonLetterSequence(event) >= symbolsGroupLimit || (($.patternDetector.getNumberOfNonLetters(event) / messageLength) * 100) >= symbolsLimitPercent) {
-                    if ((!regulars.Symbols && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Symbols && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Symbols && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+                if (stats.longestSymbolRun() >= symbolsGroupLimit || stats.symbolsPercent() >= symbolsLimitPercent) {
+                    if (isExempt('Symbols', groupId)) {
                         return;
                     }
 
@@ -693,8 +710,8 @@
             }
 
             // Spam filter
-            if (spamToggle && $.patternDetector.getLongestRepeatedSequence(event) >= spamLimit) {
-                if ((!regulars.Spam && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Spam && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Spam && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+            if (spamToggle && stats.longestRepeatedRun() >= spamLimit) {
+                if (isExempt('Spam', groupId)) {
                     return;
                 }
 
@@ -709,7 +726,7 @@
 
             // Long msg filter
             if (longMessageToggle && messageLength >= longMessageLimit) {
-                if ((!regulars.LongMsg && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.LongMsg && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.LongMsg && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+                if (isExempt('LongMsg', groupId)) {
                     return;
                 }
 
@@ -723,8 +740,8 @@
             }
 
             // Fake purge filter
-            if (fakePurgeToggle && $.patternDetector.getFakePurge(event)) {
-                if ((!regulars.FakePurge && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.FakePurge && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.FakePurge && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+            if (fakePurgeToggle && stats.fakePurge()) {
+                if (isExempt('FakePurge', groupId)) {
                     return;
                 }
 
@@ -738,8 +755,8 @@
             }
 
             // Emotes folter
-            if (emotesToggle && $.patternDetector.getEmotesCount(event) >= emotesLimit) {
-                if ((!regulars.Emotes && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Emotes && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Emotes && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+            if (emotesToggle && stats.emotes() >= emotesLimit) {
+                if (isExempt('Emotes', groupId)) {
                     return;
                 }
 
@@ -754,8 +771,8 @@
 
             // Caps filter
             if (capsToggle && messageLength >= capsTriggerLength) {
-                if ((($.patternDetector.getNumberOfCaps(event) / messageLength) * 100) >= capsLimitPercent) {
-                    if ((!regulars.Caps && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Caps && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Caps && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+                if (stats.capsPercent() >= capsLimitPercent) {
+                    if (isExempt('Caps', groupId)) {
                         return;
                     }
 
@@ -770,8 +787,8 @@
             }
 
             // Color filter
-            if (colorsToggle && $.patternDetector.getColoredMessage(event)) {
-                if ((!regulars.Colors && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.Colors && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.Colors && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+            if (colorsToggle && stats.colored()) {
+                if (isExempt('Colors', groupId)) {
                     return;
                 }
 
@@ -786,7 +803,7 @@
 
             // Spam tracker
             if (spamTrackerToggle) {
-                if ((!regulars.SpamTracker && $.checkUserPermission(sender, tags, $.PERMISSION.Regular)) || (!subscribers.SpamTracker && $.checkUserPermission(sender, tags, $.PERMISSION.Sub)) || (!vips.SpamTracker && $.checkUserPermission(sender, tags, $.PERMISSION.VIP))) {
+                if (isExempt('SpamTracker', groupId)) {
                     return;
                 }
 
@@ -696,9 +696,10 @@
      */
     function priceCom(username, command, subCommand, isMod) {
         if (!disablecomBlocked.includes(command)) {
-            if ((subCommand !== '' && $.inidb.exists('pricecom', command + ' ' + subCommand)) || $.inidb.exists('pricecom', command)) {
-                if ((((isMod && $.getIniDbBoolean('settings', 'pricecomMods', false) && !$.isBot(username)) || !isMod)) && $.bot.isModuleEnabled('./systems/pointSystem.js')) {
-                    if ($.getUserPoints(username) < getCommandPrice(command, subCommand, '')) {
+            let policy = commandPolicy(command, subCommand);
+            if (policy.isPriced()) {
+                if ((((isMod && policy.pricecomMods() && !$.isBot(username)) || !isMod)) && $.bot.isModuleEnabled('./systems/pointSystem.js')) {
+                    if ($.getUserPoints(username) < policy.price()) {
                         return 1;
                     }
                     return 0;
@@ -718,25 +719,19 @@
      * @returns {Number}
      */
     function getCommandPrice(command, subCommand, subCommandAction) {
-        command = command.toLowerCase();
-        subCommand = subCommand.toLowerCase();
-        subCommandAction = subCommandAction.toLowerCase();
-
-        let cost = $.optIniDbNumber('pricecom', command + ' ' + subCommand + ' ' + subCommandAction);
-        if (cost.isPresent()) {
-            return cost.get();
-        }
-
-        cost = $.optIniDbNumber('pricecom', command + ' ' + subCommand);
-        if (cost.isPresent()) {
-            return cost.get();
-        }
+        return Packages.tv.phantombot.cache.CommandPolicyCache.instance().price(command, subCommand, subCommandAction);
+    }
 
-        cost = $.optIniDbNumber('pricecom', command);
-        if (cost.isPresent()) {
-            return cost.get();
-        }
-        return 0;
+    /*
+     * @function commandPolicy
+     *
+     * @export $
+     * @param {string} command
+     * @param {string} subCommand
+     * @returns {Packages.tv.phantombot.cache.CommandPolicyCache.CommandPolicy} The cached alias, price, pay, disabled state, and message settings of the command
+     */
+    function commandPolicy(command, subCommand) {
+        return Packages.tv.phantombot.cache.CommandPolicyCache.instance().get(command, (subCommand === undefined || subCommand === null ? '' : subCommand));
     }
 
     $.bind('command', function (event) {
@@ -870,6 +865,7 @@
     $.priceCom = priceCom;
     $.disablecomBlocked = getDisablecomBlocked;
     $.getCommandPrice = getCommandPrice;
+    $.commandPolicy = commandPolicy;
 
     $.bind('webPanelSocketUpdate', function (event) {
         if ($.equalsIgnoreCase(event.getScript(), './core/commandRegister.js')) {
@@ -19,7 +19,7 @@
 
 (function () {
     let transformers = {},
-            tagPattern = Packages.java.util.regex.Pattern.compile("(?:[^\\\\]|^)(\\(([^\\\\\\s\\|!=()]*)([!]?[\\s!=\\|])?((?:\\\\\\(|\\\\\\)|[^()])*)?(?<!\\\\)\\))"),
+            _engine = Packages.tv.phantombot.script.TagEngine.instance(),
             _lock = new Packages.java.util.concurrent.locks.ReentrantLock(),
             debugon = false;
 
@@ -58,7 +58,9 @@
      *
      * return {jsObject}     {
      *                         result: {jsString or null}, // default: ''. The returned value. The tag being processed will be replaced with this
-     *                                                     //     value, if a valid string is returned (including empty string)
+     *                                                     //     value, if a valid string is returned (including empty string). May also be a
+     *                                                     //     java.util.concurrent.CompletionStage which completes with the value, such as
+     *                                                     //     $.customAPI.contentAsync, so that the tag engine is not blocked waiting for it
      *                         cancel: {boolean},          // default: false. Set `true` to cancel further tag processing and return null to the caller
      *                         raw: {boolean},             // default: false. If set to `false`, the value of `result` will be escaped, preventing
      *                                                     //     processing of any tags that may be contained in `result`
@@ -75,11 +77,20 @@
      * @param {string} tag - the name of the tag to be matched, triggering this transformer
      * @param {jsArray[jsString]} labels - the labels that categorize where this transformer works and what category of function it performs
      * @param {function} transformer - the function which performs transformation
+     * @param {object} options - optional. A js object which may contain any of the following params
+     *                              concurrent: {boolean} default false. Set `true` if the transformer only reads data, so that it may run at the
+     *                                  same time as, or ahead of, the other tags in the same message, such as an HTTP or file read
+     *                              reentrant: {boolean} default true. Set `false` to only allow one call to the transformer to run at a time
+     *                              timeout: {number} default 10000. How long to wait for the transformer, in milliseconds, before replacing the tag
+     *                                  with an empty string
      */
-    function Transformer(tag, labels, transformer) {
+    function Transformer(tag, labels, transformer, options) {
         this.tag = $.jsString(tag).trim().toLowerCase();
         this.labels = [];
         this.transformer = transformer;
+        this.concurrent = options !== undefined && options !== null && options.concurrent === true;
+        this.reentrant = options === undefined || options === null || options.reentrant !== false;
+        this.timeout = options !== undefined && options !== null && !isNaN(options.timeout) ? parseInt(options.timeout) : 0;
 
         /*
          * @function hasLabel
@@ -176,9 +187,7 @@
      */
     function tags(event, message, globalTransformerRequiredLabels, args) {
         debug('tags');
-        let tagFound = false,
-                transformed,
-                transformCache = {};
+        let tagFound = false;
 
         if (args === undefined || args === null) {
             args = {};
@@ -209,91 +218,56 @@
 
         let globalTransformers = getTransformers();
 
-        let matcher = tagPattern.matcher($.javaString(message));
-        while (matcher.find()) {
-            let wholeMatch = $.jsString(matcher.group(1)),
-                    tagName = $.jsString(matcher.group(2)).toLowerCase(),
+        let evaluated = _engine.evaluate($.javaString(message), function (tagName, argsep, tagArgsString) {
+            let transformed,
                     tagArgs = {
                         event: event,
-                        tag: tagName,
-                        argsep: matcher.group(3) !== null ? $.jsString(matcher.group(3)) : '',
-                        args: matcher.group(4) !== null ? unescapeTags($.jsString(matcher.group(4))) : '',
+                        tag: $.jsString(tagName),
+                        argsep: $.jsString(argsep),
+                        args: $.jsString(tagArgsString),
                         customArgs: args.customArgs,
                         globalTransformerRequiredLabels: globalTransformerRequiredLabels,
                         globalTransformerAnyLabels: args.globalTransformerAnyLabels,
                         platform: args.platform.toLowerCase()
-                    },
-                    thisTagFound = false;
-                    if (debugon) {
-                        debug('>>');
-                        debug('wholeMatch=' + wholeMatch);
-                        debug('tagArgs=' + JSON.stringify(tagArgs));
-                    }
-            if (transformCache.hasOwnProperty(wholeMatch)) {
-                debug('cached');
-                message = $.replace(message, wholeMatch, transformCache[wholeMatch]);
-                thisTagFound = true;
-            } else {
-                _lock.lock();
-                try {
-                    if (args.localTransformers.hasOwnProperty(tagName)
-                            && (transformed = args.localTransformers[tagName](tagArgs))) {
-                        debug('local');
-                        thisTagFound = true;
-                    } else if (globalTransformers.hasOwnProperty(tagName) && globalTransformers[tagName].hasAllLabels(globalTransformerRequiredLabels)
-                            && globalTransformers[tagName].hasAnyLabel(args.globalTransformerAnyLabels)
-                            && (transformed = globalTransformers[tagName].transformer(tagArgs))) {
-                        debug('global');
-                        thisTagFound = true;
-                    }
-                } finally {
-                    _lock.unlock();
-                }
-
-                if (thisTagFound) {
-                    tagFound = true;
-                    if (transformed === undefined || transformed === null) {
-                        debug('tag did not return');
-                        transformed = {};
-                    }
-                    if (transformed.hasOwnProperty('result') && transformed.result !== null) {
-                        transformed.result = $.jsString(transformed.result);
-                    } else {
-                        debug('no result');
-                        transformed.result = '';
-                    }
-                    if (transformed.hasOwnProperty('cancel') && transformed.cancel) {
-                        debug('cancel');
-                        return null;
-                    }
-                    if (!transformed.hasOwnProperty('raw') || !transformed.raw) {
-                        transformed.result = escapeTags(transformed.result);
-                    } else {
-                        debug('raw');
-                    }
-                    if (transformed.hasOwnProperty('cache') && transformed.cache) {
-                        debug('cache');
-                        transformCache[wholeMatch] = transformed.result;
-                        message = $.replace(message, wholeMatch, transformed.result);
-                    } else {
-                        // only replace the first appearance
-                        message = message.replace(wholeMatch, transformed.result);
-                    }
-                    if (debugon) {
-                        debug('result=' + JSON.stringify(transformed));
-                        debug('message=' + message);
-                    }
-                }
+                    };
+            if (debugon) {
+                debug('>>');
+                debug('tagArgs=' + JSON.stringify(tagArgs));
             }
 
-            if (!thisTagFound) {
+            if (args.localTransformers.hasOwnProperty(tagArgs.tag)
+                    && (transformed = args.localTransformers[tagArgs.tag](tagArgs))) {
+                debug('local');
+            } else if (globalTransformers.hasOwnProperty(tagArgs.tag) && globalTransformers[tagArgs.tag].hasAllLabels(globalTransformerRequiredLabels)
+                    && globalTransformers[tagArgs.tag].hasAnyLabel(args.globalTransformerAnyLabels)
+                    && (transformed = globalTransformers[tagArgs.tag].transformer(tagArgs))) {
+                debug('global');
+            } else {
                 debug('!found');
-                message = $.replace(message, wholeMatch, '\\(' + wholeMatch.slice(1, -1) + '\\)');
+                return null;
+            }
+
+            if (debugon) {
+                debug('result=' + JSON.stringify(transformed));
             }
 
-            matcher.reset($.javaString(message));
+            return {
+                result: transformed.result === undefined || transformed.result === null ? ''
+                        : (transformed.result instanceof Packages.java.util.concurrent.CompletionStage ? transformed.result : $.jsString(transformed.result)),
+                cancel: !!transformed.cancel,
+                raw: !!transformed.raw,
+                cache: !!transformed.cache
+            };
+        }, Object.keys(args.localTransformers));
+
+        if (evaluated.cancelled()) {
+            debug('cancel');
+            return null;
         }
 
+        tagFound = evaluated.tagFound();
+        message = $.jsString(evaluated.message());
+
         // custom commands without tags can be directed towards users by mods
         if (!tagFound && args.atEnabled && event.getArgs()[0] !== undefined && $.checkUserPermission(event.getSender(), event.getTags(), $.PERMISSION.Mod)) {
             debug('atUser');
@@ -366,6 +340,7 @@
         _lock.lock();
         try {
             transformers[transformer.tag] = transformer;
+            _engine.register(transformer.tag, transformer.concurrent === true, transformer.reentrant !== false, transformer.timeout || 0);
         } finally {
             _lock.unlock();
         }
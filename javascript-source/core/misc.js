@@ -75,7 +75,7 @@
      * @returns {boolean}
      */
     function isKnown(username) {
-        return $.inidb.exists('visited', username.toLowerCase());
+        return Packages.tv.phantombot.cache.PresenceCache.instance().isKnown(username);
     }
 
     /**
@@ -104,6 +104,25 @@
      * @param {string} message
      */
     function say(message) {
+        sendChat(message, Packages.tv.phantombot.twitch.irc.chat.utils.Message.Priority.NORMAL, 0);
+    }
+
+    /**
+     * Sends a message which may wait behind command responses and moderation while the chat rate limit is reached, such as a notice or greeting
+     *
+     * @function sayLowPriority
+     * @export $
+     * @param {string} message
+     * @param {Number} [maxAge] how long the message may wait before it is dropped, in milliseconds; 0 or omitted to never drop it
+     */
+    function sayLowPriority(message, maxAge) {
+        sendChat(message, Packages.tv.phantombot.twitch.irc.chat.utils.Message.Priority.LOW, maxAge === undefined || maxAge === null ? 0 : maxAge);
+    }
+
+    /*
+     * @function sendChat
+     */
+    function sendChat(message, priority, maxAge) {
         if (message === undefined || message === null) {
             return;
         }
@@ -113,14 +132,14 @@
         }
 
         if (respond && !action) {
-            Packages.tv.phantombot.PhantomBot.instance().getSession().say(message);
+            Packages.tv.phantombot.PhantomBot.instance().getSession().say(message, priority, maxAge);
         } else {
             if (respond && action) {
                 // If the message is a Twitch command, remove the /me.
                 if (message.startsWith('.') || message.startsWith('/')) {
-                    Packages.tv.phantombot.PhantomBot.instance().getSession().say(message);
+                    Packages.tv.phantombot.PhantomBot.instance().getSession().say(message, priority, maxAge);
                 } else {
-                    Packages.tv.phantombot.PhantomBot.instance().getSession().say('/me ' + message);
+                    Packages.tv.phantombot.PhantomBot.instance().getSession().say('/me ' + message, priority, maxAge);
                 }
             }
             if (!respond) {
@@ -475,6 +494,7 @@
     $.randInterval = randInterval;
     $.randRange = randRange;
     $.say = say;
+    $.sayLowPriority = sayLowPriority;
     $.trueRand = trueRand;
     $.trueRandElement = trueRandElement;
     $.trueRandRange = trueRandRange;
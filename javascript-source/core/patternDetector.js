@@ -25,7 +25,6 @@
  */
 (function() {
     let patterns = {
-        emotes: new RegExp('([0-9][0-9]-[0-9][0-9])|([0-9]-[0-9])', 'g'),
         repeatedSeq: /(.)(\1+)/ig,
         nonAlphaSeq: /([^a-z0-9 ])(\1+)/ig,
         nonAlphaCount: /([^a-z0-9 ])/ig,
@@ -124,11 +123,7 @@
      * @info this gets the emote count from the ircv3 tags and the emotes cache if enabled.
      */
     function getEmotesCount(event) {
-        let emotes = event.getTags().get('emotes'),
-            matched = $.match(emotes, patterns.emotes),
-            extraEmotes = $.emotesHandler.getEmotesMatchCount(event.getMessage());
-
-        return (matched === null ? extraEmotes : (matched.length + extraEmotes));
+        return Packages.tv.phantombot.twitch.emotes.EmoteMatcher.current().countAll(event.getMessage(), event.getTags().get('emotes'));
     }
 
     /**
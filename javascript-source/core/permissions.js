@@ -35,7 +35,12 @@
             lastJoinPart = $.systemTime(),
             isUpdatingUsers = false,
             _isSwappedSubscriberVIP = $.getSetIniDbBoolean('settings', 'isSwappedSubscriberVIP', true),
-            _usersGroupsLock = new Packages.java.util.concurrent.locks.ReentrantLock();
+            _usersGroupsLock = new Packages.java.util.concurrent.locks.ReentrantLock(),
+            userGroupCache = Packages.tv.phantombot.cache.UserGroupCache.instance(),
+            presenceCache = Packages.tv.phantombot.cache.PresenceCache.instance(),
+            usersIndex = Packages.java.util.concurrent.ConcurrentHashMap.newKeySet(),
+            usersLoaded = false,
+            _usersUpdateLock = new Packages.java.util.concurrent.locks.ReentrantLock();
 
     /**
      * @export $
@@ -111,22 +116,6 @@
         cleanTwitchBots();
     }
 
-    /**
-     * @function hasKey
-     * @param {Array} list
-     * @param {*} value
-     * @returns {boolean}
-     */
-    function hasKey(list, value) {
-        for (let i = 0; i < list.length; i++) {
-            if ($.equalsIgnoreCase(list[i], value)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     /**
      * @function updateUsersObject
      * @param {Array} newUsers
@@ -163,7 +152,7 @@
      * @returns {boolean}
      */
     function userExists(username) {
-        return hasKey($.users, username);
+        return usersIndex.contains($.javaString($.jsString(username).toLowerCase()));
     }
 
     /**
@@ -484,7 +473,7 @@
      * @returns {Number}
      */
     function queryDBPermission(username) {
-        return $.getIniDbNumber('group', username.toLowerCase(), PERMISSION.None);
+        return userGroupCache.get(username.toLowerCase(), PERMISSION.None);
     }
 
     /**
@@ -557,7 +546,7 @@
      */
     function setUserGroupById(username, id) {
         if (id < PERMISSION.None) {
-            $.setIniDbNumber('group', username.toLowerCase(), id);
+            userGroupCache.set(username.toLowerCase(), id);
         }
     }
 
@@ -720,34 +709,99 @@
      * VIPs do get updated through OMode and thus shouldn't need to be fixed
      */
     function restoreSubscriberStatus(username) {
-        username = $.jsString(username.toString().toLowerCase());
+        restoreSubscriberStatuses([username]);
+    }
 
-        if (isMod(username) || isAdmin(username)) { //Ignore high privileged users
+    /**
+     * @function restoreSubscriberStatuses
+     * @param {Array} usernames
+     *
+     * Performs restoreSubscriberStatus for many users at once. The group rows of all users are read with one query, and the changes are written with one batch per table
+     */
+    function restoreSubscriberStatuses(usernames) {
+        let logins = [],
+            groupKeys = [],
+            groupValues = [],
+            preSubKeys = [],
+            preSubValues = [],
+            unsubscribed = [];
+
+        for (let i = 0; i < usernames.length; i++) {
+            logins.push($.jsString(usernames[i].toString().toLowerCase()));
+        }
+
+        if (logins.length === 0) {
             return;
         }
 
-        let oldID = queryDBPermission(username),
-            isInCache = isSubCache(username);
+        userGroupCache.prefetch(logins);
 
-        if (isInCache && oldID !== PERMISSION.Sub) { //User got added to subscriber cache but it's database value is out of sync
-            if (isVIP(username) && oldID > PERMISSION.VIP) { //User is also a VIP - Only change permissions if needed
-                setUserGroupById(username, getLowestIDSubVIP());
-            } else if (!isVIP(username)){ //User is only a subscriber - Set permission accordingly
-                setUserGroupById(username, PERMISSION.Sub);
+        for (let i = 0; i < logins.length; i++) {
+            let username = logins[i];
+
+            if (isMod(username) || isAdmin(username)) { //Ignore high privileged users
+                continue;
             }
 
-            oldID = (oldID > PERMISSION.Regular) ? PERMISSION.Regular : oldID; //Only save meaningful permissions
-            $.setIniDbNumber('preSubGroup', username, oldID); //Save the old (permission) id for reference when the subscription runs out
-        } else if (!isInCache && oldID === PERMISSION.Sub) { //User is not in the subscriber cache but holds subscriber permissions according to the database
-            if (isVIP(username)) { //User is a VIP - Set permission to VIP
-                setUserGroupById(username, PERMISSION.VIP);
-            } else if ($.inidb.exists('preSubGroup', username)) { //User is not a VIP but has a reference to his old permissions - Use those
-                setUserGroupById(username, $.getIniDbNumber('preSubGroup', username, PERMISSION.Viewer));
-                $.inidb.del('preSubGroup', username);
-            } else {
-                setUserGroupById(username, PERMISSION.Viewer);
+            let oldID = queryDBPermission(username),
+                isInCache = isSubCache(username);
+
+            if (isInCache && oldID !== PERMISSION.Sub) { //User got added to subscriber cache but it's database value is out of sync
+                if (isVIP(username) && oldID > PERMISSION.VIP) { //User is also a VIP - Only change permissions if needed
+                    groupKeys.push(username);
+                    groupValues.push(String(getLowestIDSubVIP()));
+                } else if (!isVIP(username)){ //User is only a subscriber - Set permission accordingly
+                    groupKeys.push(username);
+                    groupValues.push(String(PERMISSION.Sub));
+                }
+
+                oldID = (oldID > PERMISSION.Regular) ? PERMISSION.Regular : oldID; //Only save meaningful permissions
+                preSubKeys.push(username); //Save the old (permission) id for reference when the subscription runs out
+                preSubValues.push(String(oldID));
+            } else if (!isInCache && oldID === PERMISSION.Sub) { //User is not in the subscriber cache but holds subscriber permissions according to the database
+                if (isVIP(username)) { //User is a VIP - Set permission to VIP
+                    groupKeys.push(username);
+                    groupValues.push(String(PERMISSION.VIP));
+                } else {
+                    unsubscribed.push(username);
+                }
+            }
+        }
+
+        if (unsubscribed.length > 0) {
+            let preSubGroups = new Packages.java.util.HashMap(),
+                kvs = $.inidb.GetKeyValueListByKeys('preSubGroup', '', unsubscribed);
+
+            for (let i = 0; i < kvs.length; i++) {
+                preSubGroups.put(kvs[i].getKey(), kvs[i].getValue());
+            }
+
+            for (let i = 0; i < unsubscribed.length; i++) {
+                let username = unsubscribed[i],
+                    id = PERMISSION.Viewer;
+
+                if (preSubGroups.containsKey($.javaString(username))) { //User is not a VIP but has a reference to his old permissions - Use those
+                    id = parseInt(preSubGroups.get($.javaString(username)));
+                    if (isNaN(id)) {
+                        id = PERMISSION.Viewer;
+                    }
+                    $.inidb.del('preSubGroup', username);
+                }
+
+                if (id < PERMISSION.None) {
+                    groupKeys.push(username);
+                    groupValues.push(String(id));
+                }
             }
         }
+
+        if (groupKeys.length > 0) {
+            userGroupCache.setBatch(groupKeys, groupValues);
+        }
+
+        if (preSubKeys.length > 0) {
+            $.inidb.SetBatchString('preSubGroup', '', preSubKeys, preSubValues);
+        }
     }
 
 
@@ -874,8 +928,8 @@
 
         $.inidb.set('groups', PERMISSION.VIP.toString(), oldVIPD);
         $.inidb.set('groups', PERMISSION.Sub.toString(), oldSubD);
-        $.inidb.SetBatchString('group', '', oldSubU, newSubU);
-        $.inidb.SetBatchString('group', '', oldVIPU, newVIPU);
+        userGroupCache.setBatch(oldSubU, newSubU);
+        userGroupCache.setBatch(oldVIPU, newVIPU);
         _isSwappedSubscriberVIP = !_isSwappedSubscriberVIP;
         $.inidb.SetBoolean('settings', '', 'isSwappedSubscriberVIP', _isSwappedSubscriberVIP);
         //Update Permission export (needs to be done since VIP and Sub are computed variables, otherwise VIP and Sub doesn't get switched)
@@ -969,40 +1023,58 @@
      * @event ircChannelJoinUpdate
      */
     $.bind('ircChannelUsersUpdate', function (event) {
+        // Updates carry join/part deltas, so they must all be applied in order
+        _usersUpdateLock.lock();
+        isUpdatingUsers = true;
+        try {
+            let joins = new Packages.java.util.ArrayList(),
+                newUsers = [];
+
+            if (!usersLoaded) {
+                // The first update after the script loads rebuilds the list from all chatters
+                let chatters = event.chatters();
+                for (let i = 0; i < chatters.size(); i++) {
+                    joins.add(chatters.get(i).login());
+                }
+                usersIndex.clear();
+                $.users = [];
+                usersLoaded = true;
+            } else {
+                joins.addAll(event.joins());
+
+                if (!event.parts().isEmpty()) {
+                    let parted = new Packages.java.util.HashSet(event.parts());
+                    usersIndex.removeAll(parted);
+                    $.users = $.users.filter(function (username) {
+                        return !parted.contains($.javaString(username));
+                    });
+                }
+            }
 
-        if (isUpdatingUsers) {
-            return; //Skip this update run
-        }
+            for (let i = 0; i < joins.size(); i++) {
+                if (joins.get(i) === null) {
+                    continue;
+                }
 
-        // Don't allow other events to add or remove users.
-        isUpdatingUsers = true;
+                let username = $.jsString(joins.get(i).toLowerCase());
+                if (isTwitchBot(username) || !usersIndex.add($.javaString(username))) {
+                    continue;
+                }
 
-        let chatters = event.chatters(),
-                newUsers = [],
-                keys = [],
-                values = [];
+                $.users.push(username);
 
-        // Process new users list
-        for (let i = 0; i < chatters.length; i++) {
-            let username = $.jsString(chatters.get(i).login().toLowerCase());
-            if (isTwitchBot(username)) {
-                continue;
+                if (!isOwner(username)) { //Ignore bots as well as the streamer
+                    newUsers.push(username);
+                }
             }
 
-            if (!isOwner(username) && !$.users.includes(username)) { //Ignore already known users and bots as well as the streamer
-                keys.push(username);
-                values.push('true');
-                restoreSubscriberStatus(username);
+            if (newUsers.length !== 0) {
+                restoreSubscriberStatuses(newUsers);
+                presenceCache.visited(newUsers);
             }
-
-            newUsers.push(username);
-        }
-
-        $.users = newUsers;
-        isUpdatingUsers = false;
-
-        if (keys.length !== 0) {
-            $.inidb.SetBatchString('visited', '', keys, values);
+        } finally {
+            isUpdatingUsers = false;
+            _usersUpdateLock.unlock();
         }
     });
 
@@ -1017,9 +1089,7 @@
         }
 
         if (!isUpdatingUsers && !userExists(username)) {
-            if (!$.user.isKnown(username)) {
-                $.setIniDbBoolean('visited', username, true);
-            }
+            presenceCache.visited(username);
 
             lastJoinPart = $.systemTime();
         }
@@ -1037,9 +1107,7 @@
         }
 
         if (!isUpdatingUsers && !userExists(username)) {
-            if (!$.user.isKnown(username)) {
-                $.setIniDbBoolean('visited', username, true);
-            }
+            presenceCache.visited(username);
         } else if (checkTags(tags)) { // The subscriber and vip cache should always be up-to-date for restoreSubscriberStatus() to properly work
             if (tags.getOrDefault('subscriber', '0').equals('1')) {
                 addSubUsersList(username);
@@ -1416,6 +1484,9 @@
     $.userGroups = userGroups;
     $.modeOUsers = modeOUsers;
     $.subUsers = subUsers;
+    $.vipUsers = vipUsers;
+    $.moderatorsCache = moderatorsCache;
+    $.twitchBots = botList;
     $.users = [];
     /**
      * @deprecated
@@ -1456,6 +1527,7 @@
     $.removeModeratorFromCache = removeModeratorFromCache;
     $.updateUsersObject = updateUsersObject;
     $.restoreSubscriberStatus = restoreSubscriberStatus;
+    $.restoreSubscriberStatuses = restoreSubscriberStatuses;
     $.PERMISSION = PERMISSION;
     $.getHighestIDSubVIP = getHighestIDSubVIP;
     $.getLowestIDSubVIP = getLowestIDSubVIP;
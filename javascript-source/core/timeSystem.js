@@ -539,26 +539,30 @@
     // Interval for auto level to regular
     setInterval(function () {
         if (levelWithTime) {
-            let chatList = $.viewer.chatters();
-            let active = $.viewer.activeChatters();
-            for (let i = 0; i < chatList.size(); i++) {
-                let username = $.jsString(chatList.get(i).login().toLowerCase());
-                let time = $.optIniDbNumber('time', username);
-                // Only level viewers to regulars and ignore TwitchBots
-                if (!$.isTwitchBot(username)
-                    && (!$.hasPermissionLevel(username) || $.isViewer(username)) //Assume users without permissions level are viewers, if they are too new the check will fail in the next condition
-                    && time.isPresent()
-                    && Math.floor(time.get() / 3600) >= hoursForLevelUp) {
-                    if (!$.isMod(username)) { // Added a second check here to be 100% sure the user is not a mod.
-                        $.setUserGroupById(username, $.PERMISSION.Regular);
-                        if (timeLevelWarning && (!alertActiveOnly || active.contains(chatList.get(i)))) {
-                            $.say($.lang.get(
-                                'timesystem.autolevel.promoted',
-                                $.viewer.getByLogin(username).name(),
-                                $.getGroupNameById($.PERMISSION.Regular).toLowerCase(),
-                                hoursForLevelUp
-                            )); //No whisper mode needed here.
-                        }
+            // Only level viewers to regulars and ignore TwitchBots, mods, and users who are subs or VIPs only through the caches, as $.isViewer did
+            let excluded = new Packages.java.util.ArrayList($.twitchBots),
+                    active = $.viewer.activeChatters(),
+                    promoted;
+
+            excluded.addAll($.moderatorsCache);
+            excluded.addAll($.subUsers);
+            excluded.addAll($.vipUsers);
+            excluded.add($.javaString($.ownerName));
+            excluded.add($.javaString($.botName));
+            excluded.add($.javaString($.channelName));
+
+            promoted = Packages.tv.phantombot.scripts.core.AutoPromotion.instance().promote(excluded, hoursForLevelUp * 3600, $.PERMISSION.Regular);
+
+            if (timeLevelWarning) {
+                for (let i = 0; i < promoted.size(); i++) {
+                    let viewer = $.viewer.getByLogin(promoted.get(i));
+                    if (!alertActiveOnly || active.contains(viewer)) {
+                        $.say($.lang.get(
+                            'timesystem.autolevel.promoted',
+                            viewer !== null ? viewer.name() : promoted.get(i),
+                            $.getGroupNameById($.PERMISSION.Regular).toLowerCase(),
+                            hoursForLevelUp
+                        )); //No whisper mode needed here.
                     }
                 }
             }
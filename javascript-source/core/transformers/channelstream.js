@@ -418,24 +418,24 @@
     }
 
     let transformers = [
-        new $.transformers.transformer('channelname', ['twitch', 'discord', 'noevent', 'channel', 'stream'], channelname),
+        new $.transformers.transformer('channelname', ['twitch', 'discord', 'noevent', 'channel', 'stream'], channelname, {concurrent: true}),
         new $.transformers.transformer('downtime', ['twitch', 'discord', 'noevent', 'channel', 'stream'], downtime),
         new $.transformers.transformer('followage', ['twitch', 'commandevent', 'channel', 'stream'], followage),
-        new $.transformers.transformer('followdate', ['twitch', 'commandevent', 'channel', 'stream'], followdate),
-        new $.transformers.transformer('follows', ['twitch', 'discord', 'noevent', 'channel', 'stream'], follows),
-        new $.transformers.transformer('game', ['twitch', 'discord', 'noevent', 'channel', 'stream'], game),
-        new $.transformers.transformer('gameinfo', ['twitch', 'discord', 'noevent', 'channel', 'stream'], gameinfo),
+        new $.transformers.transformer('followdate', ['twitch', 'commandevent', 'channel', 'stream'], followdate, {concurrent: true}),
+        new $.transformers.transformer('follows', ['twitch', 'discord', 'noevent', 'channel', 'stream'], follows, {concurrent: true}),
+        new $.transformers.transformer('game', ['twitch', 'discord', 'noevent', 'channel', 'stream'], game, {concurrent: true}),
+        new $.transformers.transformer('gameinfo', ['twitch', 'discord', 'noevent', 'channel', 'stream'], gameinfo, {concurrent: true}),
         new $.transformers.transformer('gamesplayed', ['twitch', 'discord', 'noevent', 'channel', 'stream'], gamesplayed),
         new $.transformers.transformer('hours', ['twitch', 'commandevent', 'channel', 'stream'], hours),
         new $.transformers.transformer('hoursround', ['twitch', 'commandevent', 'channel', 'stream'], hoursround),
         new $.transformers.transformer('lasttip', ['twitch', 'discord', 'noevent', 'channel', 'stream'], lasttip),
         new $.transformers.transformer('playtime', ['twitch', 'discord', 'commandevent', 'channel', 'stream'], playtime),
-        new $.transformers.transformer('status', ['twitch', 'discord', 'noevent', 'channel', 'stream'], status),
-        new $.transformers.transformer('subscribers', ['twitch', 'discord', 'noevent', 'channel', 'stream'], subscribers),
-        new $.transformers.transformer('titleinfo', ['twitch', 'discord', 'noevent', 'channel', 'stream'], titleinfo),
+        new $.transformers.transformer('status', ['twitch', 'discord', 'noevent', 'channel', 'stream'], status, {concurrent: true}),
+        new $.transformers.transformer('subscribers', ['twitch', 'discord', 'noevent', 'channel', 'stream'], subscribers, {concurrent: true}),
+        new $.transformers.transformer('titleinfo', ['twitch', 'discord', 'noevent', 'channel', 'stream'], titleinfo, {concurrent: true}),
         new $.transformers.transformer('uptime', ['twitch', 'discord', 'commandevent', 'channel', 'stream'], uptime),
-        new $.transformers.transformer('viewers', ['twitch', 'discord', 'commandevent', 'channel', 'noevent', 'stream'], viewers),
-        new $.transformers.transformer('views', ['twitch', 'commandevent', 'channel', 'noevent', 'stream'], views)
+        new $.transformers.transformer('viewers', ['twitch', 'discord', 'commandevent', 'channel', 'noevent', 'stream'], viewers, {concurrent: true}),
+        new $.transformers.transformer('views', ['twitch', 'commandevent', 'channel', 'noevent', 'stream'], views, {concurrent: true})
     ];
 
     $.transformers.addTransformers(transformers);
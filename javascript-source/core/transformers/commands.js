@@ -176,7 +176,7 @@
     let transformers = [
         new $.transformers.transformer('command', ['twitch', 'discord', 'commandevent', 'commands'], command),
         new $.transformers.transformer('commandslist', ['twitch', 'commandevent', 'commands'], commandslist),
-        new $.transformers.transformer('count', ['twitch', 'discord', 'noevent', 'commandevent', 'commands'], count),
+        new $.transformers.transformer('count', ['twitch', 'discord', 'noevent', 'commandevent', 'commands'], count, {reentrant: false}),
         new $.transformers.transformer('delaycommand', ['twitch', 'discord', 'commandevent', 'commands'], delaycommand),
         new $.transformers.transformer('help', ['twitch', 'discord', 'commandevent', 'commands'], help)
     ];
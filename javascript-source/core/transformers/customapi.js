@@ -15,33 +15,19 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-/* global Packages */
-
 (function () {
-    let accept_json = Packages.io.netty.handler.codec.http.HttpHeaderValues.APPLICATION_JSON.toString();
-
     /*
-     * @function getCustomAPIValue
+     * @function getCacheTTL
      *
-     * @param {string} url
-     * @returns {string}
+     * @param {object} args
+     * @returns {Number} the seconds to cache responses for the command which triggered the tag; -1 for the default
      */
-    function getCustomAPIValue(url, accept) {
-        let res;
-
-        if (accept !== undefined && accept !== null) {
-            res = $.customAPI.get(url, accept);
-        } else {
-            res = $.customAPI.get(url);
+    function getCacheTTL(args) {
+        if (args.event !== undefined && args.event.getCommand !== undefined) {
+            return $.getIniDbNumber('customapicachettl', $.jsString(args.event.getCommand()).toLowerCase(), -1);
         }
 
-        if (res.content !== null) {
-            $.consoleDebug(res.toString());
-            return res.content;
-        } else {
-            $.log.error(res.toString());
-            throw res.toString();
-        }
+        return -1;
     }
 
     /*
@@ -76,6 +62,7 @@
      * @notes the command tag (token) can be placed in the url for a secret token saved via !tokencom or the panel
      * @notes if any args, $1-$9, are used in the url, the input event must be a CommandEvent, and the args are required to be provided by the user issuing the command or the tag will abort and return an error message instead
      * @notes this will output the full response from the remote url, so be careful not to cause spam or lock up the bot with a webpage
+     * @notes successful responses are cached for the number of seconds set by !apicachecom, or the customapicachettl bot property
      * @example Caster: !addcom !joke (customapi http://not.real.com/joke.php?name=$1)
      * User: !joke bear
      * Bot: These jokes are un-bear-able
@@ -96,14 +83,8 @@
             if (flag) {
                 return {result: $.lang.get('customcommands.customapi.404')};
             }
-            let response;
-            try {
-                response = getCustomAPIValue(args.args);
-            } catch (ex) {
-                return {result: $.lang.get('customcommands.customapijson.err')};
-            }
             return {
-                result: response,
+                result: $.customAPI.contentAsync(args.args, null, getCacheTTL(args), $.lang.get('customcommands.customapijson.err')),
                 cache: false
             };
         }
@@ -117,20 +98,13 @@
      * @notes if any args, $1-$9, are used in the url, the input event must be a CommandEvent, and they are required to be provided by the user issuing the command or the tag will abort and return an error message instead
      * @notes the response must be a JSONObject. arrays are only supported with a known index, walking arrays is not supported
      * @notes multiple specs can be provided, separated by spaces; curly braces can be used to enclose literal strings
+     * @notes successful responses are cached for the number of seconds set by !apicachecom, or the customapicachettl bot property
      * @example Caster: !addcom !weather (customapijson http://api.apixu.com/v1/current.json?key=NOT_PROVIDED&q=$1 {Weather for} location.name {:} current.condition.text {Temps:} current.temp_f {F} current.temp_c {C})
      * User: !weather 80314
      * Bot: Weather for Boulder, CO : Sunny Temps: 75 F 24 C
      */
-    let reCustomAPITextTag = new RegExp(/{([\w\W]+)}/);
-    let JSONObject = Packages.org.json.JSONObject;
     function customapijson(args) {
-        let match,
-                customJSONStringTag,
-                jsonCheckList,
-                jsonItems,
-                jsonObject,
-                response,
-                responsePart;
+        let match;
         if ((match = args.args.match(/^(\S+) (.+)$/))) {
             let flag = false;
             if (args.event !== undefined && args.event.getArgs !== undefined) {
@@ -147,77 +121,8 @@
                 return {result: $.lang.get('customcommands.customapi.404')};
             }
 
-            let result = '';
-            try {
-                response = getCustomAPIValue(match[1], accept_json);
-            } catch (ex) {
-                return {result: $.lang.get('customcommands.customapijson.err')};
-            }
-
-            jsonItems = match[2].split(' ');
-            for (let j = 0; j < jsonItems.length; j++) {
-                if (jsonItems[j].startsWith('{') && jsonItems[j].endsWith('}')) {
-                    result += " " + jsonItems[j].match(reCustomAPITextTag)[1];
-                } else if (jsonItems[j].startsWith('{') && !jsonItems[j].endsWith('}')) {
-                    customJSONStringTag = '';
-                    while (!jsonItems[j].endsWith('}')) {
-                        customJSONStringTag += jsonItems[j++] + " ";
-                    }
-                    customJSONStringTag += jsonItems[j];
-                    result += " " + customJSONStringTag.match(reCustomAPITextTag)[1];
-                } else {
-                    jsonCheckList = jsonItems[j].split('.');
-                    if (jsonCheckList.length === 1) {
-                        try {
-                            responsePart = new JSONObject(response).get(jsonCheckList[0]);
-                        } catch (ex) {
-                            $.log.error('Failed to get data from API: ' + ex);
-                            $.log.error(response.toString());
-                            return {result: $.lang.get('customcommands.customapijson.err')};
-                        }
-                        result += responsePart;
-                    } else {
-                        for (i = 0; i < jsonCheckList.length - 1; i++) {
-                            if (i === 0) {
-                                try {
-                                    jsonObject = new JSONObject(response).get(jsonCheckList[i]);
-                                } catch (ex) {
-                                    $.log.error('Failed to get data from API: ' + ex);
-                                    $.log.error('response:' + response.toString());
-                                    return {result: $.lang.get('customcommands.customapijson.err')};
-                                }
-                            } else if (!isNaN(jsonCheckList[i + 1])) {
-                                try {
-                                    jsonObject = jsonObject.get(jsonCheckList[i]);
-                                } catch (ex) {
-                                    $.log.error('Failed to get data from API: ' + ex);
-                                    $.log.error('jsonCheckList[' + i + ']: ' + response.toString());
-                                    return {result: $.lang.get('customcommands.customapijson.err')};
-                                }
-                            } else {
-                                try {
-                                    jsonObject = jsonObject.get(jsonCheckList[i]);
-                                } catch (ex) {
-                                    $.log.error('Failed to get data from API: ' + ex);
-                                    $.log.error('jsonCheckList[' + i + ']: ' + jsonCheckList[i]);
-                                    return {result: $.lang.get('customcommands.customapijson.err')};
-                                }
-                            }
-                        }
-                        try {
-                            responsePart = jsonObject.get(jsonCheckList[i]);
-                        } catch (ex) {
-                            $.log.error('Failed to get data from API: ' + ex);
-                            $.log.error('jsonCheckList[' + i + ']: ' + jsonCheckList[i]);
-                            return {result: $.lang.get('customcommands.customapijson.err')};
-                        }
-                        result += responsePart;
-                    }
-                }
-            }
-
             return {
-                result: result,
+                result: $.customAPI.jsonAsync(match[1], getCacheTTL(args), match[2], $.lang.get('customcommands.customapijson.err')),
                 cache: false
             };
         }
@@ -270,8 +175,8 @@
     }
 
     let transformers = [
-        new $.transformers.transformer('customapi', ['twitch', 'discord', 'noevent', 'commandevent', 'customapi'], customapi),
-        new $.transformers.transformer('customapijson', ['twitch', 'discord', 'noevent', 'commandevent', 'customapi'], customapijson),
+        new $.transformers.transformer('customapi', ['twitch', 'discord', 'noevent', 'commandevent', 'customapi'], customapi, {concurrent: true}),
+        new $.transformers.transformer('customapijson', ['twitch', 'discord', 'noevent', 'commandevent', 'customapi'], customapijson, {concurrent: true}),
         new $.transformers.transformer('customapipost', ['twitch', 'discord', 'noevent', 'commandevent', 'customapi'], customapipost)
     ];
 
@@ -121,10 +121,10 @@
     }
 
     let transformers = [
-        new $.transformers.transformer('readfile', ['twitch', 'discord', 'noevent', 'file'], readfile),
-        new $.transformers.transformer('readfileall', ['twitch', 'discord', 'noevent', 'file'], readfileall),
-        new $.transformers.transformer('readfilerand', ['twitch', 'discord', 'noevent', 'file'], readfilerand),
-        new $.transformers.transformer('writefile', ['twitch', 'discord', 'noevent', 'file'], writefile)
+        new $.transformers.transformer('readfile', ['twitch', 'discord', 'noevent', 'file'], readfile, {concurrent: true}),
+        new $.transformers.transformer('readfileall', ['twitch', 'discord', 'noevent', 'file'], readfileall, {concurrent: true}),
+        new $.transformers.transformer('readfilerand', ['twitch', 'discord', 'noevent', 'file'], readfilerand, {concurrent: true}),
+        new $.transformers.transformer('writefile', ['twitch', 'discord', 'noevent', 'file'], writefile, {reentrant: false})
     ];
 
     $.transformers.addTransformers(transformers);
@@ -215,7 +215,7 @@
         new $.transformers.transformer('encodeurl', ['twitch', 'discord', 'noevent', 'misc'], encodeurl),
         new $.transformers.transformer('encodeurlparam', ['twitch', 'discord', 'noevent', 'misc'], encodeurlparam),
         new $.transformers.transformer('escape', ['twitch', 'discord', 'noevent', 'misc'], escape),
-        new $.transformers.transformer('keywordcount', ['twitch', 'keywordevent', 'misc'], keywordcount),
+        new $.transformers.transformer('keywordcount', ['twitch', 'keywordevent', 'misc'], keywordcount, {reentrant: false}),
         new $.transformers.transformer('nl', ['twitch', 'discord', 'noevent', 'misc'], nl),
         new $.transformers.transformer('nl2br', ['twitch', 'discord', 'noevent', 'misc'], nl2br),
         new $.transformers.transformer('nl2x', ['twitch', 'discord', 'noevent', 'misc'], nl2x),
@@ -218,13 +218,13 @@
     }
 
     let transformers = [
-        new $.transformers.transformer('team_member_followers', ['twitch', 'noevent', 'teams'], team_member_followers),
-        new $.transformers.transformer('team_member_game', ['twitch', 'noevent', 'teams'], team_member_game),
-        new $.transformers.transformer('team_member_url', ['twitch', 'noevent', 'teams'], team_member_url),
-        new $.transformers.transformer('team_members', ['twitch', 'noevent', 'teams'], team_members),
-        new $.transformers.transformer('team_name', ['twitch', 'noevent', 'teams'], team_name),
-        new $.transformers.transformer('team_random_member', ['twitch', 'noevent', 'teams'], team_random_member),
-        new $.transformers.transformer('team_url', ['twitch', 'noevent', 'teams'], team_url)
+        new $.transformers.transformer('team_member_followers', ['twitch', 'noevent', 'teams'], team_member_followers, {concurrent: true}),
+        new $.transformers.transformer('team_member_game', ['twitch', 'noevent', 'teams'], team_member_game, {concurrent: true}),
+        new $.transformers.transformer('team_member_url', ['twitch', 'noevent', 'teams'], team_member_url, {concurrent: true}),
+        new $.transformers.transformer('team_members', ['twitch', 'noevent', 'teams'], team_members, {concurrent: true}),
+        new $.transformers.transformer('team_name', ['twitch', 'noevent', 'teams'], team_name, {concurrent: true}),
+        new $.transformers.transformer('team_random_member', ['twitch', 'noevent', 'teams'], team_random_member, {concurrent: true}),
+        new $.transformers.transformer('team_url', ['twitch', 'noevent', 'teams'], team_url, {concurrent: true})
     ];
 
     $.transformers.addTransformers(transformers);
@@ -262,7 +262,7 @@
 
     let transformers = [
         new $.transformers.transformer('@sender', ['twitch', 'discord', 'commandevent', 'user'], atSender),
-        new $.transformers.transformer('age', ['twitch', 'commandevent', 'user'], age),
+        new $.transformers.transformer('age', ['twitch', 'commandevent', 'user'], age, {concurrent: true}),
         new $.transformers.transformer('baresender', ['twitch', 'commandevent', 'user'], baresender),
         new $.transformers.transformer('pointtouser', ['twitch', 'commandevent', 'user'], pointtouser),
         new $.transformers.transformer('sanitizeuser', ['twitch', 'commandevent', 'user'], sanitizeuser),
@@ -253,7 +253,7 @@
         let roles = [];
 
         if (autoSetPermissions === true) {
-            let group = $.optIniDbString('group', username);
+            let group = Packages.tv.phantombot.cache.UserGroupCache.instance().opt(username);
             if (group.isPresent() && !$.inidb.exists('blacklistedDiscordRoles', group.get().toLowerCase())) {
                 roles.push($.getIniDbString('groups', group.get()));
             }
@@ -23,14 +23,15 @@
  * Pull down emotes from Twitch, BetterTTV and FrankerZ.
  */
 (function() {
-    var emotesRegExpList = [],
-        loaded = false,
+    var EmoteMatcher = Packages.tv.phantombot.twitch.emotes.EmoteMatcher,
+        emotesRegExp = null,
+        emotesRegExpMatcher = null,
         _lock = new Packages.java.util.concurrent.locks.ReentrantLock();
 
-    // Load an existing emote RegExp cache.  Wait to see if there was a problem that needs us to load
+    // Load the existing emote cache. Wait to see if there was a problem that needs us to load
     // from cache before doing so.  This saves CPU cycles and memory.
     setTimeout(function() {
-        if (emotesRegExpList.length === 0) {
+        if (EmoteMatcher.current().size() === 0) {
             loadEmoteCache();
         }
     }, 3e4, 'scripts::handlers::emotesHandler.js');
@@ -47,7 +48,7 @@
      **/
     function buildEmotesCache(emoteSets) {
         // emotesSet: List<EmotesCache.EmotesSet>
-        let newEmotesRegExpList = [];
+        // The EmoteMatcher has already been rebuilt by EmotesCache, only the persisted cache is updated here
         let providerEmoteMap = {};
         $.consoleDebug("Building Emote cache");
         for (let i = 0; i < emoteSets.size(); i++){
@@ -57,27 +58,15 @@
                 shared: convertEmoteEntryList(currentSet.getSharedEmotes()),
                 global:  convertEmoteEntryList(currentSet.getGlobalEmotes())
             };
-            providerEmotes.local.concat(providerEmotes.shared, providerEmotes.global).forEach(emote => {
-                newEmotesRegExpList.push('\\b' + emote.code + '\\b');
-            });
             providerEmoteMap[String(currentSet.getProvider())] = providerEmotes;
             $.consoleDebug("Loaded Emotes from " + currentSet.getProvider() + ": " + providerEmotes.global.length + " global, " + providerEmotes.shared.length + " shared, " + providerEmotes.local.length + " local");
         }
 
-        _lock.lock();
-        try {
-            emotesRegExpList = new RegExp(newEmotesRegExpList.join('|'), 'g');
-        } finally {
-            _lock.unlock();
-        }
-
-        $.inidb.set('emotecache', 'regexp_cache', newEmotesRegExpList.join(','));
+        $.inidb.del('emotecache', 'regexp_cache');
         for (let providerKey in providerEmoteMap){
             $.inidb.set('emotecache', providerKey + 'Emotes', JSON.stringify(providerEmoteMap[providerKey]));
         }
 
-        loaded = true;
-
         var EventBus = Packages.tv.phantombot.event.EventBus;
         var EmotesCacheUpdatedEvent = Packages.tv.phantombot.event.emotes.EmotesCacheUpdatedEvent;
         EventBus.instance().post(new EmotesCacheUpdatedEvent(providerEmoteMap));
@@ -101,39 +90,53 @@
      * @function loadEmoteCache
      */
     function loadEmoteCache() {
-        let regExpList = $.optIniDbString('emotecache', '', 'regexp_cache');
-        if (!regExpList.isPresent()) {
-            return;
-        }
+        let keys = $.inidb.GetKeyList('emotecache', ''),
+            codes = new Packages.java.util.ArrayList();
 
-        let newEmotesRegExpList = [];
-        regExpList = regExpList.get().split(',');
+        for (let i = 0; i < keys.length; i++) {
+            if (!$.jsString(keys[i]).endsWith('Emotes')) {
+                continue;
+            }
 
-        for (var i = 0; i < regExpList.length; i++) {
-            newEmotesRegExpList.push(regExpList[i]);
+            try {
+                let providerEmotes = JSON.parse($.getIniDbString('emotecache', keys[i]));
+                ['local', 'shared', 'global'].forEach(category => {
+                    (providerEmotes[category] || []).forEach(emote => codes.add(emote.code));
+                });
+            } catch (ex) {
+                $.log.error('Failed to load emote cache ' + keys[i] + ': ' + ex);
+            }
         }
 
-        _lock.lock();
-        try {
-            emotesRegExpList = new RegExp(newEmotesRegExpList.join('|'), 'g');
-        } finally {
-            _lock.unlock();
+        if (codes.isEmpty() || EmoteMatcher.current().size() > 0) {
+            return;
         }
 
-        loaded = true;
-        $.consoleDebug("Built " + newEmotesRegExpList.length + " regular expressions for emote handling from cache.");
-        newEmotesRegExpList = [];
+        EmoteMatcher.publish(EmoteMatcher.build(codes));
+        $.consoleDebug("Built emote matcher with " + codes.size() + " emote codes from cache.");
     }
 
     /**
      * @function getEmotesRegExp
      * @export $.emotesHandler
-     * @returns {List}{RegExp}
+     * @returns {RegExp}
+     * @info Kept for compatibility with custom scripts, prefer getEmotesMatchCount or EmoteMatcher
      */
     function getEmotesRegExp() {
         _lock.lock();
         try {
-            return emotesRegExpList;
+            let matcher = EmoteMatcher.current();
+            if (emotesRegExpMatcher !== matcher) {
+                let list = [],
+                    codes = matcher.codes();
+                for (let i = 0; i < codes.size(); i++) {
+                    list.push('\\b' + codes.get(i) + '\\b');
+                }
+                emotesRegExp = new RegExp(list.join('|'), 'g');
+                emotesRegExpMatcher = matcher;
+            }
+
+            return emotesRegExp;
         } finally {
             _lock.unlock();
         }
@@ -146,18 +149,7 @@
      * @returns {number}
      */
     function getEmotesMatchCount(message) {
-        if (!loaded) {
-            return 0;
-        }
-
-        _lock.lock();
-        try {
-            var matched = message.match(emotesRegExpList);
-        } finally {
-            _lock.unlock();
-        }
-
-        return (matched !== null ? matched.length : 0);
+        return EmoteMatcher.current().count(message);
     }
 
     /**
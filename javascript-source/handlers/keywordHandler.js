@@ -18,16 +18,21 @@
 /* global Packages */
 
 (function () {
-    var keywords = [];
+    var keywords = [],
+            keywordMatcher = Packages.com.gmt2001.PhraseMatcher.EMPTY,
+            keywordFallback = [];
 
     /*
      * @function loadKeywords
      */
     function loadKeywords() {
-        var keys = $.inidb.GetKeyList('keywords', ''),
+        var PhraseMatcher = Packages.com.gmt2001.PhraseMatcher,
+                keys = $.inidb.GetKeyList('keywords', ''),
+                builder = PhraseMatcher.builder(),
                 i;
 
         keywords = [];
+        keywordFallback = [];
 
         for (i = 0; i < keys.length; i++) {
             var json = JSON.parse($.getIniDbString('keywords', keys[i]));
@@ -39,10 +44,21 @@
                     $.log.error('Bad regex detected in keyword [' + keys[i] + ']: ' + ex.message);
                     continue;
                 }
+
+                // Regexes which are only valid in JavaScript are checked in the message handler
+                if (!PhraseMatcher.isValidRegex(json.keyword)) {
+                    keywordFallback.push(keywords.length);
+                }
+                builder.regex(json.keyword, json.isCaseSensitive);
+            } else {
+                // Phrases match anywhere in the message, single words must match a whole word
+                builder.literal(json.keyword, json.isCaseSensitive, json.keyword.includes(' ') ? PhraseMatcher.Mode.SUBSTRING : PhraseMatcher.Mode.WORD);
             }
 
             keywords.push(json);
         }
+
+        keywordMatcher = builder.build();
     }
 
     /*
@@ -73,8 +89,8 @@
 
         var message = event.getMessage(),
                 sender = event.getSender(),
-                messagePartsLower = message.toLowerCase().split(' '),
-                messageParts = message.split(' '),
+                matched,
+                hits,
                 json;
 
         // Don't say the keyword if someone tries to remove it.
@@ -82,29 +98,31 @@
             return;
         }
 
-        for (var i = 0; i < keywords.length; i++) {
-            json = keywords[i];
+        matched = keywordMatcher.matches(message);
+        hits = [];
+        for (var i = 0; i < matched.length; i++) {
+            hits.push(matched[i]);
+        }
 
+        for (i = 0; i < keywordFallback.length; i++) {
+            if (keywords[keywordFallback[i]].regexKey.test(message)) {
+                hits.push(keywordFallback[i]);
+            }
+        }
+
+        if (keywordFallback.length > 0) {
+            hits.sort(function (a, b) {
+                return a - b;
+            });
+        }
+
+        for (i = 0; i < hits.length; i++) {
+            json = keywords[hits[i]];
+            executeKeyword(json, event);
+
+            // A regex keyword stops any further keywords from running
             if (json.isRegex) {
-                if (json.regexKey.test(message)) {
-                    executeKeyword(json, event);
-                    break;
-                }
-            } else {
-                var str = '',
-                        caseAdjustedMessageParts = messageParts;
-                if (!json.isCaseSensitive) {
-                    caseAdjustedMessageParts = messagePartsLower;
-                }
-                for (var idx = 0; idx < caseAdjustedMessageParts.length; idx++) {
-                    // Create a string to match on the keyword.
-                    str += (caseAdjustedMessageParts[idx] + ' ');
-                    // Either match on the exact word or phrase if it contains it.
-                    if ((json.keyword.includes(' ') && str.includes(json.keyword)) || (caseAdjustedMessageParts[idx] + '') === (json.keyword + '')) {
-                        executeKeyword(json, event);
-                        break;
-                    }
-                }
+                break;
             }
         }
     });
@@ -16,6 +16,26 @@
  */
 
 (function() {
+    var words = [],
+        wordMatcher = Packages.com.gmt2001.PhraseMatcher.EMPTY;
+
+    /**
+     * @function loadWords
+     */
+    function loadWords() {
+        var PhraseMatcher = Packages.com.gmt2001.PhraseMatcher,
+            keys = $.inidb.GetKeyList('wordCounter', ''),
+            builder = PhraseMatcher.builder(),
+            i;
+
+        words = [];
+        for (i = 0; i < keys.length; i++) {
+            words.push($.jsString(keys[i]).toLowerCase());
+            builder.literal(words[i], false, PhraseMatcher.Mode.BOUNDARY);
+        }
+
+        wordMatcher = builder.build();
+    }
 
     /**
      * @event command
@@ -47,6 +67,7 @@
 
                 subAction = subAction.replace(action, '').toLowerCase();
                 $.inidb.set('wordCounter', subAction, 0);
+                loadWords();
                 $.say(subAction + $.lang.get('wordcounter.added'));
                 $.log.event(sender + ' added "' + subAction + '" to the word counter list');
             }
@@ -65,6 +86,7 @@
 
                 subAction = subAction.replace(action, '').toLowerCase();
                 $.inidb.del('wordCounter', subAction);
+                loadWords();
                 $.say(subAction + $.lang.get('wordcounter.removed'));
                 $.log.event(sender + ' removed "' + subAction + '" from the word counter list');
             }
@@ -89,19 +111,12 @@
      * @event ircChannelMessage
      */
     $.bind('ircChannelMessage', function(event) {
-        var message = event.getMessage().toLowerCase(),
-            keys = $.inidb.GetKeyList('wordCounter', ''),
-            word,
-            key;
+        var idx;
 
         if ($.bot.isModuleEnabled('./handlers/wordCounter.js')) {
-            for (i in keys) {
-                key = keys[i].toLowerCase();
-                word = new RegExp('\\b' + key + '\\b', 'ig');
-                if (word.exec(message)) {
-                    $.inidb.incr('wordCounter', key, 1);
-                    break;
-                }
+            idx = wordMatcher.first(event.getMessage());
+            if (idx >= 0) {
+                $.inidb.incr('wordCounter', words[idx], 1);
             }
         }
     });
@@ -110,6 +125,7 @@
      * @event initReady
      */
     $.bind('initReady', function() {
+        loadWords();
         $.registerChatCommand('./handlers/wordCounter.js', 'wordcounter', $.PERMISSION.Admin);
         $.registerChatCommand('./handlers/wordCounter.js', 'count', $.PERMISSION.Viewer);
     });
@@ -662,6 +662,7 @@
                     consoleDebug("Start command trace: " + command);
 
                     let subCommand = $.getSubCommandFromArguments(command, args);
+                    let policy = $.commandPolicy(command, subCommand);
                     let isMod = $.checkUserPermission(sender, event.getTags(), $.PERMISSION.Mod);
 
                     if (isReady === false && ($.equalsIgnoreCase(command, 'pbcore') || $.equalsIgnoreCase(command, $.botName)) && args[0].equalsIgnoreCase('moderate')) {
@@ -671,7 +672,7 @@
                     // Check if the command exists or if the module is disabled or if the command is restricted.
                     if (!$.commandExists(command)) {
                         if (!event.isHandeled()) {
-                            if ($.inidb.exists('disabledCommands', command)) {
+                            if (policy.isDisabled()) {
                                 $.log.error("Command is disabled:" + command);
                                 logDebug("Command is disabled:" + command);
                             } else {
@@ -708,7 +709,7 @@
 
                     // Check if the command has an alias.
                     if ($.aliasExists(command)) {
-                        let alias = $.getIniDbString('aliases', command),
+                        let alias = policy.alias(),
                                 aliasCommand,
                                 aliasArguments,
                                 subcmd,
@@ -719,7 +720,7 @@
                         } else {
                             event.handeled();
                             consoleDebug("Command is alias: " + command + " <> " + alias);
-                            alias = alias.trim();
+                            alias = $.jsString(alias).trim();
                             if (alias.indexOf(';') === -1) {
                                 parts = alias.split(' ');
                                 aliasCommand = parts.shift();
@@ -744,14 +745,14 @@
 
                     // Check the command permission.
                     if ($.permCom(sender, command, subCommand, event.getTags()) !== 0) {
-                        $.sayWithTimeout($.whisperPrefix(sender) + $.lang.get('cmd.perm.404', (!$.subCommandExists(command, subCommand) ? $.getCommandGroupName(command) : $.getSubCommandGroupName(command, subCommand))), $.getIniDbBoolean('settings', 'permComMsgEnabled', false));
+                        $.sayWithTimeout($.whisperPrefix(sender) + $.lang.get('cmd.perm.404', (!$.subCommandExists(command, subCommand) ? $.getCommandGroupName(command) : $.getSubCommandGroupName(command, subCommand))), policy.permComMsgEnabled());
                         consoleDebug('Command !' + command + ' was not sent due to the user not having permission for it.');
                         return;
                     }
 
                     // Check the command cost.
                     if ($.priceCom(sender, command, subCommand, isMod) === 1) {
-                        $.sayWithTimeout($.whisperPrefix(sender) + $.lang.get('cmd.needpoints', $.getPointsString($.getCommandPrice(command, subCommand, ''))), $.getIniDbBoolean('settings', 'priceComMsgEnabled', false));
+                        $.sayWithTimeout($.whisperPrefix(sender) + $.lang.get('cmd.needpoints', $.getPointsString(policy.price())), policy.priceComMsgEnabled());
                         consoleDebug('Command !' + command + ' was not sent due to the user not having enough points.');
                         return;
                     }
@@ -772,7 +773,7 @@
 
                     if (cooldownDuration > 0) {
                         consoleDebug('Command !' + command + ' was not sent due to it being on cooldown ' + (isGlobalCooldown ? 'globally' : 'for user ' + sender) + ' for ' + cooldownDuration + ' more seconds.');
-                        if ($.getIniDbBoolean('settings', 'coolDownMsgEnabled')) {
+                        if (policy.coolDownMsgEnabled()) {
                             if (isGlobalCooldown) {
                                 $.sayWithTimeout($.whisperPrefix(sender) + $.lang.get('init.cooldown.msg.global', command, cooldownDuration), true);
                             } else {
@@ -104,7 +104,7 @@
 
             /* Send a greeting out into chat. */
             if (!greetingQueue.isEmpty() && autoGreetEnabled) {
-                $.say(greetingQueue.poll());
+                $.sayLowPriority(greetingQueue.poll(), 6e4);
             }
 
             /* There are greetings, however, autoGreet has been disabled, so destroy the queue. */
@@ -24,354 +24,27 @@
  */
 
 (function () {
-    var noticeGroups = [],
+    var scheduler = Packages.tv.phantombot.scripts.systems.NoticeScheduler.instance(),
+            NoticeGroup = Packages.tv.phantombot.scripts.systems.NoticeScheduler.NoticeGroup,
             selectedGroup = null,
-            noticeTimeoutIds = [],
-            noticeLock = new Packages.java.util.concurrent.locks.ReentrantLock(),
-            messageCounts = [],
-            lastNoticesSent = [],
-            lastTimeNoticesSent = [];
-
-    /**
-     * @function loadNotices
-     */
-    function loadNotices() {
-        try {
-            noticeLock.lock();
-            let keys = $.inidb.GetKeyList('notices', '').sort(),
-                    inconsistent = false;
-
-            noticeGroups = [];
-            noticeTimeoutIds = [];
-            messageCounts = [];
-            lastNoticesSent = [];
-            lastTimeNoticesSent = [];
-
-            for (let i = 0; i < keys.length; i++) {
-                inconsistent |= String(i) !== keys[i];
-
-                let noticeGroup = null;
-                try {
-                    noticeGroup = JSON.parse($.getIniDbString('notices', keys[i]));
-                } catch (e){}
-
-                if (noticeGroup === undefined || noticeGroup === null) {
-                    inconsistent = true;
-                } else {
-                    if (noticeGroup.name === undefined || noticeGroup.name === null) {
-                        noticeGroup.name = '';
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.reqMessages === undefined || noticeGroup.reqMessages === null) {
-                        noticeGroup.reqMessages = 25;
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.shuffle === undefined || noticeGroup.shuffle === null) {
-                        noticeGroup.shuffle = false;
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.noticeToggle === undefined || noticeGroup.noticeToggle === null) {
-                        noticeGroup.noticeToggle = false;
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.noticeOfflineToggle === undefined || noticeGroup.noticeOfflineToggle === null) {
-                        noticeGroup.noticeOfflineToggle = false;;
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.intervalMin === undefined || noticeGroup.intervalMin === null) {
-                        if (noticeGroup.intervalMax === undefined || noticeGroup.intervalMax === null) {
-                            noticeGroup.intervalMin = 10;
-                        } else {
-                            noticeGroup.intervalMin = noticeGroup.intervalMax;
-                        }
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.intervalMax === undefined || noticeGroup.intervalMax === null) {
-                        noticeGroup.intervalMax = noticeGroup.intervalMin;
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.messages === undefined || noticeGroup.messages === null) {
-                        noticeGroup.messages = [];
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.disabled === undefined || noticeGroup.disabled === null) {
-                        noticeGroup.disabled = [];
-                        inconsistent = true;
-                    }
-
-                    if (noticeGroup.messages.length !== noticeGroup.disabled.length) {
-                        while (noticeGroup.messages.length > noticeGroup.disabled.length) {
-                            noticeGroup.disabled.push(false);
-                        }
-                        noticeGroup.disabled = noticeGroup.disabled.slice(0, messages.length);
-                        inconsistent = true;
-                    }
-
-                    noticeGroups.push(noticeGroup);
-                    noticeTimeoutIds.push(null);
-                    messageCounts.push(0);
-                    lastNoticesSent.push(-1);
-                    lastTimeNoticesSent.push(0);
-                }
-            }
-
-            if (inconsistent) {
-                $.inidb.RemoveFile('notices');
-                for (let i = 0; i < noticeGroups.length; i++) {
-                    $.inidb.set('notices', i, JSON.stringify(noticeGroups[i]));
-                }
-            }
-
-            if (selectedGroup === null) {
-                selectedGroup = 0;
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /**
-     * @function startNoticeTimers
-     */
-    function startNoticeTimers() {
-        try {
-            noticeLock.lock();
-            for (let i = 0; i < noticeGroups.length; i++) {
-                startNoticeTimer(i);
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function startNoticeTimer
-     */
-    function startNoticeTimer(idx, retryCall) {
-        retryCall = (retryCall === undefined || retryCall === null) ? false : retryCall;
-        stopNoticeTimer(idx);
-
-        try {
-            noticeLock.lock();
-
-            var minTime = noticeGroups[idx].intervalMin,
-                    maxTime = noticeGroups[idx].intervalMax,
-                    now = $.systemTime(),
-                    rnd = Math.random(),
-                    lastSent = lastTimeNoticesSent[idx],
-                    time = (minTime + (maxTime - minTime) * rnd) * 6e4;
-
-            if (isNaN(time)) {
-                time = 10 * 6e4;
-            }
-            if (lastSent === null || isNaN(lastSent)) {
-                lastSent = now - time;
-            }
-            if (!retryCall && lastSent + time <= now) {
-
-                if (trySendNotice(idx)) {
-                    startNoticeTimer(idx);
-                } else {
-                    startNoticeTimer(idx, true);
-                }
-
-            } else {
-                time -= now - lastSent;
-                if (retryCall) {
-                    time = Math.max(5e3, time);
-                }
-
-                noticeTimeoutIds[idx] = setTimeout(function () {
-                    try {
-                        noticeLock.lock();
-                        if (noticeTimeoutIds[idx] === null || noticeTimeoutIds[idx] === undefined) {
-                            // got canceled
-                            return;
-                        }
-                        if (trySendNotice(idx)) {
-                            startNoticeTimer(idx);
-                        } else {
-                            startNoticeTimer(idx, true);
-                        }
-                    } finally {
-                        noticeLock.unlock();
-                    }
-                }, Math.floor(time), 'scripts::handlers::noticeSystem.js::timer_' + idx);
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /**
-     * @function stopNoticeTimers
-     */
-    function stopNoticeTimers() {
-        try {
-            noticeLock.lock();
-            for (var i = 0; i < noticeGroups.length; i++) {
-                stopNoticeTimer(i);
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function stopNoticeTimer
-     */
-    function stopNoticeTimer(idx) {
-        try {
-            noticeLock.lock();
-            if (noticeTimeoutIds[idx] !== null && noticeTimeoutIds[idx] !== undefined) {
-                clearTimeout(noticeTimeoutIds[idx]);
-                noticeTimeoutIds[idx] = null;
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function trySendNotice
-     */
-    function trySendNotice(idx) {
-        try {
-            noticeLock.lock();
-            var timer = noticeGroups[idx],
-                    messageCount = messageCounts[idx],
-                    res = false;
-
-            if (timer.noticeToggle
-                    && $.bot.isModuleEnabled('./systems/noticeSystem.js')
-                    && (timer.reqMessages < 0 || messageCount >= timer.reqMessages)) {
-                    if (timer.noticeOfflineToggle || $.isOnline($.channelName)) {
-                        res = sendNotice(idx);
-                    } else if (!timer.noticeOfflineToggle) {
-                        lastTimeNoticesSent[idx] = $.systemTime();
-                    }
-            }
-            return res;
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function getNotice
-     *
-     * @returns {Number} notice index
-     */
-    function getNotice(noticeIdx, timer) {
-        if (timer.disabled[noticeIdx]) {
-            return null;
-        }
-
-        var notice = timer.messages[noticeIdx];
-
-        if (notice && notice.match(/\(gameonly=.*\)/g)) {
-            var game = notice.match(/\(gameonly=(.*)\)/)[1];
-            if ($.equalsIgnoreCase($.getGame($.channelName), game)) {
-                return $.replace(notice, notice.match(/(\(gameonly=.*\))/)[1], '');
-            }
-
-            return null;
-        }
-        return notice;
-    }
+            noticeLock = new Packages.java.util.concurrent.locks.ReentrantLock();
 
     /*
      * @function sendNotice
      *
-     * @returns {boolean} whether a was found and sent
-     */
-    function sendNotice(groupIdx) {
-        try {
-            noticeLock.lock();
-            var EventBus = Packages.tv.phantombot.event.EventBus,
-                    CommandEvent = Packages.tv.phantombot.event.command.CommandEvent,
-                    i,
-                    timer = noticeGroups[groupIdx],
-                    notices = timer.messages,
-                    tmp,
-                    randOptions = [],
-                    notice = null;
-
-            if (notices === null || notices === undefined || notices.length === 0 ) {
-                return false;
-            }
-
-            if (!timer.shuffle) {
-                for (i = 1; i <= notices.length; i++) {
-                    notice = getNotice((lastNoticesSent[groupIdx] + i) % notices.length, timer);
-                    if (notice !== null) {
-                        lastNoticesSent[groupIdx] = (lastNoticesSent[groupIdx] + i) % notices.length;
-                        break;
-                    }
-                }
-            } else {
-                for (i = 0; i < notices.length; i++) {
-                    tmp = getNotice(i, timer);
-                    if (tmp !== null) {
-                        randOptions.push([i, tmp]);
-                    }
-                }
-
-                if (randOptions.length > 1) {
-                    randOptions = randOptions.filter(function (opt) {
-                        return opt[0] !== lastNoticesSent[groupIdx];
-                    });
-                }
-
-                if (randOptions.length > 0) {
-                    tmp = Math.floor(Math.random() * randOptions.length);
-                    notice = randOptions[tmp][1];
-                    lastNoticesSent[groupIdx] = randOptions[tmp][0];
-                }
-            }
-
-            if (notice === null || notice === undefined) {
-                return false;
-            }
-
-            messageCounts[groupIdx] = 0;
-            lastTimeNoticesSent[groupIdx] = $.systemTime();
-
-            if (notice.startsWith('command:')) {
-                notice = notice.substring(8).replace('!', '');
-                EventBus.instance().postAsync(new CommandEvent($.botName, notice, ' '));
-            } else if (notice.startsWith('!')) {
-                notice = notice.substring(1);
-                EventBus.instance().postAsync(new CommandEvent($.botName, notice, ' '));
-            } else {
-                $.say(notice);
-            }
-
-            return true;
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function reloadNoticeTimer
+     * Called by the scheduler when a notice is due
+     *
+     * @param {NoticeScheduler.Notice} notice
      */
-    function reloadNoticeTimer(idx) {
-        try {
-            noticeLock.lock();
-            noticeGroups[idx] = JSON.parse($.getIniDbString('notices', idx));
-            lastNoticesSent[idx] = -1;
-            startNoticeTimer(idx);
-        } finally {
-            noticeLock.unlock();
+    function sendNotice(notice) {
+        var EventBus = Packages.tv.phantombot.event.EventBus,
+                CommandEvent = Packages.tv.phantombot.event.command.CommandEvent;
+
+        if (notice.command() !== null) {
+            EventBus.instance().postAsync(new CommandEvent($.botName, notice.command(), ' '));
+        } else {
+            // A notice which could not be sent within two minutes is dropped rather than sent late
+            $.sayLowPriority(notice.message(), 12e4);
         }
     }
 
@@ -380,44 +53,9 @@
      * @export $
      */
     function reloadNoticeTimers() {
-        try {
-            noticeLock.lock();
-            for (var i = 0; i < noticeGroups.length; i++) {
-                reloadNoticeTimer(i);
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    }
-
-    /*
-     * @function reloadNoticeTimerSettings
-     */
-    function reloadNoticeTimerSettings(idx) {
-        try {
-            noticeLock.lock();
-            noticeGroups[idx] = JSON.parse($.getIniDbString('notices', idx));
-            startNoticeTimer(idx);
-        } finally {
-            noticeLock.unlock();
-        }
+        scheduler.reloadAll();
     }
 
-    /**
-     * @event ircChannelMessage
-     */
-    $.bind('ircChannelMessage', function () {
-        try {
-            noticeLock.lock();
-
-            for (var i = 0; i < noticeGroups.length; i++) {
-                messageCounts[i]++;
-            }
-        } finally {
-            noticeLock.unlock();
-        }
-    });
-
     /**
      * @function formatGroupName
      *
@@ -429,38 +67,38 @@
      * if the name is empty: "<id>"
      */
     function formatGroupName(id) {
-        var name;
-        try {
-            noticeLock.lock();
-
-            if (id < 0 || id >= noticeGroups.length) {
-                name = 'None';
-            } else {
-                name = String(id);
-                if (noticeGroups[id].name !== '') {
-                    name += ' (' + noticeGroups[id].name + ')';
-                }
-            }
+        var noticeGroup = scheduler.group(id),
+                name;
 
-            return name;
-        } finally {
-            noticeLock.unlock();
+        if (noticeGroup === null) {
+            name = 'None';
+        } else {
+            name = String(id);
+            if ($.jsString(noticeGroup.name()) !== '') {
+                name += ' (' + noticeGroup.name() + ')';
+            }
         }
+
+        return name;
     }
 
     function checkForNoticesGroups(sender) {
-        try {
-            noticeLock.lock();
+        if (scheduler.size() === 0) {
+            $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-groups'));
+            return false;
+        }
 
-            if (noticeGroups === undefined || noticeGroups === null || noticeGroups.length === 0) {
-                $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-groups'));
-                return false;
-            }
+        return true;
+    }
 
-            return true;
-        } finally {
-            noticeLock.unlock();
-        }
+    /*
+     * @function parseNoticeId
+     *
+     * @returns {Number} the notice index in args[1] if it is valid for the group; otherwise -1
+     */
+    function parseNoticeId(args, noticeGroup) {
+        var id = args.length < 2 ? NaN : parseInt(args[1]);
+        return isNaN(id) || id < 0 || id >= noticeGroup.size() ? -1 : id;
     }
 
     /*
@@ -479,6 +117,7 @@
                 maxInterval,
                 list,
                 disabled,
+                noticeGroup,
                 nameOfRemovedGroup,
                 action = args[0];
 
@@ -499,33 +138,29 @@
                     return;
                 }
 
-                try {
-                    noticeLock.lock();
-                    if (noticeGroups[selectedGroup].messages.length === 0) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-notices', formatGroupName(selectedGroup)));
-                        return;
-                    }
-
-                    length = ($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-list', formatGroupName(selectedGroup), '')).length;
-                    list = [];
+                noticeGroup = scheduler.group(selectedGroup);
+                if (noticeGroup.size() === 0) {
+                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-notices', formatGroupName(selectedGroup)));
+                    return;
+                }
 
-                    // Message limit is 500. Don't attempt to add another message if only a few characters are left
-                    for (i = 0; i < noticeGroups[selectedGroup].messages.length && length < 480; i++) {
-                        message = '[' + String(i) + '] ' + noticeGroups[selectedGroup].messages[i];
+                length = ($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-list', formatGroupName(selectedGroup), '')).length;
+                list = [];
 
-                        if (message.length > 48) {
-                            message = message.slice(0, 48) + '…';
-                        }
+                // Message limit is 500. Don't attempt to add another message if only a few characters are left
+                for (i = 0; i < noticeGroup.size() && length < 480; i++) {
+                    message = '[' + String(i) + '] ' + noticeGroup.notice(i).text();
 
-                        list.push(message);
-                        length += message.length + 1; // + 1 for the space used later to join the messages
+                    if (message.length > 48) {
+                        message = message.slice(0, 48) + '…';
                     }
 
-                    message = $.whisperPrefix(sender) + $.lang.get('noticesystem.notice-list', formatGroupName(selectedGroup), list.join(' '));
-                } finally {
-                    noticeLock.unlock();
+                    list.push(message);
+                    length += message.length + 1; // + 1 for the space used later to join the messages
                 }
 
+                message = $.whisperPrefix(sender) + $.lang.get('noticesystem.notice-list', formatGroupName(selectedGroup), list.join(' '));
+
                 if (message.length > 500) {
                     message = message.slice(0, 499) + '…';
                 }
@@ -542,24 +177,20 @@
                     return;
                 }
 
-                try {
-                    noticeLock.lock();
-                    if (noticeGroups[selectedGroup].messages.length === 0) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-notices', formatGroupName(selectedGroup)));
-                        return;
-                    }
-
-                    if (args.length < 2 || isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= noticeGroups[selectedGroup].messages.length) {
-                        length = noticeGroups[selectedGroup].messages.length;
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-get-usage', formatGroupName(selectedGroup), length - 1));
-                        return;
-                    }
+                noticeGroup = scheduler.group(selectedGroup);
+                if (noticeGroup.size() === 0) {
+                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-no-notices', formatGroupName(selectedGroup)));
+                    return;
+                }
 
-                    $.say(noticeGroups[selectedGroup].messages[parseInt(args[1])]);
+                idx = parseNoticeId(args, noticeGroup);
+                if (idx < 0) {
+                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-get-usage', formatGroupName(selectedGroup), noticeGroup.size() - 1));
                     return;
-                } finally {
-                    noticeLock.unlock();
                 }
+
+                $.say(noticeGroup.notice(idx).text());
+                return;
             }
 
             /**
@@ -572,15 +203,14 @@
 
                 try {
                     noticeLock.lock();
-                    if (args.length < 3 || isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= noticeGroups[selectedGroup].messages.length) {
-                        length = noticeGroups[selectedGroup].messages.length;
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-edit-usage', formatGroupName(selectedGroup), length - 1));
+                    noticeGroup = scheduler.group(selectedGroup);
+                    idx = parseNoticeId(args, noticeGroup);
+                    if (args.length < 3 || idx < 0) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-edit-usage', formatGroupName(selectedGroup), noticeGroup.size() - 1));
                         return;
                     }
 
-                    argsString = args.slice(2).join(' ');
-                    noticeGroups[selectedGroup].messages[parseInt(args[1])] = argsString;
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    scheduler.updateGroup(selectedGroup, noticeGroup.withNotice(idx, args.slice(2).join(' ')));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-edit-success', formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -598,8 +228,10 @@
 
                 try {
                     noticeLock.lock();
-                    if (args.length < 2 || isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= noticeGroups[selectedGroup].messages.length) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-toggleid-usage', formatGroupName(selectedGroup), noticeGroups[selectedGroup].messages.length));
+                    noticeGroup = scheduler.group(selectedGroup);
+                    idx = parseNoticeId(args, noticeGroup);
+                    if (idx < 0) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-toggleid-usage', formatGroupName(selectedGroup), noticeGroup.size()));
                         return;
                     }
 
@@ -608,10 +240,10 @@
                     } else if (args.length > 2 && $.jsString(args[2]) === 'off') {
                         disabled = true;
                     } else {
-                        disabled = !noticeGroups[selectedGroup].disabled[parseInt(args[1])];
+                        disabled = !noticeGroup.notice(idx).disabled();
                     }
-                    noticeGroups[selectedGroup].disabled[parseInt(args[1])] = disabled;
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+
+                    scheduler.updateGroup(selectedGroup, noticeGroup.withNoticeDisabled(idx, disabled));
                 } finally {
                     noticeLock.unlock();
                 }
@@ -631,20 +263,14 @@
 
                 try {
                     noticeLock.lock();
-                    if (args.length < 2 || isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= noticeGroups[selectedGroup].messages.length) {
-                        length = noticeGroups[selectedGroup].messages.length;
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-remove-usage', formatGroupName(selectedGroup), length - 1));
+                    noticeGroup = scheduler.group(selectedGroup);
+                    idx = parseNoticeId(args, noticeGroup);
+                    if (idx < 0) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-remove-usage', formatGroupName(selectedGroup), noticeGroup.size() - 1));
                         return;
                     }
 
-                    noticeGroups[selectedGroup].messages.splice(parseInt(args[1]), 1);
-                    noticeGroups[selectedGroup].disabled.splice(parseInt(args[1]), 1);
-
-                    if (lastNoticesSent[selectedGroup] === parseInt(args[1])) {
-                        lastNoticesSent[selectedGroup] = -1;
-                    }
-
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    scheduler.updateGroup(selectedGroup, noticeGroup.withoutNotice(idx));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-remove-success', formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -668,10 +294,9 @@
                 argsString = args.slice(1).join(' ');
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].messages.push(argsString);
-                    noticeGroups[selectedGroup].disabled.push(false);
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
-                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-add-success', formatGroupName(selectedGroup), noticeGroups[selectedGroup].messages.length - 1));
+                    noticeGroup = scheduler.group(selectedGroup);
+                    scheduler.updateGroup(selectedGroup, noticeGroup.withNoticeAdded(argsString));
+                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-add-success', formatGroupName(selectedGroup), noticeGroup.size()));
                     return;
                 } finally {
                     noticeLock.unlock();
@@ -699,16 +324,10 @@
                 argsString = args.slice(2).join(' ');
                 try {
                     noticeLock.lock();
-                    length = noticeGroups[selectedGroup].messages.slice(0, idx).length;
-                    noticeGroups[selectedGroup].messages =
-                            noticeGroups[selectedGroup].messages.slice(0, idx).concat(
-                                [argsString], noticeGroups[selectedGroup].messages.slice(idx)
-                            );
-                    noticeGroups[selectedGroup].disabled =
-                            noticeGroups[selectedGroup].disabled.slice(0, idx).concat(
-                                [false], noticeGroups[selectedGroup].disabled.slice(idx)
-                            );
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    noticeGroup = scheduler.group(selectedGroup);
+                    // Same position as Array.prototype.slice(0, idx).length
+                    length = idx < 0 ? Math.max(0, noticeGroup.size() + idx) : Math.min(idx, noticeGroup.size());
+                    scheduler.updateGroup(selectedGroup, noticeGroup.withNoticeInserted(length, argsString));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-insert-success', length, formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -749,12 +368,7 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].intervalMin = minInterval;
-                    noticeGroups[selectedGroup].intervalMax = maxInterval;
-                    stopNoticeTimer(selectedGroup);
-                    lastTimeNoticesSent[selectedGroup] = 0;
-                    startNoticeTimer(selectedGroup);
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    scheduler.updateGroup(selectedGroup, scheduler.group(selectedGroup).withInterval(minInterval, maxInterval));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-inteval-success', formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -766,6 +380,10 @@
              * @commandpath notice req [message count] - Set the number of messages needed to trigger a notice in current group
              */
             if ($.equalsIgnoreCase(action, 'req')) {
+                if (!checkForNoticesGroups(sender)) {
+                    return;
+                }
+
                 if (args.length < 2) {
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-req-usage'));
                     return;
@@ -778,8 +396,7 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].reqMessages = parseInt(args[1]);
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    scheduler.updateGroup(selectedGroup, scheduler.group(selectedGroup).withReqMessages(parseInt(args[1])));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-req-success', formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -795,17 +412,13 @@
                     return;
                 }
 
-                try {
-                    noticeLock.lock();
-                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-config',
-                        formatGroupName(selectedGroup), noticeGroups.length, noticeGroups[selectedGroup].noticeToggle,
-                        noticeGroups[selectedGroup].intervalMin, noticeGroups[selectedGroup].intervalMax,
-                        noticeGroups[selectedGroup].reqMessages, noticeGroups[selectedGroup].messages.length,
-                        noticeGroups[selectedGroup].noticeOfflineToggle, noticeGroups[selectedGroup].shuffle));
-                    return;
-                } finally {
-                    noticeLock.unlock();
-                }
+                noticeGroup = scheduler.group(selectedGroup);
+                $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-config',
+                    formatGroupName(selectedGroup), scheduler.size(), noticeGroup.enabled(),
+                    noticeGroup.intervalMin(), noticeGroup.intervalMax(),
+                    noticeGroup.reqMessages(), noticeGroup.size(),
+                    noticeGroup.offline(), noticeGroup.shuffle()));
+                return;
             }
 
             /**
@@ -823,8 +436,8 @@
 
                 try {
                     noticeLock.lock();
-                    if (isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= noticeGroups.length) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-selectgroup-404', noticeGroups.length - 1));
+                    if (isNaN(parseInt(args[1])) || parseInt(args[1]) < 0 || parseInt(args[1]) >= scheduler.size()) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-selectgroup-404', scheduler.size() - 1));
                         return;
                     }
 
@@ -847,25 +460,7 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups.push({
-                        name: args.slice(1).join(' '),
-                        reqMessages: 25,
-                        intervalMin: 10,
-                        intervalMax: 10,
-                        shuffle: false,
-                        noticeToggle: false,
-                        noticeOfflineToggle: false,
-                        messages: [],
-                        disabled: []
-                    });
-
-                    noticeTimeoutIds.push(null);
-                    messageCounts.push(0);
-                    lastNoticesSent.push(-1);
-                    lastTimeNoticesSent.push(0);
-                    selectedGroup = noticeGroups.length - 1;
-                    $.inidb.set('notices', selectedGroup, JSON.stringify(noticeGroups[selectedGroup]));
-                    startNoticeTimer(selectedGroup);
+                    selectedGroup = scheduler.addGroup(NoticeGroup.create(args.slice(1).join(' ')));
                     $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-addgroup-success', formatGroupName(selectedGroup)));
                     return;
                 } finally {
@@ -882,7 +477,7 @@
                 }
 
                 if (args.length < 2) {
-                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-removegroup-usage', noticeGroups.length - 1));
+                    $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-removegroup-usage', scheduler.size() - 1));
                     return;
                 }
 
@@ -890,32 +485,13 @@
 
                 try {
                     noticeLock.lock();
-                    if (isNaN(idx) || idx < 0 || idx >= noticeGroups.length) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-removegroup-404', noticeGroups.length - 1));
+                    if (isNaN(idx) || idx < 0 || idx >= scheduler.size()) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-removegroup-404', scheduler.size() - 1));
                         return;
                     }
 
                     nameOfRemovedGroup = formatGroupName(idx);
-                    stopNoticeTimer(idx);
-                    noticeGroups.splice(idx, 1);
-                    noticeTimeoutIds.splice(idx, 1);
-                    messageCounts.splice(idx, 1);
-                    lastNoticesSent.splice(idx, 1);
-                    lastTimeNoticesSent.splice(idx, 1);
-
-                    for (i = idx; i < noticeGroups.length; i++) {
-                        $.inidb.set('notices', i, $.getIniDbString('notices', i + 1));
-                    }
-
-                    $.inidb.del('notices', noticeGroups.length);
-
-                    if (noticeGroups.length === 0) {
-                        selectedGroup = null;
-                    } else if (selectedGroup > idx) {
-                        selectedGroup--;
-                    } else if (selectedGroup === idx) {
-                        selectedGroup = 0;
-                    }
+                    removeGroup(idx);
 
                     if (selectedGroup !== null) {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-removegroup-success', nameOfRemovedGroup, formatGroupName(selectedGroup)));
@@ -946,14 +522,13 @@
 
                 try {
                     noticeLock.lock();
-                    if (isNaN(idx) || idx < 0 || idx >= noticeGroups.length) {
-                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-renamegroup-404', noticeGroups.length - 1));
+                    if (isNaN(idx) || idx < 0 || idx >= scheduler.size()) {
+                        $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-renamegroup-404', scheduler.size() - 1));
                         return;
                     }
 
                     message = $.lang.get('noticesystem.notice-renamegroup-success', formatGroupName(idx), args[2]);
-                    noticeGroups[idx].name = '' + args[2];
-                    $.inidb.set('notices', String(idx), JSON.stringify(noticeGroups[idx]));
+                    scheduler.updateGroup(idx, scheduler.group(idx).withName('' + args[2]));
                 } finally {
                     noticeLock.unlock();
                 }
@@ -972,10 +547,10 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].noticeToggle = !noticeGroups[selectedGroup].noticeToggle;
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    noticeGroup = scheduler.group(selectedGroup).withEnabled(!scheduler.group(selectedGroup).enabled());
+                    scheduler.updateGroup(selectedGroup, noticeGroup);
 
-                    if (noticeGroups[selectedGroup].noticeToggle) {
+                    if (noticeGroup.enabled()) {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-enabled', formatGroupName(selectedGroup)));
                     } else {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-disabled', formatGroupName(selectedGroup)));
@@ -997,10 +572,10 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].noticeOfflineToggle = !noticeGroups[selectedGroup].noticeOfflineToggle;
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    noticeGroup = scheduler.group(selectedGroup).withOffline(!scheduler.group(selectedGroup).offline());
+                    scheduler.updateGroup(selectedGroup, noticeGroup);
 
-                    if (noticeGroups[selectedGroup].noticeOfflineToggle) {
+                    if (noticeGroup.offline()) {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-enabled.offline', formatGroupName(selectedGroup)));
                     } else {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-disabled.offline', formatGroupName(selectedGroup)));
@@ -1022,10 +597,10 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups[selectedGroup].shuffle = !noticeGroups[selectedGroup].shuffle;
-                    $.inidb.set('notices', String(selectedGroup), JSON.stringify(noticeGroups[selectedGroup]));
+                    noticeGroup = scheduler.group(selectedGroup).withShuffle(!scheduler.group(selectedGroup).shuffle());
+                    scheduler.updateGroup(selectedGroup, noticeGroup);
 
-                    if (noticeGroups[selectedGroup].shuffle) {
+                    if (noticeGroup.shuffle()) {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-enabled.shuffle', formatGroupName(selectedGroup)));
                     } else {
                         $.say($.whisperPrefix(sender) + $.lang.get('noticesystem.notice-disabled.shuffle', formatGroupName(selectedGroup)));
@@ -1039,13 +614,30 @@
         }
     });
 
+    /*
+     * @function removeGroup
+     *
+     * Removes a group and keeps the selected group pointing at the same group, or the first one if it was removed
+     */
+    function removeGroup(idx) {
+        scheduler.removeGroup(idx);
+
+        if (scheduler.size() === 0) {
+            selectedGroup = null;
+        } else if (selectedGroup > idx) {
+            selectedGroup--;
+        } else if (selectedGroup === idx) {
+            selectedGroup = 0;
+        }
+    }
+
     /**
      * @event initReady
      */
     $.bind('initReady', function () {
         $.registerChatCommand('./systems/noticeSystem.js', 'notice', $.PERMISSION.Admin);
-        loadNotices();
-        startNoticeTimers();
+        scheduler.start(sendNotice);
+        selectedGroup = scheduler.size() > 0 ? 0 : null;
     });
 
     /*
@@ -1055,8 +647,7 @@
         if ($.equalsIgnoreCase(event.getScript(), './systems/noticeSystem.js')) {
             var args = event.getArgs(),
                     eventName = args[0] + '',
-                    groupIdx = parseInt(args[1]),
-                    tmp;
+                    groupIdx = parseInt(args[1]);
 
             if (eventName === 'appendGroup') {
                 var params = {};
@@ -1068,82 +659,42 @@
 
                 try {
                     noticeLock.lock();
-                    noticeGroups.push({
-                        name: (params['name'] === null || params['name'] === undefined) ? 'Timer Group' : params['name'],
-                        reqMessages: (params['reqMessages'] === null || isNaN(params['reqMessages'])) ? 25 : parseInt(params['reqMessages']),
-                        intervalMin: (params['intervalMin'] === null || isNaN(params['intervalMin'])) ? 10 : parseInt(params['intervalMin']),
-                        intervalMax: (params['intervalMax'] === null || isNaN(params['intervalMax'])) ? 10 : parseInt(params['intervalMax']),
-                        shuffle: (params['shuffle'] === null || params['shuffle'] === undefined) ? false : !!params['shuffle'],
-                        noticeToggle: (params['noticeToggle'] === null || params['noticeToggle'] === undefined) ? false : !!params['noticeToggle'],
-                        noticeOfflineToggle: (params['noticeOfflineToggle'] === null || params['noticeOfflineToggle'] === undefined) ? false : !!params['noticeOfflineToggle'],
-                        messages: [],
-                        disabled: []
-                    });
-                    noticeTimeoutIds.push(null);
-                    messageCounts.push(0);
-                    lastNoticesSent.push(-1);
-                    lastTimeNoticesSent.push(0);
-                    $.inidb.set('notices', noticeGroups.length - 1, JSON.stringify(noticeGroups[noticeGroups.length - 1]));
+                    groupIdx = scheduler.addGroup(NoticeGroup.create((params['name'] === null || params['name'] === undefined) ? 'Timer Group' : String(params['name']))
+                            .withReqMessages((params['reqMessages'] === null || isNaN(params['reqMessages'])) ? 25 : parseInt(params['reqMessages']))
+                            .withInterval((params['intervalMin'] === null || isNaN(params['intervalMin'])) ? 10 : parseInt(params['intervalMin']),
+                                    (params['intervalMax'] === null || isNaN(params['intervalMax'])) ? 10 : parseInt(params['intervalMax']))
+                            .withShuffle((params['shuffle'] === null || params['shuffle'] === undefined) ? false : !!params['shuffle'])
+                            .withEnabled((params['noticeToggle'] === null || params['noticeToggle'] === undefined) ? false : !!params['noticeToggle'])
+                            .withOffline((params['noticeOfflineToggle'] === null || params['noticeOfflineToggle'] === undefined) ? false : !!params['noticeOfflineToggle']));
 
                     if (selectedGroup === null) {
-                        selectedGroup = noticeGroups.length - 1;
+                        selectedGroup = groupIdx;
                     }
                 } finally {
                     noticeLock.unlock();
                 }
-
-                startNoticeTimer(noticeGroups.length - 1);
             } else if (eventName === 'removeGroup') {
                 try {
                     noticeLock.lock();
-                    if (isNaN(groupIdx) || groupIdx >= noticeGroups.length) {
+                    if (isNaN(groupIdx) || groupIdx >= scheduler.size()) {
                         return;
                     }
 
-                    stopNoticeTimer(groupIdx);
-                    noticeGroups.splice(groupIdx, 1);
-                    noticeTimeoutIds.splice(groupIdx, 1);
-                    messageCounts.splice(groupIdx, 1);
-                    lastNoticesSent.splice(groupIdx, 1);
-                    lastTimeNoticesSent.splice(groupIdx, 1);
-
-                    for (var i = groupIdx; i < noticeGroups.length; i++) {
-                        $.inidb.set('notices', i, $.getIniDbString('notices', i + 1));
-                    }
-
-                    $.inidb.del('notices', noticeGroups.length);
-
-                    if (noticeGroups.length === 0) {
-                        selectedGroup = null;
-                    } else if (selectedGroup > groupIdx) {
-                        selectedGroup--;
-                    } else if (selectedGroup === groupIdx) {
-                        selectedGroup = 0;
-                    }
+                    removeGroup(groupIdx);
                 } finally {
                     noticeLock.unlock();
                 }
             } else if (eventName === 'reloadGroup') {
                 try {
                     noticeLock.lock();
-                    if (isNaN(groupIdx) || groupIdx >= noticeGroups.length) {
+                    if (isNaN(groupIdx) || groupIdx >= scheduler.size()) {
                         return;
                     }
 
-                    tmp = JSON.parse($.getIniDbString('notices', groupIdx));
-                    noticeGroups[groupIdx].messages = tmp.messages;
-                    noticeGroups[groupIdx].disabled = tmp.disabled;
-
-                    if (args.length > 2 && $.jsString(args[2]) === 'true') {
-                        stopNoticeTimer(groupIdx);
-                        lastTimeNoticesSent[groupIdx] = 0;
-                    }
-
+                    scheduler.reload(groupIdx, args.length > 2 && $.jsString(args[2]) === 'true');
                 } finally {
                     noticeLock.unlock();
                 }
-
-                reloadNoticeTimerSettings(groupIdx);
             }
         }
     });
@@ -38,7 +38,8 @@
             pointsMessage = $.getSetIniDbString('pointSettings', 'pointsMessage', '(userprefix) you currently have (pointsstring) and you have been in the chat for (time).'),
             payoutInterval,
             currentPayoutIntervalTime = -1,
-            maxUpdateRetries = 3;
+            maxUpdateRetries = 3,
+            _payoutEngine = Packages.tv.phantombot.scripts.systems.PayoutEngine.instance();
 
     /**
      * @function updateSettings
@@ -338,29 +339,6 @@
         return points + ' ' + pointNameMultiple;
     }
 
-    function calcPointsGained(username, group, isOnline) {
-        let table = 'grouppoints' + (isOnline ? '' : 'offline'),
-                defaultGain = isOnline ? Math.max(onlineGain, 0) : Math.max(offlineGain, 0);
-
-        username = $.jsString(username);
-        group = $.jsString(group);
-
-        let amount = $.getIniDbNumber(table, group, -1);
-
-        if (group === 'Subscriber') {
-            let plan = $.optIniDbString('subplan', username);
-            if (plan.isPresent()) {
-                amount = $.getIniDbNumber(table, ('Subscriber' + plan.get()), amount);
-            }
-        }
-
-        if (amount < 0) {
-            return defaultGain;
-        }
-
-        return amount;
-    }
-
     /**
      * @function runPointsPayout
      */
@@ -372,44 +350,27 @@
         }
 
         let isOnline = $.isOnline($.channelName),
-                activeList,
-                active,
-                chatList = $.viewer.chatters(),
-                normalPayoutUsers = []; // users that get the normal online payout, nothing custom.
-
-        if (isOnline && activeBonus > 0) {
-            activeList = $.viewer.activeChatters();
-            active = [];
-            for (let i = 0; i < activeList.size(); i++) {
-                active.push($.jsString(activeList.get(i).login().toLowerCase()));
-            }
-        }
-
-        for (let i = 0; i < chatList.size(); i++) {
-            let username = $.jsString(chatList.get(i).login().toLowerCase()),
-                    amount = calcPointsGained(username, $.getUserGroupName(username), isOnline);
-
-            if (active !== undefined && active.includes(username)) {
-                amount += activeBonus;
-            }
-
-            if (pointsBonus && pointsBonusAmount > 0) {
-                amount += pointsBonusAmount;
-            }
+                excluded = new Packages.java.util.ArrayList($.twitchBots),
+                settings;
 
-            if (!getUserPenalty(username) && !$.isTwitchBot(username)) {
-                if ((isOnline && onlineGain > 0 && amount === onlineGain) || (!isOnline && offlineGain > 0 && amount === offlineGain)) {
-                    normalPayoutUsers.push($.javaString(username));
-                } else if (amount > 0) {
-                    $.inidb.incr('points', username, amount);
-                }
+        for (let i = penalties.length - 1; i >= 0; i--) {
+            if (penalties[i].time - $.systemTime() > 0) {
+                excluded.add($.javaString(penalties[i].user.toLowerCase()));
+            } else {
+                penalties.splice(i, 1);
             }
         }
 
-        // Update points for all users with the same amount of online/offline gain.
-        if (normalPayoutUsers.length > 0) {
-            $.inidb.IncreaseBatchString('points', '', normalPayoutUsers, (isOnline ? onlineGain : offlineGain));
-        }
+        settings = new Packages.tv.phantombot.scripts.systems.PayoutEngine.Settings(isOnline, isOnline ? onlineGain : offlineGain)
+                .activeBonus(isOnline ? activeBonus : 0)
+                .bonus(pointsBonus ? pointsBonusAmount : 0)
+                .exclude(excluded)
+                .members($.PERMISSION.Caster, [$.javaString($.ownerName), $.javaString($.botName), $.javaString($.channelName)])
+                .members($.PERMISSION.Mod, $.moderatorsCache)
+                .members($.PERMISSION.Sub, $.subUsers)
+                .members($.PERMISSION.VIP, $.vipUsers);
+
+        _payoutEngine.run(settings);
     }
 
     /**
@@ -23,7 +23,14 @@
 (function() {
 
     var quoteMode = $.getSetIniDbBoolean('settings', 'quoteMode', true),
-        isDeleting = false;
+        _quotes = Packages.com.gmt2001.datastore.DataStoreList.instance('quotes'),
+        _quoteIndex = Packages.com.gmt2001.datastore.FullTextIndex.instance('quotes', function (value) {
+            try {
+                return String(JSON.parse(value)[1]);
+            } catch (e) {
+                return value;
+            }
+        });
 
     /**
      * @function updateQuote
@@ -47,15 +54,11 @@
      * @returns {Number}
      */
     function saveQuote(username, quote) {
-        var newKey = $.inidb.GetKeyList('quotes', '').length,
+        var newKey,
             game = (!$.javaString($.getGame($.channelName)).isBlank() ? $.getGame($.channelName) : "Some Game");
 
-        if ($.inidb.exists('quotes', newKey)) {
-            newKey++;
-        }
-
         quote = String(quote).replace(/"/g, '\'\'');
-        $.inidb.set('quotes', newKey, JSON.stringify([username, quote, $.systemTime(), game + '']));
+        newKey = parseInt(_quotes.add(JSON.stringify([username, quote, $.systemTime(), game + ''])));
         $.panelsocketserver.sendJSONToAll(JSON.stringify({"query_id": "quote_update", "results": "update"}));
         return newKey;
     }
@@ -66,31 +69,10 @@
      * @returns {Number}
      */
     function deleteQuote(quoteId) {
-        var quoteKeys,
-            quotes = [],
-            i;
-
-        if (isDeleting) {
-            return -1;
-        }
-
-        if ($.inidb.exists('quotes', quoteId)) {
-            isDeleting = true;
-            $.inidb.del('quotes', quoteId);
-            quoteKeys = $.inidb.GetKeyList('quotes', '');
-
-            for (i in quoteKeys) {
-                quotes.push($.getIniDbString('quotes', quoteKeys[i]));
-                $.inidb.del('quotes', quoteKeys[i]);
-            }
-
-            for (i in quotes) {
-                $.inidb.set('quotes', i, quotes[i]);
-            }
-
-            isDeleting = false;
+        // Ids are stable, so only the deleted quote is removed and the others keep their ids
+        if (!isNaN(quoteId) && _quotes.remove(parseInt(quoteId))) {
             $.panelsocketserver.sendJSONToAll(JSON.stringify({"query_id": "quote_update", "results": "update"}));
-            return (quotes.length ? quotes.length : 0);
+            return _quotes.size();
         }
 
         return -1;
@@ -105,17 +87,10 @@
         let quote;
 
         if (!quoteId) {
-            quoteId = $.rand($.inidb.GetKeyList('quotes', '').length);
+            quoteId = parseInt(_quotes.random());
         } else if (isNaN(quoteId)) {
-            quoteId = String(quoteId).toLowerCase();
-            var quotes = $.inidb.GetKeyValueList('quotes', '');
-            var ids = [];
-            for (var i = 0; i < quotes.length; i++) {
-                if (String(quotes[i].getValue()).toLowerCase().indexOf(quoteId) >= 0) {
-                    ids.push(quotes[i].getKey());
-                }
-            }
-            quoteId = ids.length > 0 ? $.randElement(ids) : $.rand(quotes.length);
+            var ids = _quoteIndex.search(String(quoteId));
+            quoteId = ids.size() > 0 ? parseInt(ids.get($.rand(ids.size()))) : parseInt(_quotes.random());
         }
 
         quote = $.optIniDbString('quotes', quoteId);
@@ -242,7 +217,7 @@
         }
 
         /**
-         * @commandpath delquote [quoteId] - Delete a quote
+         * @commandpath delquote [quoteId] - Delete a quote. The ids of the other quotes do not change
          */
         if ($.equalsIgnoreCase(command, 'delquote')) {
             if (!args[0] || isNaN(args[0])) {
@@ -336,7 +311,7 @@
         }
 
         /**
-         * @commandpath searchquote [string] - Searches the quotes for a string and returns a list of IDs
+         * @commandpath searchquote [words] - Searches the quotes for words, matching the start of each word, and returns a list of IDs
          */
         if ($.equalsIgnoreCase(command, 'searchquote')) {
             if (!args[0]) {
@@ -350,13 +325,13 @@
                 return;
             }
 
-            var matchingKeys = $.inidb.searchByValue('quotes', searchString);
-            if (matchingKeys.length === 0) {
+            var matchingKeys = _quoteIndex.search(searchString);
+            if (matchingKeys.isEmpty()) {
                 $.say($.whisperPrefix(sender) + $.lang.get('quotesystem.searchquote.404'));
                 return;
             }
 
-            $.say($.whisperPrefix(sender) + $.lang.get('quotesystem.searchquote.found', matchingKeys.join(', ')));
+            $.say($.whisperPrefix(sender) + $.lang.get('quotesystem.searchquote.found', Packages.java.lang.String.join(', ', matchingKeys)));
             return;
         }
 
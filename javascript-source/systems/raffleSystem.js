@@ -433,7 +433,7 @@
      */
     function message(username, msg) {
         if (sendMessages) {
-            $.say($.whisperPrefix(username) + msg);
+            $.sayLowPriority($.whisperPrefix(username) + msg, 6e4);
         }
     }
 
@@ -197,7 +197,7 @@
                     }
                     message = buildMessage(message, names);
                     if (message) {
-                        $.say(message);
+                        $.sayLowPriority(message, 6e4);
                     }
                     // Check back later to see if more people are waiting to be welcomed.
                     welcomeTimer = setTimeout(processQueue, 15000, 'scripts::systems::welcomeSystem.js');
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.gmt2001.util.AhoCorasick;
+
+/**
+ * Matches a chat message against a list of phrases in a single call, for the blacklist, keywords, and word counter
+ * <p>
+ * All literal phrases are compiled into one Aho-Corasick automaton per case mode. Where a regular expression phrase requires a literal
+ * string, that string is added to the automaton and the regular expression is only run when the string is found in the message, so
+ * a message which does not match is usually only scanned once
+ * <p>
+ * Each phrase is identified by the order in which it was added to the {@link Builder}, starting at {@code 0}. Instances are immutable,
+ * scripts build a new matcher whenever the backing table changes
+ *
+ * @author gmt2001
+ */
+public final class PhraseMatcher {
+
+    private static final String METACHARACTERS = ".[](){}*+?|\\^$";
+    /**
+     * A matcher with no phrases
+     */
+    public static final PhraseMatcher EMPTY = new Builder().build();
+    private final int size;
+    private final AhoCorasick sensitive;
+    private final int[] sensitiveIds;
+    private final Mode[] sensitiveModes;
+    private final AhoCorasick insensitive;
+    private final int[] insensitiveIds;
+    private final Mode[] insensitiveModes;
+    private final int[] regexIds;
+    private final Pattern[] regexes;
+    /**
+     * Indexes into {@link #regexes} which have a required literal in one of the automatons, and only need to be run when it is found
+     */
+    private final BitSet prefiltered;
+
+    /**
+     * How a literal phrase must be delimited in the message
+     */
+    public enum Mode {
+        /**
+         * The phrase may appear anywhere in the message
+         */
+        SUBSTRING,
+        /**
+         * The phrase must be a whole space-delimited word in the message
+         */
+        WORD,
+        /**
+         * The phrase must be surrounded by word boundaries, with the same rules as the regular expression {@code \bphrase\b}
+         */
+        BOUNDARY
+    }
+
+    /**
+     * Starts building a new matcher
+     *
+     * @return a builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Indicates if a regular expression can be compiled by {@link Builder#regex(String, boolean)}
+     *
+     * @param regex the regular expression
+     * @return {@code true} if valid
+     */
+    public static boolean isValidRegex(String regex) {
+        try {
+            Pattern.compile(regex);
+            return true;
+        } catch (PatternSyntaxException | NullPointerException ex) {
+            return false;
+        }
+    }
+
+    private PhraseMatcher(Builder builder) {
+        this.size = builder.size;
+
+        List<String> sensitivePhrases = new ArrayList<>();
+        List<Integer> sensitiveIdList = new ArrayList<>();
+        List<Mode> sensitiveModeList = new ArrayList<>();
+        List<String> insensitivePhrases = new ArrayList<>();
+        List<Integer> insensitiveIdList = new ArrayList<>();
+        List<Mode> insensitiveModeList = new ArrayList<>();
+
+        for (Literal literal : builder.literals) {
+            if (literal.caseSensitive) {
+                sensitivePhrases.add(literal.phrase);
+                sensitiveIdList.add(literal.id);
+                sensitiveModeList.add(literal.mode);
+            } else {
+                insensitivePhrases.add(lowerCase(literal.phrase));
+                insensitiveIdList.add(literal.id);
+                insensitiveModeList.add(literal.mode);
+            }
+        }
+
+        this.regexIds = builder.regexIds.stream().mapToInt(Integer::intValue).toArray();
+        this.regexes = builder.regexes.toArray(Pattern[]::new);
+        this.prefiltered = new BitSet(this.regexes.length);
+
+        // A regex which requires a literal string is only run when the automaton finds that string. These entries use negative ids
+        for (int i = 0; i < this.regexes.length; i++) {
+            String literal = requiredLiteral(this.regexes[i].pattern());
+            if (literal == null) {
+                continue;
+            }
+
+            if ((this.regexes[i].flags() & Pattern.CASE_INSENSITIVE) == 0) {
+                sensitivePhrases.add(literal);
+                sensitiveIdList.add(-(i + 1));
+                sensitiveModeList.add(Mode.SUBSTRING);
+            } else {
+                insensitivePhrases.add(lowerCase(literal));
+                insensitiveIdList.add(-(i + 1));
+                insensitiveModeList.add(Mode.SUBSTRING);
+            }
+            this.prefiltered.set(i);
+        }
+
+        this.sensitive = new AhoCorasick(sensitivePhrases);
+        this.sensitiveIds = sensitiveIdList.stream().mapToInt(Integer::intValue).toArray();
+        this.sensitiveModes = sensitiveModeList.toArray(Mode[]::new);
+        this.insensitive = new AhoCorasick(insensitivePhrases);
+        this.insensitiveIds = insensitiveIdList.stream().mapToInt(Integer::intValue).toArray();
+        this.insensitiveModes = insensitiveModeList.toArray(Mode[]::new);
+    }
+
+    /**
+     * Finds a string which must appear in any match of the regular expression, or {@code null} if one can not be determined
+     * <p>
+     * This is intentionally conservative. Only a run of plain ASCII characters at the start of a regex without alternation or inline
+     * flags is used
+     */
+    private static String requiredLiteral(String source) {
+        if (source.indexOf('|') >= 0 || source.contains("(?")) {
+            return null;
+        }
+
+        StringBuilder literal = new StringBuilder();
+        int i = source.startsWith("^") ? 1 : 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            char next = i + 1 < source.length() ? source.charAt(i + 1) : 0;
+            char value;
+            int end;
+
+            if (c == '\\' && (next == 'b' || next == 'B')) {
+                // Word boundaries do not consume any input
+                i += 2;
+                continue;
+            } else if (c == '\\' && next > ' ' && next < 128 && !Character.isLetterOrDigit(next)) {
+                value = next;
+                end = i + 2;
+            } else if (c >= ' ' && c < 128 && METACHARACTERS.indexOf(c) < 0) {
+                value = c;
+                end = i + 1;
+            } else {
+                break;
+            }
+
+            char quantifier = end < source.length() ? source.charAt(end) : 0;
+            if (quantifier == '*' || quantifier == '?' || quantifier == '{') {
+                break;
+            }
+
+            literal.append(value);
+            i = end;
+            if (quantifier == '+') {
+                break;
+            }
+        }
+
+        return literal.length() >= 2 ? literal.toString() : null;
+    }
+
+    /**
+     * The number of phrases in this matcher, including invalid regular expressions
+     *
+     * @return the number of phrases
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Indicates if this matcher has no phrases
+     *
+     * @return {@code true} if empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Finds every phrase which matches the message
+     *
+     * @param message the message
+     * @return the ids of the phrases which matched, in ascending order
+     */
+    public int[] matches(String message) {
+        if (message == null || this.size == 0) {
+            return new int[0];
+        }
+
+        BitSet hits = new BitSet(this.size);
+        BitSet candidates = new BitSet(this.regexes.length);
+        this.scanLiterals(message, hits, candidates);
+
+        for (int i = 0; i < this.regexes.length; i++) {
+            if ((!this.prefiltered.get(i) || candidates.get(i)) && this.regexes[i].matcher(message).find()) {
+                hits.set(this.regexIds[i]);
+            }
+        }
+
+        return hits.stream().toArray();
+    }
+
+    /**
+     * Finds the first phrase, in the order they were added, which matches the message
+     *
+     * @param message the message
+     * @return the id of the phrase; {@code -1} if no phrase matched
+     */
+    public int first(String message) {
+        if (message == null || this.size == 0) {
+            return -1;
+        }
+
+        BitSet hits = new BitSet(this.size);
+        BitSet candidates = new BitSet(this.regexes.length);
+        this.scanLiterals(message, hits, candidates);
+        int first = hits.isEmpty() ? Integer.MAX_VALUE : hits.nextSetBit(0);
+
+        for (int i = 0; i < this.regexes.length && this.regexIds[i] < first; i++) {
+            if ((!this.prefiltered.get(i) || candidates.get(i)) && this.regexes[i].matcher(message).find()) {
+                first = this.regexIds[i];
+            }
+        }
+
+        return first == Integer.MAX_VALUE ? -1 : first;
+    }
+
+    /**
+     * Indicates if any phrase matches the message
+     *
+     * @param message the message
+     * @return {@code true} if at least one phrase matched
+     */
+    public boolean test(String message) {
+        return this.first(message) >= 0;
+    }
+
+    private void scanLiterals(String message, BitSet hits, BitSet candidates) {
+        if (this.sensitive.size() > 0) {
+            this.sensitive.scan(message, (p, start, end) -> this.onLiteral(message, start, end, this.sensitiveIds[p], this.sensitiveModes[p], hits, candidates));
+        }
+
+        if (this.insensitive.size() > 0) {
+            this.insensitive.scan(lowerCase(message), (p, start, end) -> this.onLiteral(message, start, end, this.insensitiveIds[p], this.insensitiveModes[p], hits, candidates));
+        }
+    }
+
+    private void onLiteral(String message, int start, int end, int id, Mode mode, BitSet hits, BitSet candidates) {
+        if (id < 0) {
+            candidates.set(-id - 1);
+        } else if (isDelimited(message, start, end, mode)) {
+            hits.set(id);
+        }
+    }
+
+    private static boolean isDelimited(String message, int start, int end, Mode mode) {
+        switch (mode) {
+            case WORD:
+                return (start == 0 || message.charAt(start - 1) == ' ') && (end == message.length() || message.charAt(end) == ' ');
+            case BOUNDARY:
+                return isBoundary(message, start) && isBoundary(message, end);
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isBoundary(String s, int index) {
+        boolean before = index > 0 && isWordChar(s.charAt(index - 1));
+        boolean after = index < s.length() && isWordChar(s.charAt(index));
+        return before != after;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Converts to lower case one {@code char} at a time, so that indexes in the result are the same as in the input
+     */
+    private static String lowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Builds a {@link PhraseMatcher}
+     */
+    public static final class Builder {
+
+        private final List<Literal> literals = new ArrayList<>();
+        private final List<Integer> regexIds = new ArrayList<>();
+        private final List<Pattern> regexes = new ArrayList<>();
+        private int size = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a literal phrase. The id of the phrase is the number of phrases added before it
+         *
+         * @param phrase the phrase
+         * @param caseSensitive {@code true} if the case of the phrase must match exactly
+         * @param mode how the phrase must be delimited in the message
+         * @return {@code this}
+         */
+        public Builder literal(String phrase, boolean caseSensitive, Mode mode) {
+            this.literals.add(new Literal(this.size++, phrase, caseSensitive, mode));
+            return this;
+        }
+
+        /**
+         * Adds a regular expression phrase. The id of the phrase is the number of phrases added before it
+         * <p>
+         * If the regular expression is invalid, the phrase still consumes an id but never matches. Use {@link PhraseMatcher#isValidRegex(String)}
+         * to check first
+         *
+         * @param regex the regular expression
+         * @param caseSensitive {@code true} if the case of the phrase must match exactly
+         * @return {@code this}
+         */
+        public Builder regex(String regex, boolean caseSensitive) {
+            int id = this.size++;
+            try {
+                this.regexes.add(Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+                this.regexIds.add(id);
+            } catch (PatternSyntaxException | NullPointerException ex) {
+                com.gmt2001.Console.debug.println("Invalid phrase regex [" + regex + "]: " + ex.getMessage());
+            }
+            return this;
+        }
+
+        /**
+         * Builds the matcher
+         *
+         * @return the matcher
+         */
+        public PhraseMatcher build() {
+            return new PhraseMatcher(this);
+        }
+    }
+
+    private static final class Literal {
+
+        private final int id;
+        private final String phrase;
+        private final boolean caseSensitive;
+        private final Mode mode;
+
+        private Literal(int id, String phrase, boolean caseSensitive, Mode mode) {
+            this.id = id;
+            this.phrase = phrase;
+            this.caseSensitive = caseSensitive;
+            this.mode = mode == null ? Mode.SUBSTRING : mode;
+        }
+    }
+}
@@ -23,16 +23,26 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.InsertValuesStep3;
 import org.jooq.Record1;
+import org.jooq.Row2;
 import org.jooq.SelectConnectByStep;
 import org.jooq.SelectForUpdateStep;
 import org.jooq.SelectLimitPercentStep;
@@ -42,6 +52,7 @@ import org.jooq.SortOrder;
 import org.jooq.Table;
 import org.jooq.exception.DataAccessException;
 import org.jooq.exception.TooManyRowsException;
+import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
 
 import com.gmt2001.datastore2.Datastore2;
@@ -63,6 +74,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      * Table name prefix for all tables created as {@link SectionVariableValueTable}
      */
     public static final String PREFIX = "phantombot_";
+    private final List<TableChangeListener> changeListeners = new CopyOnWriteArrayList<>();
     /**
      * Provides an instance of {@link DataStore}
      *
@@ -80,6 +92,57 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
     protected DataStore(String unused) {
     }
 
+    /**
+     * Receives notifications of writes performed through this {@link DataStore}
+     */
+    @FunctionalInterface
+    public interface TableChangeListener {
+
+        /**
+         * Called after a write to a table
+         * <p>
+         * This is called on the thread which performed the write, so implementations must be fast and must not write to the database
+         *
+         * @param fName the table name, without the {@code phantombot_} prefix
+         * @param key the value of the {@code variable} column which changed; {@code null} if multiple or unknown rows changed
+         */
+        void tableChanged(String fName, String key);
+    }
+
+    /**
+     * Registers a listener which is notified of writes performed through this {@link DataStore}
+     * <p>
+     * Writes performed with {@link #executeSql(String, String[])} or directly through {@link Datastore2} are not reported
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(TableChangeListener listener) {
+        this.changeListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addChangeListener(TableChangeListener)}
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(TableChangeListener listener) {
+        this.changeListeners.remove(listener);
+    }
+
+    private void fireChange(String fName, String key) {
+        if (fName.startsWith(DataStore.PREFIX)) {
+            fName = fName.substring(DataStore.PREFIX.length());
+        }
+
+        for (TableChangeListener listener : this.changeListeners) {
+            try {
+                listener.tableChanged(fName, key);
+            } catch (Exception ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        }
+    }
+
     /**
      * Converts Datastore1 driver names to Datastore2 driver names
      *
@@ -217,6 +280,41 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
         return new KeyValue[0];
     }
 
+    /**
+     * Returns the {@code variable/value} pairs within the table and section for the given keys, using one query per 500 keys
+     * <p>
+     * Keys which are not present in the table are not included in the result
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section; {@code null} for all sections
+     * @param keys the values of the {@code variable} column to retrieve
+     * @return an array of {@link KeyValue} pairs denoting the variables and values
+     */
+    public KeyValue[] GetKeyValueListByKeys(String fName, String section, String[] keys) {
+        Optional<Table<?>> otbl = findTable(fName);
+        List<KeyValue> result = new ArrayList<>();
+
+        if (otbl.isPresent() && keys.length > 0) {
+            Table<?> tbl = otbl.get();
+            Field<String> variable = field("variable", tbl);
+            Field<String> value = field("value", tbl);
+            for (int start = 0; start < keys.length; start += 500) {
+                List<String> chunk = Arrays.asList(keys).subList(start, Math.min(keys.length, start + 500));
+                if (section == null) {
+                    dsl().select(variable, value).from(tbl)
+                    .where(variable.in(chunk))
+                    .forEach(r -> result.add(new KeyValue(r.value1(), r.value2())));
+                } else {
+                    dsl().select(variable, value).from(tbl)
+                    .where(keysIn(field("section", tbl), variable, section, chunk))
+                    .forEach(r -> result.add(new KeyValue(r.value1(), r.value2())));
+                }
+            }
+        }
+
+        return result.toArray(new KeyValue[0]);
+    }
+
     /**
      * Returns a list of values in the {@code variable} column within the table and section, sorted naturally
      *
@@ -790,6 +888,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
         record.value(value);
         record.changed(true);
         record.merge();
+        this.fireChange(fName, key);
     }
 
     /**
@@ -864,9 +963,164 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
 
                 c.dsl().commit().execute();
             });
+            this.fireChange(fName, null);
         }
     }
 
+    /**
+     * Increases the value of the {@code value} column as a long for each of the given keys of the table and section, by a different amount for each key
+     * <p>
+     * Missing rows are created with a value of {@code 0} before being increased. Each increase is performed by the database, so it is atomic
+     * with respect to other writers, and the entire batch is applied in one transaction
+     * <p>
+     * The array index of the keys and amounts params are linked
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section
+     * @param keys the values of the {@code variable} column to update
+     * @param amounts the amounts to increase the {@code value} column by
+     */
+    public void IncreaseBatchLong(String fName, String section, String[] keys, long[] amounts) {
+        // Duplicate keys are merged so that each row is inserted and updated once
+        Map<String, Long> merged = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(keys.length, amounts.length); i++) {
+            merged.merge(keys[i], amounts[i], Long::sum);
+        }
+
+        if (merged.isEmpty()) {
+            return;
+        }
+
+        this.IncreaseBatchLong(section, Map.of(fName, merged));
+    }
+
+    /**
+     * Increases the value of the {@code value} column as a long for keys of several tables, by a different amount for each key
+     * <p>
+     * Missing rows are created with a value of {@code 0} before being increased. Each increase is performed by the database, so it is atomic
+     * with respect to other writers, and all tables are applied in one transaction, so either every increase is applied or none are
+     *
+     * @param section a section name. {@code ""} (empty string) for the default section
+     * @param increases the amounts to increase the {@code value} column by, keyed by the value of the {@code variable} column, by table name
+     * without the {@code phantombot_} prefix
+     */
+    public void IncreaseBatchLong(String section, Map<String, ? extends Map<String, Long>> increases) {
+        String isection = section == null ? "" : section;
+        Set<String> changed = new HashSet<>();
+        dsl().transaction(c -> {
+            for (Map.Entry<String, ? extends Map<String, Long>> kv : increases.entrySet()) {
+                if (kv.getValue().isEmpty()) {
+                    continue;
+                }
+
+                SectionVariableValueTable table = SectionVariableValueTable.instance(DataStore.PREFIX + kv.getKey());
+                if (table == null) {
+                    continue;
+                }
+
+                BatchBindStep insert = c.dsl().batch(c.dsl().insertInto(table, table.SECTION, table.VARIABLE, table.VALUE)
+                .values((String) null, (String) null, (String) null).onDuplicateKeyIgnore());
+
+                for (String key : kv.getValue().keySet()) {
+                    insert = insert.bind(isection, key, "0");
+                }
+
+                insert.execute();
+
+                BatchBindStep batch = c.dsl().batch(c.dsl().update(table)
+                .set(table.VALUE, table.VALUE.cast(SQLDataType.BIGINT).add(DSL.val((Long) null)).cast(String.class))
+                .where(table.SECTION.eq(isection), table.VARIABLE.eq((String) null)));
+
+                for (Map.Entry<String, Long> amount : kv.getValue().entrySet()) {
+                    batch = batch.bind(amount.getValue(), isection, amount.getKey());
+                }
+
+                batch.execute();
+                changed.add(kv.getKey());
+            }
+        });
+
+        for (String fName : changed) {
+            this.fireChange(fName, null);
+        }
+    }
+
+    /**
+     * Increases the value of the {@code value} column as a long for groups of keys of the table and section, where every key in a group is
+     * increased by the same amount
+     * <p>
+     * Each group is applied with one {@code UPDATE ... WHERE variable IN (...)} per 500 keys, and missing rows are inserted with the amount
+     * afterwards, so the number of statements depends on the number of distinct amounts rather than the number of keys. All groups are applied
+     * in one transaction
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param section a section name. {@code ""} (empty string) for the default section
+     * @param groups the keys to increase, by the amount to increase them by. A key must not appear in more than one group
+     */
+    public void IncreaseGroupedBatchLong(String fName, String section, Map<Long, ? extends Collection<String>> groups) {
+        if (groups.values().stream().allMatch(Collection::isEmpty)) {
+            return;
+        }
+
+        SectionVariableValueTable table = SectionVariableValueTable.instance(DataStore.PREFIX + fName);
+
+        if (table != null) {
+            String isection = section == null ? "" : section;
+            dsl().transaction(c -> {
+                for (Map.Entry<Long, ? extends Collection<String>> group : groups.entrySet()) {
+                    long amount = group.getKey();
+                    String samount = Long.toString(amount);
+                    List<String> keys = new ArrayList<>(group.getValue());
+                    for (int start = 0; start < keys.size(); start += 500) {
+                        List<String> chunk = keys.subList(start, Math.min(keys.size(), start + 500));
+                        int numUpdate = c.dsl().update(table)
+                        .set(table.VALUE, table.VALUE.cast(SQLDataType.BIGINT).add(amount).cast(String.class))
+                        .where(keysIn(table.SECTION, table.VARIABLE, isection, chunk)).execute();
+
+                        if (numUpdate < chunk.size()) {
+                            // A batch of single row inserts, since a multi-row insert which ignores duplicates is emulated with a slow MERGE on H2
+                            BatchBindStep insert = c.dsl().batch(c.dsl().insertInto(table, table.SECTION, table.VARIABLE, table.VALUE)
+                            .values((String) null, (String) null, (String) null).onDuplicateKeyIgnore());
+
+                            for (String key : chunk) {
+                                insert = insert.bind(isection, key, samount);
+                            }
+
+                            insert.execute();
+                        }
+                    }
+                }
+            });
+            this.fireChange(fName, null);
+        }
+    }
+
+    /**
+     * Builds a condition matching the given keys of a section
+     * <p>
+     * H2 only uses the primary key to find the section for {@code variable IN (...)} and then scans the section, so a row value
+     * {@code (section, variable) IN (...)} is used there instead, which it looks up in the primary key directly. The other databases handle
+     * the plain {@code IN} list better than a row value list
+     *
+     * @param sectionField the {@code section} column
+     * @param variableField the {@code variable} column
+     * @param section the section
+     * @param keys the values of the {@code variable} column to match
+     * @return the condition
+     */
+    public static Condition keysIn(Field<String> sectionField, Field<String> variableField, String section, Collection<String> keys) {
+        if (Datastore2.instance() instanceof H2Store2) {
+            List<Row2<String, String>> rows = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                rows.add(DSL.row(section, key));
+            }
+
+            return DSL.row(sectionField, variableField).in(rows);
+        }
+
+        return sectionField.eq(section).and(variableField.in(keys));
+    }
+
     /**
      * Performs a bulk {@link #SetString(String, String, String, String)} operation, using available database features to do so more efficiently.
      * <p>
@@ -901,6 +1155,58 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
 
                 c.dsl().commit().execute();
             });
+            this.fireChange(fName, null);
+        }
+    }
+
+    /**
+     * Performs bulk {@link #RemoveKey(String, String, String)} and {@link #SetString(String, String, String, String)} operations on several
+     * tables in one transaction
+     * <p>
+     * The removals are applied before the values are set, so a key which is in both is left with the new value
+     *
+     * @param section a section name. {@code ""} (empty string) for the default section
+     * @param removals the keys to remove, by table name without the {@code phantombot_} prefix
+     * @param values the keys and new values to set, by table name without the {@code phantombot_} prefix
+     */
+    public void UpdateBatchString(String section, Map<String, ? extends Collection<String>> removals, Map<String, ? extends Map<String, String>> values) {
+        Set<String> changed = new HashSet<>();
+        dsl().transaction(c -> {
+            for (Map.Entry<String, ? extends Collection<String>> kv : removals.entrySet()) {
+                SectionVariableValueTable table = SectionVariableValueTable.instance(DataStore.PREFIX + kv.getKey(), false);
+                if (table == null || kv.getValue().isEmpty()) {
+                    continue;
+                }
+
+                List<String> keys = new ArrayList<>(kv.getValue());
+                for (int start = 0; start < keys.size(); start += 500) {
+                    c.dsl().deleteFrom(table).where(keysIn(table.SECTION, table.VARIABLE, section, keys.subList(start, Math.min(keys.size(), start + 500))))
+                    .execute();
+                }
+
+                changed.add(kv.getKey());
+            }
+
+            for (Map.Entry<String, ? extends Map<String, String>> kv : values.entrySet()) {
+                SectionVariableValueTable table = SectionVariableValueTable.instance(DataStore.PREFIX + kv.getKey());
+                if (table == null || kv.getValue().isEmpty()) {
+                    continue;
+                }
+
+                List<SectionVariableValueRecord> records = new ArrayList<>(kv.getValue().size());
+                for (Map.Entry<String, String> value : kv.getValue().entrySet()) {
+                    SectionVariableValueRecord record = new SectionVariableValueRecord(table, section, value.getKey(), value.getValue());
+                    record.attach(c);
+                    records.add(record);
+                }
+
+                c.dsl().batchMerge(records).execute();
+                changed.add(kv.getKey());
+            }
+        });
+
+        for (String fName : changed) {
+            this.fireChange(fName, null);
         }
     }
 
@@ -997,7 +1303,12 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
         }
         record.value(sval);
         record.changed(true);
-        return record.merge() == 1;
+        if (record.merge() == 1) {
+            this.fireChange(fName, key);
+            return true;
+        }
+
+        return false;
     }
 
     /**
@@ -1267,6 +1578,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
                 .where(field("section", tbl).eq(section),
                 field("variable", tbl).eq(key)).execute();
             }
+            this.fireChange(fName, key);
         }
     }
 
@@ -1283,6 +1595,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
             Table<?> tbl = otbl.get();
             dsl().deleteFrom(tbl)
             .where(field("section", tbl).eq(section)).execute();
+            this.fireChange(fName, null);
         }
     }
 
@@ -1302,6 +1615,7 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      */
     public void RemoveFile(String fName) {
         SectionVariableValueTable.instance(fName).drop();
+        this.fireChange(fName, null);
     }
 
     /**
@@ -1312,6 +1626,8 @@ public sealed class DataStore permits H2Store, MySQLStore, MariaDBStore, SqliteS
      */
     public void RenameFile(String fNameSource, String fNameDest) {
         SectionVariableValueTable.instance(fNameSource).rename(fNameDest);
+        this.fireChange(fNameSource, null);
+        this.fireChange(fNameDest, null);
     }
 
     /**
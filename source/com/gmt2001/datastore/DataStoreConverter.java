@@ -18,12 +18,14 @@ package com.gmt2001.datastore;
 
 /**
  * Final class that is used to convert datastores.
- * @deprecated No replacement planned
+ * @deprecated Use {@link com.gmt2001.datastore2.Datastore2Converter}
  * @author ScaniaTV
  */
 @Deprecated(since = "3.9.0.0", forRemoval = true)
 public final class DataStoreConverter {
 
+    private static final int BATCH_SIZE = 1000;
+
     /*
 	 * Class constructor.
      */
@@ -53,15 +55,19 @@ public final class DataStoreConverter {
             // Get the list of sections for this table.
             String[] sections = secondaryDbInstance.GetCategoryList(table);
             for (String section : sections) {
-                // Get all keys for this table.
-                String[] keys = secondaryDbInstance.GetKeyList(table, section);
-                for (String key : keys) {
-                    // Get the value from the old database and set it in the new one.
-                    primaryDbInstance.SetString(table, section, key, secondaryDbInstance.GetString(table, section, key));
-                    i++;
-                    if (i % 100 == 0) {
-                        com.gmt2001.Console.out.print("\rConverting table " + table + "... " + i);
+                // Copy the section in batches, instead of one select and one merge per key
+                KeyValue[] values = secondaryDbInstance.GetKeyValueList(table, section);
+                for (int start = 0; start < values.length; start += BATCH_SIZE) {
+                    int end = Math.min(values.length, start + BATCH_SIZE);
+                    String[] keys = new String[end - start];
+                    String[] batch = new String[end - start];
+                    for (int k = start; k < end; k++) {
+                        keys[k - start] = values[k].getKey();
+                        batch[k - start] = values[k].getValue();
                     }
+                    primaryDbInstance.SetBatchString(table, section, keys, batch);
+                    i += keys.length;
+                    com.gmt2001.Console.out.print("\rConverting table " + table + "... " + i);
                 }
             }
             com.gmt2001.Console.out.print("\rConverting table " + table + "... " + i + System.lineSeparator());
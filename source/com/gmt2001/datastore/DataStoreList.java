@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A list of values stored in a table, keyed by numeric ids which are assigned from a sequence and never change
+ * <p>
+ * The ids are kept sorted in memory, so the size of the list, and the id at a position, are available without reading the keys of the table.
+ * Adding or removing an entry writes a single row. The next id is stored in the {@code sequences} table, so ids are not reused after the last
+ * entry is removed
+ * <p>
+ * Writes to the table made elsewhere through {@link DataStore}, such as from the panel, are picked up through the
+ * {@link DataStore.TableChangeListener}
+ *
+ * @author gmt2001
+ */
+public final class DataStoreList {
+
+    private static final Map<String, DataStoreList> LISTS = new ConcurrentHashMap<>();
+    private static final String SEQUENCES = "sequences";
+    private final String fName;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Keys which were written elsewhere since the last refresh
+     */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean stale = true;
+    private long[] ids = new long[16];
+    private int size = 0;
+    private long next = 0L;
+
+    /**
+     * Provides the list stored in a table
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @return the list
+     */
+    public static DataStoreList instance(String fName) {
+        return LISTS.computeIfAbsent(fName.toLowerCase(), DataStoreList::new);
+    }
+
+    private DataStoreList(String fName) {
+        this.fName = fName;
+        DataStore.instance().addChangeListener(this::tableChanged);
+    }
+
+    /**
+     * Adds a value to the end of the list
+     *
+     * @param value the value
+     * @return the id of the new entry
+     */
+    public long add(String value) {
+        this.lock.lock();
+        try {
+            this.refresh();
+            long id = this.next++;
+            DataStore.instance().SetString(this.fName, "", Long.toString(id), value);
+            DataStore.instance().SetLong(SEQUENCES, "", this.fName, this.next);
+            this.insert(id);
+            return id;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the value of an entry
+     *
+     * @param id the id of the entry
+     * @param value the new value
+     * @return {@code true} if the entry exists and was replaced
+     */
+    public boolean set(long id, String value) {
+        this.lock.lock();
+        try {
+            this.refresh();
+            if (this.indexOf(id) < 0) {
+                return false;
+            }
+
+            DataStore.instance().SetString(this.fName, "", Long.toString(id), value);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an entry. The ids of the other entries do not change
+     *
+     * @param id the id of the entry
+     * @return {@code true} if the entry existed and was removed
+     */
+    public boolean remove(long id) {
+        this.lock.lock();
+        try {
+            this.refresh();
+            int index = this.indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+
+            DataStore.instance().RemoveKey(this.fName, "", Long.toString(id));
+            this.delete(index);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value of an entry
+     *
+     * @param id the id of the entry
+     * @return the value; an empty {@link Optional} if the entry does not exist
+     */
+    public Optional<String> get(long id) {
+        return DataStore.instance().OptString(this.fName, "", Long.toString(id));
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            this.refresh();
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the id of the entry at a position, with the entries ordered by id
+     *
+     * @param position the position, starting at {@code 0}
+     * @return the id; {@code -1} if the position is out of range
+     */
+    public long idAt(int position) {
+        this.lock.lock();
+        try {
+            this.refresh();
+            return position >= 0 && position < this.size ? this.ids[position] : -1L;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the position of an entry, with the entries ordered by id
+     *
+     * @param id the id of the entry
+     * @return the position; {@code -1} if the entry does not exist
+     */
+    public int positionOf(long id) {
+        this.lock.lock();
+        try {
+            this.refresh();
+            int index = this.indexOf(id);
+            return index >= 0 ? index : -1;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the id of a random entry; {@code -1} if the list is empty
+     */
+    public long random() {
+        this.lock.lock();
+        try {
+            this.refresh();
+            return this.size > 0 ? this.ids[ThreadLocalRandom.current().nextInt(this.size)] : -1L;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the ids of all entries, in ascending order
+     */
+    public long[] ids() {
+        this.lock.lock();
+        try {
+            this.refresh();
+            return Arrays.copyOf(this.ids, this.size);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void tableChanged(String table, String key) {
+        // Writes made by this list while holding the lock are already applied to the index
+        if (!table.equalsIgnoreCase(this.fName) || this.lock.isHeldByCurrentThread()) {
+            return;
+        }
+
+        if (key == null) {
+            this.stale = true;
+        } else {
+            this.dirty.add(key);
+        }
+    }
+
+    /**
+     * Loads the index if it is stale, otherwise applies the keys which were written elsewhere. Must be called while holding the lock
+     */
+    private void refresh() {
+        if (this.stale) {
+            this.stale = false;
+            this.dirty.clear();
+            String[] keys = DataStore.instance().GetKeyList(this.fName, "");
+            long[] loaded = new long[Math.max(16, keys.length)];
+            int count = 0;
+            for (String key : keys) {
+                long id = parseId(key);
+                if (id >= 0L) {
+                    loaded[count++] = id;
+                }
+            }
+
+            Arrays.sort(loaded, 0, count);
+            this.ids = loaded;
+            this.size = count;
+            this.next = Math.max(this.next, Math.max(count > 0 ? loaded[count - 1] + 1L : 0L,
+                DataStore.instance().GetLong(SEQUENCES, "", this.fName, 0L)));
+            return;
+        }
+
+        for (String key : this.dirty) {
+            this.dirty.remove(key);
+            long id = parseId(key);
+            if (id < 0L) {
+                continue;
+            }
+
+            int index = this.indexOf(id);
+            boolean exists = DataStore.instance().HasKey(this.fName, "", key);
+            if (exists && index < 0) {
+                this.insert(id);
+                this.next = Math.max(this.next, id + 1L);
+            } else if (!exists && index >= 0) {
+                this.delete(index);
+            }
+        }
+    }
+
+    private int indexOf(long id) {
+        return Arrays.binarySearch(this.ids, 0, this.size, id);
+    }
+
+    private void insert(long id) {
+        int index = this.indexOf(id);
+        if (index >= 0) {
+            return;
+        }
+
+        index = -index - 1;
+        if (this.size == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, this.ids.length * 2);
+        }
+
+        System.arraycopy(this.ids, index, this.ids, index + 1, this.size - index);
+        this.ids[index] = id;
+        this.size++;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(this.ids, index + 1, this.ids, index, this.size - index - 1);
+        this.size--;
+    }
+
+    /**
+     * Parses a key which is a non-negative number without leading zeros, so that each id has exactly one key
+     *
+     * @param key the key
+     * @return the id; {@code -1} if the key is not an id
+     */
+    private static long parseId(String key) {
+        if (key == null || key.isEmpty() || key.length() > 18 || (key.length() > 1 && key.charAt(0) == '0')) {
+            return -1L;
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) < '0' || key.charAt(i) > '9') {
+                return -1L;
+            }
+        }
+
+        return Long.parseLong(key);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index of the words in the values of a table, for full-text search
+ * <p>
+ * The index is built from one read of the table on the first search, and is then updated per key from the
+ * {@link DataStore.TableChangeListener}, so that writes made anywhere through {@link DataStore} are searchable
+ *
+ * @author gmt2001
+ */
+public final class FullTextIndex {
+
+    private static final Map<String, FullTextIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final Pattern WORD_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<String> KEY_ORDER = Comparator.<String>comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+    private final String fName;
+    private final Function<String, ?> text;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean stale = true;
+    /**
+     * Word to the keys whose text contains it; a {@link TreeMap} so that prefixes can be looked up as a range
+     */
+    private final TreeMap<String, Set<String>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> words = new HashMap<>();
+
+    /**
+     * Provides the index of a table
+     * <p>
+     * The text extractor is only used when the index is first created
+     *
+     * @param fName a table name, without the {@code phantombot_} prefix
+     * @param text converts a value of the table to the text to index; {@code null} to index the whole value
+     * @return the index
+     */
+    public static FullTextIndex instance(String fName, Function<String, ?> text) {
+        return INDEXES.computeIfAbsent(fName.toLowerCase(), k -> new FullTextIndex(fName, text));
+    }
+
+    private FullTextIndex(String fName, Function<String, ?> text) {
+        this.fName = fName;
+        this.text = text;
+        DataStore.instance().addChangeListener(this::tableChanged);
+    }
+
+    /**
+     * Finds the keys whose text contains every word of the query
+     * <p>
+     * Matching is case-insensitive and each word of the query matches words of the text which start with it, so {@code "hel wor"} matches
+     * {@code "Hello, World!"}
+     *
+     * @param query the words to find
+     * @return the matching keys, with numeric keys in numeric order; an empty list if the query contains no words
+     */
+    public List<String> search(String query) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        this.lock.lock();
+        try {
+            this.refresh();
+            Set<String> result = null;
+            for (String term : terms) {
+                Set<String> matches = new HashSet<>();
+                this.postings.subMap(term, true, term + Character.MAX_VALUE, true).values().forEach(matches::addAll);
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.retainAll(matches);
+                }
+
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+
+            List<String> keys = new ArrayList<>(result);
+            keys.sort(KEY_ORDER);
+            return keys;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct words in the index
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            this.refresh();
+            return this.postings.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void tableChanged(String table, String key) {
+        if (!table.equalsIgnoreCase(this.fName)) {
+            return;
+        }
+
+        if (key == null) {
+            this.stale = true;
+        } else {
+            this.dirty.add(key);
+        }
+    }
+
+    /**
+     * Builds the index if it is stale, otherwise re-indexes the keys which were written. Must be called while holding the lock
+     */
+    private void refresh() {
+        if (this.stale) {
+            this.stale = false;
+            this.dirty.clear();
+            this.postings.clear();
+            this.words.clear();
+            for (KeyValue kv : DataStore.instance().GetKeyValueList(this.fName, "")) {
+                this.index(kv.getKey(), kv.getValue());
+            }
+
+            return;
+        }
+
+        for (String key : this.dirty) {
+            this.dirty.remove(key);
+            this.unindex(key);
+            Optional<String> value = DataStore.instance().OptString(this.fName, "", key);
+            if (value.isPresent()) {
+                this.index(key, value.get());
+            }
+        }
+    }
+
+    private void index(String key, String value) {
+        Set<String> tokens;
+        try {
+            tokens = tokenize(this.text == null ? value : Objects.toString(this.text.apply(value), ""));
+        } catch (Exception ex) {
+            com.gmt2001.Console.debug.printStackTrace(ex);
+            tokens = tokenize(value);
+        }
+
+        this.words.put(key, tokens);
+        for (String token : tokens) {
+            this.postings.computeIfAbsent(token, k -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void unindex(String key) {
+        Set<String> tokens = this.words.remove(key);
+        if (tokens == null) {
+            return;
+        }
+
+        for (String token : tokens) {
+            Set<String> keys = this.postings.get(token);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    this.postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        for (String token : WORD_SPLIT.split(text.toLowerCase())) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+
+        return tokens;
+    }
+}
@@ -24,12 +24,14 @@ import java.net.URLClassLoader;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sql.ConnectionPoolDataSource;
 
@@ -94,6 +96,10 @@ public abstract class Datastore2 {
      * Internal dispose sync
      */
     private boolean isDisposed = false;
+    /**
+     * {@link System#nanoTime()} when a {@link Connection} was last taken from the pool
+     */
+    private final AtomicLong lastConnectionNanos = new AtomicLong(System.nanoTime());
 
     /**
      * Provides an instance of {@link Datastore2}
@@ -381,10 +387,41 @@ public abstract class Datastore2 {
      */
     public Connection getConnection() throws SQLException, TimeoutException {
         Connection connection = this.connectionPoolManager.getConnection();
+        this.lastConnectionNanos.set(System.nanoTime());
         this.prepareConnection(connection);
         return connection;
     }
 
+    /**
+     * Returns the number of {@link Connection} objects which are currently taken from the pool
+     *
+     * @return the number of active connections
+     */
+    public int activeConnections() {
+        return this.connectionPoolManager == null ? 0 : this.connectionPoolManager.getActiveConnections();
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} when a {@link Connection} was last taken from the pool
+     *
+     * @return the time of the last connection request
+     */
+    public long lastConnectionNanos() {
+        return this.lastConnectionNanos.get();
+    }
+
+    /**
+     * Indicates if the database is idle, with no active connections and no connections taken from the pool within the specified duration
+     * <p>
+     * Used to schedule maintenance work which should not compete with the bot for the database
+     *
+     * @param idleFor the minimum time since a connection was last taken from the pool
+     * @return {@code true} if the database is idle
+     */
+    public boolean isIdle(Duration idleFor) {
+        return this.activeConnections() == 0 && System.nanoTime() - this.lastConnectionNanos.get() >= idleFor.toNanos();
+    }
+
     /**
      * Tests if the database is accessible
      * <p>
@@ -0,0 +1,515 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.datastore2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
+import org.jooq.CreateIndexIncludeStep;
+import org.jooq.CreateIndexStep;
+import org.jooq.CreateTableElementListStep;
+import org.jooq.Cursor;
+import org.jooq.DDLQuery;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Index;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.gmt2001.datastore.DataStore;
+
+/**
+ * Copies all PhantomBot tables from one {@link Datastore2} to another, as used by the {@code convertdb} console command
+ * <p>
+ * Rows are streamed from the source with a fetch-size limited cursor and written to the target in fixed-size batches, each in its own
+ * transaction. Several tables are copied in parallel. After each batch, the progress is written to a checkpoint file so that an
+ * interrupted conversion can be resumed. Once all tables are copied, the row count and a checksum of every table is compared between
+ * the source and the target
+ *
+ * @author gmt2001
+ */
+public final class Datastore2Converter {
+
+    /**
+     * The default number of rows to insert per transaction
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * The file which stores the progress of the conversion
+     */
+    public static final Path CHECKPOINT_FILE = Paths.get("./config/", "convertdb.checkpoint.json");
+    private static final int PROGRESS_INTERVAL = 50000;
+    /**
+     * Tables which hold driver-specific state and must not be copied to a different driver
+     */
+    private static final Set<String> DRIVER_TABLES = Set.of("phantombot2_sqlite_pragma");
+    private final Datastore2 source;
+    private final String sourceName;
+    private final Datastore2 target;
+    private final String targetName;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelism;
+    private boolean resume = true;
+    private JSONObject checkpoint;
+
+    /**
+     * Constructor
+     *
+     * @param source the database to copy from
+     * @param sourceName the name of the source database type, used to identify the checkpoint
+     * @param target the database to copy to
+     * @param targetName the name of the target database type, used to identify the checkpoint
+     */
+    public Datastore2Converter(Datastore2 source, String sourceName, Datastore2 target, String targetName) {
+        this.source = source;
+        this.sourceName = sourceName.toLowerCase();
+        this.target = target;
+        this.targetName = targetName.toLowerCase();
+        // SQLite only allows one writer at a time, so parallel tables would only contend for the lock
+        this.parallelism = target instanceof SQLiteStore2 ? 1 : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Sets the number of rows to insert per transaction
+     *
+     * @param batchSize the batch size
+     * @return {@code this}
+     */
+    public Datastore2Converter batchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of tables to copy in parallel
+     *
+     * @param parallelism the number of tables
+     * @return {@code this}
+     */
+    public Datastore2Converter parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Sets if a checkpoint from a previous conversion between the same database types should be resumed
+     *
+     * @param resume {@code true} to resume; {@code false} to start over
+     * @return {@code this}
+     */
+    public Datastore2Converter resume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * Indicates if there is a checkpoint from an interrupted conversion between the specified database types
+     *
+     * @param sourceName the name of the source database type
+     * @param targetName the name of the target database type
+     * @return {@code true} if a checkpoint exists
+     */
+    public static boolean hasCheckpoint(String sourceName, String targetName) {
+        JSONObject checkpoint = readCheckpoint();
+        return checkpoint != null && checkpoint.optString("source").equalsIgnoreCase(sourceName)
+            && checkpoint.optString("target").equalsIgnoreCase(targetName);
+    }
+
+    /**
+     * Performs the conversion
+     *
+     * @return {@code true} if all tables were copied and verified successfully
+     */
+    public boolean convert() {
+        this.checkpoint = this.resume ? readCheckpoint() : null;
+        if (this.checkpoint == null || !this.checkpoint.optString("source").equals(this.sourceName)
+            || !this.checkpoint.optString("target").equals(this.targetName)) {
+            this.checkpoint = new JSONObject().put("source", this.sourceName).put("target", this.targetName).put("tables", new JSONObject());
+        } else {
+            com.gmt2001.Console.out.println("[convertdb] Resuming from checkpoint " + CHECKPOINT_FILE.toString());
+        }
+
+        List<Table<?>> tables = this.source.tables().stream()
+            .filter(t -> t.getName().toLowerCase().startsWith(DataStore.PREFIX.toLowerCase())
+                || t.getName().toLowerCase().startsWith(Datastore2.PREFIX.toLowerCase()))
+            .filter(t -> !DRIVER_TABLES.contains(t.getName().toLowerCase()))
+            .toList();
+
+        com.gmt2001.Console.out.println("[convertdb] Copying " + tables.size() + " tables, " + this.parallelism + " at a time, " + this.batchSize + " rows per batch");
+        long start = System.nanoTime();
+        boolean copied = this.runAll(tables, this::copyTable);
+        com.gmt2001.Console.out.println("[convertdb] Copy finished in " + ((System.nanoTime() - start) / 1_000_000_000L) + "s, verifying...");
+        this.target.invalidateTableCache();
+        boolean verified = this.runAll(tables, this::verifyTable);
+
+        if (copied && verified) {
+            try {
+                Files.deleteIfExists(CHECKPOINT_FILE);
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        } else {
+            com.gmt2001.Console.err.println("[convertdb] Some tables failed to convert or verify. Run the command again to resume");
+        }
+
+        return copied && verified;
+    }
+
+    /**
+     * Runs a task for each table on a fixed size thread pool
+     */
+    private boolean runAll(List<Table<?>> tables, TableTask task) {
+        AtomicInteger threadNum = new AtomicInteger(0);
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread t = new Thread(r, "com.gmt2001.datastore2.Datastore2Converter-" + threadNum.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Table<?> table : tables) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.run(table);
+                    } catch (Exception ex) {
+                        com.gmt2001.Console.err.println("[convertdb] " + table.getName() + " failed");
+                        com.gmt2001.Console.err.printStackTrace(ex);
+                        return false;
+                    }
+                }));
+            }
+
+            boolean success = true;
+            for (Future<Boolean> future : futures) {
+                try {
+                    success = future.get() && success;
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                    success = false;
+                }
+            }
+
+            return success;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean copyTable(Table<?> oldtable) throws IOException {
+        String name = oldtable.getName();
+        JSONObject state = this.tableState(name);
+        if (state.optBoolean("done")) {
+            com.gmt2001.Console.out.println("[convertdb] " + name + ": already copied " + state.optLong("rows") + " rows, skipping");
+            return true;
+        }
+
+        Table<?> newtable = this.ensureTable(oldtable);
+        Field<?>[] oldfields = oldtable.fields();
+        Field<?>[] newfields = targetFields(oldtable, newtable);
+        List<Field<?>> keyFields = primaryKeyFields(oldtable);
+        int[] keyIndexes = keyFields.stream().mapToInt(f -> indexOf(oldfields, f)).toArray();
+
+        long rows = 0L;
+        Object[] lastKey = null;
+        if (state.has("lastKey") && !keyFields.isEmpty()) {
+            rows = state.optLong("rows");
+            JSONArray jsonKey = state.getJSONArray("lastKey");
+            lastKey = new Object[keyFields.size()];
+            for (int i = 0; i < lastKey.length; i++) {
+                lastKey[i] = jsonKey.isNull(i) ? null : keyFields.get(i).getDataType().convert(jsonKey.getString(i));
+            }
+            com.gmt2001.Console.out.println("[convertdb] " + name + ": resuming after " + rows + " rows");
+        } else {
+            this.target.dslContext().truncate(newtable).execute();
+        }
+
+        Condition condition = DSL.noCondition();
+        if (lastKey != null) {
+            List<Field<?>> values = new ArrayList<>();
+            for (int i = 0; i < lastKey.length; i++) {
+                values.add(DSL.val(lastKey[i], keyFields.get(i)));
+            }
+            condition = DSL.row(keyFields).gt(DSL.row(values));
+        }
+
+        long total = this.source.dslContext().fetchCount(oldtable, condition) + rows;
+        long nextProgress = rows + PROGRESS_INTERVAL;
+        List<Object[]> batch = new ArrayList<>(this.batchSize);
+
+        try (Cursor<? extends Record> cursor = this.source.dslContext().selectFrom(oldtable).where(condition)
+            .orderBy(keyFields).fetchSize(this.fetchSize()).fetchLazy()) {
+            for (Record record : cursor) {
+                Object[] values = record.intoArray();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = newfields[i].getDataType().convert(values[i]);
+                }
+                batch.add(values);
+
+                if (batch.size() >= this.batchSize) {
+                    rows += this.flush(newtable, newfields, batch, keyIndexes, name, rows);
+                    if (rows >= nextProgress) {
+                        com.gmt2001.Console.out.println("[convertdb] " + name + ": " + rows + "/" + total + " rows");
+                        nextProgress = rows + PROGRESS_INTERVAL;
+                    }
+                }
+            }
+        }
+
+        rows += this.flush(newtable, newfields, batch, keyIndexes, name, rows);
+        this.updateState(name, new JSONObject().put("done", true).put("rows", rows));
+        com.gmt2001.Console.out.println("[convertdb] " + name + ": copied " + rows + " rows");
+        return true;
+    }
+
+    /**
+     * Inserts a batch of rows in a single transaction and records the last primary key in the checkpoint
+     *
+     * @return the number of rows inserted
+     */
+    private int flush(Table<?> newtable, Field<?>[] newfields, List<Object[]> batch, int[] keyIndexes, String name, long rowsBefore) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        this.target.dslContext().transaction(c -> {
+            BatchBindStep step = c.dsl().batch(c.dsl().insertInto(newtable, newfields).values(new Object[newfields.length]));
+            for (Object[] values : batch) {
+                step = step.bind(values);
+            }
+            step.execute();
+        });
+
+        int count = batch.size();
+        if (keyIndexes.length > 0) {
+            Object[] last = batch.get(count - 1);
+            JSONArray lastKey = new JSONArray();
+            for (int index : keyIndexes) {
+                lastKey.put(last[index] == null ? JSONObject.NULL : last[index].toString());
+            }
+            this.updateState(name, new JSONObject().put("rows", rowsBefore + count).put("lastKey", lastKey));
+        }
+
+        batch.clear();
+        return count;
+    }
+
+    private boolean verifyTable(Table<?> oldtable) {
+        String name = oldtable.getName();
+        Optional<Table<?>> onewtable = this.target.findTable(name);
+        if (!onewtable.isPresent()) {
+            com.gmt2001.Console.err.println("[convertdb] " + name + ": missing from the new database");
+            return false;
+        }
+
+        Table<?> newtable = onewtable.get();
+        Field<?>[] newfields = targetFields(oldtable, newtable);
+        long[] oldsum = this.checksum(this.source, oldtable, oldtable.fields(), newfields);
+        long[] newsum = this.checksum(this.target, newtable, newfields, newfields);
+
+        if (oldsum[0] != newsum[0] || oldsum[1] != newsum[1]) {
+            com.gmt2001.Console.err.println("[convertdb] " + name + ": verification failed, old rows=" + oldsum[0] + " new rows=" + newsum[0]
+                + (oldsum[0] == newsum[0] ? ", checksums differ" : ""));
+            // Force the table to be copied again on the next run
+            try {
+                this.updateState(name, new JSONObject());
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+            return false;
+        }
+
+        com.gmt2001.Console.debug.println("[convertdb] " + name + ": verified " + newsum[0] + " rows");
+        return true;
+    }
+
+    /**
+     * Computes the row count and an order-independent checksum of a table
+     * <p>
+     * Values are converted to the data types of the target table before hashing, so that the same data has the same checksum in both
+     * databases
+     *
+     * @return {@code [rows, checksum]}
+     */
+    private long[] checksum(Datastore2 datastore, Table<?> table, Field<?>[] fields, Field<?>[] types) {
+        long rows = 0L;
+        long sum = 0L;
+        CRC32 crc = new CRC32();
+
+        try (Cursor<Record> cursor = datastore.dslContext().select(fields).from(table).fetchSize(this.fetchSize()).fetchLazy()) {
+            for (Record record : cursor) {
+                crc.reset();
+                for (int i = 0; i < fields.length; i++) {
+                    crc.update(Objects.toString(types[i].getDataType().convert(record.get(i)), "\u0000null").getBytes(StandardCharsets.UTF_8));
+                    crc.update(0);
+                }
+                sum += crc.getValue();
+                rows++;
+            }
+        }
+
+        return new long[]{rows, sum};
+    }
+
+    /**
+     * Creates the table in the target database if it does not exist
+     */
+    private Table<?> ensureTable(Table<?> oldtable) {
+        Optional<Table<?>> onewtable = this.target.findTable(oldtable.getName());
+        if (onewtable.isPresent()) {
+            return onewtable.get();
+        }
+
+        CreateTableElementListStep cr = this.target.dslContext().createTableIfNotExists(oldtable.getName());
+        for (Field<?> field : oldtable.fields()) {
+            DataType<?> type = field.getDataType();
+            if (type.getSQLDataType() == SQLDataType.VARCHAR && type.length() > 2000) {
+                cr.column(field.getName(), this.target.longTextDataType());
+            } else {
+                cr.column(field);
+            }
+        }
+
+        UniqueKey<?> primaryKey = oldtable.getPrimaryKey();
+        if (primaryKey != null && !primaryKey.getFields().isEmpty()) {
+            cr = cr.primaryKey(primaryKey.getFields());
+        }
+
+        com.gmt2001.Console.debug.println(cr.getSQL());
+        cr.execute();
+
+        for (Index index : oldtable.getIndexes()) {
+            CreateIndexStep cii;
+            if (index.getUnique()) {
+                cii = this.target.dslContext().createUniqueIndexIfNotExists(index.getName());
+            } else {
+                cii = this.target.dslContext().createIndexIfNotExists(index.getName());
+            }
+            CreateIndexIncludeStep ci = cii.on(oldtable.getName(), index.getFields().stream().map(f -> f.getName()).toList());
+            DDLQuery cid = ci;
+            if (index.getWhere() != null) {
+                cid = ci.where(index.getWhere());
+            }
+            cid.execute();
+        }
+
+        this.target.invalidateTableCache();
+        return this.target.findTable(oldtable.getName()).orElseThrow();
+    }
+
+    /**
+     * MySQL Connector/J only streams results when the fetch size is {@link Integer#MIN_VALUE}
+     */
+    private int fetchSize() {
+        return this.source instanceof MySQLStore2 ? Integer.MIN_VALUE : this.batchSize;
+    }
+
+    private static Field<?>[] targetFields(Table<?> oldtable, Table<?> newtable) {
+        Field<?>[] oldfields = oldtable.fields();
+        Field<?>[] newfields = new Field<?>[oldfields.length];
+        for (int i = 0; i < oldfields.length; i++) {
+            Field<?> field = newtable.field(oldfields[i].getName());
+            if (field == null) {
+                for (Field<?> f : newtable.fields()) {
+                    if (f.getName().equalsIgnoreCase(oldfields[i].getName())) {
+                        field = f;
+                        break;
+                    }
+                }
+            }
+            newfields[i] = field == null ? newtable.field(i) : field;
+        }
+
+        return newfields;
+    }
+
+    private static List<Field<?>> primaryKeyFields(Table<?> table) {
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        List<Field<?>> fields = new ArrayList<>();
+        if (primaryKey != null) {
+            fields.addAll(primaryKey.getFields());
+        }
+
+        return fields;
+    }
+
+    private static int indexOf(Field<?>[] fields, Field<?> field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getName().equalsIgnoreCase(field.getName())) {
+                return i;
+            }
+        }
+
+        throw new IllegalStateException("primary key field " + field.getName() + " not found");
+    }
+
+    private synchronized JSONObject tableState(String name) {
+        JSONObject state = this.checkpoint.getJSONObject("tables").optJSONObject(name.toLowerCase());
+        return state == null ? new JSONObject() : new JSONObject(state.toString());
+    }
+
+    /**
+     * Updates the state of a table and writes the checkpoint file atomically
+     */
+    private synchronized void updateState(String name, JSONObject state) throws IOException {
+        this.checkpoint.getJSONObject("tables").put(name.toLowerCase(), state);
+        Path temp = CHECKPOINT_FILE.resolveSibling(CHECKPOINT_FILE.getFileName() + ".tmp");
+        Files.writeString(temp, this.checkpoint.toString(), StandardCharsets.UTF_8);
+        Files.move(temp, CHECKPOINT_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static JSONObject readCheckpoint() {
+        if (!Files.exists(CHECKPOINT_FILE)) {
+            return null;
+        }
+
+        try {
+            JSONObject checkpoint = new JSONObject(Files.readString(CHECKPOINT_FILE, StandardCharsets.UTF_8));
+            return checkpoint.has("tables") ? checkpoint : null;
+        } catch (IOException | JSONException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface TableTask {
+
+        boolean run(Table<?> table) throws Exception;
+    }
+}
@@ -34,7 +34,11 @@ import java.sql.Statement;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DataType;
@@ -43,6 +47,7 @@ import org.jooq.impl.DefaultDataType;
 import org.jooq.impl.SQLDataType;
 
 import com.gmt2001.PathValidator;
+import com.gmt2001.util.concurrent.ExecutorService;
 
 import tv.phantombot.CaselessProperties;
 import tv.phantombot.PhantomBot;
@@ -68,6 +73,10 @@ public final class H2Store2 extends Datastore2 {
      * The current format of H2 database
      */
     private static final int CURRENT_FORMAT = 3;
+    /**
+     * Extension of {@code BACKUP TO} files which are restored from the {@code config} directory on startup
+     */
+    private static final String STAGED_EXTENSION = ".h2.zip";
 
     /**
      * Returns the name of the H2 database file, without the trailing {@code .mv.db}
@@ -109,6 +118,7 @@ public final class H2Store2 extends Datastore2 {
             this.finishUpgrade(format);
         }
 
+        this.restoreStagedBackup();
         this.restoreBackup();
 
         JdbcDataSource dataSource = new JdbcDataSource();
@@ -259,7 +269,99 @@ public final class H2Store2 extends Datastore2 {
     }
 
     /**
-     * Automatically restores a backup from a {@code .h2.sql.gz} file that has been placed in the {@code config} directory
+     * Automatically restores a backup from a {@code .h2.zip} file, created by {@code BACKUP TO}, that has been placed in the {@code config} directory
+     * <p>
+     * The database file is swapped for the one in the backup before the database is opened. The replaced database file is moved to the
+     * {@code dbbackup} directory
+     */
+    private void restoreStagedBackup() {
+        try (Stream<Path> backupStream = Files.find(Paths.get("./config/"), 1, (path, attr) -> attr.isRegularFile() && path.toString().endsWith(STAGED_EXTENSION))) {
+            Optional<Path> backup = backupStream.findFirst();
+            if (backup.isPresent()) {
+                this.swapBackup(backup.get());
+            }
+        } catch (IOException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Replaces the database file with the one contained in a {@code BACKUP TO} zip file, then deletes the zip file
+     *
+     * @param zip the backup to restore
+     */
+    private void swapBackup(Path zip) {
+        com.gmt2001.Console.out.print("Restoring H2 database from backup at " + zip.toString() + "...");
+        long start = System.nanoTime();
+        Path dbfile = Paths.get("./config/", getDbFile() + ".mv.db");
+        Path extracted = Paths.get("./config/", getDbFile() + ".mv.db.restore");
+
+        try {
+            if (!extractDatabase(zip, extracted)) {
+                com.gmt2001.Console.out.println();
+                com.gmt2001.Console.err.println("Backup " + zip.toString() + " does not contain an H2 database file");
+                return;
+            }
+
+            if (Files.exists(dbfile)) {
+                Files.createDirectories(Paths.get("./dbbackup/"));
+                Files.move(dbfile, Paths.get("./dbbackup/", getDbFile() + "." + Datastore2.timestamp() + ".pre-restore.mv.db"), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.move(extracted, dbfile, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(zip);
+            com.gmt2001.Console.out.println("done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException ex) {
+            com.gmt2001.Console.out.println();
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Extracts the {@code .mv.db} file from a {@code BACKUP TO} zip file
+     *
+     * @param zip the backup
+     * @param target the file to write the database to
+     * @return {@code true} if the backup contained a database file
+     * @throws IOException if an I/O error occurs
+     */
+    private static boolean extractDatabase(Path zip, Path target) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().endsWith(".mv.db")) {
+                    Files.copy(zis, target, StandardCopyOption.REPLACE_EXISTING);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if a backup file was created by {@code BACKUP TO}, rather than being a legacy {@code SCRIPT TO} file
+     *
+     * @param p the backup file
+     * @return {@code true} if the file is a zip file containing an H2 database file
+     */
+    private static boolean isZipBackup(Path p) {
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(p))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.getName().endsWith(".mv.db")) {
+                    return true;
+                }
+            }
+        } catch (IOException ex) {
+            com.gmt2001.Console.debug.printStackTrace(ex);
+        }
+
+        return false;
+    }
+
+    /**
+     * Automatically restores a legacy backup from a {@code .h2.sql.gz} file that has been placed in the {@code config} directory
      * <p>
      * This method will run {@code DROP ALL OBJECTS} before it imports the backup with {@code RUNSCRIPT}
      */
@@ -291,23 +393,51 @@ public final class H2Store2 extends Datastore2 {
 
     @Override
     public String backupFileName() {
-        return getDbFile() + "." + Datastore2.timestamp() + ".h2.sql.gz";
+        return getDbFile() + "." + Datastore2.timestamp() + ".h2.zip";
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Uses {@code BACKUP TO}, which copies the database file into a zip file without locking any tables. Progress is reported while the
+     * backup is running
+     */
     @Override
     public void backup(String fileName) {
         try ( Connection connection = this.getConnection()) {
             Files.createDirectories(PathValidator.getRealPath(Paths.get("./dbbackup/")));
+            Path p = PathValidator.getRealPath(Paths.get("./dbbackup/", fileName));
+            Path dbfile = Paths.get("./config/", getDbFile() + ".mv.db");
+            long dbsize = Files.exists(dbfile) ? Files.size(dbfile) : 0L;
+            long start = System.nanoTime();
+            ScheduledFuture<?> progress = ExecutorService.scheduleAtFixedRate(() -> {
+                try {
+                    if (Files.exists(p)) {
+                        com.gmt2001.Console.debug.println("H2 backup " + (Files.size(p) / 1048576L) + "MB written from " + (dbsize / 1048576L) + "MB database");
+                    }
+                } catch (IOException ex) {
+                    com.gmt2001.Console.debug.printStackTrace(ex);
+                }
+            }, 5, 5, TimeUnit.SECONDS);
 
             try ( Statement statement = connection.createStatement()) {
-                statement.execute("SCRIPT DROP TO './dbbackup/" + fileName + "' COMPRESSION GZIP");
-                com.gmt2001.Console.debug.println("Backed up H2 DB to ./dbbackup/" + fileName);
+                statement.execute("BACKUP TO '" + p.toString().replace("'", "''") + "'");
+                com.gmt2001.Console.debug.println("Backed up H2 DB to ./dbbackup/" + fileName + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            } finally {
+                progress.cancel(false);
             }
         } catch (SQLException | IOException ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Backups created by {@code BACKUP TO} are copied to the {@code config} directory and swapped in as the database file on the next startup.
+     * Legacy {@code SCRIPT TO} backups are restored immediately with {@code RUNSCRIPT}
+     */
     @Override
     public void restoreBackup(String fileName) throws FileNotFoundException {
         Path p = PathValidator.getRealPath(Paths.get("./dbbackup/", fileName));
@@ -316,7 +446,16 @@ public final class H2Store2 extends Datastore2 {
             throw new FileNotFoundException(p.toString());
         }
 
-        this.restoreBackup(p);
+        if (isZipBackup(p)) {
+            try {
+                Files.copy(p, Paths.get("./config/", getDbFile() + ".restore" + STAGED_EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+                com.gmt2001.Console.out.println("The H2 database will be restored from " + p.toString() + " the next time the bot starts");
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        } else {
+            this.restoreBackup(p);
+        }
     }
 
     private void restoreBackup(Path p) {
@@ -26,8 +26,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 import org.jooq.DataType;
@@ -35,13 +34,15 @@ import org.jooq.SQLDialect;
 import org.jooq.impl.DefaultDataType;
 import org.jooq.impl.SQLDataType;
 import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.Codes;
+import org.sqlite.core.DB;
 import org.sqlite.javax.SQLiteConnectionPoolDataSource;
 
 import com.gmt2001.PathValidator;
 import com.gmt2001.util.concurrent.ExecutorService;
 
 import tv.phantombot.CaselessProperties;
-import tv.phantombot.cache.TwitchCache;
 
 /**
  * Provides a {@link Datastore2} driver for SQLite database v3.x
@@ -50,17 +51,26 @@ import tv.phantombot.cache.TwitchCache;
  */
 public final class SQLiteStore2 extends Datastore2 {
     /**
-     * Maximum allowed WAL size before an forced WAL truncate occurs
+     * WAL size which triggers a passive checkpoint. Also used as the {@code journal_size_limit}, so the WAL is truncated back to this size
+     * once it has been fully checkpointed
      */
     private static final long MAXWALSIZE = 104857600L;
     /**
-     * Instant when the next forced WAL restart will occur
+     * How long the connection pool must be unused before idle maintenance starts
      */
-    private Instant nextCheckpoint = Instant.now().plus(1, ChronoUnit.DAYS);
+    private static final Duration IDLE_TIME = Duration.ofSeconds(30);
     /**
-     * Instant when the next {@code VACUUM} will occur
+     * Number of free pages released by each {@code PRAGMA incremental_vacuum} step
      */
-    private Instant nextVacuum = Instant.now().plus(3, ChronoUnit.DAYS);
+    private static final int VACUUM_STEP_PAGES = 256;
+    /**
+     * Maximum time spent on incremental vacuum steps during each maintenance run
+     */
+    private static final Duration VACUUM_BUDGET = Duration.ofSeconds(2);
+    /**
+     * Number of pages copied by each step of the online backup
+     */
+    private static final int BACKUP_STEP_PAGES = 1024;
     /**
      * SQLite {@code LONGTEXT} type
      */
@@ -99,6 +109,7 @@ public final class SQLiteStore2 extends Datastore2 {
         config.setTempStore(SQLiteConfig.TempStore.MEMORY);
         config.setJournalMode(SQLiteConfig.JournalMode.WAL);
         config.setBusyTimeout(10000);
+        config.setJournalSizeLimit((int) MAXWALSIZE);
 
         SQLiteConnectionPoolDataSource dataSource = new SQLiteConnectionPoolDataSource(config);
         dataSource.setUrl("jdbc:sqlite:./config/" + getDbFile());
@@ -117,36 +128,27 @@ public final class SQLiteStore2 extends Datastore2 {
             }
 
             if (!hasAutoVacuum) {
-                com.gmt2001.Console.debug.println("Enabling auto_vacuum");
+                // auto_vacuum only takes effect on an existing database after a full VACUUM, which is done once here before the bot starts using the database
+                com.gmt2001.Console.out.println("Enabling incremental auto_vacuum on the SQLite database, this may take a while...");
+                long start = System.nanoTime();
                 try ( PreparedStatement pragmaStatement = connection.prepareStatement("PRAGMA auto_vacuum = 2;")) {
                     pragmaStatement.execute();
                 }
+                try ( PreparedStatement vacuumStatement = connection.prepareStatement("VACUUM;")) {
+                    vacuumStatement.execute();
+                }
+                com.gmt2001.Console.out.println("Enabled incremental auto_vacuum in " + millis(start) + "ms");
             }
 
             com.gmt2001.Console.debug.println("Startup checkpoint");
             try ( PreparedStatement vacuumStatement = connection.prepareStatement("PRAGMA wal_checkpoint(RESTART);")) {
                 vacuumStatement.execute();
             }
-
-            try (ResultSet rs = connection.getMetaData().getTables(null, null, "phantombot2_sqlite_pragma", null)) {
-                if (!rs.next()) {
-                    try ( PreparedStatement createPragmaStatement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS phantombot2_sqlite_pragma (variable string PRIMARY KEY, value string);") ) {
-                        createPragmaStatement.execute();
-                    }
-                }
-            }
-            try ( PreparedStatement nextVacuumStatement = connection.prepareStatement("SELECT value FROM phantombot2_sqlite_pragma WHERE variable='nextVacuum';") ) {
-                try ( ResultSet rs = nextVacuumStatement.executeQuery() ) {
-                    if (rs.next()) {
-                        this.nextVacuum = Instant.parse(rs.getString("value"));
-                    }
-                }
-            }
         } catch (SQLException ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
         }
 
-        ExecutorService.scheduleAtFixedRate(this::doMaintenance, 3, 3, TimeUnit.HOURS);
+        ExecutorService.scheduleAtFixedRate(this::doMaintenance, 5, 5, TimeUnit.MINUTES);
     }
 
     @Override
@@ -169,14 +171,25 @@ public final class SQLiteStore2 extends Datastore2 {
         return getDbFile() + "." + Datastore2.timestamp() + ".sqlite3.db";
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Uses the SQLite online backup API, copying {@value #BACKUP_STEP_PAGES} pages per step so that the database is only locked for the
+     * duration of each step
+     */
     @Override
     public void backup(String fileName) {
         try ( Connection connection = this.getConnection()) {
             Files.createDirectories(PathValidator.getRealPath(Paths.get("./dbbackup/")));
+            Path p = PathValidator.getRealPath(Paths.get("./dbbackup/", fileName));
+            BackupProgress progress = new BackupProgress();
+            int rc = connection.unwrap(SQLiteConnection.class).getDatabase().backup("main", p.toString(), progress, 100, 300, BACKUP_STEP_PAGES);
 
-            try ( Statement statement = connection.createStatement()) {
-                statement.execute("BACKUP TO './dbbackup/" + fileName + "'");
-                com.gmt2001.Console.debug.println("Backed up SQLite DB to ./dbbackup/" + fileName);
+            if (rc == Codes.SQLITE_OK || rc == Codes.SQLITE_DONE) {
+                com.gmt2001.Console.debug.println("Backed up SQLite DB to ./dbbackup/" + fileName + " (" + progress.pages + " pages in " + progress.steps
+                    + " steps, " + millis(progress.start) + "ms, longest step " + TimeUnit.NANOSECONDS.toMillis(progress.longestStep) + "ms)");
+            } else {
+                com.gmt2001.Console.err.println("SQLite backup to ./dbbackup/" + fileName + " failed with code " + rc);
             }
         } catch (SQLException | IOException ex) {
             com.gmt2001.Console.err.printStackTrace(ex);
@@ -216,58 +229,117 @@ public final class SQLiteStore2 extends Datastore2 {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs a passive WAL checkpoint once the WAL exceeds {@link #MAXWALSIZE}, then releases free pages with time-boxed
+     * {@code PRAGMA incremental_vacuum} steps while the connection pool is idle. Neither operation blocks other connections for
+     * longer than one step
+     */
     @Override
     public void doMaintenance() {
         try {
-            try ( Connection connection = this.getConnection()) {
-                boolean checkpointed = false;
-
-                if (!TwitchCache.instance().isStreamOnline() && this.nextVacuum.isBefore(Instant.now())) {
-                    checkpointed = true;
-                    com.gmt2001.Console.debug.println("3 day VACUUM");
-                    try ( PreparedStatement vacuumStatement = connection.prepareStatement("VACUUM;")) {
-                        vacuumStatement.execute();
-                    }
+            Path walPath = PathValidator.getRealPath(Paths.get("./config/", getDbFile() + "-wal"));
+            if (Files.exists(walPath) && Files.size(walPath) > MAXWALSIZE) {
+                this.checkpoint();
+            }
+        } catch (IOException | SQLException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
 
-                    try ( PreparedStatement pragmaTableStatement = connection.prepareStatement("INSERT OR REPLACE INTO phantombot2_sqlite_pragma (variable, value) VALUES ('nextVacuum', ?);")) {
-                        this.nextVacuum = Instant.now().plus(3, ChronoUnit.DAYS);
-                        pragmaTableStatement.setString(1, this.nextVacuum.toString());
-                        pragmaTableStatement.execute();
-                    }
-                }
+        if (this.isIdle(IDLE_TIME)) {
+            try {
+                this.incrementalVacuum();
+            } catch (SQLException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        }
+    }
 
-                try {
-                    Path walPath = PathValidator.getRealPath(Paths.get(getDbFile() + "-wal"));
-                    if (!checkpointed && !TwitchCache.instance().isStreamOnline() && Files.exists(walPath) && Files.size(walPath) > MAXWALSIZE) {
-                        checkpointed = true;
-                        com.gmt2001.Console.debug.println("MAXWALSIZE CHECKPOINT");
-                        try ( PreparedStatement checkpointStatement = connection.prepareStatement("PRAGMA wal_checkpoint(TRUNCATE);")) {
-                            checkpointStatement.execute();
-                            this.nextCheckpoint = Instant.now().plus(1, ChronoUnit.DAYS);
-                        }
-                    }
-                } catch (IOException ex) {
-                    com.gmt2001.Console.err.printStackTrace(ex);
-                }
+    /**
+     * Copies as much of the WAL into the database as possible without waiting for readers or writers
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    private void checkpoint() throws SQLException {
+        long start = System.nanoTime();
+        try ( Connection connection = this.getConnection();
+            PreparedStatement checkpointStatement = connection.prepareStatement("PRAGMA wal_checkpoint(PASSIVE);");
+            ResultSet rs = checkpointStatement.executeQuery()) {
+            if (rs.next()) {
+                com.gmt2001.Console.debug.println("PASSIVE CHECKPOINT " + rs.getInt(3) + "/" + rs.getInt(2) + " frames in " + millis(start) + "ms");
+            }
+        }
+    }
 
-                if (!checkpointed) {
-                    if (this.nextCheckpoint.isBefore(Instant.now())) {
-                        com.gmt2001.Console.debug.println("DAILY CHECKPOINT");
-                        try ( PreparedStatement vacuumStatement = connection.prepareStatement("PRAGMA wal_checkpoint(RESTART);")) {
-                            vacuumStatement.execute();
-                            this.nextCheckpoint = Instant.now().plus(1, ChronoUnit.DAYS);
-                        }
-                    } else {
-                        com.gmt2001.Console.debug.println("PRAGMA incremental_vacuum(2048)");
-                        try ( PreparedStatement vacuumStatement = connection.prepareStatement("PRAGMA incremental_vacuum(2048);")) {
-                            vacuumStatement.execute();
-                        }
-                    }
+    /**
+     * Releases free pages in steps of {@link #VACUUM_STEP_PAGES}, stopping when there are none left, when {@link #VACUUM_BUDGET} is
+     * used up, or as soon as another connection is taken from the pool
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    private void incrementalVacuum() throws SQLException {
+        try ( Connection connection = this.getConnection()) {
+            long mark = this.lastConnectionNanos();
+            long start = System.nanoTime();
+            long deadline = start + VACUUM_BUDGET.toNanos();
+            long longestStep = 0L;
+            int freeAtStart = freelistCount(connection);
+            int free = freeAtStart;
+            int steps = 0;
+
+            while (free > 0 && System.nanoTime() < deadline && this.activeConnections() <= 1 && this.lastConnectionNanos() == mark) {
+                long stepStart = System.nanoTime();
+                // Statement.executeUpdate steps the pragma to completion, PreparedStatement.execute would only release one page
+                try ( Statement vacuumStatement = connection.createStatement()) {
+                    vacuumStatement.executeUpdate("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ");");
                 }
+                longestStep = Math.max(longestStep, System.nanoTime() - stepStart);
+                steps++;
+                free = freelistCount(connection);
             }
-        } catch (SQLException ex) {
-            if (!ex.getMessage().contains("cannot VACUUM from within a transaction")) {
-                com.gmt2001.Console.err.printStackTrace(ex);
+
+            if (steps > 0) {
+                com.gmt2001.Console.debug.println("INCREMENTAL VACUUM released " + (freeAtStart - free) + " pages in " + steps + " steps, "
+                    + millis(start) + "ms, longest step " + TimeUnit.NANOSECONDS.toMillis(longestStep) + "ms, " + free + " free pages remaining");
+            }
+        }
+    }
+
+    private static int freelistCount(Connection connection) throws SQLException {
+        try ( PreparedStatement statement = connection.prepareStatement("PRAGMA freelist_count;");
+            ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static long millis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Tracks the progress of an online backup and the longest time spent in a single step
+     */
+    private static final class BackupProgress implements DB.ProgressObserver {
+        private final long start = System.nanoTime();
+        private long last = this.start;
+        private long longestStep = 0L;
+        private int steps = 0;
+        private int pages = 0;
+        private int nextReport = 25;
+
+        @Override
+        public void progress(int remaining, int pageCount) {
+            long now = System.nanoTime();
+            this.longestStep = Math.max(this.longestStep, now - this.last);
+            this.last = now;
+            this.steps++;
+            this.pages = pageCount;
+
+            int percent = pageCount == 0 ? 100 : (int) ((pageCount - remaining) * 100L / pageCount);
+            if (percent >= this.nextReport && remaining > 0) {
+                com.gmt2001.Console.debug.println("SQLite backup " + percent + "% (" + (pageCount - remaining) + "/" + pageCount + " pages)");
+                this.nextReport = percent - (percent % 25) + 25;
             }
         }
     }
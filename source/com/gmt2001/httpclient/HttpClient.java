@@ -20,6 +20,8 @@ import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -63,6 +65,50 @@ public final class HttpClient {
      * @return a {@link HttpClientResponse} with the results
      */
     public static HttpClientResponse request(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
+        try {
+            return send(method, url, requestHeaders, requestBody).toFuture().get(timeout(), TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
+            return new HttpClientResponse(ex, false, method, requestBody, ex.getClass().getName().getBytes(StandardCharsets.UTF_8), requestHeaders, null, null, url);
+        }
+    }
+
+    /**
+     * Performs an HTTP request without blocking the calling thread
+     * <p>
+     * The returned future always completes normally. If the request fails or does not complete within the timeout, the response contains the
+     * exception, as with {@link #request(HttpMethod, URI, HttpHeaders, String)}
+     *
+     * @param method the HTTP method
+     * @param url the URL to request
+     * @param requestHeaders the request headers to send
+     * @param requestBody the request body to send if method is {@link HttpMethod#POST}, {@link HttpMethod#PUT},
+     * or {@link HttpMethod#PATCH}; {@code null} for other methods
+     * @return a {@link CompletableFuture} which completes with a {@link HttpClientResponse} with the results
+     */
+    public static CompletableFuture<HttpClientResponse> requestAsync(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
+        CompletableFuture<HttpClientResponse> future;
+        try {
+            future = send(method, url, requestHeaders, requestBody).toFuture();
+        } catch (Exception ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+
+        return future.orTimeout(timeout(), TimeUnit.SECONDS).exceptionally(t -> {
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            Exception ex = cause instanceof Exception e ? e : new ExecutionException(cause);
+            return new HttpClientResponse(ex, false, method, requestBody, ex.getClass().getName().getBytes(StandardCharsets.UTF_8), requestHeaders, null, null, url);
+        });
+    }
+
+    /**
+     * @botproperty httpclienttimeout - The timeout, in seconds, for an HTTP request to complete. Default `10`
+     * @botpropertycatsort httpclienttimeout 100 700 HTTP/WS
+     */
+    private static int timeout() {
+        return CaselessProperties.instance().getPropertyAsInt("httpclienttimeout", TIMEOUT_TIME);
+    }
+
+    private static Mono<HttpClientResponse> send(HttpMethod method, URI url, HttpHeaders requestHeaders, String requestBody) {
         reactor.netty.http.client.HttpClient client = reactor.netty.http.client.HttpClient.create();
         if (url.getScheme() != null && url.getScheme().equals("https")) {
             client = client.secure();
@@ -102,18 +148,9 @@ public final class HttpClient {
 
         RequestSender sender = client.followRedirect(true).request(method).uri(url);
 
-        try {
-            /**
-             * @botproperty httpclienttimeout - The timeout, in seconds, for an HTTP request to complete. Default `10`
-             * @botpropertycatsort httpclienttimeout 100 700 HTTP/WS
-             */
-            return sender.send(ByteBufFlux.fromString(Mono.just(_requestBody)))
-                    .responseSingle((res, buf) -> buf.asByteArray().map(content -> new HttpClientResponse(null, requestBody, content, url, res))
-                    .defaultIfEmpty(new HttpClientResponse(null, requestBody, new byte[0], url, res)))
-                    .toFuture().get(CaselessProperties.instance().getPropertyAsInt("httpclienttimeout", TIMEOUT_TIME), TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            return new HttpClientResponse(ex, false, method, requestBody, ex.getClass().getName().getBytes(StandardCharsets.UTF_8), requestHeaders, null, null, url);
-        }
+        return sender.send(ByteBufFlux.fromString(Mono.just(_requestBody)))
+                .responseSingle((res, buf) -> buf.asByteArray().map(content -> new HttpClientResponse(null, requestBody, content, url, res))
+                .defaultIfEmpty(new HttpClientResponse(null, requestBody, new byte[0], url, res)));
     }
 
     /**
@@ -244,7 +244,7 @@ public final class HTTPWSServer {
          * @botpropertycatsort proxybypasshttps 80 700 HTTP/WS
          * @botpropertyrestart proxybypasshttps
          */
-        return this.sslEnabled || CaselessProperties.instance().getPropertyAsBoolean("proxybypasshttps", false);
+        return this.sslEnabled || CaselessProperties.instance().snapshot().getPropertyAsBoolean("proxybypasshttps", false);
     }
 
     public boolean isAutoSsl() {
@@ -20,20 +20,30 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.gmt2001.datastore.KeyValue;
 import com.gmt2001.util.concurrent.ExecutorService;
 
 import net.engio.mbassy.listener.Handler;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tv.phantombot.CaselessProperties;
 import tv.phantombot.PhantomBot;
@@ -44,6 +54,7 @@ import tv.phantombot.event.irc.message.IrcModerationEvent;
 import tv.phantombot.event.jvm.PropertiesReloadedEvent;
 import tv.phantombot.event.twitch.TwitchUserLoginChangedEvent;
 import tv.phantombot.twitch.api.Helix;
+import tv.phantombot.twitch.api.HelixUserCoalescer;
 import tv.phantombot.twitch.api.TwitchValidate;
 
 /**
@@ -55,12 +66,49 @@ public final class ViewerCache implements Listener {
     private static final ViewerCache INSTANCE = new ViewerCache();
     private static final Duration ACTIVE_TIMEOUT = Duration.ofMinutes(5);
     private static final Duration WARN_INTERVAL = Duration.ofMinutes(15);
+    private static final int MAPPINGS_CAPACITY = 100000;
     private boolean registered = false;
     private boolean chattersUpdated = false;
     private final ConcurrentMap<String, Viewer> viewers = new ConcurrentHashMap<>();
+    /**
+     * The logins sent in the last {@link IrcChannelUsersUpdateEvent}. Only accessed from {@link #sendUpdate()}
+     */
+    private Set<String> lastChatters = new HashSet<>();
     private Viewer bot;
     private Viewer broadcaster;
     private Instant nextWarn = null;
+    /**
+     * The user id to login mappings which are in the database or pending, so that unchanged mappings are neither read nor written again
+     */
+    private final Map<String, String> mappings = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return this.size() > MAPPINGS_CAPACITY;
+        }
+    };
+    /**
+     * The user id to login mappings waiting to be written by {@link #flushMappings()}
+     */
+    private Map<String, String> pendingMappings = new LinkedHashMap<>();
+    /**
+     * The reverse of {@link #pendingMappings}, keyed by login
+     */
+    private Map<String, String> pendingLogins = new HashMap<>();
+    /**
+     * The login to user id mappings being written by {@link #flushMappings()}, kept readable until the write has finished
+     */
+    private Map<String, String> flushingLogins = Map.of();
+    private final ReentrantLock mappingsLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    /**
+     * Posts the events whose handlers must see them in order, one at a time. Separate from the shared
+     * {@link com.gmt2001.util.concurrent.ExecutorService}, so that slow handlers do not hold up its threads
+     */
+    private final Executor orderedEvents = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "com.gmt2001.twitch.cache.ViewerCache::orderedEvents");
+        t.setDaemon(true);
+        return t;
+    });
 
     /**
      * Singleton method
@@ -82,6 +130,7 @@ public final class ViewerCache implements Listener {
         ExecutorService.scheduleAtFixedRate(this::doGC, 15, 15, TimeUnit.MINUTES);
         ExecutorService.scheduleAtFixedRate(this::getChatters, 0, 2, TimeUnit.MINUTES);
         ExecutorService.scheduleAtFixedRate(this::sendUpdate, 15, 15, TimeUnit.SECONDS);
+        ExecutorService.scheduleAtFixedRate(this::flushMappings, 5, 5, TimeUnit.SECONDS);
         this.updateBroadcasterBot().subscribe();
     }
 
@@ -129,7 +178,7 @@ public final class ViewerCache implements Listener {
     }
 
     /**
-     * Updates the user mapping database and sends an event if it is a login name change
+     * Queues an update of the user mapping database, which is written by {@link #flushMappings()}
      * <p>
      * The data is stored in two tables: {@code idToLogin} is keyed by user id and valued by user login.
      * {@code loginToId} is keyed by user login and valued by user id
@@ -138,19 +187,121 @@ public final class ViewerCache implements Listener {
      * @param login The user login
      */
     private void updateDatabase(String id, String login) {
-        String existing = PhantomBot.instance().getDataStore().GetString("idToLogin", "", id);
+        this.mappingsLock.lock();
+        try {
+            if (login.equals(this.mappings.get(id))) {
+                return;
+            }
 
-        if (existing == null || !existing.equals(login)) {
-            PhantomBot.instance().getDataStore().SetString("idToLogin", "", id, login);
-            if (existing != null && !existing.isBlank()) {
-                PhantomBot.instance().getDataStore().RemoveKey("loginToId", "", existing);
+            this.mappings.put(id, login);
+            this.queueMapping(id, login, true);
+        } finally {
+            this.mappingsLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a mapping to {@link #pendingMappings} and {@link #pendingLogins}. Must be called while holding {@link #mappingsLock}
+     *
+     * @param id The user id
+     * @param login The user login
+     * @param replace {@code true} to replace a mapping which is already queued for the user id
+     */
+    private void queueMapping(String id, String login, boolean replace) {
+        String old = replace ? this.pendingMappings.put(id, login) : this.pendingMappings.putIfAbsent(id, login);
+        if (old == null || replace) {
+            if (old != null) {
+                this.pendingLogins.remove(old, id);
             }
 
-            PhantomBot.instance().getDataStore().SetString("loginToId", "", login, id);
+            this.pendingLogins.put(login, id);
+        }
+    }
+
+    /**
+     * Writes the queued user mappings to the database in one transaction, and sends an event for each login name change
+     * <p>
+     * The stored logins of the queued user ids are read with one bulk query, and mappings which did not change are not written
+     */
+    public void flushMappings() {
+        this.flushLock.lock();
+        try {
+            Map<String, String> pending;
+            this.mappingsLock.lock();
+            try {
+                if (this.pendingMappings.isEmpty()) {
+                    return;
+                }
 
-            if (existing != null && !existing.isBlank()) {
-                EventBus.instance().postAsync(new TwitchUserLoginChangedEvent(id, existing, login));
+                pending = this.pendingMappings;
+                this.flushingLogins = this.pendingLogins;
+                this.pendingMappings = new LinkedHashMap<>();
+                this.pendingLogins = new HashMap<>();
+            } finally {
+                this.mappingsLock.unlock();
             }
+
+            try {
+                Map<String, String> existing = new HashMap<>();
+                for (KeyValue kv : PhantomBot.instance().getDataStore().GetKeyValueListByKeys("idToLogin", "", pending.keySet().toArray(new String[0]))) {
+                    existing.put(kv.getKey(), kv.getValue());
+                }
+
+                Map<String, String> idToLogin = new LinkedHashMap<>();
+                Map<String, String> loginToId = new LinkedHashMap<>();
+                List<String> renamed = new ArrayList<>();
+                List<TwitchUserLoginChangedEvent> events = new ArrayList<>();
+                pending.forEach((id, login) -> {
+                    String old = existing.get(id);
+                    if (!login.equals(old)) {
+                        idToLogin.put(id, login);
+                        loginToId.put(login, id);
+
+                        if (old != null && !old.isBlank()) {
+                            renamed.add(old);
+                            events.add(new TwitchUserLoginChangedEvent(id, old, login));
+                        }
+                    }
+                });
+
+                if (!idToLogin.isEmpty()) {
+                    PhantomBot.instance().getDataStore().UpdateBatchString("", Map.of("loginToId", renamed), Map.of("idToLogin", idToLogin, "loginToId", loginToId));
+                }
+
+                // In order, so that a user renamed twice in a row is reported as such
+                events.forEach(event -> this.orderedEvents.execute(() -> EventBus.instance().post(event)));
+            } catch (Exception ex) {
+                // Retry on the next flush, unless a newer mapping was queued in the meantime
+                this.mappingsLock.lock();
+                try {
+                    pending.forEach((id, login) -> this.queueMapping(id, login, false));
+                } finally {
+                    this.mappingsLock.unlock();
+                }
+
+                com.gmt2001.Console.err.printStackTrace(ex);
+            } finally {
+                this.mappingsLock.lock();
+                try {
+                    this.flushingLogins = Map.of();
+                } finally {
+                    this.mappingsLock.unlock();
+                }
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of user mappings waiting to be written to the database
+     */
+    public int pendingMappingWrites() {
+        this.mappingsLock.lock();
+        try {
+            return this.pendingMappings.size();
+        } finally {
+            this.mappingsLock.unlock();
         }
     }
 
@@ -170,10 +321,32 @@ public final class ViewerCache implements Listener {
 
     /**
      * Sends IrcChannelUsersUpdateEvent if a change has occurred
+     * <p>
+     * The event carries the joins and parts since the previous one, so it is posted through {@link #orderedEvents} to ensure the handlers see
+     * the deltas in order
      */
     private void sendUpdate() {
         if (this.chattersUpdated(false)) {
-            EventBus.instance().postAsync(new IrcChannelUsersUpdateEvent(this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).map(kv -> kv.getValue()).collect(Collectors.toList())));
+            List<Viewer> chatters = this.viewers.values().stream().filter(Viewer::inChat).collect(Collectors.toList());
+            Set<String> current = new HashSet<>(chatters.size() * 2);
+            List<String> joins = new ArrayList<>();
+            for (Viewer viewer : chatters) {
+                String login = viewer.login();
+                if (login != null && current.add(login.toLowerCase()) && !this.lastChatters.contains(login.toLowerCase())) {
+                    joins.add(login.toLowerCase());
+                }
+            }
+
+            List<String> parts = new ArrayList<>();
+            for (String login : this.lastChatters) {
+                if (!current.contains(login)) {
+                    parts.add(login);
+                }
+            }
+
+            this.lastChatters = current;
+            IrcChannelUsersUpdateEvent event = new IrcChannelUsersUpdateEvent(chatters, joins, parts);
+            this.orderedEvents.execute(() -> EventBus.instance().post(event));
         }
     }
 
@@ -240,10 +413,10 @@ public final class ViewerCache implements Listener {
             emitter.success(newChatters);
         }).doOnSuccess(newChattersList -> {
             final Instant after = Instant.now().minus(ACTIVE_TIMEOUT);
-            final List<String> found = new ArrayList<>();
-            final long count = this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).count();
+            final Set<String> found = new HashSet<>();
+            final Set<String> newChatterIds = newChattersList.stream().map(jso -> jso.getString("user_id")).collect(Collectors.toSet());
             this.viewers.entrySet().stream().filter(kv -> kv.getValue().inChat()).forEach(kv -> {
-                if (newChattersList.stream().filter(jso -> jso.getString("user_id").equals(kv.getValue().id())).findAny().isPresent()) {
+                if (newChatterIds.contains(kv.getValue().id())) {
                     kv.getValue().seen();
                     found.add(kv.getValue().id());
                 } else if (kv.getValue().lastActive().isBefore(after)) {
@@ -335,31 +508,25 @@ public final class ViewerCache implements Listener {
      * @return A {@link Viewer} object; {@code null} if not found
      */
     private Mono<List<Viewer>> lookupAsync(List<String> id, List<String> login) {
-        return Helix.instance().getUsersAsync(id, login)
-            .map(jso -> {
-                List<Viewer> viewers = new ArrayList<>();
-                if (jso != null && !jso.has("error") && jso.has("data") && !jso.isNull("data")) {
-                    final JSONArray data = jso.getJSONArray("data");
-
-                    if (data.length() > 0) {
-                    for (int i = 0; i < data.length(); i++) {
-                        JSONObject user = data.getJSONObject(i);
-
-                        Viewer viewer = new Viewer(user.getString("id")).login(user.getString("login"))
-                            .name(user.isNull("display_name") ? null : user.optString("display_name").replaceAll("\\\\s", " "))
-                            .admin(user.getString("type").equals("admin")).staff(user.getString("type").equals("staff"))
-                            .bot(user.getString("login").equals(TwitchValidate.instance().getChatLogin().toLowerCase()))
-                            .broadcaster(user.getString("login").equals(CaselessProperties.instance().getProperty("channel").toLowerCase()));
-
-                        viewers.add(viewer);
-                    }
-                }
-            }
+        List<Mono<Optional<JSONObject>>> lookups = new ArrayList<>();
 
-            return viewers;
-        }).doOnError(ex -> {
-            com.gmt2001.Console.err.printStackTrace(ex, "Exception parsing getUsersAsync");
-        });
+        if (id != null) {
+            id.forEach(i -> lookups.add(HelixUserCoalescer.instance().byId(i)));
+        }
+
+        if (login != null) {
+            login.forEach(l -> lookups.add(HelixUserCoalescer.instance().byLogin(l)));
+        }
+
+        return Flux.mergeSequential(lookups).filter(Optional::isPresent).map(Optional::get).distinct(user -> user.getString("id"))
+            .map(user -> new Viewer(user.getString("id")).login(user.getString("login"))
+                .name(user.isNull("display_name") ? null : user.optString("display_name").replaceAll("\\\\s", " "))
+                .admin(user.getString("type").equals("admin")).staff(user.getString("type").equals("staff"))
+                .bot(user.getString("login").equals(TwitchValidate.instance().getChatLogin().toLowerCase()))
+                .broadcaster(user.getString("login").equals(CaselessProperties.instance().getProperty("channel").toLowerCase())))
+            .collectList().doOnError(ex -> {
+                com.gmt2001.Console.err.printStackTrace(ex, "Exception parsing getUsersAsync");
+            });
     }
 
     /**
@@ -578,12 +745,22 @@ public final class ViewerCache implements Listener {
     }
 
     /**
-     * Looks up the specified user id in the mapping database and returns the associated user login
+     * Looks up the specified user id in the mapping database, including queued updates, and returns the associated user login
      *
      * @param id The user id to lookup
      * @return The associated user login; {@code null} if the specified user id is not in the database
      */
     public String lookupLoginById(String id) {
+        this.mappingsLock.lock();
+        try {
+            String login = this.mappings.get(id);
+            if (login != null) {
+                return login;
+            }
+        } finally {
+            this.mappingsLock.unlock();
+        }
+
         if (PhantomBot.instance().getDataStore().HasKey("idToLogin", "", id)) {
             return PhantomBot.instance().getDataStore().GetString("idToLogin", "", id);
         }
@@ -592,12 +769,27 @@ public final class ViewerCache implements Listener {
     }
 
     /**
-     * Looks up the specified user login in the mapping database and returns the associated user id
+     * Looks up the specified user login in the mapping database, including queued updates and updates which are being written, and returns
+     * the associated user id
      *
      * @param login The user login to lookup
      * @return The associated user id; {@code null} if the specified user login is not in the database
      */
     public String lookupIdByLogin(String login) {
+        this.mappingsLock.lock();
+        try {
+            String id = this.pendingLogins.get(login);
+            if (id == null) {
+                id = this.flushingLogins.get(login);
+            }
+
+            if (id != null) {
+                return id;
+            }
+        } finally {
+            this.mappingsLock.unlock();
+        }
+
         if (PhantomBot.instance().getDataStore().HasKey("loginToId", "", login)) {
             return PhantomBot.instance().getDataStore().GetString("loginToId", "", login);
         }
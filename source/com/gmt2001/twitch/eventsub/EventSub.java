@@ -45,6 +45,7 @@ import com.gmt2001.ratelimiters.ExponentialBackoff;
 import com.gmt2001.twitch.eventsub.EventSubSubscription.SubscriptionStatus;
 import com.gmt2001.util.Reflect;
 import com.gmt2001.util.concurrent.ExecutorService;
+import com.gmt2001.util.concurrent.ExpiringIdSet;
 import com.gmt2001.wsclient.WSClient;
 import com.gmt2001.wsclient.WsClientFrameHandler;
 
@@ -75,7 +76,7 @@ import tv.phantombot.twitch.api.TwitchValidate;
 public final class EventSub extends SubmissionPublisher<EventSubInternalEvent> implements WsClientFrameHandler, Listener {
 
     /**
-     * Constructor. Schedules a task to remove handled messages from the anti-duplicate map when they expire. Loads the subscription types. Starts the WebSocket connection
+     * Constructor. Loads the subscription types. Starts the WebSocket connection
      */
     private EventSub() {
         debug("Starting EventSub");
@@ -108,17 +109,18 @@ public final class EventSub extends SubmissionPublisher<EventSubInternalEvent> i
                         debug("constructor connect", ex);
                     }
                 }, 15, TimeUnit.SECONDS);
-
-                ExecutorService.scheduleWithFixedDelay(() -> this.cleanupDuplicates(), CLEANUP_INTERVAL.toMillis(), CLEANUP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
             } catch (Exception ex) {
                 debug("constructor", ex);
             }
         }, 100, TimeUnit.MILLISECONDS);
     }
 
-    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(2);
+    /**
+     * How long handled message ids are remembered. Twitch recommends rejecting messages older than 10 minutes, so redeliveries fall within this window
+     */
+    private static final Duration DUPLICATE_WINDOW = Duration.ofMinutes(10);
     private String session_id = null;
-    private final ConcurrentMap<String, ZonedDateTime> handledMessages = new ConcurrentHashMap<>();
+    private final ExpiringIdSet handledMessages = new ExpiringIdSet(DUPLICATE_WINDOW, 10);
     private final ConcurrentMap<String, EventSubSubscription> subscriptions = new ConcurrentHashMap<>();
     private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
     private WSClient client = null;
@@ -368,11 +370,10 @@ public final class EventSub extends SubmissionPublisher<EventSubInternalEvent> i
      * Checks if the specified message has already been handled
      *
      * @param messageId The message id to check
-     * @param timestamp The timestamp of the message
-     * @return
+     * @return {@code true} if the message id was seen within the last 10 minutes
      */
-    boolean isDuplicate(String messageId, ZonedDateTime timestamp) {
-        return this.handledMessages.putIfAbsent(messageId, timestamp) != null;
+    boolean isDuplicate(String messageId) {
+        return !this.handledMessages.add(messageId);
     }
 
     /**
@@ -405,18 +406,6 @@ public final class EventSub extends SubmissionPublisher<EventSubInternalEvent> i
         });
     }
 
-    /**
-     * Removes expired message ids from the duplicate list
-     */
-    private void cleanupDuplicates() {
-        ZonedDateTime expires = ZonedDateTime.now();
-        this.handledMessages.forEach((id, ts) -> {
-            if (ts.isBefore(expires)) {
-                this.handledMessages.remove(id);
-            }
-        });
-    }
-
     /**
      * Checks if the Keep-Alive timeout has been reached
      */
@@ -533,8 +522,7 @@ public final class EventSub extends SubmissionPublisher<EventSubInternalEvent> i
                 if (metadata.has("message_id")) {
                     String message_id = metadata.getString("message_id");
                     if (metadata.has("message_timestamp")) {
-                        ZonedDateTime message_timestamp = parseDate(metadata.getString("message_timestamp"));
-                        if (!this.isDuplicate(message_id, message_timestamp)) {
+                        if (!this.isDuplicate(message_id)) {
                             if (metadata.has("message_type")) {
                                 String message_type = metadata.getString("message_type");
                                 switch (message_type) {
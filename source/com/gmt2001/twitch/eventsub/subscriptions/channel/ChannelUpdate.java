@@ -25,6 +25,7 @@ import com.gmt2001.twitch.eventsub.EventSubSubscriptionType;
 
 import tv.phantombot.event.EventBus;
 import tv.phantombot.event.eventsub.channel.EventSubChannelUpdateEvent;
+import tv.phantombot.twitch.api.Helix;
 
 /**
  * A broadcaster updates their channel properties e.g., category, title, mature flag, broadcast, or language.
@@ -98,6 +99,8 @@ public final class ChannelUpdate extends EventSubSubscriptionType {
         try {
             if (e.subscription().type().equals(ChannelUpdate.TYPE)) {
                 EventSub.debug(ChannelUpdate.TYPE);
+                // The channel may have been edited outside of the bot, so cached channel information must be fetched again
+                Helix.instance().responseCache().expire("/channels");
                 EventBus.instance().postAsync(new EventSubChannelUpdateEvent(new ChannelUpdate(e)));
             }
         } catch (Exception ex) {
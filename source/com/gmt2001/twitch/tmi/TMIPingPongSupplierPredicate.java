@@ -32,7 +32,7 @@ public final class TMIPingPongSupplierPredicate implements PingPongSupplierPredi
 
     @Override
     public WebSocketFrame get() {
-        if (CaselessProperties.instance().getPropertyAsBoolean("ircdebug", false)) {
+        if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("ircdebug", false)) {
             com.gmt2001.Console.debug.println("<PING");
         }
         return new TextWebSocketFrame("PING");
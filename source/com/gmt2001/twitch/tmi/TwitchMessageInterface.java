@@ -247,13 +247,13 @@ public final class TwitchMessageInterface extends SubmissionPublisher<TMIMessage
              * @botproperty sendmessagestocasterchatonly - If `true`, chat messages sent using Twitch API and an app token are only sent to the broadcasters chat, not to shared chats. Default `true`
              * @botpropertycatsort sendmessagestocasterchatonly  840 20 Twitch
              */
-            com.gmt2001.Console.debug.println((CaselessProperties.instance().getPropertyAsBoolean("sendmessagesasapp", true) ? "t": "f")
+            com.gmt2001.Console.debug.println((CaselessProperties.instance().snapshot().getPropertyAsBoolean("sendmessagesasapp", true) ? "t": "f")
                 + (TwitchValidate.instance().isAppValid() ? "t" : "f") + (TwitchValidate.instance().hasChatScope("user:bot") ? "t" : "f"));
-            if (CaselessProperties.instance().getPropertyAsBoolean("sendmessagesasapp", true)
+            if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("sendmessagesasapp", true)
                 && TwitchValidate.instance().isAppValid() && TwitchValidate.instance().hasChatScope("user:bot")) {
                 try {
                     Helix.instance().sendChatMessageAsync(true, ViewerCache.instance().broadcaster().id(), message,
-                        CaselessProperties.instance().getPropertyAsBoolean("sendmessagestocasterchatonly", true), replyToId)
+                        CaselessProperties.instance().snapshot().getPropertyAsBoolean("sendmessagestocasterchatonly", true), replyToId)
                         .doOnSuccess(j -> {
                             if (j.has("_http") && j.getInt("_http") == 200 && j.has("data")) {
                                 JSONArray a = j.getJSONArray("data");
@@ -368,7 +368,7 @@ public final class TwitchMessageInterface extends SubmissionPublisher<TMIMessage
          * @botproperty ircdebug - If `true`, raw inbound and outbound IRC commands (except PASS) are sent to the debug log. Default `false`
          * @botpropertycatsort ircdebug 60 900 Debug
          */
-        if (CaselessProperties.instance().getPropertyAsBoolean("ircdebug", false)) {
+        if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("ircdebug", false)) {
             if (message.startsWith("PASS")) {
                 com.gmt2001.Console.debug.println("<PASS ****");
             } else {
@@ -428,7 +428,7 @@ public final class TwitchMessageInterface extends SubmissionPublisher<TMIMessage
      */
     public void onMessages(String messages) {
         messages.lines().forEachOrdered(message -> {
-            if (CaselessProperties.instance().getPropertyAsBoolean("ircdebug", false)) {
+            if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("ircdebug", false)) {
                 com.gmt2001.Console.debug.println(">" + message);
             }
 
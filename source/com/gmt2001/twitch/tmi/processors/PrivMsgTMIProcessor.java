@@ -100,7 +100,7 @@ public final class PrivMsgTMIProcessor extends AbstractTMIProcessor {
          * @botproperty printtwitchchattoconsole - If `true`, Twitch chat is printed to the console. Default `true`
          * @botpropertycatsort printtwitchchattoconsole 900 20 Twitch
          */
-        if (CaselessProperties.instance().getPropertyAsBoolean("printtwitchchattoconsole", true)) {
+        if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("printtwitchchattoconsole", true)) {
             com.gmt2001.Console.out.println(item.nick() + ": " + message);
         }
 
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable Aho-Corasick automaton which finds every occurrence of a set of literal strings in a single pass over the input
+ * <p>
+ * Matching is exact and case-sensitive. Callers which need case-insensitive matching should build the automaton from lower case
+ * patterns and scan lower case input
+ *
+ * @author gmt2001
+ */
+public final class AhoCorasick {
+
+    private static final int[] NONE = new int[0];
+    private final List<String> patterns;
+    /**
+     * Sorted transition characters of each node
+     */
+    private final char[][] keys;
+    /**
+     * Transition targets of each node, parallel to {@link #keys}
+     */
+    private final int[][] next;
+    /**
+     * Failure link of each node
+     */
+    private final int[] fail;
+    /**
+     * Indexes of the patterns which end at each node
+     */
+    private final int[][] out;
+    /**
+     * Nearest node on the failure chain at which a pattern ends; {@code -1} if none
+     */
+    private final int[] dict;
+
+    /**
+     * Handles a match found by {@link AhoCorasick#scan(CharSequence, MatchHandler)}
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+
+        /**
+         * Called for each match
+         *
+         * @param pattern the index of the pattern which matched
+         * @param start the index of the first {@code char} of the match
+         * @param end the index after the last {@code char} of the match
+         */
+        void onMatch(int pattern, int start, int end);
+    }
+
+    /**
+     * Builds an automaton for the specified patterns
+     * <p>
+     * Pattern indexes reported to a {@link MatchHandler} are the indexes in this list. {@code null} and empty patterns never match
+     *
+     * @param patterns the patterns
+     */
+    public AhoCorasick(List<String> patterns) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+
+        // Build the trie using a map keyed by (node, char) to avoid an object per node
+        Map<Long, Integer> edges = new HashMap<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        int[] childCount = new int[16];
+        outputs.add(null);
+
+        for (int p = 0; p < this.patterns.size(); p++) {
+            String pattern = this.patterns.get(p);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                long edge = ((long) node << 16) | pattern.charAt(i);
+                Integer child = edges.get(edge);
+                if (child == null) {
+                    child = outputs.size();
+                    outputs.add(null);
+                    edges.put(edge, child);
+                    if (node >= childCount.length) {
+                        childCount = Arrays.copyOf(childCount, Math.max(node + 1, childCount.length * 2));
+                    }
+                    childCount[node]++;
+                }
+                node = child;
+            }
+
+            if (outputs.get(node) == null) {
+                outputs.set(node, new ArrayList<>(1));
+            }
+            outputs.get(node).add(p);
+        }
+
+        int size = outputs.size();
+        childCount = Arrays.copyOf(childCount, Math.max(size, childCount.length));
+        this.keys = new char[size][];
+        this.next = new int[size][];
+        this.fail = new int[size];
+        this.out = new int[size][];
+        this.dict = new int[size];
+
+        for (int n = 0; n < size; n++) {
+            this.keys[n] = new char[childCount[n]];
+            this.next[n] = new int[childCount[n]];
+            List<Integer> o = outputs.get(n);
+            this.out[n] = o == null ? NONE : o.stream().mapToInt(Integer::intValue).toArray();
+            this.dict[n] = -1;
+        }
+
+        // Sort each node's edges by character so transitions can be binary searched
+        long[] sorted = edges.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] fill = new int[size];
+        for (long edge : sorted) {
+            int node = (int) (edge >>> 16);
+            this.keys[node][fill[node]] = (char) (edge & 0xFFFF);
+            this.next[node][fill[node]] = edges.get(edge);
+            fill[node]++;
+        }
+
+        // Breadth-first construction of the failure and dictionary links
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int child : this.next[0]) {
+            queue[tail++] = child;
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = 0; i < this.keys[node].length; i++) {
+                char c = this.keys[node][i];
+                int child = this.next[node][i];
+                int f = this.fail[node];
+                int target = this.transition(f, c);
+                while (target < 0 && f != 0) {
+                    f = this.fail[f];
+                    target = this.transition(f, c);
+                }
+                this.fail[child] = target < 0 ? 0 : target;
+                int fc = this.fail[child];
+                this.dict[child] = this.out[fc].length > 0 ? fc : this.dict[fc];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private int transition(int node, char c) {
+        char[] k = this.keys[node];
+        int lo = 0;
+        int hi = k.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (k[mid] < c) {
+                lo = mid + 1;
+            } else if (k[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return this.next[node][mid];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The patterns in this automaton
+     *
+     * @return the patterns
+     */
+    public List<String> patterns() {
+        return this.patterns;
+    }
+
+    /**
+     * The number of patterns in this automaton
+     *
+     * @return the number of patterns
+     */
+    public int size() {
+        return this.patterns.size();
+    }
+
+    /**
+     * Finds every occurrence of every pattern in the input, including overlapping occurrences
+     * <p>
+     * Matches are reported in order of their end index
+     *
+     * @param text the input
+     * @param handler the handler to call for each match
+     */
+    public void scan(CharSequence text, MatchHandler handler) {
+        if (text == null || this.keys[0].length == 0) {
+            return;
+        }
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int target = this.transition(state, c);
+            while (target < 0 && state != 0) {
+                state = this.fail[state];
+                target = this.transition(state, c);
+            }
+            state = target < 0 ? 0 : target;
+
+            for (int node = this.out[state].length > 0 ? state : this.dict[state]; node >= 0; node = this.dict[node]) {
+                for (int p : this.out[node]) {
+                    handler.onMatch(p, i - this.patterns.get(p).length() + 1, i + 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Simple micro-benchmark runner used by the {@code benchmark} console command
+ * <p>
+ * This is not a replacement for a proper harness, but is sufficient to compare two implementations on the same machine
+ *
+ * @author gmt2001
+ */
+public final class Benchmark {
+
+    private static volatile long sink = 0L;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Runs an operation repeatedly and reports the average time per operation
+     * <p>
+     * The value returned by the operation is consumed so that the JIT can not eliminate the work
+     *
+     * @param name the name to print in the result
+     * @param warmup the number of untimed iterations to run first
+     * @param iterations the number of timed iterations
+     * @param op the operation
+     * @return a human-readable result line
+     */
+    public static String run(String name, int warmup, int iterations, LongSupplier op) {
+        long acc = 0L;
+        for (int i = 0; i < warmup; i++) {
+            acc += op.getAsLong();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            acc += op.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += acc;
+
+        return String.format("%s: %.1f ns/op, %d ops in %d ms", name, (double) elapsed / Math.max(1, iterations), iterations, elapsed / 1_000_000L);
+    }
+
+    /**
+     * Times a single run of an operation
+     *
+     * @param name the name to print in the result
+     * @param op the operation
+     * @return a human-readable result line
+     */
+    public static String once(String name, Runnable op) {
+        long start = System.nanoTime();
+        op.run();
+        long elapsed = System.nanoTime() - start;
+
+        return String.format("%s: %.3f ms", name, elapsed / 1_000_000.0);
+    }
+}
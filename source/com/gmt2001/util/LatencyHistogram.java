@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-bucket histogram of latencies, in milliseconds, which can be recorded to from any thread without locking
+ * <p>
+ * Percentiles are reported as the upper bound of the bucket they fall in
+ *
+ * @author gmt2001
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The upper bounds of the buckets, in milliseconds. Latencies above the last bound are counted in an overflow bucket
+     */
+    private static final long[] BOUNDS = {10L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L, 30000L, 60000L, 120000L, 300000L};
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong(0L);
+    private final AtomicLong total = new AtomicLong(0L);
+    private final AtomicLong max = new AtomicLong(0L);
+
+    /**
+     * Records a latency
+     *
+     * @param ms the latency, in milliseconds
+     */
+    public void record(long ms) {
+        ms = Math.max(0L, ms);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && ms > BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        this.buckets.incrementAndGet(bucket);
+        this.count.incrementAndGet();
+        this.total.addAndGet(ms);
+        this.max.accumulateAndGet(ms, Math::max);
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long count() {
+        return this.count.get();
+    }
+
+    /**
+     * @return the mean latency, in milliseconds; {@code 0} if none were recorded
+     */
+    public long mean() {
+        long n = this.count.get();
+        return n == 0L ? 0L : this.total.get() / n;
+    }
+
+    /**
+     * @return the highest latency recorded, in milliseconds
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains a percentile
+     *
+     * @param percentile the percentile, from {@code 0} to {@code 100}
+     * @return the upper bound, in milliseconds; {@link #max()} if the percentile is in the overflow bucket; {@code 0} if none were recorded
+     */
+    public long percentile(double percentile) {
+        long n = this.count.get();
+        if (n == 0L) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += this.buckets.get(i);
+            if (seen >= target) {
+                return BOUNDS[i];
+            }
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * @return the count in each bucket, with the overflow bucket last
+     */
+    public long[] buckets() {
+        long[] result = new long[this.buckets.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.buckets.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the upper bounds of the buckets, in milliseconds, excluding the overflow bucket
+     */
+    public static long[] bounds() {
+        return BOUNDS.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + this.count() + " mean=" + this.mean() + "ms p50<=" + this.percentile(50) + "ms p90<=" + this.percentile(90)
+                + "ms p99<=" + this.percentile(99) + "ms max=" + this.max() + "ms";
+    }
+}
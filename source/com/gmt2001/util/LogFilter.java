@@ -17,6 +17,7 @@
 package com.gmt2001.util;
 
 import tv.phantombot.CaselessProperties;
+import tv.phantombot.ConfigSnapshot;
 
 /**
  * Filters log data
@@ -25,26 +26,27 @@ public class LogFilter {
     private LogFilter(){}
 
     public static String filter(String message) {
-        if (message.contains(CaselessProperties.instance().getProperty("oauth", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("oauth", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("apioauth", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("apioauth", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("refresh", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("refresh", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("apirefresh", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("apirefresh", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("apptoken", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("apptoken", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("discord_token", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("discord_token", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("streamlabskey", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("streamlabskey", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("youtubekey", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("youtubekey", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("clientid", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("clientid", ""), "***");
-        } else if (message.contains(CaselessProperties.instance().getProperty("clientsecret", ""))) {
-            message = replace(message, CaselessProperties.instance().getProperty("clientsecret", ""), "***");
+        ConfigSnapshot config = CaselessProperties.instance().snapshot();
+        if (message.contains(config.getProperty("oauth", ""))) {
+            message = replace(message, config.getProperty("oauth", ""), "***");
+        } else if (message.contains(config.getProperty("apioauth", ""))) {
+            message = replace(message, config.getProperty("apioauth", ""), "***");
+        } else if (message.contains(config.getProperty("refresh", ""))) {
+            message = replace(message, config.getProperty("refresh", ""), "***");
+        } else if (message.contains(config.getProperty("apirefresh", ""))) {
+            message = replace(message, config.getProperty("apirefresh", ""), "***");
+        } else if (message.contains(config.getProperty("apptoken", ""))) {
+            message = replace(message, config.getProperty("apptoken", ""), "***");
+        } else if (message.contains(config.getProperty("discord_token", ""))) {
+            message = replace(message, config.getProperty("discord_token", ""), "***");
+        } else if (message.contains(config.getProperty("streamlabskey", ""))) {
+            message = replace(message, config.getProperty("streamlabskey", ""), "***");
+        } else if (message.contains(config.getProperty("youtubekey", ""))) {
+            message = replace(message, config.getProperty("youtubekey", ""), "***");
+        } else if (message.contains(config.getProperty("clientid", ""))) {
+            message = replace(message, config.getProperty("clientid", ""), "***");
+        } else if (message.contains(config.getProperty("clientsecret", ""))) {
+            message = replace(message, config.getProperty("clientsecret", ""), "***");
         }
         return message;
     }
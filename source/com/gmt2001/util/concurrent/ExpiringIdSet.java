@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmt2001.util.concurrent;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe set of ids which are forgotten once they are older than a fixed window
+ * <p>
+ * The window is split into a ring of time buckets, each holding the ids added during that slice of time. Adding and checking an id costs one
+ * hash lookup per bucket. When the ring wraps around, the oldest bucket is cleared in one step, so ids expire without scanning the set. An id
+ * is remembered for at least the window, and at most the window plus one bucket
+ *
+ * @author gmt2001
+ */
+public final class ExpiringIdSet {
+
+    private final long bucketNanos;
+    private final Set<String>[] buckets;
+    private final long[] bucketEpochs;
+    private final LongSupplier clock;
+    private final long origin;
+
+    /**
+     * Constructor
+     *
+     * @param window how long an id is remembered
+     * @param buckets the number of buckets to split the window into
+     */
+    public ExpiringIdSet(Duration window, int buckets) {
+        this(window, buckets, System::nanoTime);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param window how long an id is remembered
+     * @param buckets the number of buckets to split the window into
+     * @param clock the source of the current time, in nanoseconds, such as {@link System#nanoTime()}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ExpiringIdSet(Duration window, int buckets, LongSupplier clock) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets");
+        }
+
+        this.bucketNanos = Math.max(1L, window.toNanos() / buckets);
+        // One extra bucket is kept so that the oldest bucket still covers a full window while the newest one fills
+        this.buckets = new Set[buckets + 1];
+        this.bucketEpochs = new long[buckets + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new HashSet<>();
+            this.bucketEpochs[i] = Long.MIN_VALUE;
+        }
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    /**
+     * Adds an id to the set
+     *
+     * @param id the id
+     * @return {@code true} if the id was added; {@code false} if it is already in the set
+     */
+    public synchronized boolean add(String id) {
+        long epoch = this.epoch();
+        if (this.contains(id, epoch)) {
+            return false;
+        }
+
+        this.bucket(epoch).add(id);
+        return true;
+    }
+
+    /**
+     * Indicates if an id is in the set
+     *
+     * @param id the id
+     * @return {@code true} if the id was added within the window
+     */
+    public synchronized boolean contains(String id) {
+        return this.contains(id, this.epoch());
+    }
+
+    /**
+     * @return the number of ids in the set
+     */
+    public synchronized int size() {
+        long epoch = this.epoch();
+        int size = 0;
+        for (int i = 0; i < this.buckets.length; i++) {
+            if (this.isLive(i, epoch)) {
+                size += this.buckets[i].size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Removes all ids from the set
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i].clear();
+            this.bucketEpochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    private long epoch() {
+        return (this.clock.getAsLong() - this.origin) / this.bucketNanos;
+    }
+
+    private boolean isLive(int slot, long epoch) {
+        return this.bucketEpochs[slot] != Long.MIN_VALUE && epoch - this.bucketEpochs[slot] < this.buckets.length;
+    }
+
+    private boolean contains(String id, long epoch) {
+        for (int i = 0; i < this.buckets.length; i++) {
+            if (this.isLive(i, epoch) && this.buckets[i].contains(id)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<String> bucket(long epoch) {
+        int slot = (int) (epoch % this.buckets.length);
+        if (this.bucketEpochs[slot] != epoch) {
+            // The slot last held a bucket which is now outside the window. It is replaced rather than cleared, so the memory used by a burst is released
+            this.buckets[slot] = new HashSet<>();
+            this.bucketEpochs[slot] = epoch;
+        }
+
+        return this.buckets[slot];
+    }
+}
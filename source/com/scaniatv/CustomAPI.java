@@ -19,18 +19,59 @@ package com.scaniatv;
 
 import com.gmt2001.HttpRequest;
 import com.gmt2001.HttpResponse;
+import com.gmt2001.httpclient.HttpClient;
+import com.gmt2001.httpclient.HttpClientResponse;
+import com.gmt2001.httpclient.URIUtil;
+import com.gmt2001.util.concurrent.ExecutorService;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import tv.phantombot.CaselessProperties;
+
+/*
+ * The async GET requests are coalesced, so that identical URLs requested at the same time share one response, and successful responses can be
+ * cached for a number of seconds. Requests to the same host are limited to a number running at the same time, with the rest queued in order.
+ * HttpClientResponse is immutable, so a cached response can be shared by every caller.
+ */
 public class CustomAPI {
 
     private static CustomAPI instance;
+    private static final Pattern LITERAL = Pattern.compile("\\{([\\w\\W]+)\\}");
+    private static final int CACHE_CAPACITY = 500;
+    private final Map<String, CachedResponse> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return this.size() > CACHE_CAPACITY;
+        }
+    };
+    private final Map<String, CompletableFuture<HttpClientResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong coalesced = new AtomicLong(0L);
+    private final AtomicLong requests = new AtomicLong(0L);
 
     /*
      * Method to the this instance.
@@ -46,9 +87,9 @@ public class CustomAPI {
     }
 
     /*
-     * Class constructor.
+     * Class constructor. Package-private so that CustomAPIBenchmark can use an instance with its own cache and host limits.
      */
-    private CustomAPI() {
+    CustomAPI() {
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
     }
 
@@ -94,6 +135,186 @@ public class CustomAPI {
         return HttpRequest.getData(HttpRequest.RequestType.GET, url, "", new HashMap<>());
     }
 
+    /*
+     * Method to get data from an API without blocking, using the default cache time.
+     *
+     * @param  {String} url
+     * @return {CompletableFuture} which completes with the response
+     */
+    public CompletableFuture<HttpClientResponse> getAsync(String url) {
+        return this.getAsync(url, null, -1);
+    }
+
+    /*
+     * Method to get data from an API without blocking, using the default cache time.
+     *
+     * @param  {String} url
+     * @param  {String} accept  the Accept header; null for none
+     * @return {CompletableFuture} which completes with the response
+     */
+    public CompletableFuture<HttpClientResponse> getAsync(String url, String accept) {
+        return this.getAsync(url, accept, -1);
+    }
+
+    /*
+     * Method to get data from an API without blocking.
+     *
+     * A successful response is cached for ttlSeconds. Requests for the same URL and accept header which arrive while one is running share its
+     * response. Failed requests are reported in the response, as with HttpClient.requestAsync; the returned future only completes exceptionally
+     * if the URL is invalid.
+     *
+     * @param  {String} url
+     * @param  {String} accept      the Accept header; null for none
+     * @param  {int}    ttlSeconds  how long to cache a successful response; 0 to not cache; less than 0 for the customapicachettl bot property
+     * @return {CompletableFuture} which completes with the response
+     */
+    public CompletableFuture<HttpClientResponse> getAsync(String url, String accept, int ttlSeconds) {
+        String key = (accept == null ? "" : accept) + " " + url;
+        long ttl = ttlSeconds < 0 ? this.defaultTtl() : ttlSeconds;
+
+        if (ttl > 0L) {
+            synchronized (this.cache) {
+                CachedResponse cached = this.cache.get(key);
+                if (cached != null && cached.expires - System.nanoTime() > 0L) {
+                    this.hits.incrementAndGet();
+                    return CompletableFuture.completedFuture(cached.response);
+                }
+            }
+        }
+
+        CompletableFuture<HttpClientResponse> mine = new CompletableFuture<>();
+        CompletableFuture<HttpClientResponse> existing = this.inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            this.coalesced.incrementAndGet();
+            return existing.thenApply(response -> {
+                this.store(key, response, ttl);
+                return response;
+            });
+        }
+
+        this.request(url, accept).whenComplete((response, ex) -> {
+            this.inFlight.remove(key, mine);
+            if (ex != null) {
+                mine.completeExceptionally(ex);
+            } else {
+                this.store(key, response, ttl);
+                mine.complete(response);
+            }
+        });
+
+        return mine;
+    }
+
+    /*
+     * Method to get the content returned by an API without blocking, for use as the result of a tag.
+     *
+     * @param  {String} url
+     * @param  {String} accept      the Accept header; null for none
+     * @param  {int}    ttlSeconds  how long to cache a successful response; 0 to not cache; less than 0 for the customapicachettl bot property
+     * @param  {String} error       the text to complete with if the request fails
+     * @return {CompletableFuture} which completes with the content
+     */
+    public CompletableFuture<String> contentAsync(String url, String accept, int ttlSeconds, String error) {
+        return this.getAsync(url, accept, ttlSeconds).handle((response, ex) -> {
+            if (ex != null) {
+                com.gmt2001.Console.err.println("CustomAPI GET " + url + " failed: " + ex.getMessage());
+                return error;
+            }
+
+            if (!response.hasException()) {
+                com.gmt2001.Console.debug.println("CustomAPI GET " + url + " " + response.responseCode());
+                return response.responseBody();
+            }
+
+            com.gmt2001.Console.err.println("CustomAPI GET " + url + " failed: " + response.exception().getClass().getSimpleName() + ": "
+                + response.exception().getMessage());
+            return error;
+        });
+    }
+
+    /*
+     * Method to get values from the JSON object returned by an API without blocking, for use as the result of the (customapijson) tag.
+     *
+     * The specs are separated by spaces. Each is either a path of keys separated by dots, with array indexes given as numbers, or literal text
+     * enclosed in curly braces. The output is formatted on the bot's executor, rather than on the thread which completed the request.
+     *
+     * @param  {String} url
+     * @param  {int}    ttlSeconds  how long to cache a successful response; 0 to not cache; less than 0 for the customapicachettl bot property
+     * @param  {String} specs
+     * @param  {String} error       the text to complete with if the request fails or the response does not match the specs
+     * @return {CompletableFuture} which completes with the formatted output
+     */
+    public CompletableFuture<String> jsonAsync(String url, int ttlSeconds, String specs, String error) {
+        return this.contentAsync(url, HttpHeaderValues.APPLICATION_JSON.toString(), ttlSeconds, null).thenApplyAsync(content -> {
+            if (content == null) {
+                return error;
+            }
+
+            try {
+                return formatJSON(content, specs);
+            } catch (JSONException | NumberFormatException ex) {
+                com.gmt2001.Console.err.println("Failed to get data from API " + url + ": " + ex.getMessage());
+                com.gmt2001.Console.debug.println(content);
+                return error;
+            }
+        }, ExecutorService::execute);
+    }
+
+    /*
+     * Formats a JSON object according to the specs of the (customapijson) tag.
+     */
+    static String formatJSON(String content, String specs) throws JSONException {
+        JSONObject json = new JSONObject(content);
+        StringBuilder result = new StringBuilder();
+        String[] items = specs.split(" ");
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].startsWith("{")) {
+                StringBuilder literal = new StringBuilder(items[i]);
+                while (!items[i].endsWith("}") && i + 1 < items.length) {
+                    literal.append(' ').append(items[++i]);
+                }
+
+                Matcher matcher = LITERAL.matcher(literal);
+                if (matcher.find()) {
+                    result.append(' ').append(matcher.group(1));
+                }
+            } else {
+                Object value = json;
+                for (String key : items[i].split("\\.")) {
+                    if (value instanceof JSONObject object) {
+                        value = object.get(key);
+                    } else if (value instanceof JSONArray array) {
+                        value = array.get(Integer.parseInt(key));
+                    } else {
+                        throw new JSONException("Not an object or array before " + key + " in " + items[i]);
+                    }
+                }
+
+                result.append(value);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /*
+     * Method to remove all cached responses.
+     */
+    public void clearCache() {
+        synchronized (this.cache) {
+            this.cache.clear();
+        }
+    }
+
+    /*
+     * Method to get the request counters.
+     *
+     * @return
+     */
+    public String stats() {
+        return "CustomAPI(requests=" + this.requests.get() + ", cacheHits=" + this.hits.get() + ", coalesced=" + this.coalesced.get() + ")";
+    }
+
     /*
      * Method to post to an API.
      *
@@ -126,4 +347,132 @@ public class CustomAPI {
     public HttpResponse del(String url, String content) {
         return HttpRequest.getData(HttpRequest.RequestType.DELETE, url, content, new HashMap<>());
     }
+
+    /**
+     * @botproperty customapicachettl - The default time, in seconds, to cache successful responses of the (customapi) and (customapijson) tags. `0` to disable. Can be overridden per command with `!apicachecom`. Default `0`
+     * @botpropertycatsort customapicachettl 200 700 HTTP/WS
+     */
+    private long defaultTtl() {
+        return Math.max(0L, CaselessProperties.instance().getPropertyAsLong("customapicachettl", 0L));
+    }
+
+    private void store(String key, HttpClientResponse response, long ttl) {
+        if (ttl > 0L && response != null && response.isSuccess()) {
+            synchronized (this.cache) {
+                this.cache.put(key, new CachedResponse(response, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttl)));
+            }
+        }
+    }
+
+    /*
+     * Sends a GET request once the host of the URL has a free slot.
+     */
+    private CompletableFuture<HttpClientResponse> request(String url, String accept) {
+        URI uri;
+        try {
+            uri = URIUtil.create(url);
+        } catch (Exception ex) {
+            uri = null;
+        }
+
+        if (uri == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid URL: " + url));
+        }
+
+        HttpHeaders headers = HttpClient.createHeaders(HttpMethod.GET, false);
+        if (accept != null) {
+            headers.set(HttpHeaderNames.ACCEPT, accept);
+        }
+
+        if (uri.getUserInfo() != null && !uri.getUserInfo().isBlank()) {
+            headers.set(HttpHeaderNames.AUTHORIZATION, "Basic " + Base64.getEncoder().encodeToString(uri.getUserInfo().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        final URI requestUri = uri;
+        this.requests.incrementAndGet();
+        HostLimiter limiter = this.hosts.computeIfAbsent(uri.getHost() == null ? "" : uri.getHost().toLowerCase(), h -> new HostLimiter());
+        return limiter.submit(() -> HttpClient.requestAsync(HttpMethod.GET, requestUri, headers, null));
+    }
+
+    /*
+     * A successful response and when it expires, from System.nanoTime.
+     */
+    private static final class CachedResponse {
+
+        private final HttpClientResponse response;
+        private final long expires;
+
+        private CachedResponse(HttpClientResponse response, long expires) {
+            this.response = response;
+            this.expires = expires;
+        }
+    }
+
+    /*
+     * Limits the number of requests to one host which run at the same time.
+     */
+    static final class HostLimiter {
+
+        private final Deque<Runnable> queue = new ArrayDeque<>();
+        private int active = 0;
+
+        /**
+         * @botproperty customapimaxperhost - The maximum number of $.customAPI requests to the same host which can run at the same time. Default `4`
+         * @botpropertycatsort customapimaxperhost 210 700 HTTP/WS
+         */
+        static int maxPerHost() {
+            return Math.max(1, CaselessProperties.instance().getPropertyAsInt("customapimaxperhost", 4));
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                CompletableFuture<T> future;
+                try {
+                    future = request.get();
+                } catch (Exception ex) {
+                    future = CompletableFuture.failedFuture(ex);
+                }
+                future.whenComplete((value, ex) -> {
+                    this.release();
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+
+            boolean run;
+            synchronized (this) {
+                run = this.active < maxPerHost();
+                if (run) {
+                    this.active++;
+                } else {
+                    this.queue.add(start);
+                }
+            }
+
+            if (run) {
+                start.run();
+            }
+
+            return result;
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = this.queue.poll();
+                if (next == null) {
+                    this.active--;
+                }
+            }
+
+            if (next != null) {
+                // Started on another thread, since a request which completes immediately would otherwise release, and start the next, recursively
+                ExecutorService.execute(next);
+            }
+        }
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.scaniatv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gmt2001.util.Benchmark;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Benchmarks the async requests of {@link CustomAPI} against a local stub server. Run by the {@code benchmark customapi} console command
+ * <p>
+ * A private {@link CustomAPI} is used, so the response cache and host limits of {@link CustomAPI#instance()} are not touched. The stub server
+ * answers after a short delay, and counts the requests it receives and the most it was answering at the same time
+ *
+ * @author gmt2001
+ */
+public final class CustomAPIBenchmark {
+
+    private static final long DELAY_MS = 50L;
+    private static final int BURST = 200;
+    private static final int QUEUED = 10000;
+    private static final String JSON = "{\"location\":{\"name\":\"Boulder, CO\"},\"current\":{\"temp_f\":75,\"temp_c\":24,"
+        + "\"condition\":[{\"text\":\"Sunny\"}]}}";
+    private static final String SPECS = "{Weather for} location.name {:} current.condition.0.text {Temps:} current.temp_f {F} current.temp_c {C}";
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final AtomicInteger active = new AtomicInteger(0);
+    private final AtomicInteger maxActive = new AtomicInteger(0);
+    private final List<String> results = new ArrayList<>();
+
+    private CustomAPIBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @return the result lines
+     * @throws IOException if the stub server can not be started
+     */
+    public static List<String> run() throws IOException {
+        return new CustomAPIBenchmark().runBenchmark();
+    }
+
+    private List<String> runBenchmark() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        CustomAPI api = new CustomAPI();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            this.results.add(Benchmark.once(BURST + " identical GETs at the same time", () -> {
+                List<CompletableFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < BURST; i++) {
+                    futures.add(api.getAsync(base + "/identical", null, 0));
+                }
+                CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).orTimeout(60, TimeUnit.SECONDS).join();
+            }) + ", " + this.requests.getAndSet(0) + " sent");
+
+            this.results.add(Benchmark.once(BURST + " GETs of one URL in sequence, with a 30s TTL", () -> {
+                for (int i = 0; i < BURST; i++) {
+                    api.getAsync(base + "/cached", null, 30).orTimeout(60, TimeUnit.SECONDS).join();
+                }
+            }) + ", " + this.requests.getAndSet(0) + " sent");
+
+            int limit = CustomAPI.HostLimiter.maxPerHost();
+            this.maxActive.set(0);
+            this.results.add(Benchmark.once(limit * 12 + " distinct GETs to one host at the same time", () -> {
+                List<CompletableFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < limit * 12; i++) {
+                    futures.add(api.getAsync(base + "/distinct/" + i, null, 0));
+                }
+                CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).orTimeout(60, TimeUnit.SECONDS).join();
+            }) + ", " + this.requests.getAndSet(0) + " sent, at most " + this.maxActive.get() + " at once (limit " + limit + ")");
+
+            this.results.add(Benchmark.once(QUEUED + " queued requests which complete immediately", () -> {
+                CustomAPI.HostLimiter limiter = new CustomAPI.HostLimiter();
+                List<CompletableFuture<Void>> gates = new ArrayList<>();
+                List<CompletableFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < limit; i++) {
+                    CompletableFuture<Void> gate = new CompletableFuture<>();
+                    gates.add(gate);
+                    futures.add(limiter.submit(() -> gate));
+                }
+                for (int i = 0; i < QUEUED; i++) {
+                    futures.add(limiter.submit(() -> CompletableFuture.completedFuture(null)));
+                }
+                gates.forEach(gate -> gate.complete(null));
+                CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).orTimeout(60, TimeUnit.SECONDS).join();
+            }));
+
+            this.results.add(Benchmark.run("customapijson formatting", 1000, 10000, () -> CustomAPI.formatJSON(JSON, SPECS).length()));
+            this.results.add("customapijson output:" + CustomAPI.formatJSON(JSON, SPECS));
+        } catch (Exception ex) {
+            this.results.add("Failed: " + ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        return this.results;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        this.maxActive.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(DELAY_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Before answering, since the client may start its next request as soon as the answer arrives
+            this.active.decrementAndGet();
+        }
+
+        byte[] body = exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
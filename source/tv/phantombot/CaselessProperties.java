@@ -50,7 +50,12 @@ public class CaselessProperties extends Properties {
     public static final long serialVersionUID = 1L;
     private static final int TRANSACTION_LIFETIME = 15;
     private final List<Transaction> transactions = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
     private final Object lock = new Object();
+    private final Object snapshotLock = new Object();
+    private transient volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private transient volatile boolean snapshotDirty = true;
+    private transient volatile int reloadDepth = 0;
     private static final CaselessProperties INSTANCE = new CaselessProperties();
     private static final String HEADER = "PhantomBot Configuration File\n"
             + "\n                     +---------+"
@@ -65,7 +70,114 @@ public class CaselessProperties extends Properties {
 
     @Override
     public Object put(Object key, Object value) {
-        return super.put(((String) key).toLowerCase(), value);
+        Object retval = super.put(((String) key).toLowerCase(), value);
+        this.snapshotDirty = true;
+        return retval;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Object retval = super.remove(key instanceof String ? ((String) key).toLowerCase() : key);
+        this.snapshotDirty = true;
+        return retval;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        boolean retval = super.remove(key instanceof String ? ((String) key).toLowerCase() : key, value);
+        this.snapshotDirty = true;
+        return retval;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        this.snapshotDirty = true;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current values
+     * <p>
+     * The snapshot is replaced atomically when a transaction is committed or the configuration is reloaded. While a reload
+     * is in progress, the previous snapshot continues to be returned so that readers never observe a partially loaded configuration
+     *
+     * @return the current snapshot
+     */
+    public ConfigSnapshot snapshot() {
+        if (this.snapshotDirty && this.reloadDepth == 0) {
+            this.publishSnapshot();
+        }
+
+        return this.snapshot;
+    }
+
+    /**
+     * Registers a listener which is called after a new snapshot is published, if any values have changed
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Marks the start of a bulk reload. The current snapshot is retained until {@link #endReload()} is called
+     */
+    void beginReload() {
+        synchronized (this.snapshotLock) {
+            this.reloadDepth++;
+        }
+    }
+
+    /**
+     * Marks the end of a bulk reload and publishes a new snapshot
+     */
+    void endReload() {
+        synchronized (this.snapshotLock) {
+            this.reloadDepth = Math.max(0, this.reloadDepth - 1);
+        }
+
+        this.publishSnapshot();
+    }
+
+    private void publishSnapshot() {
+        ConfigSnapshot previous;
+        ConfigSnapshot current;
+        synchronized (this.snapshotLock) {
+            if (!this.snapshotDirty || this.reloadDepth > 0) {
+                return;
+            }
+
+            this.snapshotDirty = false;
+            Map<String, String> values = new HashMap<>();
+            synchronized (this) {
+                super.entrySet().forEach(e -> values.put((String) e.getKey(), (String) e.getValue()));
+            }
+
+            previous = this.snapshot;
+            current = new ConfigSnapshot(values, previous.version() + 1);
+            this.snapshot = current;
+        }
+
+        Set<String> changed = current.changedKeys(previous);
+        if (!changed.isEmpty()) {
+            this.listeners.forEach(listener -> {
+                try {
+                    listener.onChange(previous, current, changed);
+                } catch (Exception ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
+            });
+        }
     }
 
     @Override
@@ -360,6 +472,7 @@ public class CaselessProperties extends Properties {
                 }
             });
 
+            this.publishSnapshot();
             this.store();
 
             ExecutorService.schedule(() -> {
@@ -374,6 +487,22 @@ public class CaselessProperties extends Properties {
         }
     }
 
+    /**
+     * Receives notifications when a new {@link ConfigSnapshot} with changed values is published
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * Called after a new snapshot is published
+         *
+         * @param previous the previous snapshot
+         * @param current the new snapshot
+         * @param changedKeys the keys which were added, removed, or changed, in lower case
+         */
+        void onChange(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys);
+    }
+
     /**
      * Represents a transaction which apples new values to the property set simultaneously
      */
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable view of the values in {@link CaselessProperties} at a point in time
+ * <p>
+ * Lookups do not lock and typed values are only parsed once per snapshot, which makes this suitable for hot paths that read the
+ * configuration for every message or request. A new snapshot is published by {@link CaselessProperties} whenever a transaction
+ * is committed or the configuration is reloaded
+ *
+ * @author gmt2001
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * A snapshot with no values
+     */
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(Map.of(), 0L);
+    private static final Object INVALID = new Object();
+    private final Map<String, String> values;
+    private final long version;
+    private final Map<String, Object> booleans = new ConcurrentHashMap<>();
+    private final Map<String, Object> ints = new ConcurrentHashMap<>();
+    private final Map<String, Object> longs = new ConcurrentHashMap<>();
+    private final Map<String, Object> doubles = new ConcurrentHashMap<>();
+
+    ConfigSnapshot(Map<String, String> values, long version) {
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        this.version = version;
+    }
+
+    /**
+     * The version of this snapshot. Incremented each time a new snapshot is published
+     *
+     * @return the version
+     */
+    public long version() {
+        return this.version;
+    }
+
+    /**
+     * The keys in this snapshot, in lower case
+     *
+     * @return the keys
+     */
+    public Set<String> keySet() {
+        return this.values.keySet();
+    }
+
+    /**
+     * Indicates if the specified property exists
+     *
+     * @param key the property key
+     * @return {@code true} if the property exists
+     */
+    public boolean containsKey(String key) {
+        return this.getProperty(key) != null;
+    }
+
+    /**
+     * Returns the specified property
+     *
+     * @param key the property key
+     * @return the value; {@code null} if the property does not exist
+     */
+    public String getProperty(String key) {
+        String retval = this.values.get(key);
+
+        if (retval == null) {
+            String lkey = key.toLowerCase();
+            if (!lkey.equals(key)) {
+                retval = this.values.get(lkey);
+            }
+        }
+
+        return retval;
+    }
+
+    /**
+     * Returns the specified property
+     *
+     * @param key the property key
+     * @param defaultValue a default value
+     * @return the value; {@code defaultValue} if the property does not exist
+     */
+    public String getProperty(String key, String defaultValue) {
+        String retval = this.getProperty(key);
+        return retval == null ? defaultValue : retval;
+    }
+
+    /**
+     * Returns the specified property as a {@code boolean}, using the same rules as {@link CaselessProperties#getPropertyAsBoolean(String, boolean)}
+     *
+     * @param key the property key
+     * @param defaultValue a default value
+     * @return the value as a {@code boolean}; {@code defaultValue} if the property does not exist
+     */
+    public boolean getPropertyAsBoolean(String key, boolean defaultValue) {
+        Object retval = this.booleans.computeIfAbsent(key, k -> {
+            String value = this.getProperty(k);
+            return value == null ? INVALID : (Object) value.toLowerCase().matches("(1|true|yes)");
+        });
+
+        return retval == INVALID ? defaultValue : (Boolean) retval;
+    }
+
+    /**
+     * Returns the specified property as an {@code int}
+     *
+     * @param key the property key
+     * @param defaultValue a default value
+     * @return the value as an {@code int}; {@code defaultValue} if the property does not exist or is not parsable as an {@code int}
+     */
+    public int getPropertyAsInt(String key, int defaultValue) {
+        Object retval = this.ints.computeIfAbsent(key, k -> {
+            try {
+                return Integer.valueOf(this.getProperty(k, ""));
+            } catch (NumberFormatException ex) {
+                return INVALID;
+            }
+        });
+
+        return retval == INVALID ? defaultValue : (Integer) retval;
+    }
+
+    /**
+     * Returns the specified property as a {@code long}
+     *
+     * @param key the property key
+     * @param defaultValue a default value
+     * @return the value as a {@code long}; {@code defaultValue} if the property does not exist or is not parsable as a {@code long}
+     */
+    public long getPropertyAsLong(String key, long defaultValue) {
+        Object retval = this.longs.computeIfAbsent(key, k -> {
+            try {
+                return Long.valueOf(this.getProperty(k, ""));
+            } catch (NumberFormatException ex) {
+                return INVALID;
+            }
+        });
+
+        return retval == INVALID ? defaultValue : (Long) retval;
+    }
+
+    /**
+     * Returns the specified property as a {@code double}
+     *
+     * @param key the property key
+     * @param defaultValue a default value
+     * @return the value as a {@code double}; {@code defaultValue} if the property does not exist or is not parsable as a {@code double}
+     */
+    public double getPropertyAsDouble(String key, double defaultValue) {
+        Object retval = this.doubles.computeIfAbsent(key, k -> {
+            try {
+                return Double.valueOf(this.getProperty(k, ""));
+            } catch (NumberFormatException ex) {
+                return INVALID;
+            }
+        });
+
+        return retval == INVALID ? defaultValue : (Double) retval;
+    }
+
+    /**
+     * Returns the keys which were added, removed, or have a different value in this snapshot compared to another snapshot
+     *
+     * @param other the snapshot to compare against
+     * @return the changed keys, in lower case
+     */
+    public Set<String> changedKeys(ConfigSnapshot other) {
+        Set<String> changed = new HashSet<>();
+
+        this.values.forEach((k, v) -> {
+            if (!v.equals(other.values.get(k))) {
+                changed.add(k);
+            }
+        });
+
+        other.values.keySet().forEach(k -> {
+            if (!this.values.containsKey(k)) {
+                changed.add(k);
+            }
+        });
+
+        return changed;
+    }
+}
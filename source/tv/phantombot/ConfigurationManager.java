@@ -63,85 +63,91 @@ public class ConfigurationManager {
     static CaselessProperties getConfiguration() {
         /* Properties configuration */
         CaselessProperties startProperties = CaselessProperties.instance();
-        startProperties.clear();
+        /* Readers of the snapshot keep seeing the previous configuration until the reload is complete */
+        startProperties.beginReload();
+        try {
+            startProperties.clear();
 
-        /* Indicates that the botlogin.txt file should be overwritten/created. */
-        boolean changed = false;
+            /* Indicates that the botlogin.txt file should be overwritten/created. */
+            boolean changed = false;
 
-        /* Load up the bot info from the bot login file */
-        try {
-            if (new File(BOTLOGIN_TXT_LOCATION).exists()) {
-                try (FileInputStream inputStream = new FileInputStream(BOTLOGIN_TXT_LOCATION)) {
-                    startProperties.load(inputStream);
+            /* Load up the bot info from the bot login file */
+            try {
+                if (new File(BOTLOGIN_TXT_LOCATION).exists()) {
+                    try (FileInputStream inputStream = new FileInputStream(BOTLOGIN_TXT_LOCATION)) {
+                        startProperties.load(inputStream);
+                    }
                 }
+            } catch (IOException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
             }
-        } catch (IOException ex) {
-            com.gmt2001.Console.err.printStackTrace(ex);
-        }
 
-        /* Load up the bot info from the environment */
-        String prefix = "PHANTOMBOT_";
-        boolean envOverrides = System.getenv().containsKey(prefix + PROP_ENVOVERRIDE)
-                && (System.getenv(prefix + PROP_ENVOVERRIDE).equalsIgnoreCase("true")
-                        || System.getenv(prefix + PROP_ENVOVERRIDE).equals("1"));
-        System.getenv().entrySet().forEach((v) -> {
-            String key = v.getKey().toUpperCase();
-            String value = v.getValue();
-            if (key.startsWith(prefix) && prefix.length() < key.length() && !key.equals(prefix + PROP_ENVOVERRIDE)) {
-                key = key.substring(prefix.length()).toLowerCase();
-                if (envOverrides) {
-                    startProperties.setProperty(key, value);
-                } else {
-                    startProperties.putIfAbsent(key, value);
+            /* Load up the bot info from the environment */
+            String prefix = "PHANTOMBOT_";
+            boolean envOverrides = System.getenv().containsKey(prefix + PROP_ENVOVERRIDE)
+                    && (System.getenv(prefix + PROP_ENVOVERRIDE).equalsIgnoreCase("true")
+                            || System.getenv(prefix + PROP_ENVOVERRIDE).equals("1"));
+            System.getenv().entrySet().forEach((v) -> {
+                String key = v.getKey().toUpperCase();
+                String value = v.getValue();
+                if (key.startsWith(prefix) && prefix.length() < key.length() && !key.equals(prefix + PROP_ENVOVERRIDE)) {
+                    key = key.substring(prefix.length()).toLowerCase();
+                    if (envOverrides) {
+                        startProperties.setProperty(key, value);
+                    } else {
+                        startProperties.putIfAbsent(key, value);
+                    }
                 }
-            }
-            if (key.equalsIgnoreCase(ENV_PROP_IS_PTERODACTYL)) {
-                startProperties.setProperty(PROP_IS_PTERODACTYL, "1");
-            }
-        });
+                if (key.equalsIgnoreCase(ENV_PROP_IS_PTERODACTYL)) {
+                    startProperties.setProperty(PROP_IS_PTERODACTYL, "1");
+                }
+            });
 
-        if (RepoVersion.isDocker()) {
-            startProperties.putIfAbsent("restartcmd", "/opt/PhantomBot/restartbot-docker.sh");
-        }
+            if (RepoVersion.isDocker()) {
+                startProperties.putIfAbsent("restartcmd", "/opt/PhantomBot/restartbot-docker.sh");
+            }
 
-        changed |= generateDefaultValues(startProperties);
+            changed |= generateDefaultValues(startProperties);
 
-        /* Make a new botlogin with the botName, oauth or channel is not found */
-        if (startProperties.getProperty(PROP_CHANNEL, "").isBlank()
-                && startProperties.getProperty(PROP_OAUTH, "").isBlank()) {
-            newSetup = true;
-        }
+            /* Make a new botlogin with the botName, oauth or channel is not found */
+            if (startProperties.getProperty(PROP_CHANNEL, "").isBlank()
+                    && startProperties.getProperty(PROP_OAUTH, "").isBlank()) {
+                newSetup = true;
+            }
 
-        changed |= correctCommonErrors(startProperties);
-
-        /*
-         * Iterate the properties and delete entries for anything that does not have a
-         * value.
-         */
-        changed = startProperties.stringPropertyNames().stream()
-                .map((propertyKey) -> startProperties.remove(propertyKey, ""))
-                .reduce(changed, (accumulator, _item) -> accumulator | _item);
-
-        if (!startProperties.getPropertyAsBoolean("allownonascii", false)) {
-            for (String propertyKey : startProperties.stringPropertyNames()) {
-                String olds = startProperties.getProperty(propertyKey, "");
-                String news = olds.codePoints().filter(x -> x >= 32 || x <= 126)
-                        .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
-
-                if (!olds.equals(news)) {
-                    startProperties.setProperty(propertyKey, news);
-                    changed = true;
+            changed |= correctCommonErrors(startProperties);
+
+            /*
+             * Iterate the properties and delete entries for anything that does not have a
+             * value.
+             */
+            changed = startProperties.stringPropertyNames().stream()
+                    .map((propertyKey) -> startProperties.remove(propertyKey, ""))
+                    .reduce(changed, (accumulator, _item) -> accumulator | _item);
+
+            if (!startProperties.getPropertyAsBoolean("allownonascii", false)) {
+                for (String propertyKey : startProperties.stringPropertyNames()) {
+                    String olds = startProperties.getProperty(propertyKey, "");
+                    String news = olds.codePoints().filter(x -> x >= 32 || x <= 126)
+                            .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+
+                    if (!olds.equals(news)) {
+                        startProperties.setProperty(propertyKey, news);
+                        changed = true;
+                    }
                 }
             }
-        }
 
-        /* Check to see if anything changed */
-        if (changed) {
-            startProperties.store(false);
-        }
+            /* Check to see if anything changed */
+            if (changed) {
+                startProperties.store(false);
+            }
 
-        // fresh setup indicator should not be saved
-        startProperties.setProperty("newSetup", newSetup ? "true" : "false");
+            // fresh setup indicator should not be saved
+            startProperties.setProperty("newSetup", newSetup ? "true" : "false");
+        } finally {
+            startProperties.endReload();
+        }
 
         return startProperties;
     }
@@ -27,7 +27,8 @@ import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
 import java.time.DateTimeException;
 import java.time.ZoneId;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -68,6 +69,7 @@ import tv.phantombot.CaselessProperties.Transaction;
 import tv.phantombot.cache.DonationsCache;
 import tv.phantombot.cache.EmotesCache;
 import tv.phantombot.cache.FollowersCache;
+import tv.phantombot.cache.PresenceCache;
 import tv.phantombot.cache.StreamElementsCache;
 import tv.phantombot.cache.TipeeeStreamCache;
 import tv.phantombot.cache.TwitchCache;
@@ -134,6 +136,7 @@ public final class PhantomBot implements Listener {
     private static boolean enableDebuggingLogOnly = false;
     private static boolean enableRhinoDebugger = false;
     private static boolean isInExitState = false;
+    private static volatile ZoneId timeZoneId = null;
     private boolean isExiting = false;
 
     /* Other Information */
@@ -149,6 +152,14 @@ public final class PhantomBot implements Listener {
 
     private ExponentialBackoff initChatBackoff = new ExponentialBackoff(5000L, 60000L);
 
+    static {
+        CaselessProperties.instance().addChangeListener((previous, current, changedKeys) -> {
+            if (changedKeys.contains("logtimezone")) {
+                timeZoneId = null;
+            }
+        });
+    }
+
     /**
      * PhantomBot Instance.
      *
@@ -310,49 +321,11 @@ public final class PhantomBot implements Listener {
             Files.deleteIfExists(Paths.get("./logs/.placeholder"));
         } catch (IOException ex) {}
 
-        this.authflow = new TwitchAuthorizationCodeFlow(CaselessProperties.instance().getProperty("clientid"), CaselessProperties.instance().getProperty("clientsecret"));
-        boolean authflowrefreshed = this.authflow.checkAndRefreshTokens();
-        this.appflow = new TwitchClientCredentialsFlow(CaselessProperties.instance().getProperty("clientid"), CaselessProperties.instance().getProperty("clientsecret"));
-        this.appflow.checkAndRefreshToken(true);
-        if (authflowrefreshed) {
-            ConfigurationManager.getConfiguration();
-        }
-
         /* twitch cache */
         PhantomBot.twitchCacheReady = false;
 
         /* Load up a new SecureRandom for the scripts to use */
         this.random = new SecureRandom();
-
-        if (CaselessProperties.instance().getProperty("datastore", "NONESTORE").equals("NONESTORE")
-            && SqliteStore.hasDatabase(CaselessProperties.instance().getProperty("datastoreconfig", ""))
-            && SqliteStore.isAvailable(CaselessProperties.instance().getProperty("datastoreconfig", ""))
-            && SqliteStore.instance().GetFileList().length > 0) {
-            Transaction t = CaselessProperties.instance().startTransaction(CaselessProperties.Transaction.PRIORITY_MAX);
-            t.setProperty("datastore", "SQLiteStore2");
-            t.commit();
-        }
-
-        /* Load the datastore */
-        Datastore2.init();
-
-        /* Set the oauth key in the Twitch api and perform a validation. */
-        this.validateOAuth();
-
-        /* Check if the OS is Linux. */
-        if (SystemUtils.IS_OS_LINUX && System.getProperty("interactive") == null) {
-            try {
-                long pid = Reflect.pid();
-
-                Files.write(Paths.get(Reflect.GetExecutionPath(), "PhantomBot." + this.getBotName() + ".pid"), Long.toString(pid).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
-                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-            } catch (IOException | NumberFormatException ex) {
-                com.gmt2001.Console.err.printStackTrace(ex);
-            }
-        }
-
-        /* Start things and start loading the scripts. */
-        ExecutorService.schedule(this::init, 250, TimeUnit.MILLISECONDS);
     }
 
     public void validateOAuth() {
@@ -930,22 +903,71 @@ public final class PhantomBot implements Listener {
         /* Get the un time for that new thread we just created */
         Runtime.getRuntime().addShutdownHook(thread);
 
-        /* Check for a update with PhantomBot */
-        this.doCheckPhantomBotUpdate();
+        /* Start things and start loading the scripts. Phases which do not depend on each other run concurrently. */
+        StartupManager.instance()
+            .phase("scriptcompile", () -> ScriptManager.precompileScripts("./scripts"))
+            .phase("authflow", () -> {
+                this.authflow = new TwitchAuthorizationCodeFlow(CaselessProperties.instance().getProperty("clientid"), CaselessProperties.instance().getProperty("clientsecret"));
+                if (this.authflow.checkAndRefreshTokens()) {
+                    ConfigurationManager.getConfiguration();
+                }
+            })
+            .phase("appflow", () -> {
+                this.appflow = new TwitchClientCredentialsFlow(CaselessProperties.instance().getProperty("clientid"), CaselessProperties.instance().getProperty("clientsecret"));
+                this.appflow.checkAndRefreshToken(true);
+            }, "authflow")
+            .phase("datastore", this::initDataStore, "authflow")
+            .phase("validateoauth", () -> {
+                /* Set the oauth key in the Twitch api and perform a validation. */
+                this.validateOAuth();
+                TwitchValidate.instance().awaitValidation(15000L);
+            }, "appflow")
+            .phase("pidfile", this::writePidFile, "authflow")
+            .phase("updatecheck", this::doCheckPhantomBotUpdate, "datastore")
+            .phase("backupdb", () -> {
+                /* Perform SQLite datbase backups. */
+                /**
+                 * @botproperty backupdbauto - If `true`, the database is backed up to the ./backups folder every so often. Default is based on preference of the driver. SQLiteStore2 and H2Store2 defeault to `true`
+                 * @botpropertycatsort backupdbauto 400 30 Datastore
+                 *
+                 */
+                if (CaselessProperties.instance().getPropertyAsBoolean("backupdbauto", CaselessProperties.instance().getPropertyAsBoolean("backupsqliteauto", Datastore2.instance().defaultBackupPreference()))) {
+                    this.doBackupDB();
+                }
+            }, "datastore")
+            .phase("eventbus", this::initConsoleEventBus, "datastore")
+            .phase("web", this::initWeb, "datastore")
+            .phase("chat", this::initChat, "scriptcompile", "validateoauth", "eventbus", "web")
+            .start().whenComplete((v, t) -> ScriptManager.clearPrecompiled());
+    }
 
-        /* Perform SQLite datbase backups. */
-        /**
-         * @botproperty backupdbauto - If `true`, the database is backed up to the ./backups folder every so often. Default is based on preference of the driver. SQLiteStore2 and H2Store2 defeault to `true`
-         * @botpropertycatsort backupdbauto 400 30 Datastore
-         *
-         */
-        if (CaselessProperties.instance().getPropertyAsBoolean("backupdbauto", CaselessProperties.instance().getPropertyAsBoolean("backupsqliteauto", Datastore2.instance().defaultBackupPreference()))) {
-            this.doBackupDB();
+    @SuppressWarnings({"removal"})
+    private void initDataStore() {
+        if (CaselessProperties.instance().getProperty("datastore", "NONESTORE").equals("NONESTORE")
+            && SqliteStore.hasDatabase(CaselessProperties.instance().getProperty("datastoreconfig", ""))
+            && SqliteStore.isAvailable(CaselessProperties.instance().getProperty("datastoreconfig", ""))
+            && SqliteStore.instance().GetFileList().length > 0) {
+            Transaction t = CaselessProperties.instance().startTransaction(CaselessProperties.Transaction.PRIORITY_MAX);
+            t.setProperty("datastore", "SQLiteStore2");
+            t.commit();
         }
 
-        this.initConsoleEventBus();
-        this.initWeb();
-        this.initChat();
+        /* Load the datastore */
+        Datastore2.init();
+    }
+
+    private void writePidFile() {
+        /* Check if the OS is Linux. */
+        if (SystemUtils.IS_OS_LINUX && System.getProperty("interactive") == null) {
+            try {
+                long pid = Reflect.pid();
+
+                Files.write(Paths.get(Reflect.GetExecutionPath(), "PhantomBot." + this.getBotName() + ".pid"), Long.toString(pid).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException | NumberFormatException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        }
     }
 
     /**
@@ -1022,6 +1044,10 @@ public final class PhantomBot implements Listener {
         }
 
         com.gmt2001.Console.out.print("\r\n");
+        this.print("Writing pending last seen times and user mappings...");
+        PresenceCache.instance().flush();
+        ViewerCache.instance().flushMappings();
+
         this.print("Closing the database...");
         Datastore2.instance().dispose();
 
@@ -1193,6 +1219,7 @@ public final class PhantomBot implements Listener {
 
         /* Start PhantomBot */
         PhantomBot.instance = new PhantomBot();
+        PhantomBot.instance.init();
     }
 
     private static void setStaticFields(CaselessProperties startProperties) {
@@ -1398,21 +1425,7 @@ public final class PhantomBot implements Listener {
 
             Datastore2.instance().backup("phantombot.auto." + Datastore2.instance().backupFileName());
 
-            try {
-                Iterator<File> dirIterator = FileUtils.iterateFiles(new File("./dbbackup"), WildcardFileFilter.builder().setWildcards("phantombot.auto.*").get(), null);
-                while (dirIterator.hasNext()) {
-                    File backupFile = dirIterator.next();
-                    /**
-                     * @botproperty backupdbkeepdays - The number of days before a DB backup is deleted. Default `5`
-                     * @botpropertycatsort backupdbkeepdays 410 30 Datastore
-                     */
-                    if (FileUtils.isFileOlder(backupFile, (System.currentTimeMillis() - (long) (CaselessProperties.instance().getPropertyAsInt("backupdbkeepdays", CaselessProperties.instance().getPropertyAsInt("backupsqlitekeepdays", 5)) * 864e5)))) {
-                        FileUtils.deleteQuietly(backupFile);
-                    }
-                }
-            } catch (Exception ex) {
-                com.gmt2001.Console.err.println("Failed to clean up database backup directory: " + ex.getMessage());
-            }
+            this.pruneBackups();
             /**
              * @botproperty backupdbhourfrequency - The number of hours between DB backups, if enabled. Default `24`
              * @botpropertycatsort backupdbhourfrequency 420 30 Datastore
@@ -1421,6 +1434,35 @@ public final class PhantomBot implements Listener {
         }, 0, CaselessProperties.instance().getPropertyAsInt("backupdbhourfrequency", CaselessProperties.instance().getPropertyAsInt("backupsqlitehourfrequency", 24)), TimeUnit.HOURS);
     }
 
+    /**
+     * Deletes automatic DB backups which are older than {@code backupdbkeepdays}, then the oldest ones beyond {@code backupdbkeepcount}
+     */
+    private void pruneBackups() {
+        try {
+            List<File> backups = new ArrayList<>(FileUtils.listFiles(new File("./dbbackup"), WildcardFileFilter.builder().setWildcards("phantombot.auto.*").get(), null));
+            /**
+             * @botproperty backupdbkeepdays - The number of days before a DB backup is deleted. Default `5`
+             * @botpropertycatsort backupdbkeepdays 410 30 Datastore
+             */
+            long cutoff = System.currentTimeMillis() - (long) (CaselessProperties.instance().getPropertyAsInt("backupdbkeepdays", CaselessProperties.instance().getPropertyAsInt("backupsqlitekeepdays", 5)) * 864e5);
+            /**
+             * @botproperty backupdbkeepcount - The maximum number of automatic DB backups to keep. `0` for no limit. Default `0`
+             * @botpropertycatsort backupdbkeepcount 415 30 Datastore
+             */
+            int keepCount = CaselessProperties.instance().getPropertyAsInt("backupdbkeepcount", 0);
+            backups.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+            for (int i = 0; i < backups.size(); i++) {
+                File backupFile = backups.get(i);
+                if (FileUtils.isFileOlder(backupFile, cutoff) || (keepCount > 0 && i >= keepCount)) {
+                    FileUtils.deleteQuietly(backupFile);
+                }
+            }
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.println("Failed to clean up database backup directory: " + ex.getMessage());
+        }
+    }
+
     /**
      * Method to export a Java list to a csv file.
      *
@@ -1502,7 +1544,7 @@ public final class PhantomBot implements Listener {
          * @botproperty logtimezone - The timezone for timestamps in the log. Must be a valid IANA Time Zone Database name. Default `GMT`
          * @botpropertycatsort logtimezone 60 50 Misc
          */
-        String tz = CaselessProperties.instance().getProperty("logtimezone", "GMT");
+        String tz = CaselessProperties.instance().snapshot().getProperty("logtimezone", "GMT");
 
         if (tz == null || tz.isBlank()) {
             return "GMT";
@@ -1512,6 +1554,11 @@ public final class PhantomBot implements Listener {
     }
 
     public static ZoneId getTimeZoneId() {
+        ZoneId cached = timeZoneId;
+        if (cached != null) {
+            return cached;
+        }
+
         try {
             ZoneId zoneId = ZoneId.of(getTimeZone());
 
@@ -1519,6 +1566,7 @@ public final class PhantomBot implements Listener {
                 return ZoneId.systemDefault();
             }
 
+            timeZoneId = zoneId;
             return zoneId;
         } catch (DateTimeException ex) {
             com.gmt2001.Console.err.printStackTrace(ex, Map.of("_____report", false));
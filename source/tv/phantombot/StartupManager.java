@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the startup phases of the bot as a dependency graph and records wall/CPU time for each phase and for each script loaded
+ * <p>
+ * Phases which do not depend on each other are started concurrently. A phase starts as soon as all of the phases it depends on have
+ * completed successfully. If a phase fails, every phase which depends on it, directly or indirectly, is skipped, while unrelated
+ * phases still run
+ *
+ * @author gmt2001
+ */
+public final class StartupManager {
+
+    private static final StartupManager INSTANCE = new StartupManager();
+    private static final ThreadMXBean THREADMX = ManagementFactory.getThreadMXBean();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Map<String, Timing> phaseTimings = new ConcurrentHashMap<>();
+    private final Map<String, Timing> scriptTimings = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<long[]>> scriptStack = ThreadLocal.withInitial(ArrayDeque::new);
+    private CompletableFuture<Void> completion = null;
+    private long startNanos = 0L;
+    private long endNanos = 0L;
+
+    /**
+     * Singleton
+     *
+     * @return the instance
+     */
+    public static StartupManager instance() {
+        return INSTANCE;
+    }
+
+    private StartupManager() {
+    }
+
+    /**
+     * Registers a startup phase
+     *
+     * @param name the name of the phase
+     * @param task the task to run
+     * @param dependsOn the names of the phases which must complete before this phase starts
+     * @return {@code this}
+     * @throws IllegalStateException if the phases have already been started, the name is already registered, or a dependency has not been registered
+     */
+    public synchronized StartupManager phase(String name, Runnable task, String... dependsOn) {
+        if (this.completion != null) {
+            throw new IllegalStateException("startup already started");
+        }
+
+        if (this.phases.containsKey(name)) {
+            throw new IllegalStateException("duplicate phase " + name);
+        }
+
+        for (String dependency : dependsOn) {
+            if (!this.phases.containsKey(dependency)) {
+                throw new IllegalStateException("phase " + name + " depends on unregistered phase " + dependency);
+            }
+        }
+
+        this.phases.put(name, new Phase(name, task, List.of(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Starts all registered phases
+     * <p>
+     * Since dependencies must be registered before their dependents, the graph can not contain a cycle
+     *
+     * @return a future which completes when all phases have completed; completes exceptionally if any phase failed or was skipped
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (this.completion != null) {
+            return this.completion;
+        }
+
+        AtomicInteger threadNum = new AtomicInteger(0);
+        java.util.concurrent.ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "tv.phantombot.StartupManager::phase-" + threadNum.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        this.startNanos = System.nanoTime();
+
+        for (Phase phase : this.phases.values()) {
+            CompletableFuture<?>[] dependencies = phase.dependsOn.stream().map(futures::get).toArray(CompletableFuture<?>[]::new);
+            futures.put(phase.name, CompletableFuture.allOf(dependencies).handle((v, t) -> {
+                if (t != null) {
+                    String failed = phaseName(t);
+                    com.gmt2001.Console.err.println("Startup phase " + phase.name + " skipped because phase " + failed + " failed");
+                    this.phaseTimings.put(phase.name, new Timing(phase.name, System.nanoTime() - this.startNanos, 0L, 0L, phase.dependsOn, failed));
+                    throw new CompletionException(new PhaseFailedException(failed, t));
+                }
+
+                return null;
+            }).thenRunAsync(() -> this.runPhase(phase), executor));
+        }
+
+        this.completion = CompletableFuture.allOf(futures.values().toArray(CompletableFuture<?>[]::new)).whenComplete((v, t) -> {
+            this.endNanos = System.nanoTime();
+            executor.shutdown();
+            if (t != null) {
+                com.gmt2001.Console.err.println("Startup phases completed in " + toMillis(this.endNanos - this.startNanos) + "ms, phase " + phaseName(t)
+                    + " failed and its dependents were skipped, use the startuptimes console command for details");
+            } else {
+                com.gmt2001.Console.out.println("Startup phases completed in " + toMillis(this.endNanos - this.startNanos) + "ms, use the startuptimes console command for details");
+            }
+            this.report().forEach(com.gmt2001.Console.debug::println);
+        });
+
+        return this.completion;
+    }
+
+    private void runPhase(Phase phase) {
+        String oldName = Thread.currentThread().getName();
+        Thread.currentThread().setName("tv.phantombot.StartupManager::" + phase.name);
+        long startWall = System.nanoTime();
+        long startCpu = cpuTime();
+        try {
+            phase.task.run();
+        } catch (Throwable ex) {
+            com.gmt2001.Console.err.println("Startup phase " + phase.name + " failed");
+            com.gmt2001.Console.err.printStackTrace(ex);
+            throw new PhaseFailedException(phase.name, ex);
+        } finally {
+            this.phaseTimings.put(phase.name, new Timing(phase.name, startWall - this.startNanos, System.nanoTime() - startWall, cpuTime() - startCpu, phase.dependsOn, null));
+            Thread.currentThread().setName(oldName);
+        }
+    }
+
+    /**
+     * Marks the start of a script evaluation on the current thread
+     * <p>
+     * Must be followed by a call to {@link #scriptFinished(String)} on the same thread. Scripts may be nested, in which case the time
+     * spent in the nested script is excluded from the outer scripts self time
+     */
+    public void scriptStarted() {
+        this.scriptStack.get().push(new long[]{System.nanoTime(), cpuTime(), 0L, 0L});
+    }
+
+    /**
+     * Marks the end of a script evaluation on the current thread
+     * <p>
+     * Only the first load of each script is recorded, reloads are ignored
+     *
+     * @param name the name of the script
+     */
+    public void scriptFinished(String name) {
+        Deque<long[]> stack = this.scriptStack.get();
+        long[] frame = stack.poll();
+
+        if (frame == null) {
+            return;
+        }
+
+        long wall = System.nanoTime() - frame[0];
+        long cpu = cpuTime() - frame[1];
+        long[] parent = stack.peek();
+
+        if (parent != null) {
+            parent[2] += wall;
+            parent[3] += cpu;
+        }
+
+        this.scriptTimings.putIfAbsent(name, new Timing(name, frame[0] - this.startNanos, wall - frame[2], cpu - frame[3], List.of(), null));
+    }
+
+    /**
+     * Indicates if all startup phases have completed
+     *
+     * @return {@code true} if completed
+     */
+    public boolean isComplete() {
+        return this.completion != null && this.completion.isDone();
+    }
+
+    /**
+     * Generates a human-readable report of the phase and script timings
+     *
+     * @return the lines of the report
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+
+        if (this.completion == null) {
+            lines.add("Startup has not started");
+            return lines;
+        }
+
+        lines.add("Startup phases (" + (this.isComplete() ? "completed in " + toMillis(this.endNanos - this.startNanos) + "ms" : "in progress") + "):");
+        List<Timing> sortedPhases = new ArrayList<>(this.phaseTimings.values());
+        sortedPhases.sort(Comparator.comparingLong(t -> t.offsetNanos));
+        for (Timing timing : sortedPhases) {
+            if (timing.skippedBy != null) {
+                lines.add(String.format("  %-16s skipped, %s failed", timing.name, timing.skippedBy));
+            } else {
+                lines.add(String.format("  %-16s start=+%dms wall=%dms cpu=%dms%s", timing.name, toMillis(timing.offsetNanos), toMillis(timing.wallNanos),
+                    toMillis(timing.cpuNanos), timing.dependsOn.isEmpty() ? "" : " after=" + String.join(",", timing.dependsOn)));
+            }
+        }
+
+        List<Timing> sortedScripts = new ArrayList<>(this.scriptTimings.values());
+        sortedScripts.sort(Collections.reverseOrder(Comparator.comparingLong(t -> t.wallNanos)));
+        long totalWall = sortedScripts.stream().mapToLong(t -> t.wallNanos).sum();
+        long totalCpu = sortedScripts.stream().mapToLong(t -> t.cpuNanos).sum();
+        lines.add("Scripts (" + sortedScripts.size() + " loaded, wall=" + toMillis(totalWall) + "ms cpu=" + toMillis(totalCpu) + "ms, self time, slowest first):");
+        for (Timing timing : sortedScripts) {
+            lines.add(String.format("  %-48s wall=%dms cpu=%dms", timing.name, toMillis(timing.wallNanos), toMillis(timing.cpuNanos)));
+        }
+
+        return lines;
+    }
+
+    private static String phaseName(Throwable t) {
+        while (t != null && !(t instanceof PhaseFailedException)) {
+            t = t.getCause();
+        }
+
+        return t == null ? "unknown" : ((PhaseFailedException) t).phase;
+    }
+
+    private static long cpuTime() {
+        return THREADMX.isCurrentThreadCpuTimeSupported() ? THREADMX.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    private static final class Phase {
+
+        private final String name;
+        private final Runnable task;
+        private final List<String> dependsOn;
+
+        private Phase(String name, Runnable task, List<String> dependsOn) {
+            this.name = name;
+            this.task = task;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private static final class Timing {
+
+        private final String name;
+        private final long offsetNanos;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final List<String> dependsOn;
+        private final String skippedBy;
+
+        private Timing(String name, long offsetNanos, long wallNanos, long cpuNanos, List<String> dependsOn, String skippedBy) {
+            this.name = name;
+            this.offsetNanos = offsetNanos;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.dependsOn = dependsOn;
+            this.skippedBy = skippedBy;
+        }
+    }
+
+    /**
+     * Identifies the phase which originally failed, as the failure propagates to its dependents
+     */
+    private static final class PhaseFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private final String phase;
+
+        private PhaseFailedException(String phase, Throwable cause) {
+            super("startup phase " + phase + " failed", cause);
+            this.phase = phase;
+        }
+    }
+}
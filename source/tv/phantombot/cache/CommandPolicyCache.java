@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.KeyValue;
+
+/**
+ * Caches the database-backed settings which are checked by the {@code command} handler in {@code init.js} for every chat command
+ * <p>
+ * The {@code aliases}, {@code pricecom}, {@code paycom}, and {@code disabledCommands} tables and the command related keys of the
+ * {@code settings} table are loaded into memory together. Any write to those tables through {@link DataStore}, including writes from
+ * the panel, discards the snapshot and the next lookup reloads it
+ * <p>
+ * Available to scripts as {@code $.commandPolicy(command, subCommand)}
+ *
+ * @author gmt2001
+ */
+public final class CommandPolicyCache {
+
+    private static final CommandPolicyCache INSTANCE = new CommandPolicyCache();
+    private static final Set<String> TABLES = Set.of("aliases", "pricecom", "paycom", "disabledcommands");
+    private static final Set<String> SETTINGS = Set.of("pricecomMods", "permComMsgEnabled", "priceComMsgEnabled", "coolDownMsgEnabled");
+    private final AtomicLong generation = new AtomicLong(0L);
+    private volatile Snapshot snapshot = null;
+    private volatile boolean registered = false;
+
+    /**
+     * Provides an instance of {@link CommandPolicyCache}
+     *
+     * @return an instance of {@link CommandPolicyCache}
+     */
+    public static CommandPolicyCache instance() {
+        return INSTANCE;
+    }
+
+    private CommandPolicyCache() {
+    }
+
+    /**
+     * Returns the policy of a command
+     *
+     * @param command the command, without the {@code !}
+     * @param subCommand the sub-command; {@code null} or {@code ""} if none
+     * @return the policy
+     */
+    public CommandPolicy get(String command, String subCommand) {
+        return this.snapshot().policy(command == null ? "" : command.toLowerCase(), subCommand == null ? "" : subCommand.toLowerCase());
+    }
+
+    /**
+     * Returns the price of a command, sub-command, and sub-command action, with the same fallback rules as {@code $.getCommandPrice}
+     *
+     * @param command the command, without the {@code !}
+     * @param subCommand the sub-command; {@code ""} if none
+     * @param subCommandAction the sub-command action; {@code ""} if none
+     * @return the price; {@code 0} if no price is set
+     */
+    public long price(String command, String subCommand, String subCommandAction) {
+        return this.snapshot().price(command.toLowerCase(), subCommand.toLowerCase(), subCommandAction.toLowerCase());
+    }
+
+    /**
+     * Discards the cached snapshot. The next lookup reloads it from the database
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.snapshot = null;
+    }
+
+    private void tableChanged(String fName, String key) {
+        String table = fName.toLowerCase();
+        if (TABLES.contains(table) || (table.equals("settings") && (key == null || SETTINGS.contains(key)))) {
+            this.invalidate();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (!this.registered) {
+                DataStore.instance().addChangeListener(this::tableChanged);
+                this.registered = true;
+            }
+
+            current = this.snapshot;
+            if (current != null) {
+                return current;
+            }
+
+            long gen = this.generation.get();
+            current = new Snapshot(DataStore.instance());
+            // A write which raced with the load leaves the snapshot unpublished, so the next lookup loads again
+            if (this.generation.get() == gen) {
+                this.snapshot = current;
+            }
+
+            return current;
+        }
+    }
+
+    private static Map<String, String> load(DataStore ds, String table) {
+        Map<String, String> values = new HashMap<>();
+        KeyValue[] kvs = ds.GetKeyValueList(table, "");
+        if (kvs != null) {
+            for (KeyValue kv : kvs) {
+                values.put(kv.getKey(), kv.getValue());
+            }
+        }
+
+        return Collections.unmodifiableMap(values);
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return value != null && (value.equals("1") || value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes"));
+    }
+
+    /**
+     * The tables loaded at one point in time, and the policies resolved from them so far
+     */
+    private static final class Snapshot {
+
+        private final Map<String, String> aliases;
+        private final Map<String, String> prices;
+        private final Map<String, String> pays;
+        private final Set<String> disabled;
+        private final boolean pricecomMods;
+        private final boolean permComMsgEnabled;
+        private final boolean priceComMsgEnabled;
+        private final boolean coolDownMsgEnabled;
+        private final Map<String, CommandPolicy> policies = new ConcurrentHashMap<>();
+
+        private Snapshot(DataStore ds) {
+            this.aliases = load(ds, "aliases");
+            this.prices = load(ds, "pricecom");
+            this.pays = load(ds, "paycom");
+            this.disabled = Collections.unmodifiableSet(new HashSet<>(load(ds, "disabledCommands").keySet()));
+            this.pricecomMods = parseBoolean(ds.GetString("settings", "", "pricecomMods", null));
+            this.permComMsgEnabled = parseBoolean(ds.GetString("settings", "", "permComMsgEnabled", null));
+            this.priceComMsgEnabled = parseBoolean(ds.GetString("settings", "", "priceComMsgEnabled", null));
+            this.coolDownMsgEnabled = parseBoolean(ds.GetString("settings", "", "coolDownMsgEnabled", null));
+        }
+
+        private CommandPolicy policy(String command, String subCommand) {
+            return this.policies.computeIfAbsent(command + ' ' + subCommand, k -> new CommandPolicy(this, command, subCommand));
+        }
+
+        private long price(String command, String subCommand, String subCommandAction) {
+            Long cost = parseLong(this.prices.get(command + ' ' + subCommand + ' ' + subCommandAction));
+            if (cost == null) {
+                cost = parseLong(this.prices.get(command + ' ' + subCommand));
+            }
+            if (cost == null) {
+                cost = parseLong(this.prices.get(command));
+            }
+
+            return cost == null ? 0L : cost;
+        }
+    }
+
+    /**
+     * The database-backed settings of one command and sub-command. Instances are immutable
+     */
+    public static final class CommandPolicy {
+
+        private final String command;
+        private final String subCommand;
+        private final String alias;
+        private final boolean disabled;
+        private final boolean priced;
+        private final long price;
+        private final boolean paid;
+        private final long pay;
+        private final boolean pricecomMods;
+        private final boolean permComMsgEnabled;
+        private final boolean priceComMsgEnabled;
+        private final boolean coolDownMsgEnabled;
+
+        private CommandPolicy(Snapshot snapshot, String command, String subCommand) {
+            this.command = command;
+            this.subCommand = subCommand;
+            this.alias = snapshot.aliases.get(command);
+            this.disabled = snapshot.disabled.contains(command);
+            this.priced = (!subCommand.isEmpty() && snapshot.prices.containsKey(command + ' ' + subCommand)) || snapshot.prices.containsKey(command);
+            this.price = snapshot.price(command, subCommand, "");
+            this.paid = snapshot.pays.containsKey(command);
+            Long p = parseLong(snapshot.pays.get(command));
+            this.pay = p == null ? 0L : p;
+            this.pricecomMods = snapshot.pricecomMods;
+            this.permComMsgEnabled = snapshot.permComMsgEnabled;
+            this.priceComMsgEnabled = snapshot.priceComMsgEnabled;
+            this.coolDownMsgEnabled = snapshot.coolDownMsgEnabled;
+        }
+
+        /**
+         * @return the command, in lower case
+         */
+        public String command() {
+            return this.command;
+        }
+
+        /**
+         * @return the sub-command, in lower case; {@code ""} if none
+         */
+        public String subCommand() {
+            return this.subCommand;
+        }
+
+        /**
+         * @return the command which this command is an alias of, from the {@code aliases} table; {@code null} if not an alias
+         */
+        public String alias() {
+            return this.alias;
+        }
+
+        /**
+         * @return {@code true} if the command is in the {@code disabledCommands} table
+         */
+        public boolean isDisabled() {
+            return this.disabled;
+        }
+
+        /**
+         * @return {@code true} if the {@code pricecom} table has a price for the command or the sub-command
+         */
+        public boolean isPriced() {
+            return this.priced;
+        }
+
+        /**
+         * @return the price of the command and sub-command; {@code 0} if none
+         */
+        public long price() {
+            return this.price;
+        }
+
+        /**
+         * @return {@code true} if the {@code paycom} table has a reward for the command
+         */
+        public boolean isPaid() {
+            return this.paid;
+        }
+
+        /**
+         * @return the reward for using the command; {@code 0} if none
+         */
+        public long pay() {
+            return this.pay;
+        }
+
+        /**
+         * @return the {@code pricecomMods} setting
+         */
+        public boolean pricecomMods() {
+            return this.pricecomMods;
+        }
+
+        /**
+         * @return the {@code permComMsgEnabled} setting
+         */
+        public boolean permComMsgEnabled() {
+            return this.permComMsgEnabled;
+        }
+
+        /**
+         * @return the {@code priceComMsgEnabled} setting
+         */
+        public boolean priceComMsgEnabled() {
+            return this.priceComMsgEnabled;
+        }
+
+        /**
+         * @return the {@code coolDownMsgEnabled} setting
+         */
+        public boolean coolDownMsgEnabled() {
+            return this.coolDownMsgEnabled;
+        }
+
+        @Override
+        public String toString() {
+            return "CommandPolicy(command=" + this.command + ", subCommand=" + this.subCommand + ", alias=" + this.alias + ", disabled=" + this.disabled
+                + ", priced=" + this.priced + ", price=" + this.price + ", paid=" + this.paid + ", pay=" + this.pay + ")";
+        }
+    }
+}
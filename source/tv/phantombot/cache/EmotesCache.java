@@ -21,6 +21,7 @@ package tv.phantombot.cache;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +34,7 @@ import tv.phantombot.event.emotes.EmotesGetEvent;
 import tv.phantombot.twitch.emotes.BttvApiV3;
 import tv.phantombot.twitch.emotes.EmoteApiRequestFailedException;
 import tv.phantombot.twitch.emotes.EmoteEntry;
+import tv.phantombot.twitch.emotes.EmoteMatcher;
 import tv.phantombot.twitch.emotes.EmoteProvider;
 import tv.phantombot.twitch.emotes.FrankerFacezApiV1;
 import tv.phantombot.twitch.emotes.SevenTVAPIv3;
@@ -112,10 +114,36 @@ public class EmotesCache implements Runnable {
                 .map(this::getProviderEmotes)
                 .collect(Collectors.toList());
 
+        this.updateMatcher(providerEmotes);
+
         com.gmt2001.Console.debug.println("Pushing EmotesGetEvent to EventBus");
         EventBus.instance().postAsync(new EmotesGetEvent(providerEmotes));
     }
 
+    /**
+     * Rebuilds the {@link EmoteMatcher} from the emotes of all providers and publishes it
+     *
+     * @param providerEmotes the emotes of each provider
+     */
+    private void updateMatcher(List<EmotesSet> providerEmotes) {
+        List<String> codes = new ArrayList<>();
+        for (EmotesSet set : providerEmotes) {
+            addCodes(codes, set.getLocalEmotes());
+            addCodes(codes, set.getSharedEmotes());
+            addCodes(codes, set.getGlobalEmotes());
+        }
+
+        EmoteMatcher matcher = EmoteMatcher.build(codes);
+        EmoteMatcher.publish(matcher);
+        com.gmt2001.Console.debug.println("Built emote matcher with " + matcher.size() + " emote codes");
+    }
+
+    private static void addCodes(List<String> codes, List<EmoteEntry> emotes) {
+        if (emotes != null) {
+            emotes.forEach(emote -> codes.add(emote.getCode()));
+        }
+    }
+
     protected EmotesSet getProviderEmotes(EmoteProvider provider){
         List<EmoteEntry> localEmotes = null;
         List<EmoteEntry> sharedEmotes = null;
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.KeyValue;
+import com.gmt2001.util.concurrent.ExecutorService;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Tracks when users were last seen in chat, and which users have visited the channel, for the {@code lastseen} and {@code visited} tables
+ * <p>
+ * Updates are kept in memory and written with one batched write per table each flush interval, so a chatter list refresh which joins or
+ * parts thousands of users costs two writes instead of one per user. Reads through this cache see the pending updates before they are
+ * written. Writes to either table made elsewhere through {@link DataStore}, such as by the cleanup and name change commands, discard the
+ * pending update for the affected users
+ * <p>
+ * Fed with the join/part deltas from {@link com.gmt2001.twitch.cache.ViewerCache} by {@code core/permissions.js} and
+ * {@code commands/lastseenCommand.js}
+ *
+ * @author gmt2001
+ */
+public final class PresenceCache {
+
+    private static final PresenceCache INSTANCE = new PresenceCache();
+    private static final String LASTSEEN = "lastseen";
+    private static final String VISITED = "visited";
+    private static final int DEFAULT_INTERVAL = 60;
+    private static final int MAX_KNOWN = 100000;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final String lastSeenTable;
+    private final String visitedTable;
+    private Map<String, Long> lastSeen = new HashMap<>();
+    private Set<String> visited = new LinkedHashSet<>();
+    /**
+     * The updates being written by {@link #flush()}, kept readable until the write has finished. Never modified once assigned
+     */
+    private Map<String, Long> flushingLastSeen = Map.of();
+    private Set<String> flushingVisited = Set.of();
+    /**
+     * Users which are known to have a row in the {@code visited} table
+     */
+    private final Set<String> known = new HashSet<>();
+    private final AtomicLong updates = new AtomicLong(0L);
+    private final AtomicLong writes = new AtomicLong(0L);
+
+    /**
+     * Provides an instance of {@link PresenceCache}
+     *
+     * @return an instance of {@link PresenceCache}
+     */
+    public static PresenceCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @botproperty presenceflushinterval - The interval, in seconds, at which last seen times and visited users are written to the database. Default `60`
+     * @botpropertycatsort presenceflushinterval 510 30 Datastore
+     */
+    private PresenceCache() {
+        this.lastSeenTable = LASTSEEN;
+        this.visitedTable = VISITED;
+        int interval = Math.max(5, CaselessProperties.instance().getPropertyAsInt("presenceflushinterval", DEFAULT_INTERVAL));
+        ExecutorService.scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.SECONDS);
+        DataStore.instance().addChangeListener(this::tableChanged);
+    }
+
+    private PresenceCache(String lastSeenTable, String visitedTable) {
+        this.lastSeenTable = lastSeenTable;
+        this.visitedTable = visitedTable;
+    }
+
+    /**
+     * Creates a cache over other tables which is only flushed by calling {@link #flush()} and does not watch for external writes. Used by
+     * the {@code benchmark} console command
+     *
+     * @param lastSeenTable the table to use in place of {@code lastseen}
+     * @param visitedTable the table to use in place of {@code visited}
+     * @return the cache
+     */
+    public static PresenceCache scratch(String lastSeenTable, String visitedTable) {
+        return new PresenceCache(lastSeenTable, visitedTable);
+    }
+
+    /**
+     * Records that a user was seen now
+     *
+     * @param login the user's login
+     */
+    public void seen(String login) {
+        this.seen(List.of(login));
+    }
+
+    /**
+     * Records that users were seen now
+     *
+     * @param logins the users' logins
+     */
+    public void seen(Collection<?> logins) {
+        long now = System.currentTimeMillis();
+        this.lock.lock();
+        try {
+            for (Object login : logins) {
+                if (login != null) {
+                    this.lastSeen.put(login.toString().toLowerCase(), now);
+                    this.updates.incrementAndGet();
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the time a user was last seen, including a pending update
+     *
+     * @param login the user's login
+     * @return the time, in milliseconds since the epoch; an empty {@link Optional} if the user has never been seen
+     */
+    public Optional<Long> lastSeen(String login) {
+        String key = login.toLowerCase();
+        this.lock.lock();
+        try {
+            Long time = this.lastSeen.get(key);
+            if (time == null) {
+                time = this.flushingLastSeen.get(key);
+            }
+
+            if (time != null) {
+                return Optional.of(time);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return DataStore.instance().OptLong(this.lastSeenTable, "", key);
+    }
+
+    /**
+     * Records that a user has visited the channel
+     *
+     * @param login the user's login
+     */
+    public void visited(String login) {
+        this.visited(List.of(login));
+    }
+
+    /**
+     * Records that users have visited the channel. Users which are already known are skipped
+     *
+     * @param logins the users' logins
+     */
+    public void visited(Collection<?> logins) {
+        this.lock.lock();
+        try {
+            for (Object login : logins) {
+                if (login != null) {
+                    String key = login.toString().toLowerCase();
+                    if (!this.known.contains(key)) {
+                        this.visited.add(key);
+                        this.updates.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Indicates if a user has visited the channel, including a pending update
+     *
+     * @param login the user's login
+     * @return {@code true} if the user has visited the channel
+     */
+    public boolean isKnown(String login) {
+        String key = login.toLowerCase();
+        this.lock.lock();
+        try {
+            if (this.known.contains(key) || this.visited.contains(key) || this.flushingVisited.contains(key)) {
+                return true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (DataStore.instance().HasKey(this.visitedTable, "", key)) {
+            this.remember(List.of(key));
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the pending updates to the database
+     * <p>
+     * Until the write has finished, the updates being written remain visible to {@link #lastSeen(String)} and {@link #isKnown(String)}. If
+     * the write fails, they are merged back into the pending updates to be retried on the next flush
+     */
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            Map<String, Long> seen;
+            Set<String> visit;
+            this.lock.lock();
+            try {
+                seen = this.lastSeen;
+                visit = this.visited;
+                this.flushingLastSeen = seen;
+                this.flushingVisited = visit;
+                this.lastSeen = new HashMap<>();
+                this.visited = new LinkedHashSet<>();
+            } finally {
+                this.lock.unlock();
+            }
+
+            try {
+                this.flushLastSeen(seen);
+            } catch (Exception ex) {
+                this.lock.lock();
+                try {
+                    // A newer time recorded during the write takes precedence
+                    seen.forEach((k, v) -> this.lastSeen.merge(k, v, Math::max));
+                } finally {
+                    this.lock.unlock();
+                }
+
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+
+            try {
+                this.flushVisited(visit);
+            } catch (Exception ex) {
+                this.lock.lock();
+                try {
+                    for (String key : visit) {
+                        if (!this.known.contains(key)) {
+                            this.visited.add(key);
+                        }
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+        } finally {
+            this.lock.lock();
+            try {
+                this.flushingLastSeen = Map.of();
+                this.flushingVisited = Set.of();
+            } finally {
+                this.lock.unlock();
+            }
+
+            this.flushLock.unlock();
+        }
+    }
+
+    private void flushLastSeen(Map<String, Long> seen) {
+        if (seen.isEmpty()) {
+            return;
+        }
+
+        String[] keys = new String[seen.size()];
+        String[] values = new String[seen.size()];
+        int i = 0;
+        for (Map.Entry<String, Long> kv : seen.entrySet()) {
+            keys[i] = kv.getKey();
+            values[i] = Long.toString(kv.getValue());
+            i++;
+        }
+
+        DataStore.instance().SetBatchString(this.lastSeenTable, "", keys, values);
+        this.writes.addAndGet(keys.length);
+    }
+
+    private void flushVisited(Set<String> visit) {
+        if (visit.isEmpty()) {
+            return;
+        }
+
+        // Only users without a row are written, since a rejoining user already has one
+        Set<String> missing = new LinkedHashSet<>(visit);
+        for (KeyValue kv : DataStore.instance().GetKeyValueListByKeys(this.visitedTable, "", visit.toArray(new String[0]))) {
+            missing.remove(kv.getKey().toLowerCase());
+        }
+
+        if (!missing.isEmpty()) {
+            String[] keys = missing.toArray(new String[0]);
+            String[] values = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = "true";
+            }
+
+            DataStore.instance().SetBatchString(this.visitedTable, "", keys, values);
+            this.writes.addAndGet(keys.length);
+        }
+
+        this.remember(visit);
+    }
+
+    /**
+     * @return the number of updates recorded
+     */
+    public long updates() {
+        return this.updates.get();
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    public long writes() {
+        return this.writes.get();
+    }
+
+    private void remember(Collection<String> keys) {
+        this.lock.lock();
+        try {
+            if (this.known.size() + keys.size() > MAX_KNOWN) {
+                this.known.clear();
+            }
+
+            this.known.addAll(keys);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void tableChanged(String fName, String key) {
+        boolean isLastSeen = fName.equalsIgnoreCase(this.lastSeenTable);
+        boolean isVisited = fName.equalsIgnoreCase(this.visitedTable);
+        if (!isLastSeen && !isVisited) {
+            return;
+        }
+
+        // Writes made by flush() are already reflected in the cache
+        if (this.flushLock.isHeldByCurrentThread()) {
+            return;
+        }
+
+        this.lock.lock();
+        try {
+            if (isLastSeen) {
+                if (key == null) {
+                    this.lastSeen.clear();
+                } else {
+                    this.lastSeen.remove(key.toLowerCase());
+                }
+            } else if (key == null) {
+                this.visited.clear();
+                this.known.clear();
+            } else {
+                this.visited.remove(key.toLowerCase());
+                this.known.remove(key.toLowerCase());
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
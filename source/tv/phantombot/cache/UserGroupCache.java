@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.KeyValue;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * Caches the values of the {@code group} table, which holds the permission group id of each user, keyed by lower case login
+ * <p>
+ * Entries are loaded lazily on first use and are evicted by a bounded Caffeine cache once it is full. Writes through
+ * {@link #set(String, int)} and {@link #setBatch(String[], String[])} update the database and the cache together. Writes to the
+ * {@code group} table made elsewhere through {@link DataStore}, such as from the panel, remove the affected entries
+ * <p>
+ * Used by the permission checks in {@code core/permissions.js} and the Discord role manager
+ *
+ * @author gmt2001
+ */
+public final class UserGroupCache {
+
+    private static final UserGroupCache INSTANCE = new UserGroupCache();
+    private static final String TABLE = "group";
+    private static final int DEFAULT_CAPACITY = 10000;
+    /**
+     * Held while {@link #set(String, int)} and {@link #setBatch(String[], String[])} write to the database, so that {@link #tableChanged(String, String)}
+     * ignores the notifications of writes which are already reflected in the cache
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Cache<String, Optional<String>> entries;
+    private final int capacity;
+    private final AtomicLong generation = new AtomicLong(0L);
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+
+    /**
+     * Provides an instance of {@link UserGroupCache}
+     *
+     * @return an instance of {@link UserGroupCache}
+     */
+    public static UserGroupCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @botproperty usergroupcachesize - The maximum number of users whose permission group is cached in memory. Default `10000`
+     * @botpropertycatsort usergroupcachesize 500 30 Datastore
+     */
+    private UserGroupCache() {
+        this.capacity = Math.max(100, CaselessProperties.instance().getPropertyAsInt("usergroupcachesize", DEFAULT_CAPACITY));
+        this.entries = Caffeine.newBuilder().maximumSize(this.capacity).recordStats().build();
+        DataStore.instance().addChangeListener(this::tableChanged);
+    }
+
+    /**
+     * Returns the raw value of the {@code group} table for a user
+     *
+     * @param login the user's login
+     * @return an {@link Optional} containing the value, if the user has a row in the {@code group} table
+     */
+    public Optional<String> opt(String login) {
+        String key = login.toLowerCase();
+        Optional<String> cached = this.entries.getIfPresent(key);
+        if (cached != null) {
+            this.hits.incrementAndGet();
+            return cached;
+        }
+
+        this.misses.incrementAndGet();
+        long gen = this.generation.get();
+        Optional<String> value = DataStore.instance().OptString(TABLE, "", key);
+        this.load(key, value, gen);
+
+        return value;
+    }
+
+    /**
+     * Loads the users which are not already cached with one bulk query, so that subsequent lookups do not read the database
+     *
+     * @param logins the users' logins
+     */
+    public void prefetch(String[] logins) {
+        List<String> missing = new ArrayList<>();
+        for (String login : logins) {
+            String key = login.toLowerCase();
+            if (this.entries.getIfPresent(key) == null) {
+                missing.add(key);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        long gen = this.generation.get();
+        Map<String, Optional<String>> loaded = new HashMap<>();
+        for (String key : missing) {
+            loaded.put(key, Optional.empty());
+        }
+
+        for (KeyValue kv : DataStore.instance().GetKeyValueListByKeys(TABLE, "", missing.toArray(new String[0]))) {
+            loaded.put(kv.getKey().toLowerCase(), Optional.ofNullable(kv.getValue()));
+        }
+
+        this.misses.addAndGet(missing.size());
+        loaded.forEach((key, value) -> this.load(key, value, gen));
+    }
+
+    /**
+     * Returns the permission group id of a user
+     *
+     * @param login the user's login
+     * @param fallback the value to return if the user has no row in the {@code group} table, or the value is not a number
+     * @return the group id
+     */
+    public int get(String login, int fallback) {
+        Optional<String> value = this.opt(login);
+        if (value.isPresent()) {
+            try {
+                return Integer.parseInt(value.get());
+            } catch (NumberFormatException ex) {
+                return fallback;
+            }
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Sets the permission group id of a user in the database and the cache
+     *
+     * @param login the user's login
+     * @param id the group id
+     */
+    public void set(String login, int id) {
+        String key = login.toLowerCase();
+        String value = Integer.toString(id);
+        this.writeLock.lock();
+        try {
+            DataStore.instance().SetString(TABLE, "", key, value);
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        this.entries.put(key, Optional.of(value));
+    }
+
+    /**
+     * Sets the permission group id of multiple users in the database and the cache, using one batched write
+     * <p>
+     * The array index of the logins and ids params are linked
+     *
+     * @param logins the users' logins
+     * @param ids the group ids
+     */
+    public void setBatch(String[] logins, String[] ids) {
+        int count = Math.min(logins.length, ids.length);
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = logins[i].toLowerCase();
+        }
+
+        this.writeLock.lock();
+        try {
+            DataStore.instance().SetBatchString(TABLE, "", keys, ids);
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        for (int i = 0; i < count; i++) {
+            this.entries.put(keys[i], Optional.ofNullable(ids[i]));
+        }
+    }
+
+    /**
+     * Removes a user from the cache, so the next lookup reads the database
+     *
+     * @param login the user's login
+     */
+    public void invalidate(String login) {
+        this.generation.incrementAndGet();
+        this.entries.invalidate(login.toLowerCase());
+    }
+
+    /**
+     * Removes all users from the cache
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.entries.invalidateAll();
+    }
+
+    /**
+     * @return the number of users currently cached
+     */
+    public int size() {
+        return (int) this.entries.estimatedSize();
+    }
+
+    /**
+     * @return the maximum number of users which can be cached
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of lookups which read the database
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of users evicted to keep the cache within its capacity
+     */
+    public long evictions() {
+        return this.entries.stats().evictionCount();
+    }
+
+    /**
+     * Caches a value read from the database, unless the user is already cached
+     * <p>
+     * A write which raced with the read removes the key and advances the generation, so the value is removed again if the generation changed
+     * after the read
+     *
+     * @param key the lower case login
+     * @param value the value read
+     * @param gen the generation before the read
+     */
+    private void load(String key, Optional<String> value, long gen) {
+        this.entries.asMap().putIfAbsent(key, value);
+        if (this.generation.get() != gen) {
+            this.entries.asMap().remove(key, value);
+        }
+    }
+
+    private void tableChanged(String fName, String key) {
+        // Writes made by set() and setBatch() are already reflected in the cache
+        if (fName.equalsIgnoreCase(TABLE) && !this.writeLock.isHeldByCurrentThread()) {
+            if (key == null) {
+                this.clear();
+            } else {
+                this.invalidate(key);
+            }
+        }
+    }
+}
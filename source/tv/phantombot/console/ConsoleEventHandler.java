@@ -16,11 +16,11 @@
  */
 package tv.phantombot.console;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -28,35 +28,44 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-
-import org.jooq.CreateIndexIncludeStep;
-import org.jooq.CreateIndexStep;
-import org.jooq.CreateTableElementListStep;
-import org.jooq.DDLQuery;
-import org.jooq.DataType;
-import org.jooq.Index;
-import org.jooq.Table;
-import org.jooq.UniqueKey;
-import org.jooq.impl.SQLDataType;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.jooq.exception.DataAccessException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.gmt2001.HttpRequest;
 import com.gmt2001.HttpResponse;
+import com.gmt2001.PhraseMatcher;
 import com.gmt2001.datastore.DataStore;
 import com.gmt2001.datastore2.Datastore2;
+import com.gmt2001.datastore2.Datastore2Converter;
 import com.gmt2001.datastore2.H2Store2;
 import com.gmt2001.datastore2.MariaDBStore2;
 import com.gmt2001.datastore2.MySQLStore2;
 import com.gmt2001.datastore2.SQLiteStore2;
 import com.gmt2001.twitch.tmi.TwitchMessageInterface;
+import com.gmt2001.util.Benchmark;
 import com.gmt2001.util.Reflect;
+import com.gmt2001.util.concurrent.ExecutorService;
+import com.gmt2001.util.concurrent.ExpiringIdSet;
+import com.scaniatv.CustomAPIBenchmark;
 
 import net.engio.mbassy.listener.Handler;
 import tv.phantombot.CaselessProperties;
 import tv.phantombot.CaselessProperties.Transaction;
+import tv.phantombot.ConfigSnapshot;
 import tv.phantombot.PhantomBot;
+import tv.phantombot.StartupManager;
+import tv.phantombot.cache.CommandPolicyCache;
+import tv.phantombot.cache.PresenceCache;
 import tv.phantombot.discord.DiscordAPI;
 import tv.phantombot.event.EventBus;
 import tv.phantombot.event.Listener;
@@ -76,6 +85,9 @@ import tv.phantombot.event.twitch.subscriber.TwitchSubscriberEvent;
 import tv.phantombot.event.twitch.subscriber.TwitchSubscriptionGiftEvent;
 import tv.phantombot.panel.PanelUser.PanelUserHandler;
 import tv.phantombot.script.Script;
+import tv.phantombot.script.TagEngine;
+import tv.phantombot.twitch.api.HelixResponseCacheCheck;
+import tv.phantombot.twitch.emotes.EmoteMatcher;
 
 public final class ConsoleEventHandler implements Listener {
 
@@ -187,27 +199,12 @@ public final class ConsoleEventHandler implements Listener {
         if (message.equalsIgnoreCase("exportpoints")) {
             com.gmt2001.Console.out.println("[CONSOLE] Executing exportpoints.");
 
-            // Top headers of the CSV file.
-            String[] headers = new String[] { "Username", "Seconds", "Points" };
-            // All points keys.
-            String[] keys = PhantomBot.instance().getDataStore().GetKeyList("points", "");
-            // Array to store our values.
-            List<String[]> values = new ArrayList<>();
-
-            // Loop that gets all points and time.
-            for (String key : keys) {
-                String[] str = new String[3];
-                str[0] = key;
-                str[1] = (PhantomBot.instance().getDataStore().exists("time", key)
-                        ? PhantomBot.instance().getDataStore().get("time", key)
-                        : "0");
-                str[2] = PhantomBot.instance().getDataStore().get("points", key);
-                values.add(str);
+            try {
+                PointsCsv.export(Paths.get("points_export.csv"));
+                com.gmt2001.Console.out.println("[CONSOLE] Points have been exported to points_export.csv");
+            } catch (IOException | DataAccessException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
             }
-
-            // Export to CSV.
-            PhantomBot.instance().toCSV(headers, values, "points_export.csv");
-            com.gmt2001.Console.out.println("[CONSOLE] Points have been exported to points_export.csv");
             return;
         }
 
@@ -229,49 +226,12 @@ public final class ConsoleEventHandler implements Listener {
                 return;
             }
 
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                StringBuilder builder = new StringBuilder();
-                String line = reader.readLine(); // ignore first line because its csv format.
-
-                if (!line.equalsIgnoreCase("Username,Seconds,Points")) {
+            try {
+                if (PointsCsv.importFile(file.toPath()) < 0) {
                     com.gmt2001.Console.out.println("File format is incorrect: (Username,Seconds,Points)");
-                    return;
-                }
-
-                while (line != null) {
-                    line = reader.readLine();
-                    builder.append(line + System.lineSeparator());
                 }
-
-                String[] finalStr = builder.toString().split(System.lineSeparator());
-
-                for (int i = 0; i < finalStr.length; i++) {
-                    String[] parts = finalStr[i].split(",");
-                    String username = parts[0].toLowerCase();
-                    int seconds = 0;
-                    int points = 0;
-
-                    try {
-                        seconds = Integer.parseInt(parts[1]);
-                    } catch (NumberFormatException ex) {
-                        com.gmt2001.Console.out.println("Failed to parse seconds number: " + parts[1]);
-                        continue;
-                    }
-
-                    try {
-                        points = Integer.parseInt(parts[2]);
-                    } catch (NumberFormatException ex) {
-                        com.gmt2001.Console.out.println("Failed to parse points number: " + parts[2]);
-                        continue;
-                    }
-
-                    PhantomBot.instance().getDataStore().incr("points", username, points);
-                    PhantomBot.instance().getDataStore().incr("time", username, seconds);
-                    com.gmt2001.Console.out.println(
-                            "[IMPORTED] " + username + " -- Points (" + points + ") -- Time (" + seconds + ")");
-                }
-            } catch (IOException ex) {
-                com.gmt2001.Console.err.println(ex);
+            } catch (IOException | DataAccessException ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
             }
             return;
         }
@@ -332,9 +292,11 @@ public final class ConsoleEventHandler implements Listener {
             String timestamp = LocalDateTime.now(PhantomBot.getTimeZoneId())
                     .format(DateTimeFormatter.ofPattern("ddMMyyyy.hhmmss"));
 
-            Datastore2.instance().backup("phantombot.manual.backup." + timestamp + ".db");
-            com.gmt2001.Console.out.println(
-                    "[CONSOLE] Created database backup at ./dbbackup/phantombot.manual.backup." + timestamp + ".db");
+            ExecutorService.execute(() -> {
+                Datastore2.instance().backup("phantombot.manual.backup." + timestamp + ".db");
+                com.gmt2001.Console.out.println(
+                        "[CONSOLE] Created database backup at ./dbbackup/phantombot.manual.backup." + timestamp + ".db");
+            });
             return;
         }
 
@@ -927,6 +889,41 @@ public final class ConsoleEventHandler implements Listener {
             com.gmt2001.Console.out.println("Thread Dump Completed");
         }
 
+        /**
+         * @consolecommand benchmark [name] - Runs a built-in micro-benchmark. Available: commands, config, customapi, emotes, eventsub, helixcache, phrases, presence, tags
+         */
+        if (message.equalsIgnoreCase("benchmark")) {
+            if (argument == null || argument.length < 1 || argument[0].isBlank()) {
+                com.gmt2001.Console.out.println("Usage: benchmark [name]. Available: commands, config, customapi, emotes, eventsub, helixcache, phrases, presence, tags");
+                return;
+            }
+
+            final String name = argument[0].toLowerCase();
+            ExecutorService.execute(() -> this.benchmark(name));
+            return;
+        }
+
+        /**
+         * @consolecommand startuptimes - Prints the wall and CPU time taken by each startup phase and script
+         */
+        if (message.equalsIgnoreCase("startuptimes")) {
+            StartupManager.instance().report().forEach(com.gmt2001.Console.out::println);
+            return;
+        }
+
+        /**
+         * @consolecommand chatqueue - Prints the pending messages, counters, and queue latency of each priority class of the outbound chat queue
+         */
+        if (message.equalsIgnoreCase("chatqueue")) {
+            if (PhantomBot.instance().getSession() == null) {
+                com.gmt2001.Console.out.println("[CONSOLE] Not connected to chat");
+                return;
+            }
+
+            PhantomBot.instance().getSession().report().forEach(com.gmt2001.Console.out::println);
+            return;
+        }
+
         if (message.equalsIgnoreCase("paneluser")) {
             if (argument != null && argument.length > 1 && !argument[0].isBlank() && !argument[1].isBlank()) {
                 /**
@@ -989,14 +986,15 @@ public final class ConsoleEventHandler implements Listener {
         }
 
         /**
-         * @consolecommand convertdb (old db type) - Converts an existing DB to the
+         * @consolecommand convertdb (old db type) [restart] - Converts an existing DB to the
          *                 current DB type. Parameter should be one of: H2, MySQL,
-         *                 MariaDB, SQLite
+         *                 MariaDB, SQLite. An interrupted conversion is resumed unless
+         *                 restart is specified
          */
         if (message.equalsIgnoreCase("convertdb")) {
             if (argument == null || argument.length == 0 || argument[0].isBlank()
                     || !List.of("h2", "mysql", "mariadb", "sqlite").contains(argument[0].toLowerCase())) {
-                com.gmt2001.Console.err.println("[convertdb] Usage: convertdb (oldDBType)");
+                com.gmt2001.Console.err.println("[convertdb] Usage: convertdb (oldDBType) [restart]");
                 com.gmt2001.Console.err.println(
                         "[convertdb] Must specify the old DB type to convert from: H2, MySQL, MariaDB, or SQLite");
                 return;
@@ -1040,8 +1038,14 @@ public final class ConsoleEventHandler implements Listener {
                     return;
             }
 
+            boolean resume = !(argument.length > 1 && argument[1].equalsIgnoreCase("restart"))
+                    && Datastore2Converter.hasCheckpoint(oldtype, datastoretype);
+
             try {
-                if (olddb.supportsBackup()) {
+                if (resume) {
+                    com.gmt2001.Console.out.println("[convertdb] Found a checkpoint from an interrupted conversion, resuming. Use convertdb "
+                            + oldtype + " restart to start over");
+                } else if (olddb.supportsBackup()) {
                     try {
                         com.gmt2001.Console.out
                                 .println("[convertdb] Creating a backup of the " + oldtype + " DB before starting...");
@@ -1050,7 +1054,7 @@ public final class ConsoleEventHandler implements Listener {
                         com.gmt2001.Console.err.printStackTrace(ex);
                     }
                 }
-                if (newdb.supportsBackup()) {
+                if (!resume && newdb.supportsBackup()) {
                     try {
                         com.gmt2001.Console.out
                                 .println(
@@ -1060,79 +1064,10 @@ public final class ConsoleEventHandler implements Listener {
                         com.gmt2001.Console.err.printStackTrace(ex);
                     }
                 }
-                olddb.tables().stream()
-                        .filter(t -> t.getName().toLowerCase().startsWith(DataStore.PREFIX.toLowerCase())
-                                || t.getName().toLowerCase().startsWith(Datastore2.PREFIX.toLowerCase()))
-                        .forEach(oldtable -> {
-                            com.gmt2001.Console.out
-                                    .println("[convertdb] Converting table " + oldtable.getName() + "...");
-                            try {
-                                Optional<Table<?>> onewtable = newdb.tables().stream()
-                                        .filter(t -> t.getName().equalsIgnoreCase(oldtable.getName())).findFirst();
-                                if (!onewtable.isPresent()) {
-                                    CreateTableElementListStep cr = newdb.dslContext()
-                                            .createTableIfNotExists(oldtable.getName());
-                                    org.jooq.Field<?>[] fields = oldtable.fields();
-                                    for (org.jooq.Field<?> field : fields) {
-                                        DataType<?> type = field.getDataType();
-                                        if (type.getSQLDataType() == SQLDataType.VARCHAR && type.length() > 2000) {
-                                            cr.column(field.getName(), Datastore2.instance().longTextDataType());
-                                        } else {
-                                            cr.column(field);
-                                        }
-                                    }
-                                    UniqueKey<?> primaryKey = oldtable.getPrimaryKey();
-                                    if (primaryKey != null && !primaryKey.getFields().isEmpty()) {
-                                        cr = cr.primaryKey(primaryKey.getFields());
-                                    }
-                                    com.gmt2001.Console.debug.println(cr.getSQL());
-                                    cr.execute();
-                                    List<Index> indexes = oldtable.getIndexes();
-                                    if (!indexes.isEmpty()) {
-                                        indexes.forEach(index -> {
-                                            CreateIndexStep cii;
-                                            if (index.getUnique()) {
-                                                cii = newdb.dslContext().createUniqueIndexIfNotExists(index.getName());
-                                            } else {
-                                                cii = newdb.dslContext().createIndexIfNotExists(index.getName());
-                                            }
-                                            CreateIndexIncludeStep ci = cii.on(oldtable.getName(),
-                                                    index.getFields().stream().map(f -> f.getName()).toList());
-                                            DDLQuery cid = ci;
-                                            if (index.getWhere() != null) {
-                                                cid = ci.where(index.getWhere());
-                                            }
-                                            cid.execute();
-                                        });
-                                    }
-                                    newdb.invalidateTableCache();
-                                    onewtable = newdb.tables().stream()
-                                            .filter(t -> t.getName().equalsIgnoreCase(oldtable.getName())).findFirst();
-                                }
-                                final Table<?> newtable = onewtable.get();
-                                newdb.dslContext().transaction(c -> {
-                                    try {
-                                        c.dsl().deleteFrom(newtable).execute();
-                                        olddb.dslContext()
-                                                .selectFrom(oldtable).fetch().stream().forEach(oldrecord -> {
-                                                    try {
-                                                        final org.jooq.Record newrecord = newdb.dslContext()
-                                                                .newRecord(newtable);
-                                                        newrecord.fromArray(oldrecord.intoArray());
-                                                        newrecord.changed(true);
-                                                        c.dsl().insertInto(newtable).set(newrecord).execute();
-                                                    } catch (Exception ex) {
-                                                        com.gmt2001.Console.err.printStackTrace(ex);
-                                                    }
-                                                });
-                                    } catch (Exception ex) {
-                                        com.gmt2001.Console.err.printStackTrace(ex);
-                                    }
-                                });
-                            } catch (Exception ex) {
-                                com.gmt2001.Console.err.printStackTrace(ex);
-                            }
-                        });
+                if (!new Datastore2Converter(olddb, oldtype, newdb, datastoretype).resume(resume).convert()) {
+                    return;
+                }
+
                 for (int i = 0; i < 5; i++) {
                     com.gmt2001.Console.out.println("");
                     com.gmt2001.Console.out.println("[convertdb] Conversion complete...");
@@ -1168,4 +1103,326 @@ public final class ConsoleEventHandler implements Listener {
             PhantomBot.instance().handleCommand(botname, event.getMessage());
         }
     }
+
+    /**
+     * Runs a built-in micro-benchmark and prints the results
+     *
+     * @param name the name of the benchmark
+     */
+    private void benchmark(String name) {
+        Thread.currentThread().setName("tv.phantombot.console.ConsoleEventHandler::benchmark");
+        List<String> results = new ArrayList<>();
+        switch (name) {
+            case "commands":
+                // The database reads performed by the init.js command pipeline for a priced command, against the live database
+                DataStore ds = DataStore.instance();
+                List<String> allCommands = new ArrayList<>(List.of(ds.GetKeyList("pricecom", "")));
+                allCommands.addAll(List.of(ds.GetKeyList("paycom", "")));
+                allCommands.add("points");
+                List<String> commands = allCommands.subList(0, Math.min(allCommands.size(), 20));
+                results.add(Benchmark.run("DataStore per-command reads", 20, 200, () -> {
+                    long acc = 0L;
+                    for (String command : commands) {
+                        acc += ds.HasKey("pricecom", "", command) ? 1 : 0;
+                        acc += ds.GetBoolean("settings", "", "pricecomMods", false) ? 1 : 0;
+                        acc += ds.OptLong("pricecom", "", command + "  ").orElse(0L);
+                        acc += ds.OptLong("pricecom", "", command + " ").orElse(0L);
+                        acc += ds.OptLong("pricecom", "", command).orElse(0L);
+                        acc += ds.GetBoolean("settings", "", "priceComMsgEnabled", false) ? 1 : 0;
+                        acc += ds.HasKey("paycom", "", command) ? 1 : 0;
+                        acc += ds.GetLong("paycom", "", command, 0L);
+                    }
+                    return acc;
+                }));
+                results.add(Benchmark.run("CommandPolicyCache per-command reads", 1000, 100000, () -> {
+                    long acc = 0L;
+                    for (String command : commands) {
+                        CommandPolicyCache.CommandPolicy policy = CommandPolicyCache.instance().get(command, "");
+                        acc += (policy.isPriced() ? 1 : 0) + (policy.pricecomMods() ? 1 : 0) + policy.price()
+                            + (policy.priceComMsgEnabled() ? 1 : 0) + (policy.isPaid() ? 1 : 0) + policy.pay();
+                    }
+                    return acc;
+                }));
+                results.add(commands.size() + " commands per operation");
+                break;
+            case "config":
+                // The config reads performed for each chat message and each log line
+                results.add(Benchmark.run("CaselessProperties per-message reads", 100000, 1000000, () -> {
+                    CaselessProperties props = CaselessProperties.instance();
+                    return (props.getPropertyAsBoolean("printtwitchchattoconsole", true) ? 1 : 0)
+                        + (props.getPropertyAsBoolean("ircdebug", false) ? 1 : 0)
+                        + props.getProperty("logtimezone", "GMT").length()
+                        + props.getProperty("oauth", "").length()
+                        + props.getPropertyAsInt("baseport", 25000);
+                }));
+                results.add(Benchmark.run("ConfigSnapshot per-message reads", 100000, 1000000, () -> {
+                    ConfigSnapshot props = CaselessProperties.instance().snapshot();
+                    return (props.getPropertyAsBoolean("printtwitchchattoconsole", true) ? 1 : 0)
+                        + (props.getPropertyAsBoolean("ircdebug", false) ? 1 : 0)
+                        + props.getProperty("logtimezone", "GMT").length()
+                        + props.getProperty("oauth", "").length()
+                        + props.getPropertyAsInt("baseport", 25000);
+                }));
+                break;
+            case "emotes":
+                // Counting third-party emotes in a chat message with 5,000 emote codes loaded
+                Random random = new Random(5000L);
+                List<String> codes = new ArrayList<>();
+                while (codes.size() < 5000) {
+                    StringBuilder code = new StringBuilder();
+                    int len = 3 + random.nextInt(10);
+                    for (int i = 0; i < len; i++) {
+                        code.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26)));
+                    }
+                    codes.add(code.toString());
+                }
+                String message = "hello everyone " + codes.get(42) + " this stream is great " + codes.get(4000) + " " + codes.get(4000)
+                    + " lets go chat, what a play " + codes.get(1234) + "! gg wp";
+                StringBuilder regex = new StringBuilder();
+                for (String code : codes) {
+                    regex.append(regex.length() == 0 ? "" : "|").append("\\b").append(Pattern.quote(code)).append("\\b");
+                }
+                Pattern[] pattern = new Pattern[1];
+                EmoteMatcher[] matcher = new EmoteMatcher[1];
+                results.add(Benchmark.once("Regex compile", () -> pattern[0] = Pattern.compile(regex.toString())));
+                results.add(Benchmark.once("EmoteMatcher build", () -> matcher[0] = EmoteMatcher.build(codes)));
+                results.add(Benchmark.run("Regex count", 50, 500, () -> {
+                    java.util.regex.Matcher m = pattern[0].matcher(message);
+                    long count = 0L;
+                    while (m.find()) {
+                        count++;
+                    }
+                    return count;
+                }));
+                results.add(Benchmark.run("EmoteMatcher count", 1000, 10000, () -> matcher[0].count(message)));
+                break;
+            case "customapi":
+                // Coalesced, cached, and host-limited $.customAPI requests against a local stub server, on a private instance
+                try {
+                    results.addAll(CustomAPIBenchmark.run());
+                } catch (IOException ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                    return;
+                }
+                break;
+            case "helixcache":
+                // Not a benchmark: checks the Helix response cache against a local fake Helix server
+                try {
+                    results.addAll(HelixResponseCacheCheck.run());
+                } catch (IOException ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                    return;
+                }
+                break;
+            case "phrases":
+                // Checking a chat message against 500 literal and 50 regex blacklist phrases, none of which match
+                Random phraseRandom = new Random(550L);
+                List<String> literals = new ArrayList<>();
+                List<Pattern> regexes = new ArrayList<>();
+                PhraseMatcher.Builder builder = PhraseMatcher.builder();
+                for (int i = 0; i < 550; i++) {
+                    StringBuilder phrase = new StringBuilder();
+                    int len = 4 + phraseRandom.nextInt(8);
+                    for (int c = 0; c < len; c++) {
+                        phrase.append((char) ('a' + phraseRandom.nextInt(26)));
+                    }
+                    if (i < 500) {
+                        literals.add(phrase.toString());
+                        builder.literal(phrase.toString(), true, PhraseMatcher.Mode.SUBSTRING);
+                    } else {
+                        regexes.add(Pattern.compile(phrase + "\\d+"));
+                        builder.regex(phrase + "\\d+", true);
+                    }
+                }
+                PhraseMatcher phraseMatcher = builder.build();
+                String chat = "hello everyone this stream is great lets go chat, what a play! gg wp see you all next time";
+                results.add(Benchmark.run("Per-phrase loop", 1000, 20000, () -> {
+                    for (String literal : literals) {
+                        if (chat.contains(literal)) {
+                            return 1L;
+                        }
+                    }
+                    for (Pattern phraseRegex : regexes) {
+                        if (phraseRegex.matcher(chat).find()) {
+                            return 1L;
+                        }
+                    }
+                    return 0L;
+                }));
+                results.add(Benchmark.run("PhraseMatcher first", 1000, 20000, () -> phraseMatcher.first(chat)));
+                break;
+            case "eventsub":
+                // 10 minutes of EventSub notifications at 10k/minute, on a simulated clock, with every tenth message redelivered
+                int messages = 100000;
+                long messageNanos = TimeUnit.MINUTES.toNanos(1) / 10000;
+                List<String> messageIds = new ArrayList<>(messages);
+                for (int i = 0; i < messages; i++) {
+                    messageIds.add(UUID.randomUUID().toString());
+                }
+                results.add(Benchmark.run("ConcurrentHashMap with 2 minute sweep", 2, 10, () -> {
+                    ConcurrentHashMap<String, Long> handled = new ConcurrentHashMap<>();
+                    long window = TimeUnit.MINUTES.toNanos(10);
+                    long sweep = TimeUnit.MINUTES.toNanos(2);
+                    long nextSweep = sweep;
+                    long duplicates = 0L;
+                    for (int i = 0; i < messages; i++) {
+                        long now = i * messageNanos;
+                        if (now >= nextSweep) {
+                            handled.forEach((id, ts) -> {
+                                if (now - ts > window) {
+                                    handled.remove(id);
+                                }
+                            });
+                            nextSweep += sweep;
+                        }
+                        if (handled.putIfAbsent(messageIds.get(i % 10 == 9 ? i - 5 : i), now) != null) {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                }));
+                results.add(Benchmark.run("ExpiringIdSet", 2, 10, () -> {
+                    long[] now = new long[] { 0L };
+                    ExpiringIdSet handled = new ExpiringIdSet(Duration.ofMinutes(10), 10, () -> now[0]);
+                    long duplicates = 0L;
+                    for (int i = 0; i < messages; i++) {
+                        now[0] = i * messageNanos;
+                        if (!handled.add(messageIds.get(i % 10 == 9 ? i - 5 : i))) {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                }));
+                break;
+            case "presence":
+                // A 2000 viewer raid joining, being refreshed by 10 chatter list updates, then parting, against scratch tables
+                DataStore presenceDs = DataStore.instance();
+                List<String> raiders = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    raiders.add("benchmark_raider_" + i);
+                }
+                List<List<String>> waves = new ArrayList<>();
+                waves.add(raiders);
+                for (int i = 0; i < 10; i++) {
+                    waves.add(raiders.subList(i * 50, raiders.size() - (i * 50)));
+                }
+                waves.add(raiders);
+                AtomicLong directWrites = new AtomicLong(0L);
+                results.add(Benchmark.once("Per-user writes", () -> {
+                    for (List<String> wave : waves) {
+                        String now = Long.toString(System.currentTimeMillis());
+                        for (String login : wave) {
+                            presenceDs.SetString("benchmark_lastseen_direct", "", login, now);
+                            directWrites.incrementAndGet();
+                            if (!presenceDs.HasKey("benchmark_visited_direct", "", login)) {
+                                presenceDs.SetString("benchmark_visited_direct", "", login, "true");
+                                directWrites.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+                PresenceCache presence = PresenceCache.scratch("benchmark_lastseen", "benchmark_visited");
+                AtomicLong misses = new AtomicLong(0L);
+                AtomicBoolean replaying = new AtomicBoolean(true);
+                // Reads the raiders while the flushes run; every one of them has been recorded, so any miss means a read fell between the
+                // pending updates and the database
+                Thread reader = new Thread(() -> {
+                    int i = 0;
+                    while (replaying.get()) {
+                        String login = raiders.get(i++ % raiders.size());
+                        if (presence.lastSeen(login).isEmpty() || !presence.isKnown(login)) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                });
+                results.add(Benchmark.once("PresenceCache", () -> {
+                    presence.seen(raiders);
+                    presence.visited(raiders);
+                    reader.start();
+                    presence.flush();
+                    for (List<String> wave : waves.subList(1, waves.size())) {
+                        presence.seen(wave);
+                        presence.visited(wave);
+                        presence.flush();
+                    }
+                }));
+                replaying.set(false);
+                try {
+                    reader.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                results.add(String.format("%d updates: per-user %d writes, PresenceCache %d rows written in at most %d batches, %d reads missed during flushes",
+                    presence.updates(), directWrites.get(), presence.writes(), waves.size() * 2, misses.get()));
+                for (String table : List.of("benchmark_lastseen_direct", "benchmark_visited_direct", "benchmark_lastseen", "benchmark_visited")) {
+                    presenceDs.RemoveFile(table);
+                }
+                break;
+            case "tags":
+                // 100 custom commands arriving together, one of which calls a custom API that takes 2 seconds to respond
+                TagEngine.Invoker transformers = (tag, argsep, args) -> {
+                    try {
+                        switch (tag) {
+                            case "sender":
+                                return Map.of("result", "viewer");
+                            case "points":
+                                Thread.sleep(1);
+                                return Map.of("result", "1500");
+                            case "slowapi":
+                                Thread.sleep(2000);
+                                return Map.of("result", "response");
+                            default:
+                                return null;
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                };
+                ReentrantLock globalLock = new ReentrantLock();
+                TagEngine.Invoker globallyLocked = (tag, argsep, args) -> {
+                    globalLock.lock();
+                    try {
+                        return transformers.invoke(tag, argsep, args);
+                    } finally {
+                        globalLock.unlock();
+                    }
+                };
+                List<String> localTags = List.of("sender", "points", "slowapi");
+                for (TagEngine.Invoker invoker : List.of(globallyLocked, transformers)) {
+                    long start = System.nanoTime();
+                    long[] doneAt = new long[100];
+                    List<Thread> running = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        final int command = i;
+                        String response = command == 0 ? "(sender) -> (slowapi https://example.com)" : "(sender) has (points) points";
+                        Thread thread = new Thread(() -> {
+                            TagEngine.instance().evaluate(response, invoker, localTags);
+                            doneAt[command] = System.nanoTime() - start;
+                        });
+                        thread.start();
+                        running.add(thread);
+                    }
+                    for (Thread thread : running) {
+                        try {
+                            thread.join();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    long fastMax = 0L;
+                    for (int i = 1; i < doneAt.length; i++) {
+                        fastMax = Math.max(fastMax, doneAt[i]);
+                    }
+                    results.add(String.format("%s: slowest of the 99 fast commands %d ms, slow command %d ms", invoker == globallyLocked ? "Global transformer lock"
+                        : "TagEngine", TimeUnit.NANOSECONDS.toMillis(fastMax), TimeUnit.NANOSECONDS.toMillis(doneAt[0])));
+                }
+                break;
+            default:
+                com.gmt2001.Console.out.println("[CONSOLE] Unknown benchmark: " + name);
+                return;
+        }
+
+        results.forEach(line -> com.gmt2001.Console.out.println("[CONSOLE] [benchmark] " + line));
+    }
 }
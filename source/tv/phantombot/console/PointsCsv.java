@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.console;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jooq.Cursor;
+import org.jooq.Field;
+import org.jooq.Record3;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.SectionVariableValueRecord;
+import com.gmt2001.datastore.SectionVariableValueTable;
+import com.gmt2001.datastore2.Datastore2;
+import com.gmt2001.datastore2.MySQLStore2;
+
+/**
+ * Streams the {@code points} and {@code time} tables to and from a CSV file in the format {@code Username,Seconds,Points}
+ * <p>
+ * Exported fields are quoted, with quotes inside them doubled. Imported fields may be quoted or not
+ * <p>
+ * Used by the {@code exportpoints} and {@code importpoints} console commands
+ *
+ * @author gmt2001
+ */
+public final class PointsCsv {
+
+    /**
+     * The header line of the CSV file
+     */
+    public static final String HEADER = "Username,Seconds,Points";
+    private static final int BATCH_SIZE = 5000;
+    private static final int PROGRESS_INTERVAL = 50000;
+
+    private PointsCsv() {
+    }
+
+    /**
+     * Writes every user in the {@code points} table, with their time and points, to a CSV file
+     * <p>
+     * The rows are read with one query joining {@code points} to {@code time}, and are written as they are read
+     *
+     * @param file the file to write
+     * @return the number of users written
+     * @throws IOException if writing the file fails
+     */
+    public static long export(Path file) throws IOException {
+        SectionVariableValueTable points = SectionVariableValueTable.instance(DataStore.PREFIX + "points", false);
+        SectionVariableValueTable time = SectionVariableValueTable.instance(DataStore.PREFIX + "time", false);
+        long start = System.nanoTime();
+        long rows = 0L;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+
+            if (points == null) {
+                return rows;
+            }
+
+            Table<SectionVariableValueRecord> p = points.as("p");
+            Field<String> pVariable = p.field(points.VARIABLE);
+            Field<String> pSection = p.field(points.SECTION);
+            Field<String> pValue = p.field(points.VALUE);
+            Field<String> seconds;
+            Table<?> from;
+
+            if (time != null) {
+                Table<SectionVariableValueRecord> t = time.as("t");
+                seconds = DSL.coalesce(t.field(time.VALUE), DSL.inline("0"));
+                from = p.leftJoin(t).on(t.field(time.VARIABLE).eq(pVariable), t.field(time.SECTION).eq(""));
+            } else {
+                seconds = DSL.inline("0");
+                from = p;
+            }
+
+            try (Cursor<Record3<String, String, String>> cursor = DataStore.instance().dsl().select(pVariable, seconds, pValue)
+                .from(from).where(pSection.eq("")).fetchSize(fetchSize()).fetchLazy()) {
+                for (Record3<String, String, String> record : cursor) {
+                    writer.write(quote(record.value1()));
+                    writer.write(',');
+                    writer.write(quote(String.valueOf(record.value2())));
+                    writer.write(',');
+                    writer.write(quote(String.valueOf(record.value3())));
+                    writer.write('\n');
+                    rows++;
+
+                    if (rows % PROGRESS_INTERVAL == 0) {
+                        progress("exportpoints", rows, start);
+                    }
+                }
+            }
+        }
+
+        done("exportpoints", rows, start);
+        return rows;
+    }
+
+    /**
+     * Adds the time and points in a CSV file to the {@code time} and {@code points} tables
+     * <p>
+     * The file is parsed one line at a time, and the increases are applied in batches using atomic increments, with both tables in one
+     * transaction per batch. Lines which can not be parsed are reported and skipped
+     *
+     * @param file the file to read
+     * @return the number of lines imported; {@code -1} if the header is incorrect
+     * @throws IOException if reading the file fails
+     */
+    public static long importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0L;
+        List<String> users = new ArrayList<>(BATCH_SIZE);
+        long[] seconds = new long[BATCH_SIZE];
+        long[] amounts = new long[BATCH_SIZE];
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+
+            if (line == null || !line.trim().equalsIgnoreCase(HEADER)) {
+                return -1L;
+            }
+
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                List<String> parts = fields(line);
+                if (parts.size() < 3 || parts.get(0).isBlank()) {
+                    com.gmt2001.Console.out.println("Skipping line " + lineNumber + ", expected (Username,Seconds,Points): " + line);
+                    continue;
+                }
+
+                int i = users.size();
+                try {
+                    seconds[i] = Long.parseLong(parts.get(1).trim());
+                } catch (NumberFormatException ex) {
+                    com.gmt2001.Console.out.println("Skipping line " + lineNumber + ", failed to parse seconds number: " + parts.get(1));
+                    continue;
+                }
+
+                try {
+                    amounts[i] = Long.parseLong(parts.get(2).trim());
+                } catch (NumberFormatException ex) {
+                    com.gmt2001.Console.out.println("Skipping line " + lineNumber + ", failed to parse points number: " + parts.get(2));
+                    continue;
+                }
+
+                users.add(parts.get(0).trim().toLowerCase());
+                rows++;
+
+                if (users.size() == BATCH_SIZE) {
+                    apply(users, seconds, amounts);
+                    users.clear();
+                }
+
+                if (rows % PROGRESS_INTERVAL == 0) {
+                    progress("importpoints", rows, start);
+                }
+            }
+        }
+
+        if (!users.isEmpty()) {
+            apply(users, seconds, amounts);
+        }
+
+        done("importpoints", rows, start);
+        return rows;
+    }
+
+    private static void apply(List<String> users, long[] seconds, long[] amounts) {
+        Map<String, Long> points = new LinkedHashMap<>();
+        Map<String, Long> time = new LinkedHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            points.merge(users.get(i), amounts[i], Long::sum);
+            time.merge(users.get(i), seconds[i], Long::sum);
+        }
+
+        // One transaction for both tables, so a failed batch changes neither and the file can be imported again without counting it twice
+        DataStore.instance().IncreaseBatchLong("", Map.of("points", points, "time", time));
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Splits a CSV line into its fields, removing the quotes around quoted fields and undoubling the quotes inside them
+     */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int fetchSize() {
+        return Datastore2.instance() instanceof MySQLStore2 ? Integer.MIN_VALUE : BATCH_SIZE;
+    }
+
+    private static void progress(String name, long rows, long start) {
+        com.gmt2001.Console.out.println("[CONSOLE] " + name + ": " + rows + " rows (" + rate(rows, start) + " rows/s)");
+    }
+
+    private static void done(String name, long rows, long start) {
+        com.gmt2001.Console.out.println(String.format("[CONSOLE] %s: %d rows in %.1f s (%d rows/s)", name, rows, (System.nanoTime() - start) / 1_000_000_000.0,
+            rate(rows, start)));
+    }
+
+    private static long rate(long rows, long start) {
+        long elapsed = Math.max(1L, System.nanoTime() - start);
+        return rows * 1_000_000_000L / elapsed;
+    }
+}
@@ -30,6 +30,7 @@ import discord4j.core.event.domain.VoiceStateUpdateEvent;
 import discord4j.core.event.domain.guild.GuildCreateEvent;
 import discord4j.core.event.domain.guild.MemberJoinEvent;
 import discord4j.core.event.domain.guild.MemberLeaveEvent;
+import discord4j.core.event.domain.guild.MemberUpdateEvent;
 import discord4j.core.event.domain.lifecycle.DisconnectEvent;
 import discord4j.core.event.domain.lifecycle.ReadyEvent;
 import discord4j.core.event.domain.message.MessageCreateEvent;
@@ -72,6 +73,7 @@ import reactor.retry.Retry;
 import reactor.util.concurrent.Queues;
 import tv.phantombot.CaselessProperties;
 import tv.phantombot.PhantomBot;
+import tv.phantombot.discord.util.DiscordMemberIndex;
 import tv.phantombot.discord.util.DiscordUtil;
 import tv.phantombot.event.EventBus;
 import tv.phantombot.event.discord.channel.DiscordChannelCommandEvent;
@@ -253,6 +255,7 @@ public class DiscordAPI extends DiscordUtil {
                 dispatcher.on(GuildCreateEvent.class).doOnNext(event -> DiscordEventListener.onDiscordGuildCreateEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("GuildCreateEvent disconnected due to " + s.name())).then()).and(
                 dispatcher.on(MessageCreateEvent.class).doOnNext(event -> DiscordEventListener.onDiscordMessageEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("MessageCreateEvent disconnected due to " + s.name())).then()).and(
                 dispatcher.on(MemberJoinEvent.class).doOnNext(event -> DiscordEventListener.onDiscordUserJoinEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("MemberJoinEvent disconnected due to " + s.name())).then()).and(
+                dispatcher.on(MemberUpdateEvent.class).doOnNext(event -> DiscordEventListener.onDiscordMemberUpdateEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("MemberUpdateEvent disconnected due to " + s.name())).then()).and(
                 dispatcher.on(MemberLeaveEvent.class).doOnNext(event -> DiscordEventListener.onDiscordUserLeaveEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("MemberLeaveEvent disconnected due to " + s.name())).then()).and(
                 dispatcher.on(RoleCreateEvent.class).doOnNext(event -> DiscordEventListener.onDiscordRoleCreateEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("RoleCreateEvent disconnected due to " + s.name())).then()).and(
                 dispatcher.on(RoleUpdateEvent.class).doOnNext(event -> DiscordEventListener.onDiscordRoleUpdateEvent(event)).onErrorContinue((e, o) -> com.gmt2001.Console.err.printStackTrace(e)).retry().doFinally((s) -> com.gmt2001.Console.debug.println("RoleUpdateEvent disconnected due to " + s.name())).then()).and(
@@ -351,6 +354,9 @@ public class DiscordAPI extends DiscordUtil {
                     if (snowflake != null && snowflake.asLong() > 0L) {
                         com.gmt2001.Console.out.println("[Discord] Guild ID updated to " + snowflake.asLong() + ": " + guild.getName());
                         DiscordAPI.guildId = snowflake;
+                        if (DiscordMemberIndex.instance().guildId() != snowflake.asLong()) {
+                            indexMembers(guild);
+                        }
                     }
                 }
             } catch (Exception e) {
@@ -359,6 +365,26 @@ public class DiscordAPI extends DiscordUtil {
         }
     }
 
+    /**
+     * Indicates if the guild is the one the bot is using, without trying to request the Guild ID if it is not known yet
+     *
+     * @param id the id of the guild
+     * @return {@code true} if the guild is the one in use
+     */
+    private static boolean isSelectedGuild(long id) {
+        Snowflake selected = DiscordAPI.guildId;
+        return id > 0L && selected != null && selected.asLong() == id;
+    }
+
+    private static void indexMembers(Guild guild) {
+        long id = getGuildId(guild);
+        guild.getMembers().collectList().doOnSuccess(l -> {
+            if (isSelectedGuild(id)) {
+                DiscordMemberIndex.instance().reset(id, l);
+            }
+        }).doOnError(e -> com.gmt2001.Console.err.printStackTrace(e)).subscribe();
+    }
+
     private static long getTargetGuildId() {
         return CaselessProperties.instance().containsKey("discord_guildid") ? CaselessProperties.instance().getPropertyAsLong("discord_guildid", 0L) : -1L;
     }
@@ -459,6 +485,8 @@ public class DiscordAPI extends DiscordUtil {
                 DiscordAPI.instance().connectionState = ConnectionState.DISCONNECTED;
                 DiscordAPI.instance().nextReconnect = Instant.now().plusSeconds(30);
             }
+            // Member and role events are missed while disconnected, so the flags are resolved again once reconnected
+            DiscordMemberIndex.instance().invalidateAdministrators();
             if (event.getStatus().getCode() > 1000) {
                 if (event.getStatus().getCode() == 4014) {
                     com.gmt2001.Console.err.println("Discord rejected privileged intents (" + event.getStatus().getCode() + (event.getStatus().getReason().isPresent() ? " " + event.getStatus().getReason().get() : "") + ")...");
@@ -542,6 +570,9 @@ public class DiscordAPI extends DiscordUtil {
                 }
                 Mono.delay(Duration.ofMillis(250)).block();
             }
+            if (isSelectedGuild(getGuildId(event.getGuild()))) {
+                indexMembers(event.getGuild());
+            }
             Optional.ofNullable(event.getGuild().getRoles()).map(Flux<Role>::collectList).orElseGet(() -> {
                 return Flux.<Role>empty().collectList();
             }).doOnSuccess(l -> EventBus.instance().postAsync(new DiscordGuildCreateEvent(l))).subscribe();
@@ -626,14 +657,31 @@ public class DiscordAPI extends DiscordUtil {
             if (targetGuildId > 0L && targetGuildId != getGuildId(event.getGuildId())) {
                 return;
             }
+            if (isSelectedGuild(getGuildId(event.getGuildId()))) {
+                DiscordMemberIndex.instance().put(event.getMember());
+            }
             EventBus.instance().postAsync(new DiscordChannelJoinEvent(event.getMember()));
         }
 
+        public static void onDiscordMemberUpdateEvent(MemberUpdateEvent event) {
+            final long targetGuildId = getTargetGuildId();
+            if (targetGuildId > 0L && targetGuildId != getGuildId(event.getGuildId())) {
+                return;
+            }
+            if (isSelectedGuild(getGuildId(event.getGuildId()))) {
+                DiscordMemberIndex.instance().invalidateAdministrator(event.getMemberId().asLong());
+                event.getMember().doOnNext(m -> DiscordMemberIndex.instance().put(m)).doOnError(e -> com.gmt2001.Console.err.printStackTrace(e)).subscribe();
+            }
+        }
+
         public static void onDiscordUserLeaveEvent(MemberLeaveEvent event) {
             final long targetGuildId = getTargetGuildId();
             if (targetGuildId > 0L && targetGuildId != getGuildId(event.getGuildId())) {
                 return;
             }
+            if (isSelectedGuild(getGuildId(event.getGuildId()))) {
+                DiscordMemberIndex.instance().remove(event.getUser().getId().asLong());
+            }
             EventBus.instance().postAsync(new DiscordChannelPartEvent(event.getUser()));
         }
 
@@ -642,6 +690,7 @@ public class DiscordAPI extends DiscordUtil {
             if (targetGuildId > 0L && targetGuildId != getGuildId(event.getGuildId())) {
                 return;
             }
+            DiscordMemberIndex.instance().invalidateAdministrators();
             EventBus.instance().postAsync(new DiscordRoleCreatedEvent(event.getRole()));
         }
 
@@ -650,6 +699,7 @@ public class DiscordAPI extends DiscordUtil {
             if (targetGuildId > 0L && targetGuildId != getGuildId(event.getCurrent().getGuildId())) {
                 return;
             }
+            DiscordMemberIndex.instance().invalidateAdministrators();
             EventBus.instance().postAsync(new DiscordRoleUpdatedEvent(event.getCurrent()));
         }
 
@@ -658,6 +708,7 @@ public class DiscordAPI extends DiscordUtil {
             if (targetGuildId > 0L && targetGuildId != getGuildId(event.getGuildId())) {
                 return;
             }
+            DiscordMemberIndex.instance().invalidateAdministrators();
             Role role = event.getRole().get();
 
             if (role == null) {
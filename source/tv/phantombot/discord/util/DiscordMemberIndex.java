@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.discord.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import discord4j.core.object.entity.Member;
+
+/**
+ * An index of the members of the selected Discord guild, by id, lower-cased username, and lower-cased display name, with a cache of which members have the
+ * {@code ADMINISTRATOR} permission
+ * <p>
+ * The index is filled when the selected guild becomes available and kept up to date from the member join, update, and leave events. Since the base
+ * permissions of a member are derived from their roles, the administrator flags are dropped for a member when they are updated, and for everyone
+ * when a role is created, updated, or deleted
+ *
+ * @author gmt2001
+ */
+public final class DiscordMemberIndex {
+
+    private static final DiscordMemberIndex INSTANCE = new DiscordMemberIndex();
+    private final Map<Long, Member> byId = new HashMap<>();
+    private final Map<String, Set<Long>> byName = new HashMap<>();
+    private final Map<Long, Boolean> administrators = new ConcurrentHashMap<>();
+    private long guildId = 0L;
+    /**
+     * Incremented whenever the administrator flags are dropped, so that a flag which was being resolved at the time is not stored afterwards
+     */
+    private volatile long generation = 0L;
+
+    /**
+     * Provides an instance of {@link DiscordMemberIndex}
+     *
+     * @return an instance of {@link DiscordMemberIndex}
+     */
+    public static DiscordMemberIndex instance() {
+        return INSTANCE;
+    }
+
+    private DiscordMemberIndex() {
+    }
+
+    /**
+     * Replaces the contents of the index with the members of the guild
+     *
+     * @param guildId the id of the guild
+     * @param members the members of the guild
+     */
+    public synchronized void reset(long guildId, Collection<Member> members) {
+        this.guildId = guildId;
+        this.byId.clear();
+        this.byName.clear();
+        members.stream().filter(m -> m.getGuildId().asLong() == guildId).forEach(this::putInternal);
+        this.invalidateAdministrators();
+        com.gmt2001.Console.debug.println("Indexed " + this.byId.size() + " Discord members");
+    }
+
+    /**
+     * Adds or replaces a member
+     * <p>
+     * Members of any guild other than the indexed one are ignored
+     *
+     * @param member the member
+     */
+    public synchronized void put(Member member) {
+        if (member.getGuildId().asLong() != this.guildId) {
+            return;
+        }
+
+        this.removeInternal(member.getId().asLong());
+        this.putInternal(member);
+        this.invalidateAdministrator(member.getId().asLong());
+    }
+
+    /**
+     * Removes a member
+     *
+     * @param id the id of the member
+     */
+    public synchronized void remove(long id) {
+        this.removeInternal(id);
+        this.invalidateAdministrator(id);
+    }
+
+    /**
+     * Removes all members and administrator flags
+     */
+    public synchronized void clear() {
+        this.guildId = 0L;
+        this.byId.clear();
+        this.byName.clear();
+        this.invalidateAdministrators();
+    }
+
+    /**
+     * @return the id of the indexed guild; {@code 0} if not indexed
+     */
+    public synchronized long guildId() {
+        return this.guildId;
+    }
+
+    /**
+     * @return the number of indexed members
+     */
+    public synchronized int size() {
+        return this.byId.size();
+    }
+
+    /**
+     * Finds a member by id, mention, username, or display name
+     * <p>
+     * Names are matched case insensitively. If several members share the name, the first one indexed is returned
+     *
+     * @param userName the id, mention, username, or display name
+     * @return the member; an empty {@link Optional} if not indexed
+     */
+    public synchronized Optional<Member> find(String userName) {
+        long id = parseId(userName);
+        if (id > 0L) {
+            Member member = this.byId.get(id);
+            if (member != null) {
+                return Optional.of(member);
+            }
+        }
+
+        Set<Long> ids = this.byName.get(userName.toLowerCase());
+        if (ids == null || ids.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(this.byId.get(ids.iterator().next()));
+    }
+
+    /**
+     * Finds a member by id
+     *
+     * @param id the id
+     * @return the member; an empty {@link Optional} if not indexed
+     */
+    public synchronized Optional<Member> find(long id) {
+        return Optional.ofNullable(this.byId.get(id));
+    }
+
+    /**
+     * Returns the cached administrator flag of a member
+     *
+     * @param id the id of the member
+     * @return the flag; {@code null} if not cached
+     */
+    public Boolean isAdministrator(long id) {
+        return this.administrators.get(id);
+    }
+
+    /**
+     * @return the current generation of the administrator flags, to pass to {@link #cacheAdministrator(long, boolean, long)}
+     */
+    public long generation() {
+        return this.generation;
+    }
+
+    /**
+     * Caches the administrator flag of a member, unless the flags have been dropped since it was resolved
+     *
+     * @param id the id of the member
+     * @param isAdministrator the flag
+     * @param generation the value of {@link #generation()} from before the flag was resolved
+     */
+    public void cacheAdministrator(long id, boolean isAdministrator, long generation) {
+        synchronized (this.administrators) {
+            if (generation == this.generation) {
+                this.administrators.put(id, isAdministrator);
+            }
+        }
+    }
+
+    /**
+     * Drops the administrator flag of a member
+     *
+     * @param id the id of the member
+     */
+    public void invalidateAdministrator(long id) {
+        synchronized (this.administrators) {
+            this.generation++;
+            this.administrators.remove(id);
+        }
+    }
+
+    /**
+     * Drops the administrator flags of all members
+     */
+    public void invalidateAdministrators() {
+        synchronized (this.administrators) {
+            this.generation++;
+            this.administrators.clear();
+        }
+    }
+
+    private void putInternal(Member member) {
+        long id = member.getId().asLong();
+        this.byId.put(id, member);
+        this.index(member.getUsername(), id);
+        this.index(member.getDisplayName(), id);
+    }
+
+    private void removeInternal(long id) {
+        Member member = this.byId.remove(id);
+        if (member != null) {
+            this.unindex(member.getUsername(), id);
+            this.unindex(member.getDisplayName(), id);
+        }
+    }
+
+    private void index(String name, long id) {
+        if (name != null && !name.isEmpty()) {
+            this.byName.computeIfAbsent(name.toLowerCase(), k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private void unindex(String name, long id) {
+        if (name != null && !name.isEmpty()) {
+            Set<Long> ids = this.byName.get(name.toLowerCase());
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    this.byName.remove(name.toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a user id or mention, such as {@code 1234}, {@code <@1234>}, or {@code <@!1234>}
+     *
+     * @param userName the id or mention
+     * @return the id; {@code 0} if not an id or mention
+     */
+    private static long parseId(String userName) {
+        String id = userName;
+        if (id.startsWith("<@") && id.endsWith(">")) {
+            id = id.substring(id.startsWith("<@!") ? 3 : 2, id.length() - 1);
+        }
+
+        if (id.isEmpty() || id.length() > 20) {
+            return 0L;
+        }
+
+        for (int i = 0; i < id.length(); i++) {
+            if (!Character.isDigit(id.charAt(i))) {
+                return 0L;
+            }
+        }
+
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+}
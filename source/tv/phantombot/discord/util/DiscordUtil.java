@@ -792,22 +792,18 @@ public class DiscordUtil {
      * @return
      */
     public Mono<User> getUserAsync(String userName) {
-        Flux<Member> members = DiscordAPI.getGuild().getMembers();
-
-        if (PhantomBot.getEnableDebugging()) {
-            com.gmt2001.Console.debug.println(userName);
-            com.gmt2001.Console.debug.println(members.count().block());
+        Optional<Member> indexed = DiscordMemberIndex.instance().find(userName);
+        if (indexed.isPresent()) {
+            return Mono.just(indexed.get());
         }
 
-        Flux<Member> filteredMembers = members.filter(user -> user.getDisplayName().equalsIgnoreCase(userName) || user.getUsername().equalsIgnoreCase(userName) || user.getMention().equalsIgnoreCase(userName) || user.getNicknameMention().equalsIgnoreCase(userName) || user.getId().asString().equalsIgnoreCase(userName));
-
-        if (PhantomBot.getEnableDebugging()) {
-            com.gmt2001.Console.debug.println(filteredMembers.count().block());
-        }
+        com.gmt2001.Console.debug.println("Member index miss for " + userName);
 
-        return filteredMembers.take(1)
+        return DiscordAPI.getGuild().getMembers().filter(user -> user.getDisplayName().equalsIgnoreCase(userName) || user.getUsername().equalsIgnoreCase(userName) || user.getMention().equalsIgnoreCase(userName) || user.getNicknameMention().equalsIgnoreCase(userName) || user.getId().asString().equalsIgnoreCase(userName))
+                                .take(1)
                                 .singleOrEmpty()
                                 .switchIfEmpty(Mono.error(new NoSuchElementException("Unable to find userName [" + userName + "]")))
+                                .doOnNext(m -> DiscordMemberIndex.instance().put(m))
                                 .map(m -> (User) m)
                                 .doOnError(e -> com.gmt2001.Console.err.printStackTrace(e));
     }
@@ -824,7 +820,12 @@ public class DiscordUtil {
      */
     public Mono<User> getUserByIdAsync(long userId) {
         try {
-            return DiscordAPI.getGuild().getMembers().filter(user -> user.getId().asLong() == userId).take(1).single().map(m -> (User) m);
+            Optional<Member> indexed = DiscordMemberIndex.instance().find(userId);
+            if (indexed.isPresent()) {
+                return Mono.just(indexed.get());
+            }
+
+            return DiscordAPI.getGuild().getMembers().filter(user -> user.getId().asLong() == userId).take(1).single().doOnNext(m -> DiscordMemberIndex.instance().put(m)).map(m -> (User) m);
         } catch (NoSuchElementException ex) {
             com.gmt2001.Console.err.println("Unable to find userId [" + userId + "]");
             throw ex;
@@ -1161,7 +1162,16 @@ public class DiscordUtil {
     public Mono<Boolean> isAdministratorAsync(User user) {
         this.validateParams(user);
 
-        return user.asMember(DiscordAPI.getGuildId()).flatMap(m -> m.getBasePermissions()).map(ps -> ps != null && ps.contains(Permission.ADMINISTRATOR)).onErrorReturn(false);
+        long id = user.getId().asLong();
+        Boolean cached = DiscordMemberIndex.instance().isAdministrator(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        long generation = DiscordMemberIndex.instance().generation();
+        Mono<Member> member = user instanceof Member m && m.getGuildId().equals(DiscordAPI.getGuildId()) ? Mono.just(m) : user.asMember(DiscordAPI.getGuildId());
+        return member.flatMap(m -> m.getBasePermissions()).map(ps -> ps != null && ps.contains(Permission.ADMINISTRATOR))
+                .doOnNext(isAdmin -> DiscordMemberIndex.instance().cacheAdministrator(id, isAdmin, generation)).onErrorReturn(false);
     }
 
     /**
@@ -18,6 +18,7 @@ package tv.phantombot.event.irc.channel;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import com.gmt2001.twitch.cache.Viewer;
 import tv.phantombot.twitch.irc.TwitchSession;
@@ -28,15 +29,32 @@ import tv.phantombot.twitch.irc.TwitchSession;
  */
 public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     private final List<Viewer> chatters;
+    private final List<String> joins;
+    private final List<String> parts;
 
     /**
      * Constructor
+     * <p>
+     * All chatters are reported by {@link #joins()}
      *
      * @param chatters A list of login names for users who are currently in chat
      */
     public IrcChannelUsersUpdateEvent(List<Viewer> chatters) {
+        this(chatters, chatters.stream().map(Viewer::login).filter(login -> login != null).map(String::toLowerCase).collect(Collectors.toList()), List.of());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param chatters A list of login names for users who are currently in chat
+     * @param joins The lower case logins of users who are in chat now, but were not in the previous update
+     * @param parts The lower case logins of users who were in chat in the previous update, but are not now
+     */
+    public IrcChannelUsersUpdateEvent(List<Viewer> chatters, List<String> joins, List<String> parts) {
         super(null);
         this.chatters = Collections.unmodifiableList(chatters);
+        this.joins = Collections.unmodifiableList(joins);
+        this.parts = Collections.unmodifiableList(parts);
     }
 
     /**
@@ -45,12 +63,14 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
      * @param session
      * @param joins
      * @param parts
-     * @deprecated Joins/Parts are not calculated anymore
+     * @deprecated Use {@link #IrcChannelUsersUpdateEvent(List, List, List)}
      */
     @Deprecated(since = "3.8.0.0", forRemoval = true)
     public IrcChannelUsersUpdateEvent(TwitchSession session, String[] joins, String[] parts) {
         super(session);
         this.chatters = null;
+        this.joins = joins == null ? List.of() : List.of(joins);
+        this.parts = parts == null ? List.of() : List.of(parts);
     }
 
     /**
@@ -58,34 +78,33 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
      *
      * @param joins
      * @param parts
-     * @deprecated Joins/Parts are not calculated anymore
+     * @deprecated Use {@link #IrcChannelUsersUpdateEvent(List, List, List)}
      */
     @Deprecated(since = "3.8.0.0", forRemoval = true)
     public IrcChannelUsersUpdateEvent(String[] joins, String[] parts) {
-        super(null);
-        this.chatters = null;
+        this(null, joins, parts);
     }
 
     /**
-     * Method that returns the current array of users who joined the channel in the last 10 minutes.
+     * Method that returns the users who joined the channel since the previous update.
      *
      * @return joins
-     * @deprecated Joins/Parts are not calculated anymore
+     * @deprecated Use {@link #joins()}
      */
     @Deprecated(since = "3.8.0.0", forRemoval = true)
     public String[] getJoins() {
-        return new String[0];
+        return this.joins.toArray(new String[0]);
     }
 
     /**
-     * Method that returns the current array of users who left the channel in the last 10 minutes.
+     * Method that returns the users who left the channel since the previous update.
      *
      * @return parts
-     * @deprecated Joins/Parts are not calculated anymore
+     * @deprecated Use {@link #parts()}
      */
     @Deprecated(since = "3.8.0.0", forRemoval = true)
     public String[] getParts() {
-        return new String[0];
+        return this.parts.toArray(new String[0]);
     }
 
     /**
@@ -96,4 +115,22 @@ public class IrcChannelUsersUpdateEvent extends IrcChannelEvent {
     public List<Viewer> chatters() {
         return this.chatters;
     }
+
+    /**
+     * The lower case logins of users who are in chat now, but were not in the previous update
+     *
+     * @return A list of login names
+     */
+    public List<String> joins() {
+        return this.joins;
+    }
+
+    /**
+     * The lower case logins of users who were in chat in the previous update, but are not now
+     *
+     * @return A list of login names
+     */
+    public List<String> parts() {
+        return this.parts;
+    }
 }
@@ -83,7 +83,7 @@ public class HttpSetupHandler implements HttpRequestHandler {
      */
     @Override
     public void handleRequest(ChannelHandlerContext ctx, FullHttpRequest req) {
-        if ((!CaselessProperties.instance().getPropertyAsBoolean("allowpanelusertosetup", true) || !this.authHandler.isAuthorized(ctx, req))
+        if ((!CaselessProperties.instance().snapshot().getPropertyAsBoolean("allowpanelusertosetup", true) || !this.authHandler.isAuthorized(ctx, req))
                 && !this.authHandlerToken.checkAuthorization(ctx, req)) {
             String extra = "";
             if (this.authHandler.isAuthorized(ctx, req)) {
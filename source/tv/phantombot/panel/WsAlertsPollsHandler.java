@@ -80,7 +80,7 @@ public class WsAlertsPollsHandler implements WsFrameHandler {
                 return;
             }
 
-            if (CaselessProperties.instance().getPropertyAsBoolean("wsdebug", false)) {
+            if (CaselessProperties.instance().snapshot().getPropertyAsBoolean("wsdebug", false)) {
                 com.gmt2001.Console.debug.println(jso.toString());
             }
 
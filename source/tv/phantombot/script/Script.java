@@ -34,6 +34,7 @@ import org.mozilla.javascript.StackStyle;
 import org.mozilla.javascript.tools.debugger.Main;
 
 import tv.phantombot.PhantomBot;
+import tv.phantombot.StartupManager;
 
 public class Script {
 
@@ -110,18 +111,7 @@ public class Script {
             return;
         }
 
-        /* Enable Error() in JS to provide an object with fileName and lineNumber. */
-        final ContextFactory ctxFactory = new ContextFactory() {
-            @Override
-            protected boolean hasFeature(Context cx, int featureIndex) {
-                switch (featureIndex) {
-                    case Context.FEATURE_LOCATION_INFORMATION_IN_ERROR:
-                        return true;
-                    default:
-                        return super.hasFeature(cx, featureIndex);
-                }
-            }
-        };
+        final ContextFactory ctxFactory = newContextFactory();
         RhinoException.setStackStyle(StackStyle.MOZILLA);
 
         /* Create Debugger Instance - this opens for only init.js */
@@ -155,13 +145,41 @@ public class Script {
             }
         }
 
+        StartupManager.instance().scriptStarted();
         try {
-            context.evaluateString(scope, Files.readString(file.toPath()), file.getName(), 1, null);
+            org.mozilla.javascript.Script compiled = ScriptManager.takePrecompiled(file);
+            if (compiled != null) {
+                compiled.exec(context, scope);
+            } else {
+                context.evaluateString(scope, Files.readString(file.toPath()), file.getName(), 1, null);
+            }
         } catch (EvaluatorException | IOException ex) {
             com.gmt2001.Console.err.printStackTrace(ex, Map.of("file", this.getPath()));
+        } finally {
+            StartupManager.instance().scriptFinished(this.fileName);
         }
     }
 
+    /**
+     * Creates the {@link ContextFactory} used to compile and evaluate scripts
+     *
+     * @return a new context factory
+     */
+    static ContextFactory newContextFactory() {
+        /* Enable Error() in JS to provide an object with fileName and lineNumber. */
+        return new ContextFactory() {
+            @Override
+            protected boolean hasFeature(Context cx, int featureIndex) {
+                switch (featureIndex) {
+                    case Context.FEATURE_LOCATION_INFORMATION_IN_ERROR:
+                        return true;
+                    default:
+                        return super.hasFeature(cx, featureIndex);
+                }
+            }
+        };
+    }
+
     public List<ScriptDestroyable<?>> destroyables() {
         return destroyables;
     }
@@ -18,12 +18,95 @@ package tv.phantombot.script;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.RhinoException;
+
+import tv.phantombot.PhantomBot;
 
 public class ScriptManager {
 
     private static final Map<String, Script> scripts = new HashMap<>();
+    private static final Map<String, PrecompiledScript> precompiled = new ConcurrentHashMap<>();
+
+    /**
+     * Compiles every script under the specified directory in parallel, so that the first load of each script only has to execute it
+     * <p>
+     * Compilation does not depend on the scope, so this can run before the script globals are defined. Scripts which fail to compile
+     * are skipped and will report their error when they are loaded normally
+     *
+     * @param directory the root directory of the scripts
+     */
+    public static void precompileScripts(String directory) {
+        if (PhantomBot.getEnableRhinoDebugger() || !Files.isDirectory(Paths.get(directory))) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> fileStream = Files.walk(Paths.get(directory), FileVisitOption.FOLLOW_LINKS)) {
+            files = fileStream.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".js")
+                    && !p.getFileName().toString().startsWith("._")).collect(Collectors.toList());
+        } catch (IOException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+            return;
+        }
+
+        final ContextFactory ctxFactory = Script.newContextFactory();
+        files.parallelStream().forEach(p -> {
+            File file = p.toFile();
+            Context context = ctxFactory.enterContext();
+            try {
+                context.setLanguageVersion(Context.VERSION_ES6);
+                context.setOptimizationLevel(9);
+                long lastModified = file.lastModified();
+                precompiled.put(precompiledKey(file), new PrecompiledScript(context.compileString(Files.readString(p), file.getName(), 1, null), lastModified));
+            } catch (RhinoException | IOException ex) {
+                com.gmt2001.Console.debug.println("Failed to precompile " + p + ": " + ex.getMessage());
+            } finally {
+                Context.exit();
+            }
+        });
+
+        com.gmt2001.Console.debug.println("Precompiled " + precompiled.size() + " of " + files.size() + " scripts");
+    }
+
+    /**
+     * Removes and returns the precompiled version of a script, if it is available and the file has not been modified since
+     *
+     * @param scriptFile the script file
+     * @return the compiled script; {@code null} if not available
+     */
+    static org.mozilla.javascript.Script takePrecompiled(File scriptFile) {
+        PrecompiledScript compiled = precompiled.remove(precompiledKey(scriptFile));
+
+        if (compiled == null || compiled.lastModified != scriptFile.lastModified()) {
+            return null;
+        }
+
+        return compiled.script;
+    }
+
+    /**
+     * Discards any precompiled scripts which were not loaded
+     */
+    public static void clearPrecompiled() {
+        precompiled.clear();
+    }
+
+    private static String precompiledKey(File scriptFile) {
+        return scriptFile.toPath().toAbsolutePath().normalize().toString();
+    }
 
     /**
      * @param scriptFile
@@ -98,4 +181,15 @@ public class ScriptManager {
     public static Map<String, Script> getScripts() {
         return scripts;
     }
+
+    private static final class PrecompiledScript {
+
+        private final org.mozilla.javascript.Script script;
+        private final long lastModified;
+
+        private PrecompiledScript(org.mozilla.javascript.Script script, long lastModified) {
+            this.script = script;
+            this.lastModified = lastModified;
+        }
+    }
 }
@@ -0,0 +1,733 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.script;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.gmt2001.util.concurrent.ExecutorService;
+
+/**
+ * Evaluates the tags in command responses, such as {@code (sender)} or {@code (customapi url)}, for {@code $.transformers.tags}
+ * <p>
+ * A response is parsed once into a template, which is cached by the response text. Each tag in the template is replaced by a placeholder, in the
+ * same inner-first, left-to-right order the tags are found by the tag pattern, so a tag whose arguments contain other tags depends on them.
+ * <p>
+ * When evaluating, a tag runs once the tags it depends on are resolved. Transformers registered as concurrent, which only read data, run as
+ * soon as that is the case, so independent lookups overlap. All other transformers also wait for every tag before them, so side effects happen in
+ * the same order as written and are skipped once a tag cancels. Each tag has a timeout, after which it is replaced with an empty string, the
+ * transformer is interrupted, and anything it returns later is discarded. Transformers registered as non-reentrant are locked so that only one
+ * call runs at a time
+ *
+ * @author gmt2001
+ */
+public final class TagEngine {
+
+    private static final TagEngine INSTANCE = new TagEngine();
+    /**
+     * The pattern which finds the innermost tags, matching the one in {@code commandTags.js}
+     */
+    private static final Pattern TAG_PATTERN = Pattern.compile("(?:[^\\\\]|^)(\\(([^\\\\\\s\\|!=()]*)([!]?[\\s!=\\|])?((?:\\\\\\(|\\\\\\)|[^()])*)?(?<!\\\\)\\))");
+    /**
+     * Splits a single resolved tag into its name, separator, and arguments
+     */
+    private static final Pattern TAG_PARTS = Pattern.compile("\\(([^\\\\\\s\\|!=()]*)([!]?[\\s!=\\|])?((?:\\\\\\(|\\\\\\)|[^()])*)?\\)");
+    private static final Pattern ESCAPE = Pattern.compile("([\\\\()])");
+    private static final Pattern UNESCAPE = Pattern.compile("\\\\([\\\\()])");
+    /**
+     * Unicode noncharacters which delimit the placeholders in a template
+     */
+    private static final char OPEN = '\uFDD0';
+    private static final char CLOSE = '\uFDD1';
+    private static final int CACHE_CAPACITY = 1000;
+    /**
+     * How many times a raw result may itself contain tags which return raw results
+     */
+    private static final int MAX_RAW_DEPTH = 16;
+    private static final long DEFAULT_TIMEOUT_MS = 10000L;
+    private static final int THREADS = 64;
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+    private final Map<String, Template> templates;
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Policy defaultPolicy = new Policy(false, true, DEFAULT_TIMEOUT_MS);
+    private final ThreadPoolExecutor executor;
+    /**
+     * Runs the transformers of nested evaluations, which are waited for by a thread of {@link #executor} and so can not be queued behind it
+     */
+    private final java.util.concurrent.ExecutorService nestedExecutor;
+
+    /**
+     * Provides an instance of {@link TagEngine}
+     *
+     * @return an instance of {@link TagEngine}
+     */
+    public static TagEngine instance() {
+        return INSTANCE;
+    }
+
+    private TagEngine() {
+        this.templates = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return this.size() > CACHE_CAPACITY;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory("tv.phantombot.script.TagEngine-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.nestedExecutor = Executors.newCachedThreadPool(threadFactory("tv.phantombot.script.TagEngine-nested-"));
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(() -> {
+                WORKER.set(true);
+                r.run();
+            }, prefix + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Calls a transformer
+     */
+    @FunctionalInterface
+    public interface Invoker {
+
+        /**
+         * Calls the transformer for a tag
+         *
+         * @param tag the lower-cased tag name
+         * @param argsep the separator between the tag name and the arguments; empty string if none
+         * @param args the unescaped arguments; empty string if none
+         * @return {@code null} if no transformer handled the tag; otherwise a map which may contain {@code result} (string, or a {@link CompletionStage} which completes with one), {@code cancel},
+         * {@code raw}, and {@code cache} (booleans), as documented in {@code commandTags.js}
+         */
+        Map<?, ?> invoke(String tag, String argsep, String args);
+    }
+
+    /**
+     * Sets how the transformer for a global tag is run
+     *
+     * @param tag the tag name
+     * @param concurrent {@code true} if the transformer only reads data, so it may run alongside, or ahead of, other tags in the same response
+     * @param reentrant {@code false} if only one call to the transformer may run at a time
+     * @param timeoutMs how long to wait for the transformer, in milliseconds; {@code 0} or less for the default of 10 seconds
+     */
+    public void register(String tag, boolean concurrent, boolean reentrant, long timeoutMs) {
+        this.policies.put(tag.toLowerCase(), new Policy(concurrent, reentrant, timeoutMs > 0L ? timeoutMs : DEFAULT_TIMEOUT_MS));
+    }
+
+    /**
+     * Evaluates the tags in a message
+     *
+     * @param message the message, with escaped tags in the same form as {@code $.transformers.escapeTags}
+     * @param invoker calls the transformers
+     * @param localTags the names of the caller-defined transformers, which always use the default policy
+     * @return the result
+     */
+    public Result evaluate(String message, Invoker invoker, Collection<?> localTags) {
+        Set<String> local = new HashSet<>();
+        if (localTags != null) {
+            localTags.forEach(tag -> local.add(String.valueOf(tag).toLowerCase()));
+        }
+
+        Evaluation evaluation = new Evaluation(invoker, local);
+        String text = this.evaluate(evaluation, message, 0);
+        return new Result(evaluation.cancelled.get() ? null : text, evaluation.tagFound.get());
+    }
+
+    /**
+     * Escapes the tag characters in a string, so that it is not processed as tags
+     *
+     * @param text the text
+     * @return the escaped text
+     */
+    public static String escapeTags(String text) {
+        return ESCAPE.matcher(text).replaceAll("\\\\$1");
+    }
+
+    /**
+     * Reverses {@link #escapeTags(String)}
+     *
+     * @param text the escaped text
+     * @return the unescaped text
+     */
+    public static String unescapeTags(String text) {
+        return UNESCAPE.matcher(text).replaceAll("$1");
+    }
+
+    /**
+     * @return the number of cached templates
+     */
+    public int cachedTemplates() {
+        synchronized (this.templates) {
+            return this.templates.size();
+        }
+    }
+
+    private Template template(String message) {
+        synchronized (this.templates) {
+            Template template = this.templates.get(message);
+            if (template != null) {
+                return template;
+            }
+        }
+
+        Template template = Template.parse(message);
+        synchronized (this.templates) {
+            this.templates.put(message, template);
+        }
+
+        return template;
+    }
+
+    private String evaluate(Evaluation evaluation, String message, int depth) {
+        Template template = this.template(message);
+        if (template.nodes.length == 0) {
+            return template.skeleton;
+        }
+
+        Outcome[] outcomes;
+        if (WORKER.get()) {
+            // Nested calls, from a transformer or a raw result, are evaluated in order by the calling worker, which waits for each transformer
+            outcomes = this.evaluateInline(evaluation, template, depth);
+        } else {
+            outcomes = this.evaluateConcurrent(evaluation, template, depth);
+        }
+
+        return evaluation.cancelled.get() ? null : template.substitute(template.skeleton, outcomes);
+    }
+
+    private Outcome[] evaluateInline(Evaluation evaluation, Template template, int depth) {
+        Outcome[] outcomes = new Outcome[template.nodes.length];
+        for (int i = 0; i < outcomes.length && !evaluation.cancelled.get(); i++) {
+            String whole = template.substitute(template.nodes[i], outcomes);
+            Policy policy = this.policy(evaluation, whole);
+            outcomes[i] = this.resolveBlocking(evaluation, whole, policy, depth);
+        }
+
+        return outcomes;
+    }
+
+    private Outcome[] evaluateConcurrent(Evaluation evaluation, Template template, int depth) {
+        int count = template.nodes.length;
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>(count);
+        CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        Outcome[] outcomes = new Outcome[count];
+
+        for (int i = 0; i < count; i++) {
+            final int node = i;
+            final CompletableFuture<Void> before = previous;
+            CompletableFuture<Void> children = CompletableFuture.allOf(template.children.get(node).stream().map(futures::get).toArray(CompletableFuture<?>[]::new));
+            futures.add(children.thenCompose(v -> {
+                String whole = template.substitute(template.nodes[node], outcomes);
+                Policy policy = this.policy(evaluation, whole);
+                CompletableFuture<Void> gate = policy.concurrent ? CompletableFuture.completedFuture(null) : before;
+                return gate.thenCompose(v2 -> this.resolveAsync(evaluation, whole, policy, depth));
+            }).exceptionally(ex -> {
+                com.gmt2001.Console.err.printStackTrace(ex);
+                return Outcome.found("");
+            }).thenApply(outcome -> {
+                outcomes[node] = outcome;
+                if (outcome.cancel) {
+                    cancelled.complete(null);
+                }
+                return outcome;
+            }));
+            previous = CompletableFuture.allOf(before, futures.get(node));
+        }
+
+        CompletableFuture.anyOf(previous, cancelled).join();
+        return outcomes;
+    }
+
+    private CompletableFuture<Outcome> resolveAsync(Evaluation evaluation, String whole, Policy policy, int depth) {
+        CompletableFuture<Outcome> mine = new CompletableFuture<>();
+        CompletableFuture<Outcome> prior = evaluation.inFlight.put(whole, mine);
+        // An identical tag which is still running may return a cached result, so wait for it rather than calling the transformer twice
+        CompletableFuture<?> start = prior == null ? CompletableFuture.completedFuture(null) : prior.handle((o, e) -> null);
+
+        start.thenCompose(v -> {
+            String cached = evaluation.cache.get(whole);
+            if (cached != null || evaluation.cancelled.get()) {
+                return CompletableFuture.completedFuture(cached != null ? Outcome.found(cached) : Outcome.SKIPPED);
+            }
+
+            Attempt attempt = new Attempt();
+            CompletableFuture<Outcome> resolved = new CompletableFuture<>();
+            CompletableFuture<Outcome> result = new CompletableFuture<>();
+            attempt.task = new FutureTask<>(() -> {
+                try {
+                    resolved.complete(this.resolve(evaluation, whole, policy, depth, attempt));
+                } catch (Throwable ex) {
+                    resolved.completeExceptionally(ex);
+                }
+            }, null);
+            ScheduledFuture<?> timeout = ExecutorService.schedule(() -> {
+                if (attempt.abandon()) {
+                    result.complete(this.timedOut(evaluation, whole, policy));
+                }
+            }, policy.timeoutMs, TimeUnit.MILLISECONDS);
+            resolved.thenCompose(outcome -> {
+                if (outcome.pending == null) {
+                    return CompletableFuture.completedFuture(outcome);
+                }
+
+                attempt.pending = outcome.pending;
+                // The worker is released while the transformer's future is outstanding, then the result is finished on the pool
+                return outcome.pending.handleAsync((value, ex) -> this.finish(evaluation, whole, outcome.transformed, value, ex, depth, attempt), this.executor);
+            }).whenComplete((outcome, ex) -> {
+                if (!attempt.abandoned()) {
+                    timeout.cancel(false);
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(outcome);
+                    }
+                }
+            });
+            this.executor.execute(attempt.task);
+            return result;
+        }).whenComplete((outcome, ex) -> {
+            evaluation.inFlight.remove(whole, mine);
+            if (ex != null) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+                mine.complete(Outcome.found(""));
+            } else {
+                mine.complete(outcome);
+            }
+        });
+
+        return mine;
+    }
+
+    /**
+     * Calls the transformer for a tag on {@link #nestedExecutor} and waits for it on the calling thread, for nested evaluations
+     */
+    private Outcome resolveBlocking(Evaluation evaluation, String whole, Policy policy, int depth) {
+        String cached = evaluation.cache.get(whole);
+        if (cached != null || evaluation.cancelled.get()) {
+            return cached != null ? Outcome.found(cached) : Outcome.SKIPPED;
+        }
+
+        Attempt attempt = new Attempt();
+        FutureTask<Outcome> task = new FutureTask<>(() -> this.resolve(evaluation, whole, policy, depth, attempt));
+        attempt.task = task;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.timeoutMs);
+        this.nestedExecutor.execute(task);
+
+        try {
+            Outcome outcome = task.get(policy.timeoutMs, TimeUnit.MILLISECONDS);
+            if (outcome.pending == null) {
+                return outcome;
+            }
+
+            attempt.pending = outcome.pending;
+            Object value = null;
+            Throwable error = null;
+            try {
+                value = outcome.pending.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException ex) {
+                error = ex.getCause();
+            }
+
+            return this.finish(evaluation, whole, outcome.transformed, value, error, depth, attempt);
+        } catch (TimeoutException ex) {
+            if (attempt.abandon()) {
+                return this.timedOut(evaluation, whole, policy);
+            }
+
+            // The transformer returned just as the timeout elapsed and its result is already being applied
+            try {
+                return task.get();
+            } catch (InterruptedException ex2) {
+                Thread.currentThread().interrupt();
+                return Outcome.SKIPPED;
+            } catch (ExecutionException ex2) {
+                com.gmt2001.Console.err.printStackTrace(ex2.getCause());
+                return Outcome.found("");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            attempt.abandon();
+            return Outcome.SKIPPED;
+        } catch (ExecutionException ex) {
+            com.gmt2001.Console.err.printStackTrace(ex.getCause());
+            return Outcome.found("");
+        }
+    }
+
+    private Outcome timedOut(Evaluation evaluation, String whole, Policy policy) {
+        com.gmt2001.Console.warn.println("Tag timed out after " + policy.timeoutMs + "ms: " + unescapeTags(whole));
+        evaluation.tagFound.set(true);
+        return Outcome.found("");
+    }
+
+    private Outcome resolve(Evaluation evaluation, String whole, Policy policy, int depth, Attempt attempt) {
+        if (evaluation.cancelled.get()) {
+            return Outcome.SKIPPED;
+        }
+
+        String cached = evaluation.cache.get(whole);
+        if (cached != null) {
+            return Outcome.found(cached);
+        }
+
+        Matcher parts = TAG_PARTS.matcher(whole);
+        if (!parts.matches()) {
+            return Outcome.found(whole);
+        }
+
+        String tag = parts.group(1).toLowerCase();
+        String argsep = parts.group(2) != null ? parts.group(2) : "";
+        String args = parts.group(3) != null ? unescapeTags(parts.group(3)) : "";
+
+        Map<?, ?> transformed;
+        if (policy.lock != null) {
+            try {
+                policy.lock.lockInterruptibly();
+            } catch (InterruptedException ex) {
+                // Abandoned while waiting for the lock
+                return Outcome.SKIPPED;
+            }
+        }
+        try {
+            transformed = evaluation.invoker.invoke(tag, argsep, args);
+        } catch (Exception ex) {
+            if (!attempt.abandoned()) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+            }
+            transformed = null;
+        } finally {
+            if (policy.lock != null) {
+                policy.lock.unlock();
+            }
+        }
+
+        if (attempt.abandoned()) {
+            return Outcome.SKIPPED;
+        }
+
+        if (transformed == null) {
+            return Outcome.found("\\(" + whole.substring(1, whole.length() - 1) + "\\)");
+        }
+
+        evaluation.tagFound.set(true);
+        Object value = transformed.get("result");
+        if (value instanceof CompletionStage<?> stage) {
+            return Outcome.pending(stage.toCompletableFuture(), transformed);
+        }
+
+        return this.finish(evaluation, whole, transformed, value, null, depth, attempt);
+    }
+
+    /**
+     * Applies the value returned by a transformer, unless the call has been abandoned
+     */
+    private Outcome finish(Evaluation evaluation, String whole, Map<?, ?> transformed, Object value, Throwable error, int depth, Attempt attempt) {
+        if (!attempt.settle()) {
+            return Outcome.SKIPPED;
+        }
+
+        if (isTrue(transformed.get("cancel"))) {
+            evaluation.cancelled.set(true);
+            return Outcome.CANCELLED;
+        }
+
+
+        if (error != null) {
+            com.gmt2001.Console.err.printStackTrace(error);
+            value = null;
+        }
+
+        String result = value == null ? "" : value.toString().replace(String.valueOf(OPEN), "").replace(String.valueOf(CLOSE), "");
+        if (!isTrue(transformed.get("raw"))) {
+            result = escapeTags(result);
+        } else if (depth < MAX_RAW_DEPTH) {
+            result = this.evaluate(evaluation, result, depth + 1);
+            if (result == null) {
+                return Outcome.CANCELLED;
+            }
+        }
+
+        if (isTrue(transformed.get("cache"))) {
+            evaluation.cache.put(whole, result);
+        }
+
+        return Outcome.found(result);
+    }
+
+    private Policy policy(Evaluation evaluation, String whole) {
+        Matcher parts = TAG_PARTS.matcher(whole);
+        if (!parts.matches()) {
+            return this.defaultPolicy;
+        }
+
+        String tag = parts.group(1).toLowerCase();
+        if (evaluation.local.contains(tag)) {
+            return this.defaultPolicy;
+        }
+
+        return this.policies.getOrDefault(tag, this.defaultPolicy);
+    }
+
+    private static boolean isTrue(Object value) {
+        return value instanceof Boolean b ? b : value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * The result of {@link TagEngine#evaluate(String, Invoker, Collection)}
+     */
+    public static final class Result {
+
+        private final String message;
+        private final boolean tagFound;
+
+        private Result(String message, boolean tagFound) {
+            this.message = message;
+            this.tagFound = tagFound;
+        }
+
+        /**
+         * @return the message with the tags replaced, still escaped; {@code null} if a tag cancelled processing
+         */
+        public String message() {
+            return this.message;
+        }
+
+        /**
+         * @return {@code true} if at least one tag was handled by a transformer
+         */
+        public boolean tagFound() {
+            return this.tagFound;
+        }
+
+        /**
+         * @return {@code true} if a tag cancelled processing
+         */
+        public boolean cancelled() {
+            return this.message == null;
+        }
+    }
+
+    /**
+     * A parsed message. The skeleton is the message with each outermost tag replaced by a placeholder; each node is a tag with its inner tags
+     * replaced by placeholders. Nodes are in evaluation order, so the children of a node always come before it
+     */
+    private static final class Template {
+
+        private final String skeleton;
+        private final String[] nodes;
+        private final List<List<Integer>> children;
+
+        private Template(String skeleton, String[] nodes, List<List<Integer>> children) {
+            this.skeleton = skeleton;
+            this.nodes = nodes;
+            this.children = children;
+        }
+
+        private static Template parse(String message) {
+            String text = message.replace(String.valueOf(OPEN), "").replace(String.valueOf(CLOSE), "");
+            List<String> nodes = new ArrayList<>();
+            List<List<Integer>> children = new ArrayList<>();
+            Matcher matcher = TAG_PATTERN.matcher(text);
+
+            while (matcher.find()) {
+                String whole = matcher.group(1);
+                children.add(placeholders(whole));
+                text = text.substring(0, matcher.start(1)) + OPEN + nodes.size() + CLOSE + text.substring(matcher.end(1));
+                nodes.add(whole);
+                matcher.reset(text);
+            }
+
+            return new Template(text, nodes.toArray(new String[0]), children);
+        }
+
+        private static List<Integer> placeholders(String text) {
+            List<Integer> found = new ArrayList<>();
+            int start = text.indexOf(OPEN);
+            while (start >= 0) {
+                int end = text.indexOf(CLOSE, start);
+                found.add(Integer.parseInt(text.substring(start + 1, end)));
+                start = text.indexOf(OPEN, end);
+            }
+
+            return found;
+        }
+
+        private String substitute(String text, Outcome[] outcomes) {
+            int start = text.indexOf(OPEN);
+            if (start < 0) {
+                return text;
+            }
+
+            StringBuilder sb = new StringBuilder(text.length() + 32);
+            int last = 0;
+            while (start >= 0) {
+                int end = text.indexOf(CLOSE, start);
+                Outcome outcome = outcomes[Integer.parseInt(text.substring(start + 1, end))];
+                sb.append(text, last, start).append(outcome == null ? "" : outcome.text);
+                last = end + 1;
+                start = text.indexOf(OPEN, last);
+            }
+
+            return sb.append(text, last, text.length()).toString();
+        }
+    }
+
+    /**
+     * The state of one call to {@link TagEngine#evaluate(String, Invoker, Collection)}
+     */
+    private static final class Evaluation {
+
+        private final Invoker invoker;
+        private final Set<String> local;
+        private final Map<String, String> cache = new ConcurrentHashMap<>();
+        private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final AtomicBoolean tagFound = new AtomicBoolean(false);
+
+        private Evaluation(Invoker invoker, Set<String> local) {
+            this.invoker = invoker;
+            this.local = local;
+        }
+    }
+
+    /**
+     * The escaped text which replaces a tag
+     */
+    private static final class Outcome {
+
+        private static final Outcome CANCELLED = new Outcome("", true);
+        private static final Outcome SKIPPED = new Outcome("", false);
+        private final String text;
+        private final boolean cancel;
+        /**
+         * The future returned by the transformer, which completes with the result, and the rest of the transformer's return value
+         */
+        private final CompletableFuture<?> pending;
+        private final Map<?, ?> transformed;
+
+        private Outcome(String text, boolean cancel) {
+            this(text, cancel, null, null);
+        }
+
+        private Outcome(String text, boolean cancel, CompletableFuture<?> pending, Map<?, ?> transformed) {
+            this.text = text;
+            this.cancel = cancel;
+            this.pending = pending;
+            this.transformed = transformed;
+        }
+
+        private static Outcome pending(CompletableFuture<?> pending, Map<?, ?> transformed) {
+            return new Outcome("", false, pending, transformed);
+        }
+
+        private static Outcome found(String text) {
+            return new Outcome(text, false);
+        }
+    }
+
+    /**
+     * One call to a transformer, which either settles, applying its result, or is abandoned once it times out, discarding its result. Whichever
+     * happens first wins
+     */
+    private static final class Attempt {
+
+        private static final int RUNNING = 0;
+        private static final int SETTLED = 1;
+        private static final int ABANDONED = 2;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private volatile FutureTask<?> task;
+        private volatile CompletableFuture<?> pending;
+
+        /**
+         * @return {@code true} if the result may be applied; {@code false} if the call was abandoned
+         */
+        private boolean settle() {
+            return this.state.compareAndSet(RUNNING, SETTLED);
+        }
+
+        /**
+         * Abandons the call and interrupts the transformer, unless the result is already being applied
+         *
+         * @return {@code true} if the call was abandoned
+         */
+        private boolean abandon() {
+            if (!this.state.compareAndSet(RUNNING, ABANDONED)) {
+                return false;
+            }
+
+            FutureTask<?> t = this.task;
+            if (t != null) {
+                t.cancel(true);
+            }
+
+            CompletableFuture<?> p = this.pending;
+            if (p != null) {
+                p.cancel(true);
+            }
+
+            return true;
+        }
+
+        private boolean abandoned() {
+            return this.state.get() == ABANDONED;
+        }
+    }
+
+    /**
+     * How the transformer for a tag is run
+     */
+    private static final class Policy {
+
+        private final boolean concurrent;
+        private final ReentrantLock lock;
+        private final long timeoutMs;
+
+        private Policy(boolean concurrent, boolean reentrant, long timeoutMs) {
+            this.concurrent = concurrent;
+            this.lock = reentrant ? null : new ReentrantLock();
+            this.timeoutMs = timeoutMs;
+        }
+    }
+}
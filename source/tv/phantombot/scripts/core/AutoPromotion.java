@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.SQLDataType;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.SectionVariableValueRecord;
+import com.gmt2001.datastore.SectionVariableValueTable;
+import com.gmt2001.twitch.cache.Viewer;
+import com.gmt2001.twitch.cache.ViewerCache;
+
+import tv.phantombot.cache.UserGroupCache;
+
+/**
+ * Promotes viewers in chat to a permission group once they have been watching long enough, for {@code core/timeSystem.js}
+ * <p>
+ * The users to promote are found with one query joining the chatters against the {@code time} and {@code group} tables, and are promoted with
+ * one batched write, so the cost depends on the number of promotions rather than the number of chatters
+ *
+ * @author gmt2001
+ */
+public final class AutoPromotion {
+
+    private static final AutoPromotion INSTANCE = new AutoPromotion();
+    private static final String VIEWER = "7";
+
+    /**
+     * Provides an instance of {@link AutoPromotion}
+     *
+     * @return an instance of {@link AutoPromotion}
+     */
+    public static AutoPromotion instance() {
+        return INSTANCE;
+    }
+
+    private AutoPromotion() {
+    }
+
+    /**
+     * Promotes the current chatters from {@link ViewerCache} who are eligible
+     *
+     * @param excluded the logins of users who must not be promoted, such as bots, moderators, subscribers, and VIPs
+     * @param minSeconds the minimum value of the {@code time} table
+     * @param groupId the permission group id to promote to
+     * @return the lower-cased logins of the promoted users
+     */
+    public List<String> promote(Collection<?> excluded, long minSeconds, int groupId) {
+        List<String> chatters = new ArrayList<>();
+        for (Viewer viewer : ViewerCache.instance().chatters()) {
+            if (viewer.login() != null) {
+                chatters.add(viewer.login().toLowerCase());
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> promoted = this.candidates(chatters, excluded, minSeconds);
+        if (!promoted.isEmpty()) {
+            String[] ids = new String[promoted.size()];
+            Arrays.fill(ids, Integer.toString(groupId));
+            UserGroupCache.instance().setBatch(promoted.toArray(new String[0]), ids);
+        }
+
+        com.gmt2001.Console.debug.println("AutoPromotion: promoted " + promoted.size() + " of " + chatters.size() + " chatters in "
+            + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+        return promoted;
+    }
+
+    /**
+     * Finds the users who are eligible for promotion
+     * <p>
+     * A user is eligible if they have no row in the {@code group} table or are in the viewer group, and their value in the {@code time} table is
+     * at least {@code minSeconds}
+     *
+     * @param chatters the lower-cased logins of the users in chat
+     * @param excluded the logins of users who must not be promoted, such as bots, moderators, and users who are subscribers or VIPs without a
+     * matching row in the {@code group} table
+     * @param minSeconds the minimum value of the {@code time} table
+     * @return the lower-cased logins of the eligible users
+     */
+    public List<String> candidates(Collection<String> chatters, Collection<?> excluded, long minSeconds) {
+        List<String> result = new ArrayList<>();
+        SectionVariableValueTable time = SectionVariableValueTable.instance(DataStore.PREFIX + "time", false);
+
+        if (time == null) {
+            return result;
+        }
+
+        Set<String> exclude = new HashSet<>();
+        for (Object login : excluded) {
+            exclude.add(login.toString().toLowerCase());
+        }
+
+        List<String> users = new ArrayList<>(new LinkedHashSet<>(chatters));
+        users.removeAll(exclude);
+
+        SectionVariableValueTable group = SectionVariableValueTable.instance(DataStore.PREFIX + "group", false);
+        Table<SectionVariableValueRecord> t = time.as("t");
+        Field<String> tSection = t.field(time.SECTION);
+        Field<String> tVariable = t.field(time.VARIABLE);
+        Table<?> from = t;
+        Condition ungrouped = null;
+
+        if (group != null) {
+            Table<SectionVariableValueRecord> g = group.as("g");
+            Field<String> gValue = g.field(group.VALUE);
+            from = t.leftJoin(g).on(g.field(group.SECTION).eq(""), g.field(group.VARIABLE).eq(tVariable));
+            ungrouped = gValue.isNull().or(gValue.eq(VIEWER));
+        }
+
+        for (int start = 0; start < users.size(); start += 500) {
+            List<String> chunk = users.subList(start, Math.min(users.size(), start + 500));
+            Condition condition = DataStore.keysIn(tSection, tVariable, "", chunk)
+                .and(t.field(time.VALUE).cast(SQLDataType.BIGINT).ge(minSeconds));
+
+            if (ungrouped != null) {
+                condition = condition.and(ungrouped);
+            }
+
+            DataStore.instance().dsl().select(tVariable).from(from).where(condition).forEach(r -> result.add(r.value1()));
+        }
+
+        return result;
+    }
+}
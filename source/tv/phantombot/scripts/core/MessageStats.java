@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.gmt2001.PatternDetector;
+
+import tv.phantombot.twitch.emotes.EmoteMatcher;
+
+/**
+ * The metrics of a chat message used by the moderation filters in {@code core/chatModerator.js}, computed in one pass over the message
+ * <p>
+ * The counts follow the regular expressions previously used by {@code core/patternDetector.js}, and are in {@code char} units like the length
+ * of a JavaScript string. Instances are immutable
+ *
+ * @author gmt2001
+ */
+public final class MessageStats {
+
+    private static final Pattern FAKE_PURGE = Pattern.compile("^(?:<message \\w+>|<\\w+ deleted>)", Pattern.CASE_INSENSITIVE);
+    private final int length;
+    private final int caps;
+    private final int symbols;
+    private final int longestSymbolRun;
+    private final int longestRepeatedRun;
+    private final int emotes;
+    private final boolean colored;
+    private final boolean fakePurge;
+    private final List<String> links;
+    private final boolean webLinks;
+    private final boolean ipLinks;
+    private final boolean protoLinks;
+
+    /**
+     * Analyses a message
+     *
+     * @param message the message
+     * @param emotesTag the raw value of the IRCv3 {@code emotes} tag; may be {@code null}
+     * @param links {@code true} to also find the links in the message; otherwise the link metrics are empty
+     * @return the metrics
+     */
+    public static MessageStats analyze(String message, String emotesTag, boolean links) {
+        return new MessageStats(message == null ? "" : message, emotesTag, links);
+    }
+
+    private MessageStats(String message, String emotesTag, boolean findLinks) {
+        List<EmoteMatcher.EmoteMatch> emoteMatches = EmoteMatcher.current().analyze(message, emotesTag).all();
+        emoteMatches.sort((a, b) -> Integer.compare(a.start(), b.start()));
+
+        int capsCount = 0;
+        int symbolCount = 0;
+        int symbolRun = 0;
+        int maxSymbolRun = 0;
+        int repeatedRun = 0;
+        int maxRepeatedRun = 0;
+        int emote = 0;
+        char previous = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            while (emote < emoteMatches.size() && emoteMatches.get(emote).end() <= i) {
+                emote++;
+            }
+
+            // Caps inside an emote, such as Kappa, are not counted
+            if (c >= 'A' && c <= 'Z' && (emote == emoteMatches.size() || emoteMatches.get(emote).start() > i)) {
+                capsCount++;
+            }
+
+            // /([^a-z0-9 ])(\1+)/ig and /([^a-z0-9 ])/ig
+            boolean symbol = !isAlphanumeric(c) && c != ' ';
+            if (symbol) {
+                symbolCount++;
+                symbolRun = i > 0 && canonicalize(c) == canonicalize(previous) ? symbolRun + 1 : 1;
+                if (symbolRun > 1) {
+                    maxSymbolRun = Math.max(maxSymbolRun, symbolRun);
+                }
+            } else {
+                symbolRun = 0;
+            }
+
+            // /(.)(\1+)/ig
+            if (isLineTerminator(c)) {
+                repeatedRun = 0;
+            } else {
+                repeatedRun = i > 0 && repeatedRun > 0 && canonicalize(c) == canonicalize(previous) ? repeatedRun + 1 : 1;
+                if (repeatedRun > 1) {
+                    maxRepeatedRun = Math.max(maxRepeatedRun, repeatedRun);
+                }
+            }
+
+            previous = c;
+        }
+
+        this.length = message.length();
+        this.caps = capsCount;
+        this.symbols = symbolCount;
+        this.longestSymbolRun = maxSymbolRun;
+        this.longestRepeatedRun = maxRepeatedRun;
+        this.emotes = emoteMatches.size();
+        this.colored = message.startsWith("/me");
+        this.fakePurge = FAKE_PURGE.matcher(this.colored ? message.substring(3) : message).find();
+
+        List<String> found = new ArrayList<>();
+        boolean web = false;
+        boolean ip = false;
+        boolean proto = false;
+        if (findLinks) {
+            Matcher matcher = PatternDetector.linksMatcher(message);
+            while (matcher.find()) {
+                found.add(matcher.group());
+                web = web || matcher.group("weburi") != null;
+                ip = ip || matcher.group("ip") != null;
+                proto = proto || matcher.group("protouri") != null;
+            }
+        }
+
+        this.links = Collections.unmodifiableList(found);
+        this.webLinks = web;
+        this.ipLinks = ip;
+        this.protoLinks = proto;
+    }
+
+    /**
+     * @return the length of the message
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return the number of upper-case letters {@code A-Z}, excluding those inside emotes
+     */
+    public int caps() {
+        return this.caps;
+    }
+
+    /**
+     * @return {@link #caps()} as a percentage of {@link #length()}
+     */
+    public double capsPercent() {
+        return this.length == 0 ? 0.0 : this.caps * 100.0 / this.length;
+    }
+
+    /**
+     * @return the number of characters which are not {@code a-z}, {@code A-Z}, {@code 0-9}, or space
+     */
+    public int symbols() {
+        return this.symbols;
+    }
+
+    /**
+     * @return {@link #symbols()} as a percentage of {@link #length()}
+     */
+    public double symbolsPercent() {
+        return this.length == 0 ? 0.0 : this.symbols * 100.0 / this.length;
+    }
+
+    /**
+     * @return the length of the longest run of the same symbol; {@code 0} if no symbol is repeated
+     */
+    public int longestSymbolRun() {
+        return this.longestSymbolRun;
+    }
+
+    /**
+     * @return the length of the longest run of the same character, ignoring case; {@code 0} if no character is repeated
+     */
+    public int longestRepeatedRun() {
+        return this.longestRepeatedRun;
+    }
+
+    /**
+     * @return the number of Twitch and third-party emotes
+     */
+    public int emotes() {
+        return this.emotes;
+    }
+
+    /**
+     * @return {@code true} if the message is a {@code /me} message
+     */
+    public boolean colored() {
+        return this.colored;
+    }
+
+    /**
+     * @return {@code true} if the message imitates a deleted message notice
+     */
+    public boolean fakePurge() {
+        return this.fakePurge;
+    }
+
+    /**
+     * @return {@code true} if the message contains any link
+     */
+    public boolean hasLinks() {
+        return !this.links.isEmpty();
+    }
+
+    /**
+     * @return the links in the message; see {@link PatternDetector#getLinks(String)}
+     */
+    public List<String> links() {
+        return this.links;
+    }
+
+    /**
+     * @return {@code true} if a link matched the {@code weburi} capture group of {@link PatternDetector#linksMatcher(String)}
+     */
+    public boolean hasWebLinks() {
+        return this.webLinks;
+    }
+
+    /**
+     * @return {@code true} if a link matched the {@code ip} capture group of {@link PatternDetector#linksMatcher(String)}
+     */
+    public boolean hasIpLinks() {
+        return this.ipLinks;
+    }
+
+    /**
+     * @return {@code true} if a link matched the {@code protouri} capture group of {@link PatternDetector#linksMatcher(String)}
+     */
+    public boolean hasProtoLinks() {
+        return this.protoLinks;
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Implements the case folding of a JavaScript regular expression with the {@code i} flag
+     */
+    private static char canonicalize(char c) {
+        char upper = Character.toUpperCase(c);
+        return c >= 128 && upper < 128 ? c : upper;
+    }
+}
@@ -0,0 +1,955 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.systems;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.KeyValue;
+import com.gmt2001.util.concurrent.ExecutorService;
+
+import net.engio.mbassy.listener.Handler;
+import tv.phantombot.PhantomBot;
+import tv.phantombot.cache.TwitchCache;
+import tv.phantombot.event.EventBus;
+import tv.phantombot.event.Listener;
+import tv.phantombot.event.irc.message.IrcChannelMessageEvent;
+
+/**
+ * Schedules the timed notices of {@code systems/noticeSystem.js}
+ * <p>
+ * The notice groups are parsed once from the {@code notices} table into {@link NoticeGroup} objects, and each group has its own timer. Chat
+ * messages are counted by one atomic counter, so a chat message costs one increment regardless of the number of groups, and a group which is
+ * only waiting for its required number of messages is woken by the message which reaches it. The script is only called when a notice is
+ * due to be sent
+ * <p>
+ * Each group remains stored as a JSON object at its index in the {@code notices} table, since the panel reads and edits the table directly
+ *
+ * @author gmt2001
+ */
+public final class NoticeScheduler implements Listener {
+
+    private static final NoticeScheduler INSTANCE = new NoticeScheduler();
+    private static final String TABLE = "notices";
+    private static final String MODULE = "./systems/noticeSystem.js";
+    private static final long RETRY_MS = 5000L;
+    private static final double DEFAULT_INTERVAL = 10.0;
+    private static final int DEFAULT_REQ_MESSAGES = 25;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Timer> timers = new ArrayList<>();
+    private final AtomicLong messages = new AtomicLong(0L);
+    /**
+     * The message count at which a group which is waiting for chat messages can send; {@link Long#MAX_VALUE} if none is waiting
+     */
+    private final AtomicLong wakeAt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong sent = new AtomicLong(0L);
+    private volatile Consumer<Notice> sender = null;
+
+    /**
+     * Provides an instance of {@link NoticeScheduler}
+     *
+     * @return an instance of {@link NoticeScheduler}
+     */
+    public static NoticeScheduler instance() {
+        return INSTANCE;
+    }
+
+    private NoticeScheduler() {
+        ExecutorService.execute(() -> EventBus.instance().register(this));
+    }
+
+    /**
+     * Counts a chat message, and wakes the groups which were waiting for it
+     *
+     * @param event the event
+     */
+    @Handler
+    public void onIrcChannelMessageEvent(IrcChannelMessageEvent event) {
+        this.countMessage();
+    }
+
+    /**
+     * Loads the notice groups from the database and starts their timers. Replaces the timers of a previous call
+     *
+     * @param sender sends a notice which is due, as a chat message or a command
+     */
+    public void start(Consumer<Notice> sender) {
+        this.lock.lock();
+        try {
+            this.sender = sender;
+            this.load();
+            for (Timer timer : this.timers) {
+                this.schedule(timer, false);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads every group from the database and restarts their timers, starting each group from its first notice
+     */
+    public void reloadAll() {
+        this.lock.lock();
+        try {
+            for (int i = 0; i < this.timers.size(); i++) {
+                this.reload(i, false);
+                this.timers.get(i).lastNotice = -1;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads a group from the database after it was edited elsewhere, such as by the panel, and restarts its timer
+     *
+     * @param idx the index of the group
+     * @param resetTimer {@code true} to also restart the interval as if no notice had been sent yet
+     */
+    public void reload(int idx, boolean resetTimer) {
+        this.lock.lock();
+        try {
+            if (idx < 0 || idx >= this.timers.size()) {
+                return;
+            }
+
+            Timer timer = this.timers.get(idx);
+            String json = DataStore.instance().GetString(TABLE, "", Integer.toString(idx));
+            if (json != null) {
+                try {
+                    timer.group = NoticeGroup.parse(json);
+                } catch (JSONException ex) {
+                    com.gmt2001.Console.err.printStackTrace(ex);
+                }
+            }
+
+            if (resetTimer) {
+                timer.lastSentTime = 0L;
+            }
+
+            this.schedule(timer, false);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of groups
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.timers.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a group
+     *
+     * @param idx the index of the group
+     * @return the group; {@code null} if the index is out of range
+     */
+    public NoticeGroup group(int idx) {
+        this.lock.lock();
+        try {
+            return idx < 0 || idx >= this.timers.size() ? null : this.timers.get(idx).group;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a group and starts its timer
+     *
+     * @param group the group
+     * @return the index of the new group
+     */
+    public int addGroup(NoticeGroup group) {
+        this.lock.lock();
+        try {
+            Timer timer = new Timer(group, this.messages.get());
+            this.timers.add(timer);
+            DataStore.instance().SetString(TABLE, "", Integer.toString(this.timers.size() - 1), group.toJSON());
+            this.schedule(timer, false);
+            return this.timers.size() - 1;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a group and writes it to the database. The timer is restarted if the interval has changed
+     *
+     * @param idx the index of the group
+     * @param group the new group
+     */
+    public void updateGroup(int idx, NoticeGroup group) {
+        this.lock.lock();
+        try {
+            if (idx < 0 || idx >= this.timers.size()) {
+                return;
+            }
+
+            Timer timer = this.timers.get(idx);
+            NoticeGroup old = timer.group;
+            timer.group = group;
+            if (timer.lastNotice >= group.size()) {
+                timer.lastNotice = -1;
+            }
+
+            DataStore.instance().SetString(TABLE, "", Integer.toString(idx), group.toJSON());
+
+            if (old.intervalMin() != group.intervalMin() || old.intervalMax() != group.intervalMax()) {
+                timer.lastSentTime = 0L;
+                this.schedule(timer, false);
+            } else if (timer.future == null && !timer.waiting) {
+                this.schedule(timer, false);
+            } else if (timer.waiting) {
+                this.updateWakeAt();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a group. The groups after it move down one index
+     *
+     * @param idx the index of the group
+     */
+    public void removeGroup(int idx) {
+        this.lock.lock();
+        try {
+            if (idx < 0 || idx >= this.timers.size()) {
+                return;
+            }
+
+            this.cancel(this.timers.remove(idx));
+            this.updateWakeAt();
+
+            // The rows after the removed group are rewritten from memory with one batch
+            int moved = this.timers.size() - idx;
+            if (moved > 0) {
+                String[] keys = new String[moved];
+                String[] values = new String[moved];
+                for (int i = 0; i < moved; i++) {
+                    keys[i] = Integer.toString(idx + i);
+                    values[i] = this.timers.get(idx + i).group.toJSON();
+                }
+
+                DataStore.instance().SetBatchString(TABLE, "", keys, values);
+            }
+
+            DataStore.instance().RemoveKey(TABLE, "", Integer.toString(this.timers.size()));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of chat messages counted
+     */
+    public long messages() {
+        return this.messages.get();
+    }
+
+    /**
+     * @return the number of notices sent
+     */
+    public long sent() {
+        return this.sent.get();
+    }
+
+    /**
+     * Counts a chat message
+     */
+    void countMessage() {
+        if (this.messages.incrementAndGet() >= this.wakeAt.get() && this.wakeAt.getAndSet(Long.MAX_VALUE) != Long.MAX_VALUE) {
+            ExecutorService.execute(this::wake);
+        }
+    }
+
+    /**
+     * Reads the groups from the database, rewriting the table if any row was missing a setting or the keys were not consecutive. Must be
+     * called while holding the lock
+     */
+    private void load() {
+        for (Timer timer : this.timers) {
+            this.cancel(timer);
+        }
+
+        this.timers.clear();
+        this.wakeAt.set(Long.MAX_VALUE);
+
+        List<KeyValue> rows = new ArrayList<>(List.of(DataStore.instance().GetKeyValueList(TABLE, "")));
+        rows.sort((a, b) -> Long.compare(index(a.getKey()), index(b.getKey())));
+
+        boolean inconsistent = false;
+        for (int i = 0; i < rows.size(); i++) {
+            inconsistent |= index(rows.get(i).getKey()) != i;
+            try {
+                JSONObject json = new JSONObject(rows.get(i).getValue());
+                NoticeGroup group = NoticeGroup.parse(json);
+                inconsistent |= !group.isComplete(json);
+                this.timers.add(new Timer(group, this.messages.get()));
+            } catch (JSONException ex) {
+                inconsistent = true;
+            }
+        }
+
+        if (inconsistent) {
+            DataStore.instance().RemoveFile(TABLE);
+            if (!this.timers.isEmpty()) {
+                String[] keys = new String[this.timers.size()];
+                String[] values = new String[this.timers.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = Integer.toString(i);
+                    values[i] = this.timers.get(i).group.toJSON();
+                }
+
+                DataStore.instance().SetBatchString(TABLE, "", keys, values);
+            }
+        }
+    }
+
+    /**
+     * Starts the timer of a group, for a random interval between the minimum and maximum since the last notice was sent. Must be called while
+     * holding the lock
+     *
+     * @param timer the timer
+     * @param retry {@code true} if the last attempt could not send, in which case the next attempt is at least 5 seconds away
+     */
+    private void schedule(Timer timer, boolean retry) {
+        this.cancel(timer);
+        if (timer.waiting) {
+            timer.waiting = false;
+            this.updateWakeAt();
+        }
+
+        // A disabled group is started again when it is updated
+        if (!timer.group.enabled()) {
+            return;
+        }
+
+        double minTime = timer.group.intervalMin();
+        double maxTime = timer.group.intervalMax();
+        long interval = (long) ((minTime + (maxTime - minTime) * ThreadLocalRandom.current().nextDouble()) * 60000.0);
+        long delay = interval - (System.currentTimeMillis() - timer.lastSentTime);
+        if (retry) {
+            delay = Math.max(RETRY_MS, delay);
+        }
+
+        long generation = timer.generation;
+        timer.future = ExecutorService.schedule(() -> this.fire(timer, generation), Math.max(0L, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancel(Timer timer) {
+        timer.generation++;
+        if (timer.future != null) {
+            timer.future.cancel(false);
+            timer.future = null;
+        }
+    }
+
+    /**
+     * Sends the next notice of a group if it can be sent, otherwise waits for whatever prevented it
+     *
+     * @param timer the timer
+     * @param generation the generation of the timer when this attempt was scheduled
+     */
+    private void fire(Timer timer, long generation) {
+        Notice notice;
+        Consumer<Notice> send;
+        this.lock.lock();
+        try {
+            // The group was removed or rescheduled since
+            if (timer.generation != generation || !this.timers.contains(timer)) {
+                return;
+            }
+
+            timer.future = null;
+            timer.waiting = false;
+            NoticeGroup group = timer.group;
+
+            if (!group.enabled()) {
+                return;
+            }
+
+            send = this.sender;
+            if (send == null || !moduleEnabled()) {
+                this.schedule(timer, true);
+                return;
+            }
+
+            if (group.reqMessages() > 0 && this.messages.get() - timer.sentAt < group.reqMessages()) {
+                // Woken by countMessage() instead of polling
+                timer.waiting = true;
+                this.updateWakeAt();
+                return;
+            }
+
+            if (!group.offline() && !TwitchCache.instance().isStreamOnline()) {
+                timer.lastSentTime = System.currentTimeMillis();
+                this.schedule(timer, true);
+                return;
+            }
+
+            int idx = this.next(timer);
+            if (idx < 0) {
+                this.schedule(timer, true);
+                return;
+            }
+
+            notice = group.notice(idx);
+            timer.lastNotice = idx;
+            timer.sentAt = this.messages.get();
+            timer.lastSentTime = System.currentTimeMillis();
+            this.schedule(timer, false);
+        } finally {
+            this.lock.unlock();
+        }
+
+        try {
+            send.accept(notice);
+            this.sent.incrementAndGet();
+        } catch (Exception ex) {
+            com.gmt2001.Console.err.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Tries the groups whose required number of chat messages has been reached
+     */
+    private void wake() {
+        List<Timer> due = new ArrayList<>();
+        List<Long> generations = new ArrayList<>();
+        this.lock.lock();
+        try {
+            long count = this.messages.get();
+            for (Timer timer : this.timers) {
+                if (timer.waiting && count - timer.sentAt >= timer.group.reqMessages()) {
+                    timer.waiting = false;
+                    due.add(timer);
+                    generations.add(timer.generation);
+                }
+            }
+
+            this.updateWakeAt();
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            this.fire(due.get(i), generations.get(i));
+        }
+    }
+
+    /**
+     * Recalculates {@link #wakeAt} from the groups which are waiting for chat messages. Must be called while holding the lock
+     */
+    private void updateWakeAt() {
+        long next = Long.MAX_VALUE;
+        for (Timer timer : this.timers) {
+            if (timer.waiting) {
+                next = Math.min(next, timer.sentAt + timer.group.reqMessages());
+            }
+        }
+
+        this.wakeAt.set(next);
+        if (next <= this.messages.get()) {
+            this.wakeAt.set(Long.MAX_VALUE);
+            ExecutorService.execute(this::wake);
+        }
+    }
+
+    /**
+     * Selects the next notice of a group, either in order or at random without repeating the last one
+     *
+     * @param timer the timer
+     * @return the index of the notice; {@code -1} if no notice can be sent
+     */
+    private int next(Timer timer) {
+        NoticeGroup group = timer.group;
+        int size = group.size();
+        String game = TwitchCache.instance().getGameTitle();
+
+        if (!group.shuffle()) {
+            for (int i = 1; i <= size; i++) {
+                int idx = (timer.lastNotice + i) % size;
+                if (group.notice(idx).canSend(game)) {
+                    return idx;
+                }
+            }
+
+            return -1;
+        }
+
+        List<Integer> options = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (group.notice(i).canSend(game)) {
+                options.add(i);
+            }
+        }
+
+        if (options.size() > 1) {
+            options.remove(Integer.valueOf(timer.lastNotice));
+        }
+
+        return options.isEmpty() ? -1 : options.get(ThreadLocalRandom.current().nextInt(options.size()));
+    }
+
+    private static boolean moduleEnabled() {
+        return PhantomBot.instance() == null || PhantomBot.instance().checkModuleEnabled(MODULE);
+    }
+
+    private static long index(String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The timer state of a group
+     */
+    private static final class Timer {
+
+        private NoticeGroup group;
+        /**
+         * The value of the chat message counter when the last notice was sent
+         */
+        private long sentAt;
+        private long lastSentTime = 0L;
+        private int lastNotice = -1;
+        private ScheduledFuture<?> future = null;
+        /**
+         * Incremented whenever the timer is cancelled, so that an attempt which was already running when it was cancelled does nothing
+         */
+        private long generation = 0L;
+        /**
+         * {@code true} while the interval has elapsed and the group is waiting for its required number of chat messages
+         */
+        private boolean waiting = false;
+
+        private Timer(NoticeGroup group, long sentAt) {
+            this.group = group;
+            this.sentAt = sentAt;
+        }
+    }
+
+    /**
+     * A group of notices which share a timer and settings. Instances are immutable, the {@code with} methods return a modified copy
+     */
+    public static final class NoticeGroup {
+
+        private final String name;
+        private final int reqMessages;
+        private final double intervalMin;
+        private final double intervalMax;
+        private final boolean shuffle;
+        private final boolean enabled;
+        private final boolean offline;
+        private final List<Notice> notices;
+
+        private NoticeGroup(String name, int reqMessages, double intervalMin, double intervalMax, boolean shuffle, boolean enabled,
+                boolean offline, List<Notice> notices) {
+            this.name = name;
+            this.reqMessages = reqMessages;
+            this.intervalMin = intervalMin;
+            this.intervalMax = intervalMax;
+            this.shuffle = shuffle;
+            this.enabled = enabled;
+            this.offline = offline;
+            this.notices = Collections.unmodifiableList(notices);
+        }
+
+        /**
+         * Creates a disabled group with the default settings and no notices
+         *
+         * @param name the name of the group
+         * @return the group
+         */
+        public static NoticeGroup create(String name) {
+            return new NoticeGroup(name, DEFAULT_REQ_MESSAGES, DEFAULT_INTERVAL, DEFAULT_INTERVAL, false, false, false, new ArrayList<>());
+        }
+
+        /**
+         * Parses a group from the JSON stored in the {@code notices} table. Missing settings are set to their defaults
+         *
+         * @param json the JSON object
+         * @return the group
+         * @throws JSONException if the value is not a JSON object
+         */
+        public static NoticeGroup parse(String json) {
+            return parse(new JSONObject(json));
+        }
+
+        private static NoticeGroup parse(JSONObject json) {
+            double min = json.optDouble("intervalMin", Double.NaN);
+            double max = json.optDouble("intervalMax", Double.NaN);
+            if (Double.isNaN(min)) {
+                min = Double.isNaN(max) ? DEFAULT_INTERVAL : max;
+            }
+
+            if (Double.isNaN(max)) {
+                max = min;
+            }
+
+            JSONArray messages = json.optJSONArray("messages");
+            JSONArray disabled = json.optJSONArray("disabled");
+            List<Notice> notices = new ArrayList<>();
+            if (messages != null) {
+                for (int i = 0; i < messages.length(); i++) {
+                    notices.add(new Notice(messages.optString(i, ""), disabled != null && disabled.optBoolean(i, false)));
+                }
+            }
+
+            return new NoticeGroup(json.optString("name", ""), json.optInt("reqMessages", DEFAULT_REQ_MESSAGES), min, max,
+                    json.optBoolean("shuffle", false), json.optBoolean("noticeToggle", false), json.optBoolean("noticeOfflineToggle", false),
+                    notices);
+        }
+
+        /**
+         * Indicates if every setting was present in the JSON which this group was parsed from
+         */
+        private boolean isComplete(JSONObject json) {
+            for (String key : new String[]{"name", "reqMessages", "intervalMin", "intervalMax", "shuffle", "noticeToggle", "noticeOfflineToggle"}) {
+                if (json.isNull(key)) {
+                    return false;
+                }
+            }
+
+            JSONArray messages = json.optJSONArray("messages");
+            JSONArray disabled = json.optJSONArray("disabled");
+            return messages != null && disabled != null && messages.length() == disabled.length();
+        }
+
+        /**
+         * @return the JSON stored in the {@code notices} table
+         */
+        public String toJSON() {
+            JSONArray messages = new JSONArray();
+            JSONArray disabled = new JSONArray();
+            for (Notice notice : this.notices) {
+                messages.put(notice.text());
+                disabled.put(notice.disabled());
+            }
+
+            return new JSONObject().put("name", this.name).put("reqMessages", this.reqMessages).put("intervalMin", this.intervalMin)
+                    .put("intervalMax", this.intervalMax).put("shuffle", this.shuffle).put("noticeToggle", this.enabled)
+                    .put("noticeOfflineToggle", this.offline).put("messages", messages).put("disabled", disabled).toString();
+        }
+
+        /**
+         * @return the name of the group
+         */
+        public String name() {
+            return this.name;
+        }
+
+        /**
+         * @return the number of chat messages required since the last notice before another is sent
+         */
+        public int reqMessages() {
+            return this.reqMessages;
+        }
+
+        /**
+         * @return the minimum interval between notices, in minutes
+         */
+        public double intervalMin() {
+            return this.intervalMin;
+        }
+
+        /**
+         * @return the maximum interval between notices, in minutes
+         */
+        public double intervalMax() {
+            return this.intervalMax;
+        }
+
+        /**
+         * @return {@code true} if the notices are sent in random order
+         */
+        public boolean shuffle() {
+            return this.shuffle;
+        }
+
+        /**
+         * @return {@code true} if the group is enabled
+         */
+        public boolean enabled() {
+            return this.enabled;
+        }
+
+        /**
+         * @return {@code true} if the notices are also sent while the stream is offline
+         */
+        public boolean offline() {
+            return this.offline;
+        }
+
+        /**
+         * @return the number of notices
+         */
+        public int size() {
+            return this.notices.size();
+        }
+
+        /**
+         * Returns a notice
+         *
+         * @param idx the index of the notice
+         * @return the notice
+         */
+        public Notice notice(int idx) {
+            return this.notices.get(idx);
+        }
+
+        /**
+         * @return the notices
+         */
+        public List<Notice> notices() {
+            return this.notices;
+        }
+
+        /**
+         * Changes the name
+         *
+         * @param name the name of the group
+         * @return the modified group
+         */
+        public NoticeGroup withName(String name) {
+            return new NoticeGroup(name, this.reqMessages, this.intervalMin, this.intervalMax, this.shuffle, this.enabled, this.offline, this.notices);
+        }
+
+        /**
+         * Changes the number of chat messages required between notices
+         *
+         * @param reqMessages the number of chat messages required between notices; {@code 0} to not require any
+         * @return the modified group
+         */
+        public NoticeGroup withReqMessages(int reqMessages) {
+            return new NoticeGroup(this.name, reqMessages, this.intervalMin, this.intervalMax, this.shuffle, this.enabled, this.offline, this.notices);
+        }
+
+        /**
+         * Changes the interval between notices
+         *
+         * @param intervalMin the minimum interval, in minutes
+         * @param intervalMax the maximum interval, in minutes
+         * @return the modified group
+         */
+        public NoticeGroup withInterval(double intervalMin, double intervalMax) {
+            return new NoticeGroup(this.name, this.reqMessages, intervalMin, intervalMax, this.shuffle, this.enabled, this.offline, this.notices);
+        }
+
+        /**
+         * Changes if the notices are sent in random order
+         *
+         * @param shuffle {@code true} to send the notices in random order
+         * @return the modified group
+         */
+        public NoticeGroup withShuffle(boolean shuffle) {
+            return new NoticeGroup(this.name, this.reqMessages, this.intervalMin, this.intervalMax, shuffle, this.enabled, this.offline, this.notices);
+        }
+
+        /**
+         * Enables or disables the group
+         *
+         * @param enabled {@code true} to enable the group
+         * @return the modified group
+         */
+        public NoticeGroup withEnabled(boolean enabled) {
+            return new NoticeGroup(this.name, this.reqMessages, this.intervalMin, this.intervalMax, this.shuffle, enabled, this.offline, this.notices);
+        }
+
+        /**
+         * Changes if the notices are also sent while the stream is offline
+         *
+         * @param offline {@code true} to also send the notices while the stream is offline
+         * @return the modified group
+         */
+        public NoticeGroup withOffline(boolean offline) {
+            return new NoticeGroup(this.name, this.reqMessages, this.intervalMin, this.intervalMax, this.shuffle, this.enabled, offline, this.notices);
+        }
+
+        /**
+         * Replaces the text of a notice, keeping its disabled state
+         *
+         * @param idx the index of the notice
+         * @param text the new text
+         * @return the modified group
+         */
+        public NoticeGroup withNotice(int idx, String text) {
+            List<Notice> list = new ArrayList<>(this.notices);
+            list.set(idx, new Notice(text, list.get(idx).disabled()));
+            return this.withNotices(list);
+        }
+
+        /**
+         * Disables or enables a notice
+         *
+         * @param idx the index of the notice
+         * @param disabled {@code true} to disable the notice
+         * @return the modified group
+         */
+        public NoticeGroup withNoticeDisabled(int idx, boolean disabled) {
+            List<Notice> list = new ArrayList<>(this.notices);
+            list.set(idx, new Notice(list.get(idx).text(), disabled));
+            return this.withNotices(list);
+        }
+
+        /**
+         * Inserts an enabled notice
+         *
+         * @param idx the index to insert at; clamped to the range of the list
+         * @param text the text of the notice
+         * @return the modified group
+         */
+        public NoticeGroup withNoticeInserted(int idx, String text) {
+            List<Notice> list = new ArrayList<>(this.notices);
+            list.add(Math.max(0, Math.min(idx, list.size())), new Notice(text, false));
+            return this.withNotices(list);
+        }
+
+        /**
+         * Appends an enabled notice
+         *
+         * @param text the text of the notice
+         * @return the modified group
+         */
+        public NoticeGroup withNoticeAdded(String text) {
+            return this.withNoticeInserted(this.notices.size(), text);
+        }
+
+        /**
+         * Removes a notice
+         *
+         * @param idx the index of the notice
+         * @return the modified group
+         */
+        public NoticeGroup withoutNotice(int idx) {
+            List<Notice> list = new ArrayList<>(this.notices);
+            list.remove(idx);
+            return this.withNotices(list);
+        }
+
+        private NoticeGroup withNotices(List<Notice> notices) {
+            return new NoticeGroup(this.name, this.reqMessages, this.intervalMin, this.intervalMax, this.shuffle, this.enabled, this.offline, notices);
+        }
+    }
+
+    /**
+     * A notice, with its {@code (gameonly=...)} tag and command prefix parsed when it is loaded
+     */
+    public static final class Notice {
+
+        private static final Pattern GAMEONLY = Pattern.compile("\\(gameonly=(.*)\\)");
+        private final String text;
+        private final boolean disabled;
+        private final String message;
+        private final String game;
+        private final String command;
+
+        private Notice(String text, boolean disabled) {
+            this.text = text;
+            this.disabled = disabled;
+
+            Matcher matcher = GAMEONLY.matcher(text);
+            String parsed = text;
+            if (matcher.find()) {
+                this.game = matcher.group(1);
+                parsed = text.replace(matcher.group(), "");
+            } else {
+                this.game = null;
+            }
+
+            this.message = parsed;
+            if (parsed.startsWith("command:")) {
+                this.command = parsed.substring(8).replaceFirst("!", "");
+            } else if (parsed.startsWith("!")) {
+                this.command = parsed.substring(1);
+            } else {
+                this.command = null;
+            }
+        }
+
+        /**
+         * @return the notice as entered
+         */
+        public String text() {
+            return this.text;
+        }
+
+        /**
+         * @return {@code true} if the notice is disabled
+         */
+        public boolean disabled() {
+            return this.disabled;
+        }
+
+        /**
+         * @return the notice without its {@code (gameonly=...)} tag
+         */
+        public String message() {
+            return this.message;
+        }
+
+        /**
+         * @return the game the notice is restricted to; {@code null} if it is not restricted
+         */
+        public String game() {
+            return this.game;
+        }
+
+        /**
+         * @return the command, with its arguments, which the notice runs; {@code null} if the notice is a chat message
+         */
+        public String command() {
+            return this.command;
+        }
+
+        /**
+         * Indicates if the notice can be sent
+         *
+         * @param currentGame the game being played
+         * @return {@code true} if the notice is enabled and is not restricted to another game
+         */
+        public boolean canSend(String currentGame) {
+            return !this.disabled && (this.game == null || this.game.equalsIgnoreCase(currentGame));
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.scripts.systems;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.gmt2001.datastore.DataStore;
+import com.gmt2001.datastore.KeyValue;
+import com.gmt2001.twitch.cache.Viewer;
+import com.gmt2001.twitch.cache.ViewerCache;
+
+/**
+ * Calculates and applies the points payout for the users in chat, for {@code systems/pointSystem.js}
+ * <p>
+ * The permission group of every chatter is resolved from one bulk query of the {@code group} table, the gains from one read of the
+ * {@code groups} and {@code grouppoints} tables, and the users are then grouped by the amount they receive so that each distinct amount is
+ * applied with one batched increment
+ *
+ * @author gmt2001
+ */
+public final class PayoutEngine {
+
+    private static final PayoutEngine INSTANCE = new PayoutEngine();
+    private static final int CASTER = 0;
+    private static final int REGULAR = 6;
+    private static final int VIEWER = 7;
+
+    /**
+     * Provides an instance of {@link PayoutEngine}
+     *
+     * @return an instance of {@link PayoutEngine}
+     */
+    public static PayoutEngine instance() {
+        return INSTANCE;
+    }
+
+    private PayoutEngine() {
+    }
+
+    /**
+     * Pays out points to the current chatters from {@link ViewerCache}
+     *
+     * @param settings the gains and exclusions for this payout
+     * @return the summary of the payout
+     */
+    public Result run(Settings settings) {
+        List<String> chatters = new ArrayList<>();
+        for (Viewer viewer : ViewerCache.instance().chatters()) {
+            if (viewer.login() != null) {
+                chatters.add(viewer.login().toLowerCase());
+            }
+        }
+
+        Set<String> active = new HashSet<>();
+        if (settings.activeBonus > 0L) {
+            for (Viewer viewer : ViewerCache.instance().activeChatters()) {
+                if (viewer.login() != null) {
+                    active.add(viewer.login().toLowerCase());
+                }
+            }
+        }
+
+        return this.run(settings, chatters, active);
+    }
+
+    /**
+     * Pays out points to the given users
+     *
+     * @param settings the gains and exclusions for this payout
+     * @param chatters the lower-cased logins of the users in chat
+     * @param active the lower-cased logins of the users who receive the active bonus
+     * @return the summary of the payout
+     */
+    public Result run(Settings settings, Collection<String> chatters, Set<String> active) {
+        long start = System.nanoTime();
+        Map<Long, List<String>> payouts = this.calculate(settings, chatters, active);
+        long calculated = System.nanoTime();
+
+        DataStore.instance().IncreaseGroupedBatchLong("points", "", payouts);
+        long applied = System.nanoTime();
+
+        int users = 0;
+        long total = 0L;
+        for (Map.Entry<Long, List<String>> kv : payouts.entrySet()) {
+            users += kv.getValue().size();
+            total += kv.getKey() * kv.getValue().size();
+        }
+
+        Result result = new Result(chatters.size(), users, payouts.size(), total, (calculated - start) / 1_000_000L, (applied - calculated) / 1_000_000L);
+        com.gmt2001.Console.debug.println(result.toString());
+        return result;
+    }
+
+    /**
+     * Calculates the amount each user receives
+     *
+     * @param settings the gains and exclusions for this payout
+     * @param chatters the lower-cased logins of the users in chat
+     * @param active the lower-cased logins of the users who receive the active bonus
+     * @return the users who receive points, grouped by amount
+     */
+    public Map<Long, List<String>> calculate(Settings settings, Collection<String> chatters, Set<String> active) {
+        Set<String> users = new LinkedHashSet<>(chatters);
+        users.removeAll(settings.excluded);
+
+        Map<String, Integer> groupIds = new HashMap<>();
+        for (KeyValue kv : DataStore.instance().GetKeyValueListByKeys("group", "", users.toArray(new String[0]))) {
+            try {
+                groupIds.put(kv.getKey().toLowerCase(), Integer.valueOf(kv.getValue()));
+            } catch (NumberFormatException ex) {
+            }
+        }
+
+        Map<Integer, String> groupNames = new HashMap<>();
+        for (KeyValue kv : DataStore.instance().GetKeyValueList("groups", "")) {
+            try {
+                groupNames.put(Integer.valueOf(kv.getKey()), kv.getValue());
+            } catch (NumberFormatException ex) {
+            }
+        }
+
+        Map<String, Long> groupGains = new HashMap<>();
+        for (KeyValue kv : DataStore.instance().GetKeyValueList(settings.online ? "grouppoints" : "grouppointsoffline", "")) {
+            try {
+                groupGains.put(kv.getKey(), Long.valueOf(kv.getValue()));
+            } catch (NumberFormatException ex) {
+            }
+        }
+
+        Map<String, String> groupByUser = new HashMap<>();
+        List<String> subscribers = new ArrayList<>();
+        String viewerName = groupNames.getOrDefault(VIEWER, "Viewer");
+        for (String user : users) {
+            String group = groupNames.getOrDefault(this.groupId(settings, groupIds, user), viewerName);
+            groupByUser.put(user, group);
+            if (group.equals("Subscriber")) {
+                subscribers.add(user);
+            }
+        }
+
+        Map<String, String> plans = new HashMap<>();
+        if (!subscribers.isEmpty()) {
+            for (KeyValue kv : DataStore.instance().GetKeyValueListByKeys("subplan", "", subscribers.toArray(new String[0]))) {
+                plans.put(kv.getKey().toLowerCase(), kv.getValue());
+            }
+        }
+
+        Map<Long, List<String>> payouts = new TreeMap<>();
+        for (String user : users) {
+            String group = groupByUser.get(user);
+            long amount = groupGains.getOrDefault(group, -1L);
+            if (plans.containsKey(user)) {
+                amount = groupGains.getOrDefault(group + plans.get(user), amount);
+            }
+
+            if (amount < 0L) {
+                amount = Math.max(settings.gain, 0L);
+            }
+
+            if (active.contains(user)) {
+                amount += settings.activeBonus;
+            }
+
+            amount += settings.bonus;
+
+            if (amount > 0L) {
+                payouts.computeIfAbsent(amount, k -> new ArrayList<>()).add(user);
+            }
+        }
+
+        return payouts;
+    }
+
+    /**
+     * Resolves the permission group of a user the same way as {@code getUserGroupId} in {@code core/permissions.js}, without tags
+     */
+    private int groupId(Settings settings, Map<String, Integer> groupIds, String user) {
+        int id = VIEWER;
+        Integer stored = groupIds.get(user);
+        if (stored != null && stored >= CASTER && stored <= REGULAR) {
+            id = stored;
+        }
+
+        for (Map.Entry<Integer, Set<String>> members : settings.members.entrySet()) {
+            if (members.getKey() < id && members.getValue().contains(user)) {
+                id = members.getKey();
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * The gains and exclusions for a payout
+     */
+    public static final class Settings {
+
+        private final boolean online;
+        private final long gain;
+        private long activeBonus = 0L;
+        private long bonus = 0L;
+        private final Set<String> excluded = new HashSet<>();
+        private final Map<Integer, Set<String>> members = new TreeMap<>();
+
+        /**
+         * Constructor
+         *
+         * @param online {@code true} if the channel is online, selecting the {@code grouppoints} table; otherwise {@code grouppointsoffline}
+         * @param gain the gain for users whose group has no gain set
+         */
+        public Settings(boolean online, long gain) {
+            this.online = online;
+            this.gain = gain;
+        }
+
+        /**
+         * Sets the bonus for users in {@link ViewerCache#activeChatters()}
+         *
+         * @param activeBonus the bonus; {@code 0} to disable
+         * @return this
+         */
+        public Settings activeBonus(long activeBonus) {
+            this.activeBonus = Math.max(activeBonus, 0L);
+            return this;
+        }
+
+        /**
+         * Sets the bonus for all users
+         *
+         * @param bonus the bonus; {@code 0} to disable
+         * @return this
+         */
+        public Settings bonus(long bonus) {
+            this.bonus = Math.max(bonus, 0L);
+            return this;
+        }
+
+        /**
+         * Excludes users from the payout
+         *
+         * @param logins the logins of the users
+         * @return this
+         */
+        public Settings exclude(Collection<?> logins) {
+            for (Object login : logins) {
+                this.excluded.add(login.toString().toLowerCase());
+            }
+
+            return this;
+        }
+
+        /**
+         * Marks users as members of a permission group regardless of the {@code group} table, such as from the moderator or subscriber caches
+         *
+         * @param groupId the permission group id
+         * @param logins the logins of the users
+         * @return this
+         */
+        public Settings members(int groupId, Collection<?> logins) {
+            Set<String> set = this.members.computeIfAbsent(groupId, k -> new HashSet<>());
+            for (Object login : logins) {
+                set.add(login.toString().toLowerCase());
+            }
+
+            return this;
+        }
+    }
+
+    /**
+     * The summary of a payout
+     */
+    public static final class Result {
+
+        private final int chatters;
+        private final int users;
+        private final int amounts;
+        private final long points;
+        private final long calculateMs;
+        private final long applyMs;
+
+        private Result(int chatters, int users, int amounts, long points, long calculateMs, long applyMs) {
+            this.chatters = chatters;
+            this.users = users;
+            this.amounts = amounts;
+            this.points = points;
+            this.calculateMs = calculateMs;
+            this.applyMs = applyMs;
+        }
+
+        /**
+         * @return the number of users in chat
+         */
+        public int chatters() {
+            return this.chatters;
+        }
+
+        /**
+         * @return the number of users who received points
+         */
+        public int users() {
+            return this.users;
+        }
+
+        /**
+         * @return the number of distinct amounts, and so of batched increments
+         */
+        public int amounts() {
+            return this.amounts;
+        }
+
+        /**
+         * @return the total number of points paid out
+         */
+        public long points() {
+            return this.points;
+        }
+
+        /**
+         * @return the time taken to calculate the amounts, in milliseconds
+         */
+        public long calculateMs() {
+            return this.calculateMs;
+        }
+
+        /**
+         * @return the time taken to apply the increments, in milliseconds
+         */
+        public long applyMs() {
+            return this.applyMs;
+        }
+
+        @Override
+        public String toString() {
+            return "PayoutEngine: paid " + this.points + " points to " + this.users + " of " + this.chatters + " chatters in " + this.amounts
+                + " batches (calculate " + this.calculateMs + "ms, apply " + this.applyMs + "ms)";
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -104,15 +105,32 @@ public class Helix {
     @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
     private final ConcurrentMap<String, CallRequest> calls = new ConcurrentHashMap<>();
     private final ReentrantLock lock = new ReentrantLock();
+    private final HelixResponseCache responseCache;
+    private final String baseUrl;
     private Instant nextWarning = Instant.now();
 
     private Helix() {
+        this(BASE_URL, new HelixResponseCache());
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
         ExecutorService.schedule(() -> {
             ExecutorService.scheduleWithFixedDelay(Helix.instance()::processQueue, QUEUE_TIME, QUEUE_TIME, TimeUnit.MILLISECONDS);
         }, 1000, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Creates a separate instance which sends its requests to another server, for testing against a local server without touching the rate
+     * limits or cached responses of {@link #instance()}
+     * <p>
+     * The queue of async requests is not processed, so only the synchronous package-private {@link #handleRequest(HttpMethod, String)} is usable
+     *
+     * @param baseUrl the base URL, without a trailing slash
+     * @param responseCache the response cache to use
+     */
+    Helix(String baseUrl, HelixResponseCache responseCache) {
+        this.baseUrl = baseUrl;
+        this.responseCache = responseCache;
+    }
+
     public void setOAuth(String oauth) {
         this.oAuthToken = oauth.replaceFirst("oauth:", "");
     }
@@ -269,6 +287,15 @@ public class Helix {
     private JSONObject handleRequest(HttpMethod type, String endPoint, String data, boolean isRetry, String oauth) throws JSONException, Throwable {
         JSONObject returnObject = new JSONObject();
         int responseCode = 0;
+        // Responses requested with a caller-supplied token may be specific to that user, so only those requested with the bot's token are cached
+        boolean cacheable = type == HttpMethod.GET && (oauth == null || oauth.isBlank()) && this.responseCache.isCacheable(endPoint);
+
+        if (cacheable) {
+            Optional<JSONObject> cached = this.responseCache.get(endPoint);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
 
         this.checkRateLimit();
 
@@ -284,19 +311,25 @@ public class Helix {
             HttpHeaders headers = HttpClient.createHeaders(type, true);
             headers.add("Client-ID", CaselessProperties.instance().getProperty("clientid", TwitchValidate.instance().getAPIClientID()));
             headers.add("Authorization", "Bearer " + (oauth != null && !oauth.isBlank() ? oauth : this.oAuthToken));
-            HttpClientResponse response = HttpClient.request(type, URIUtil.create(BASE_URL + endPoint), headers, data);
-
+            String etag = cacheable ? this.responseCache.etag(endPoint) : null;
+            if (etag != null) {
+                headers.add("If-None-Match", etag);
+            }
+            HttpClientResponse response = this.send(type, endPoint, headers, data);
             responseCode = response.responseCode().code();
 
-            if (CaselessProperties.instance().getPropertyAsBoolean("helixdebug", false)) {
-                com.gmt2001.Console.debug.println("Helix ratelimit response > Limit: " + response.responseHeaders().getAsString("Ratelimit-Limit")
-                        + " <> Remaining: " + response.responseHeaders().getAsString("Ratelimit-Remaining") + " <> Reset: "
-                        + response.responseHeaders().getAsString("Ratelimit-Reset"));
-            }
+            if (cacheable && responseCode == 304) {
+                JSONObject cached = this.responseCache.revalidate(endPoint);
+                if (cached != null) {
+                    return cached;
+                }
 
-            this.updateRateLimits(response.responseHeaders().getInt("Ratelimit-Limit", RATELIMIT_DEFMAX),
-                    response.responseHeaders().getInt("Ratelimit-Remaining", 1),
-                    response.responseHeaders().getInt("Ratelimit-Reset", (int) (Instant.now().toEpochMilli() / 1000)) * 1000);
+                // The cached response was evicted or invalidated while the request was in flight, so there is nothing to revalidate
+                headers.remove("If-None-Match");
+                this.checkRateLimit();
+                response = this.send(type, endPoint, headers, data);
+                responseCode = response.responseCode().code();
+            }
 
             try {
                 if (responseCode == 204) {
@@ -315,6 +348,14 @@ public class Helix {
             }
             // Generate the return object,
             HttpRequest.generateJSONObject(returnObject, true, type.name(), data, endPoint, responseCode, "", "");
+
+            if (responseCode >= 200 && responseCode < 300 && !returnObject.has("error")) {
+                if (cacheable) {
+                    this.responseCache.put(endPoint, returnObject, response.responseHeaders().get("ETag"));
+                } else if (type != HttpMethod.GET) {
+                    this.invalidate(endPoint);
+                }
+            }
         } catch (Exception ex) {
             // Generate the return object.
             HttpRequest.generateJSONObject(returnObject, false, type.name(), data, endPoint, responseCode, ex.getClass().getSimpleName(), ex.getMessage());
@@ -342,6 +383,31 @@ public class Helix {
         return returnObject;
     }
 
+    /**
+     * Sends a request to Helix and updates the rate limits from the response
+     *
+     * @param type the HTTP method
+     * @param endPoint the endpoint, including the query string
+     * @param headers the request headers
+     * @param data the request body
+     * @return the response
+     */
+    private HttpClientResponse send(HttpMethod type, String endPoint, HttpHeaders headers, String data) {
+        HttpClientResponse response = HttpClient.request(type, URIUtil.create(this.baseUrl + endPoint), headers, data);
+
+        if (CaselessProperties.instance().getPropertyAsBoolean("helixdebug", false)) {
+            com.gmt2001.Console.debug.println("Helix ratelimit response > Limit: " + response.responseHeaders().getAsString("Ratelimit-Limit")
+                    + " <> Remaining: " + response.responseHeaders().getAsString("Ratelimit-Remaining") + " <> Reset: "
+                    + response.responseHeaders().getAsString("Ratelimit-Reset"));
+        }
+
+        this.updateRateLimits(response.responseHeaders().getInt("Ratelimit-Limit", RATELIMIT_DEFMAX),
+                response.responseHeaders().getInt("Ratelimit-Remaining", 1),
+                response.responseHeaders().getInt("Ratelimit-Reset", (int) (Instant.now().toEpochMilli() / 1000)) * 1000);
+
+        return response;
+    }
+
     /**
      * Method that handles data for Helix.
      *
@@ -357,12 +423,14 @@ public class Helix {
 
     /**
      * Method that handles a request without any data being passed.
+     * <p>
+     * Package-private so that {@link HelixResponseCacheCheck} can bypass the short-lived deduplication of identical queries
      *
      * @param type
      * @param endPoint
      * @return A JSONObject with the response
      */
-    private JSONObject handleRequest(HttpMethod type, String endPoint) throws JSONException {
+    JSONObject handleRequest(HttpMethod type, String endPoint) throws JSONException {
         return this.handleRequest(type, endPoint, "", null);
     }
 
@@ -394,6 +462,25 @@ public class Helix {
         }).processor;
     }
 
+    /**
+     * Discards the cached responses of an endpoint after it has been mutated, including the short-lived in-flight entry for the same query
+     *
+     * @param endPoint the endpoint which was mutated
+     */
+    private void invalidate(String endPoint) {
+        this.responseCache.invalidate(endPoint);
+        this.calls.remove(this.digest(endPoint));
+    }
+
+    /**
+     * Returns the cache of Helix responses for slowly-changing endpoints, which also provides hit and miss counters per endpoint
+     *
+     * @return the response cache
+     */
+    public HelixResponseCache responseCache() {
+        return this.responseCache;
+    }
+
     private String digest(String input) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.api;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+
+/**
+ * Caches successful Helix {@code GET} responses for slowly-changing resources, with a time-to-live per endpoint
+ * <p>
+ * Only the endpoints listed in {@link #TTLS} are cached. Once an entry expires it is kept, so that its {@code ETag}, if Twitch sent one, can be
+ * used to revalidate it with {@code If-None-Match}. The least recently used entries are evicted once the cache is full. A successful mutation
+ * of an endpoint through {@link Helix} removes all cached responses of that endpoint. Changes made outside of the bot, such as a channel
+ * update notification from EventSub, expire the affected responses with {@link #expire(String)}
+ *
+ * @author gmt2001
+ */
+public final class HelixResponseCache {
+
+    /**
+     * Time-to-live of each cacheable endpoint, keyed by the path without the query string
+     */
+    private static final Map<String, Duration> TTLS = Map.ofEntries(
+        Map.entry("/users", Duration.ofMinutes(10)),
+        Map.entry("/channels", Duration.ofSeconds(15)),
+        Map.entry("/games", Duration.ofHours(1)),
+        Map.entry("/search/categories", Duration.ofMinutes(10)),
+        Map.entry("/chat/emotes", Duration.ofMinutes(10)),
+        Map.entry("/chat/emotes/global", Duration.ofHours(1)),
+        Map.entry("/chat/badges", Duration.ofMinutes(10)),
+        Map.entry("/chat/badges/global", Duration.ofHours(1)),
+        Map.entry("/bits/cheermotes", Duration.ofHours(1)),
+        Map.entry("/teams", Duration.ofHours(1)),
+        Map.entry("/teams/channel", Duration.ofMinutes(10))
+    );
+    private static final int CAPACITY = 2000;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entries;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    HelixResponseCache() {
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (this.size() > CAPACITY) {
+                    HelixResponseCache.this.stats(eldest.getValue().resource).evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the endpoint path, without the query string
+     *
+     * @param endpoint the endpoint, including the query string
+     * @return the path
+     */
+    static String resource(String endpoint) {
+        int idx = endpoint.indexOf('?');
+        return idx < 0 ? endpoint : endpoint.substring(0, idx);
+    }
+
+    /**
+     * Indicates if responses from the endpoint are cached
+     *
+     * @param endpoint the endpoint, including the query string
+     * @return {@code true} if the endpoint is cacheable
+     */
+    boolean isCacheable(String endpoint) {
+        return TTLS.containsKey(resource(endpoint));
+    }
+
+    /**
+     * Returns a copy of the cached response, if it has not expired. Counts a hit or a miss
+     *
+     * @param endpoint the endpoint, including the query string
+     * @return the response; an empty {@link Optional} if not cached or expired
+     */
+    Optional<JSONObject> get(String endpoint) {
+        Entry entry;
+        this.lock.lock();
+        try {
+            entry = this.entries.get(endpoint);
+        } finally {
+            this.lock.unlock();
+        }
+
+        Stats s = this.stats(resource(endpoint));
+        if (entry != null && entry.expires > System.nanoTime()) {
+            s.hits.incrementAndGet();
+            return Optional.of(new JSONObject(entry.body));
+        }
+
+        s.misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the {@code ETag} of a cached response, expired or not
+     *
+     * @param endpoint the endpoint, including the query string
+     * @return the {@code ETag}; {@code null} if not cached or Twitch did not send one
+     */
+    String etag(String endpoint) {
+        this.lock.lock();
+        try {
+            Entry entry = this.entries.get(endpoint);
+            return entry == null ? null : entry.etag;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Renews a cached response after Twitch answered {@code 304 Not Modified}
+     *
+     * @param endpoint the endpoint, including the query string
+     * @return a copy of the cached response; {@code null} if it was evicted or invalidated in the meantime
+     */
+    JSONObject revalidate(String endpoint) {
+        Entry entry;
+        this.lock.lock();
+        try {
+            entry = this.entries.get(endpoint);
+            if (entry != null) {
+                entry = new Entry(entry.resource, entry.body, entry.etag);
+                this.entries.put(endpoint, entry);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        this.stats(entry.resource).revalidations.incrementAndGet();
+        return new JSONObject(entry.body);
+    }
+
+    /**
+     * Caches a response
+     *
+     * @param endpoint the endpoint, including the query string
+     * @param response the response
+     * @param etag the {@code ETag} response header; {@code null} if not sent
+     */
+    void put(String endpoint, JSONObject response, String etag) {
+        Entry entry = new Entry(resource(endpoint), response.toString(), etag);
+        this.lock.lock();
+        try {
+            this.entries.put(endpoint, entry);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached responses of an endpoint, regardless of the query string
+     *
+     * @param endpoint the endpoint; the query string, if present, is ignored
+     */
+    public void invalidate(String endpoint) {
+        String resource = resource(endpoint);
+        if (!TTLS.containsKey(resource)) {
+            return;
+        }
+
+        this.lock.lock();
+        try {
+            this.entries.values().removeIf(entry -> entry.resource.equals(resource));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Expires all cached responses of an endpoint, regardless of the query string, keeping their {@code ETag} so that the next request
+     * revalidates them
+     *
+     * @param endpoint the endpoint; the query string, if present, is ignored
+     */
+    public void expire(String endpoint) {
+        String resource = resource(endpoint);
+        if (!TTLS.containsKey(resource)) {
+            return;
+        }
+
+        this.lock.lock();
+        try {
+            this.entries.replaceAll((k, entry) -> entry.resource.equals(resource) ? new Entry(entry.resource, entry.body, entry.etag, System.nanoTime() - 1L) : entry);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached responses
+     */
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.entries.clear();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.entries.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the counters of each endpoint which has been requested
+     *
+     * @return a map of endpoint path to counters, sorted by path
+     */
+    public Map<String, Stats> stats() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.stats));
+    }
+
+    private Stats stats(String resource) {
+        return this.stats.computeIfAbsent(resource, k -> new Stats());
+    }
+
+    /**
+     * A cached response
+     */
+    private static final class Entry {
+
+        private final String resource;
+        private final String body;
+        private final String etag;
+        private final long expires;
+
+        private Entry(String resource, String body, String etag) {
+            this(resource, body, etag, System.nanoTime() + TTLS.get(resource).toNanos());
+        }
+
+        private Entry(String resource, String body, String etag, long expires) {
+            this.resource = resource;
+            this.body = body;
+            this.etag = etag;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * The cache counters of one endpoint
+     */
+    public static final class Stats {
+
+        private final AtomicLong hits = new AtomicLong(0L);
+        private final AtomicLong misses = new AtomicLong(0L);
+        private final AtomicLong revalidations = new AtomicLong(0L);
+        private final AtomicLong evictions = new AtomicLong(0L);
+
+        private Stats() {
+        }
+
+        /**
+         * @return the number of requests answered from the cache
+         */
+        public long hits() {
+            return this.hits.get();
+        }
+
+        /**
+         * @return the number of requests which were sent to Twitch
+         */
+        public long misses() {
+            return this.misses.get();
+        }
+
+        /**
+         * @return the number of misses which Twitch answered with {@code 304 Not Modified}
+         */
+        public long revalidations() {
+            return this.revalidations.get();
+        }
+
+        /**
+         * @return the number of responses evicted to keep the cache within its capacity
+         */
+        public long evictions() {
+            return this.evictions.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Stats(hits=" + this.hits.get() + ", misses=" + this.misses.get() + ", revalidations=" + this.revalidations.get()
+                + ", evictions=" + this.evictions.get() + ")";
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * Checks the behaviour of {@link HelixResponseCache} inside {@link Helix} against a local fake Helix server. Run by the {@code benchmark helixcache}
+ * console command
+ * <p>
+ * The checks use a separate {@link Helix} and {@link HelixResponseCache}, so the rate limits and cached responses of {@link Helix#instance()} are
+ * not touched while they run
+ * <p>
+ * The fake server answers every {@code GET} with a body containing a per-endpoint version number and a matching {@code ETag}, answers
+ * {@code 304 Not Modified} when {@code If-None-Match} matches the current version, and answers every other method with {@code 204 No Content}
+ *
+ * @author gmt2001
+ */
+public final class HelixResponseCacheCheck {
+
+    private static final String USERS = "/users?login=helixcachecheck";
+    private static final String CHANNELS = "/channels?broadcaster_id=0";
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final AtomicInteger conditional = new AtomicInteger(0);
+    private final AtomicInteger version = new AtomicInteger(1);
+    /**
+     * Run before answering a conditional request, to simulate changes to the cache while the request is in flight
+     */
+    private final AtomicReference<Runnable> onConditional = new AtomicReference<>(() -> {});
+    private final List<String> results = new ArrayList<>();
+
+    private HelixResponseCacheCheck() {
+    }
+
+    /**
+     * Runs the checks
+     *
+     * @return one line per check, starting with {@code PASS} or {@code FAIL}
+     * @throws IOException if the fake server can not be started
+     */
+    public static List<String> run() throws IOException {
+        return new HelixResponseCacheCheck().runChecks();
+    }
+
+    private List<String> runChecks() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/helix", this::handle);
+        server.start();
+        HelixResponseCache cache = new HelixResponseCache();
+        Helix helix = new Helix("http://127.0.0.1:" + server.getAddress().getPort() + "/helix", cache);
+        helix.setOAuth("helixcachecheck");
+        try {
+            JSONObject first = helix.handleRequest(HttpMethod.GET, USERS);
+            this.check("first request is sent", this.requests.get() == 1 && first.optInt("version") == 1);
+
+            JSONObject second = helix.handleRequest(HttpMethod.GET, USERS);
+            this.check("repeated request is served from the cache", this.requests.get() == 1 && second.optInt("version") == 1);
+
+            long revalidations = cache.stats().get("/users").revalidations();
+            cache.expire(USERS);
+            JSONObject third = helix.handleRequest(HttpMethod.GET, USERS);
+            this.check("expired response is revalidated with If-None-Match and reused on 304", this.requests.get() == 2 && this.conditional.get() == 1
+                && third.optInt("version") == 1 && cache.stats().get("/users").revalidations() == revalidations + 1);
+
+            this.version.incrementAndGet();
+            cache.expire(USERS);
+            JSONObject fourth = helix.handleRequest(HttpMethod.GET, USERS);
+            this.check("expired response which changed is replaced", this.requests.get() == 3 && fourth.optInt("version") == 2);
+
+            this.onConditional.set(() -> cache.invalidate(USERS));
+            cache.expire(USERS);
+            JSONObject fifth = helix.handleRequest(HttpMethod.GET, USERS);
+            this.onConditional.set(() -> {});
+            this.check("304 for a response evicted in flight is re-requested without If-None-Match", this.requests.get() == 5
+                && this.conditional.get() == 3 && fifth.optInt("version") == 2 && !fifth.has("error"));
+
+            helix.handleRequest(HttpMethod.GET, CHANNELS);
+            int before = this.requests.get();
+            helix.handleRequest(HttpMethod.PATCH, CHANNELS);
+            helix.handleRequest(HttpMethod.GET, CHANNELS);
+            this.check("mutation invalidates the cached responses of the endpoint", this.requests.get() == before + 2);
+        } catch (Exception ex) {
+            this.results.add("FAIL: " + ex.getClass().getSimpleName() + ": " + ex.getMessage());
+        } finally {
+            server.stop(0);
+        }
+
+        return this.results;
+    }
+
+    private void check(String description, boolean passed) {
+        this.results.add((passed ? "PASS: " : "FAIL: ") + description);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Ratelimit-Limit", "800");
+        exchange.getResponseHeaders().add("Ratelimit-Remaining", "799");
+        exchange.getResponseHeaders().add("Ratelimit-Reset", Long.toString(System.currentTimeMillis() / 1000L + 60L));
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+
+        String etag = "\"v" + this.version.get() + "\"";
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            this.conditional.incrementAndGet();
+            this.onConditional.get().run();
+            if (ifNoneMatch.equals(etag)) {
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        byte[] body = new JSONObject().put("data", List.of()).put("version", this.version.get()).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Combines individual user lookups into batched calls to {@link Helix#getUsersAsync(List, List)}
+ * <p>
+ * Lookups are gathered for {@link #WINDOW_MS} ms, or until {@link #MAX_BATCH} users are waiting, then sent as one request. Concurrent lookups of
+ * the same user share one result. Each call to Helix consumes one rate limit token, so every lookup which is batched or shared saves one
+ *
+ * @author gmt2001
+ */
+public final class HelixUserCoalescer {
+
+    private static final HelixUserCoalescer INSTANCE = new HelixUserCoalescer();
+    /**
+     * How long to gather lookups before sending a batch, in ms
+     */
+    private static final int WINDOW_MS = 10;
+    /**
+     * Maximum number of ids and logins in one call to Helix
+     */
+    private static final int MAX_BATCH = 100;
+    /**
+     * Sends the batches. Separate from the shared {@link com.gmt2001.util.concurrent.ExecutorService}, so that callers blocking on a lookup from
+     * one of its threads can not starve the flush
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tv.phantombot.twitch.api.HelixUserCoalescer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Sinks.One<Optional<JSONObject>>> pending = new LinkedHashMap<>();
+    private final Map<String, Mono<Optional<JSONObject>>> inFlight = new HashMap<>();
+    private final AtomicLong lookups = new AtomicLong(0L);
+    private final AtomicLong calls = new AtomicLong(0L);
+    private ScheduledFuture<?> flush = null;
+
+    /**
+     * Provides an instance of {@link HelixUserCoalescer}
+     *
+     * @return an instance of {@link HelixUserCoalescer}
+     */
+    public static HelixUserCoalescer instance() {
+        return INSTANCE;
+    }
+
+    private HelixUserCoalescer() {
+    }
+
+    /**
+     * Looks up a user by id
+     *
+     * @param id the user id
+     * @return a {@link Mono} which emits the user object from the {@code data} array of {@code Get Users}; an empty {@link Optional} if not found
+     */
+    public Mono<Optional<JSONObject>> byId(String id) {
+        return this.lookup("id:" + id);
+    }
+
+    /**
+     * Looks up a user by login
+     *
+     * @param login the user login
+     * @return a {@link Mono} which emits the user object from the {@code data} array of {@code Get Users}; an empty {@link Optional} if not found
+     */
+    public Mono<Optional<JSONObject>> byLogin(String login) {
+        return this.lookup("login:" + login.toLowerCase());
+    }
+
+    /**
+     * @return the number of lookups requested
+     */
+    public long lookups() {
+        return this.lookups.get();
+    }
+
+    /**
+     * @return the number of calls made to Helix
+     */
+    public long calls() {
+        return this.calls.get();
+    }
+
+    /**
+     * @return the number of rate limit tokens saved by batching and sharing lookups
+     */
+    public long tokensSaved() {
+        return Math.max(0L, this.lookups.get() - this.calls.get());
+    }
+
+    private synchronized Mono<Optional<JSONObject>> lookup(String key) {
+        this.lookups.incrementAndGet();
+        Mono<Optional<JSONObject>> existing = this.inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        Sinks.One<Optional<JSONObject>> sink = Sinks.one();
+        Mono<Optional<JSONObject>> mono = sink.asMono();
+        this.pending.put(key, sink);
+        this.inFlight.put(key, mono);
+
+        if (this.pending.size() >= MAX_BATCH) {
+            if (this.flush != null) {
+                this.flush.cancel(false);
+                this.flush = null;
+            }
+            this.executor.execute(this::flush);
+        } else if (this.flush == null) {
+            this.flush = this.executor.schedule(this::flush, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+
+        return mono;
+    }
+
+    private void flush() {
+        Map<String, Sinks.One<Optional<JSONObject>>> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            this.flush = null;
+            Iterator<Map.Entry<String, Sinks.One<Optional<JSONObject>>>> it = this.pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < MAX_BATCH) {
+                Map.Entry<String, Sinks.One<Optional<JSONObject>>> kv = it.next();
+                batch.put(kv.getKey(), kv.getValue());
+                it.remove();
+            }
+
+            if (!this.pending.isEmpty()) {
+                this.executor.execute(this::flush);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<String> logins = new ArrayList<>();
+        for (String key : batch.keySet()) {
+            if (key.startsWith("id:")) {
+                ids.add(key.substring(3));
+            } else {
+                logins.add(key.substring(6));
+            }
+        }
+
+        this.calls.incrementAndGet();
+        Mono<JSONObject> request;
+        try {
+            request = Helix.instance().getUsersAsync(ids.isEmpty() ? null : ids, logins.isEmpty() ? null : logins);
+        } catch (JSONException ex) {
+            this.complete(batch, null, ex);
+            return;
+        }
+
+        request.subscribe(jso -> {
+            Map<String, JSONObject> found = new HashMap<>();
+            if (jso != null && !jso.has("error") && jso.has("data") && !jso.isNull("data")) {
+                JSONArray data = jso.getJSONArray("data");
+                for (int i = 0; i < data.length(); i++) {
+                    JSONObject user = data.getJSONObject(i);
+                    found.put("id:" + user.optString("id"), user);
+                    found.put("login:" + user.optString("login").toLowerCase(), user);
+                }
+            }
+
+            this.complete(batch, key -> Optional.ofNullable(found.get(key)), null);
+        }, ex -> this.complete(batch, null, ex));
+    }
+
+    private void complete(Map<String, Sinks.One<Optional<JSONObject>>> batch, Function<String, Optional<JSONObject>> result, Throwable ex) {
+        synchronized (this) {
+            batch.keySet().forEach(this.inFlight::remove);
+        }
+
+        batch.forEach((key, sink) -> {
+            if (ex != null) {
+                sink.tryEmitError(ex);
+            } else {
+                sink.tryEmitValue(result.apply(key));
+            }
+        });
+    }
+}
@@ -200,6 +200,25 @@ public class TwitchValidate {
         }
     }
 
+    /**
+     * Waits for the validation threads started by {@link #validateAPI(String, String)}, {@link #validateChat(String, String)},
+     * and {@link #validateApp(String, String)} to finish
+     *
+     * @param timeoutMillis the maximum time to wait for each thread, in milliseconds
+     */
+    public void awaitValidation(long timeoutMillis) {
+        for (Thread t : new Thread[]{validateA, validateC, validateT}) {
+            if (t != null) {
+                try {
+                    t.join(timeoutMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
     public boolean hasChatScope(String scope) {
         return scopesC.contains(scope);
     }
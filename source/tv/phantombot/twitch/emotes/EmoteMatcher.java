@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2016-2026 phantombot.github.io/PhantomBot
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tv.phantombot.twitch.emotes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.gmt2001.util.AhoCorasick;
+
+/**
+ * Finds third-party emote codes in chat messages using an Aho-Corasick automaton, and merges them with the positional Twitch
+ * emote data from the IRCv3 {@code emotes} tag
+ * <p>
+ * An emote code matches with the same word-boundary rules as the regular expression {@code \bcode\b}. When matches overlap,
+ * the leftmost match wins and then the longest code at that position
+ * <p>
+ * Instances are immutable. The automaton used by the bot is replaced by {@link tv.phantombot.cache.EmotesCache} whenever the
+ * set of third-party emotes changes, and is available from {@link #current()}
+ *
+ * @author gmt2001
+ */
+public final class EmoteMatcher {
+
+    /**
+     * A matcher with no emote codes
+     */
+    public static final EmoteMatcher EMPTY = new EmoteMatcher(List.of());
+    private static volatile EmoteMatcher current = EMPTY;
+    private final List<String> codes;
+    private final AhoCorasick automaton;
+
+    /**
+     * The matcher currently used for chat messages
+     *
+     * @return the matcher
+     */
+    public static EmoteMatcher current() {
+        return current;
+    }
+
+    /**
+     * Replaces the matcher used for chat messages
+     *
+     * @param matcher the new matcher
+     */
+    public static void publish(EmoteMatcher matcher) {
+        current = matcher == null ? EMPTY : matcher;
+    }
+
+    /**
+     * Builds a matcher for the specified emote codes. Duplicate and empty codes are ignored
+     *
+     * @param codes the emote codes
+     * @return the matcher
+     */
+    public static EmoteMatcher build(Collection<String> codes) {
+        return new EmoteMatcher(codes);
+    }
+
+    private EmoteMatcher(Collection<String> codes) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String code : codes) {
+            if (code != null && !code.isEmpty()) {
+                unique.add(code);
+            }
+        }
+
+        this.codes = Collections.unmodifiableList(new ArrayList<>(unique));
+        this.automaton = new AhoCorasick(this.codes);
+    }
+
+    /**
+     * The emote codes in this matcher
+     *
+     * @return the codes
+     */
+    public List<String> codes() {
+        return this.codes;
+    }
+
+    /**
+     * The number of emote codes in this matcher
+     *
+     * @return the number of codes
+     */
+    public int size() {
+        return this.codes.size();
+    }
+
+    /**
+     * Finds the third-party emote codes in a message
+     *
+     * @param message the message
+     * @return the matches, ordered by position
+     */
+    public List<EmoteMatch> find(String message) {
+        List<EmoteMatch> candidates = new ArrayList<>();
+        if (message == null || this.codes.isEmpty()) {
+            return candidates;
+        }
+
+        this.automaton.scan(message, (pattern, start, end) -> {
+            if (isBoundary(message, start) && isBoundary(message, end)) {
+                candidates.add(new EmoteMatch(message.substring(start, end), null, start, end, false));
+            }
+        });
+
+        return selectNonOverlapping(candidates);
+    }
+
+    /**
+     * Counts the third-party emote codes in a message
+     *
+     * @param message the message
+     * @return the number of matches
+     */
+    public int count(String message) {
+        return this.find(message).size();
+    }
+
+    /**
+     * Finds all emotes in a message, merging the positional Twitch emote data with the third-party emote codes
+     * <p>
+     * Third-party matches which overlap a Twitch emote are discarded, so a code is never counted twice
+     *
+     * @param message the message
+     * @param emotesTag the raw value of the IRCv3 {@code emotes} tag, in the format {@code id:start-end,start-end/id:start-end}; may be {@code null}
+     * @return the merged matches
+     */
+    public EmoteMatches analyze(String message, String emotesTag) {
+        List<EmoteMatch> twitch = parseTwitchEmotes(message, emotesTag);
+        List<EmoteMatch> thirdParty = this.find(message);
+
+        if (!twitch.isEmpty() && !thirdParty.isEmpty()) {
+            List<EmoteMatch> filtered = new ArrayList<>(thirdParty.size());
+            for (EmoteMatch m : thirdParty) {
+                boolean overlaps = false;
+                for (EmoteMatch t : twitch) {
+                    if (m.start() < t.end() && t.start() < m.end()) {
+                        overlaps = true;
+                        break;
+                    }
+                }
+                if (!overlaps) {
+                    filtered.add(m);
+                }
+            }
+            thirdParty = filtered;
+        }
+
+        return new EmoteMatches(twitch, thirdParty);
+    }
+
+    /**
+     * Counts all emotes in a message. See {@link #analyze(String, String)}
+     *
+     * @param message the message
+     * @param emotesTag the raw value of the IRCv3 {@code emotes} tag; may be {@code null}
+     * @return the number of emotes
+     */
+    public int countAll(String message, String emotesTag) {
+        return this.analyze(message, emotesTag).total();
+    }
+
+    /**
+     * Parses the IRCv3 {@code emotes} tag. Positions in the tag are in code points and are converted to {@code char} indexes
+     */
+    private static List<EmoteMatch> parseTwitchEmotes(String message, String emotesTag) {
+        List<EmoteMatch> matches = new ArrayList<>();
+        if (message == null || emotesTag == null || emotesTag.isBlank()) {
+            return matches;
+        }
+
+        boolean hasSurrogates = message.length() != message.codePointCount(0, message.length());
+        for (String emote : emotesTag.split("/")) {
+            int colon = emote.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+
+            String id = emote.substring(0, colon);
+            for (String position : emote.substring(colon + 1).split(",")) {
+                int dash = position.indexOf('-');
+                if (dash <= 0) {
+                    continue;
+                }
+
+                try {
+                    int start = Integer.parseInt(position.substring(0, dash));
+                    int end = Integer.parseInt(position.substring(dash + 1)) + 1;
+                    if (hasSurrogates) {
+                        start = message.offsetByCodePoints(0, start);
+                        end = message.offsetByCodePoints(0, end);
+                    }
+                    if (start >= 0 && end <= message.length() && start < end) {
+                        matches.add(new EmoteMatch(message.substring(start, end), id, start, end, true));
+                    }
+                } catch (NumberFormatException | IndexOutOfBoundsException ex) {
+                    com.gmt2001.Console.debug.println("Invalid emote position " + position + " in " + emotesTag);
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(EmoteMatch::start));
+        return matches;
+    }
+
+    private static List<EmoteMatch> selectNonOverlapping(List<EmoteMatch> candidates) {
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+
+        candidates.sort(Comparator.comparingInt(EmoteMatch::start).thenComparing(Comparator.comparingInt(EmoteMatch::length).reversed()));
+        List<EmoteMatch> selected = new ArrayList<>(candidates.size());
+        int lastEnd = 0;
+        for (EmoteMatch m : candidates) {
+            if (m.start() >= lastEnd) {
+                selected.add(m);
+                lastEnd = m.end();
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Implements the {@code \b} assertion of a JavaScript regular expression at the specified index
+     */
+    private static boolean isBoundary(String s, int index) {
+        boolean before = index > 0 && isWordChar(s.charAt(index - 1));
+        boolean after = index < s.length() && isWordChar(s.charAt(index));
+        return before != after;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * An emote found in a message
+     */
+    public static final class EmoteMatch {
+
+        private final String code;
+        private final String id;
+        private final int start;
+        private final int end;
+        private final boolean twitch;
+
+        private EmoteMatch(String code, String id, int start, int end, boolean twitch) {
+            this.code = code;
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.twitch = twitch;
+        }
+
+        /**
+         * @return the text of the emote
+         */
+        public String code() {
+            return this.code;
+        }
+
+        /**
+         * @return the Twitch emote id; {@code null} for third-party emotes
+         */
+        public String id() {
+            return this.id;
+        }
+
+        /**
+         * @return the index of the first {@code char} of the emote
+         */
+        public int start() {
+            return this.start;
+        }
+
+        /**
+         * @return the index after the last {@code char} of the emote
+         */
+        public int end() {
+            return this.end;
+        }
+
+        /**
+         * @return the length of the emote text
+         */
+        public int length() {
+            return this.end - this.start;
+        }
+
+        /**
+         * @return {@code true} if this is a Twitch emote from the {@code emotes} tag
+         */
+        public boolean isTwitch() {
+            return this.twitch;
+        }
+
+        @Override
+        public String toString() {
+            return "EmoteMatch(code=" + this.code + ", id=" + this.id + ", start=" + this.start + ", end=" + this.end + ", twitch=" + this.twitch + ")";
+        }
+    }
+
+    /**
+     * The emotes found in a message
+     */
+    public static final class EmoteMatches {
+
+        private final List<EmoteMatch> twitch;
+        private final List<EmoteMatch> thirdParty;
+
+        private EmoteMatches(List<EmoteMatch> twitch, List<EmoteMatch> thirdParty) {
+            this.twitch = Collections.unmodifiableList(twitch);
+            this.thirdParty = Collections.unmodifiableList(thirdParty);
+        }
+
+        /**
+         * @return the Twitch emotes, ordered by position
+         */
+        public List<EmoteMatch> twitch() {
+            return this.twitch;
+        }
+
+        /**
+         * @return the third-party emotes, ordered by position
+         */
+        public List<EmoteMatch> thirdParty() {
+            return this.thirdParty;
+        }
+
+        /**
+         * @return all emotes, ordered by position
+         */
+        public List<EmoteMatch> all() {
+            List<EmoteMatch> all = new ArrayList<>(this.twitch.size() + this.thirdParty.size());
+            all.addAll(this.twitch);
+            all.addAll(this.thirdParty);
+            all.sort(Comparator.comparingInt(EmoteMatch::start));
+            return all;
+        }
+
+        /**
+         * @return the number of Twitch emotes
+         */
+        public int twitchCount() {
+            return this.twitch.size();
+        }
+
+        /**
+         * @return the number of third-party emotes
+         */
+        public int thirdPartyCount() {
+            return this.thirdParty.size();
+        }
+
+        /**
+         * @return the total number of emotes
+         */
+        public int total() {
+            return this.twitch.size() + this.thirdParty.size();
+        }
+    }
+}
@@ -57,7 +57,7 @@ public class TwitchSession extends MessageQueue {
     }
 
     public void doSubscribe() {
-        this.subscribe(this);
+        this.start();
     }
 
     /**
@@ -204,13 +204,13 @@ public class TwitchSession extends MessageQueue {
         }
 
         PhantomBot.instance().getTMI().rateLimiter().waitAndRun(() -> {
-            this.subscription.request(1);
+            this.requestNext();
         });
     }
 
     @Override
-    public void onComplete() {
-        this.close();
+    protected int sendCapacity() {
+        return PhantomBot.instance().getTMI().rateLimiter().currentTokens();
     }
 
     public void quitIRC() {
@@ -18,7 +18,28 @@ package tv.phantombot.twitch.irc.chat.utils;
 
 public class Message {
 
+    /**
+     * The priority classes of the outbound chat queue. A message is only sent when no message of a higher class is waiting
+     */
+    public enum Priority {
+        /**
+         * Moderation actions and other messages which must not wait behind chat output
+         */
+        HIGH,
+        /**
+         * Command responses and other replies
+         */
+        NORMAL,
+        /**
+         * Notices, greetings, and other messages which are not worth delaying a reply for
+         */
+        LOW
+    }
+
     private final String message;
+    private final Priority priority;
+    private final long queuedAt;
+    private long deadline;
 
     /**
      * Class constructor.
@@ -26,7 +47,25 @@ public class Message {
      * @param message
      */
     public Message(String message) {
+        this(message, Priority.NORMAL, 0L);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param message the message
+     * @param priority the priority class
+     * @param maxAgeMs how long the message may wait in the queue before it is dropped, in milliseconds; {@code 0} or less to never drop it
+     */
+    public Message(String message, Priority priority, long maxAgeMs) {
+        this(message, priority, System.nanoTime(), maxAgeMs > 0L ? System.nanoTime() + maxAgeMs * 1_000_000L : Long.MAX_VALUE);
+    }
+
+    Message(String message, Priority priority, long queuedAt, long deadline) {
         this.message = message;
+        this.priority = priority;
+        this.queuedAt = queuedAt;
+        this.deadline = deadline;
     }
 
     /**
@@ -37,4 +76,36 @@ public class Message {
     public String getMessage() {
         return this.message;
     }
+
+    /**
+     * @return the priority class
+     */
+    public Priority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the message was queued
+     */
+    long queuedAt() {
+        return this.queuedAt;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} after which the message is dropped; {@link Long#MAX_VALUE} if it is never dropped
+     */
+    long deadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Extends the deadline to that of an identical message which was coalesced into this one
+     */
+    void extendDeadline(long deadline) {
+        this.deadline = Math.max(this.deadline, deadline);
+    }
+
+    boolean isExpired(long now) {
+        return this.deadline != Long.MAX_VALUE && now - this.deadline > 0L;
+    }
 }
@@ -17,28 +17,70 @@
 package tv.phantombot.twitch.irc.chat.utils;
 
 import java.time.Instant;
-import java.util.concurrent.Flow;
-import java.util.concurrent.Flow.Processor;
-import java.util.concurrent.Flow.Subscription;
-import java.util.concurrent.SubmissionPublisher;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-public abstract class MessageQueue extends SubmissionPublisher<Message> implements Processor<Message, Message> {
+import com.gmt2001.util.LatencyHistogram;
+import com.gmt2001.util.concurrent.ExecutorService;
+
+import tv.phantombot.CaselessProperties;
+
+/**
+ * The outbound chat queue
+ * <p>
+ * Messages wait in one FIFO per {@link Message.Priority} class, and the next message is always taken from the highest class which has one,
+ * so moderation actions and command responses are not delayed behind notices while the rate limit is reached. A message may have a maximum
+ * age, after which it is dropped instead of sent. A message which is identical to one already waiting is coalesced into it. When more
+ * messages are waiting than can be sent in the current rate limit window, consecutive plain messages of the same class are merged into one
+ * line of up to 500 characters
+ * <p>
+ * Messages are delivered to {@link #onNext(Message)} one at a time; the implementation calls {@link #requestNext()} when it can send another
+ */
+public abstract class MessageQueue {
 
     protected final String channelName;
     protected boolean isAllowedToSend = false;
     protected Instant nextReminder = Instant.now();
     protected static final long REMINDER_INTERVAL = 300000L;
-    protected Subscription subscription;
+    /**
+     * The maximum number of messages waiting in each of the {@link Message.Priority#NORMAL} and {@link Message.Priority#LOW} classes
+     */
+    private static final int CAPACITY = 256;
+    private static final int MAX_LENGTH = 500;
+    private static final String MERGE_SEPARATOR = " | ";
+    private static final String ACTION = "/me ";
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Message.Priority, ArrayDeque<Message>> queues = new EnumMap<>(Message.Priority.class);
+    private final Map<Message.Priority, Stats> stats = new EnumMap<>(Message.Priority.class);
+    /**
+     * The waiting messages by text, for coalescing
+     */
+    private final Map<String, Message> pending = new HashMap<>();
+    private final boolean merge;
+    private boolean waiting = false;
+    private boolean killed = false;
 
     /**
      * Class constructor.
      *
      * @param channelName
+     *
+     * @botproperty chatmerge - If `true`, short chat messages which are waiting behind the rate limit are merged into one line. Default `true`
+     * @botpropertycatsort chatmerge 860 20 Twitch
      */
     protected MessageQueue(String channelName) {
-        super();
         this.channelName = channelName;
+        this.merge = CaselessProperties.instance().getPropertyAsBoolean("chatmerge", true);
+        for (Message.Priority priority : Message.Priority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+            this.stats.put(priority, new Stats());
+        }
 
         // Set the default thread uncaught exception handler.
         Thread.setDefaultUncaughtExceptionHandler(com.gmt2001.UncaughtExceptionHandler.instance());
@@ -63,52 +105,302 @@ public abstract class MessageQueue extends SubmissionPublisher<Message> implemen
     }
 
     /**
-     * Attempts to enqueue a message, timing out after 5 seconds.
+     * Enqueues a message as a {@link Message.Priority#NORMAL} message. Dropped if that class is full
      *
      * @param message
      */
     public void say(String message) {
-        message = message.replace('\r', ' ');
-        String[] spl = message.split("\n");
-        for (String str : spl) {
-            this.offer(new Message(str), 5, TimeUnit.SECONDS, (s, m) -> {
-                com.gmt2001.Console.warn.println("Failed to submit message: " + m.getMessage());
-                return false;
-            });
-        }
+        this.say(message, Message.Priority.NORMAL, 0L);
     }
 
     /**
-     * Attempts to enqueue a message until success.
+     * Enqueues a message as a {@link Message.Priority#HIGH} message, which is never dropped
      *
      * @param message
      */
     public void sayNow(String message) {
+        this.say(message, Message.Priority.HIGH, 0L);
+    }
+
+    /**
+     * Enqueues a message. Each line of the message is queued as a separate message
+     *
+     * @param message the message
+     * @param priority the priority class
+     * @param maxAgeMs how long the message may wait in the queue before it is dropped, in milliseconds; {@code 0} or less to never drop it
+     */
+    public void say(String message, Message.Priority priority, long maxAgeMs) {
         message = message.replace('\r', ' ');
         String[] spl = message.split("\n");
         for (String str : spl) {
-            this.submit(new Message(str));
+            if (!this.enqueue(new Message(str, priority, maxAgeMs))) {
+                com.gmt2001.Console.warn.println("Failed to submit message: " + str);
+            }
+        }
+    }
+
+    /**
+     * Starts delivering messages to {@link #onNext(Message)}
+     */
+    protected void start() {
+        this.requestNext();
+    }
+
+    /**
+     * Called with each message to send, one at a time
+     *
+     * @param message the message, which may be several merged messages
+     */
+    public abstract void onNext(Message message);
+
+    /**
+     * Requests the next message. It is delivered to {@link #onNext(Message)} on another thread as soon as one is waiting
+     */
+    protected void requestNext() {
+        Message message;
+        this.lock.lock();
+        try {
+            if (this.killed) {
+                return;
+            }
+
+            message = this.poll();
+            this.waiting = message == null;
+        } finally {
+            this.lock.unlock();
         }
+
+        if (message != null) {
+            this.deliver(message);
+        }
+    }
+
+    /**
+     * The number of messages which can be sent right now without waiting for the rate limit. Merging only happens while more messages are
+     * waiting than this
+     *
+     * @return the number of messages
+     */
+    protected int sendCapacity() {
+        return Integer.MAX_VALUE;
     }
 
     /**
      * Method that kills this instance.
      */
     public void kill() {
-        if (this.subscription != null) {
-            this.subscription.cancel();
+        this.lock.lock();
+        try {
+            this.killed = true;
+        } finally {
+            this.lock.unlock();
         }
     }
 
-    @Override
-    public void onSubscribe(Flow.Subscription subscription) {
-        this.subscription = subscription;
-        this.subscription.request(1);
+    /**
+     * Stops delivering messages and discards those which are waiting
+     */
+    public void close() {
+        this.lock.lock();
+        try {
+            this.killed = true;
+            this.queues.values().forEach(ArrayDeque::clear);
+            this.pending.clear();
+        } finally {
+            this.lock.unlock();
+        }
     }
 
-    @Override
-    public void onError(Throwable thrwbl) {
-        com.gmt2001.Console.err.printStackTrace(thrwbl);
-        com.gmt2001.Console.err.println("MessageQueue threw an exception and is being disconnected...");
+    /**
+     * @return the number of messages waiting
+     */
+    public int pendingMessages() {
+        this.lock.lock();
+        try {
+            return this.pending.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how long the messages of a priority class waited in the queue
+     *
+     * @param priority the priority class
+     * @return the histogram
+     */
+    public LatencyHistogram latency(Message.Priority priority) {
+        return this.stats.get(priority).latency;
+    }
+
+    /**
+     * @return one line per priority class with its counters and queue latency
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Message.Priority priority : Message.Priority.values()) {
+            Stats s = this.stats.get(priority);
+            int size;
+            this.lock.lock();
+            try {
+                size = this.queues.get(priority).size();
+            } finally {
+                this.lock.unlock();
+            }
+
+            lines.add("[" + priority + "] pending=" + size + " sent=" + s.latency.count() + " merged=" + s.merged.get() + " coalesced="
+                    + s.coalesced.get() + " expired=" + s.expired.get() + " dropped=" + s.dropped.get() + " latency: " + s.latency);
+        }
+
+        return lines;
+    }
+
+    private void deliver(Message message) {
+        ExecutorService.execute(() -> {
+            try {
+                this.onNext(message);
+            } catch (Exception ex) {
+                com.gmt2001.Console.err.printStackTrace(ex);
+                com.gmt2001.Console.err.println("MessageQueue threw an exception while sending a message");
+                this.requestNext();
+            }
+        });
+    }
+
+    private boolean enqueue(Message message) {
+        Message delivery = null;
+        this.lock.lock();
+        try {
+            if (this.killed) {
+                return false;
+            }
+
+            Message existing = this.pending.get(message.getMessage());
+            if (existing != null) {
+                if (message.getPriority().compareTo(existing.getPriority()) >= 0) {
+                    existing.extendDeadline(message.deadline());
+                    this.stats.get(message.getPriority()).coalesced.incrementAndGet();
+                    return true;
+                }
+
+                // A more urgent copy replaces the waiting one
+                this.queues.get(existing.getPriority()).removeFirstOccurrence(existing);
+                this.pending.remove(existing.getMessage());
+                this.stats.get(existing.getPriority()).coalesced.incrementAndGet();
+            }
+
+            ArrayDeque<Message> queue = this.queues.get(message.getPriority());
+            if (message.getPriority() != Message.Priority.HIGH && queue.size() >= CAPACITY) {
+                this.stats.get(message.getPriority()).dropped.incrementAndGet();
+                return false;
+            }
+
+            queue.add(message);
+            this.pending.put(message.getMessage(), message);
+
+            if (this.waiting) {
+                delivery = this.poll();
+                this.waiting = delivery == null;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (delivery != null) {
+            this.deliver(delivery);
+        }
+
+        return true;
+    }
+
+    /**
+     * Takes the next message from the highest priority class which has one, dropping expired messages and merging consecutive messages if
+     * there is a backlog. Must be called while holding the lock
+     *
+     * @return the message; {@code null} if none are waiting
+     */
+    private Message poll() {
+        long now = System.nanoTime();
+        boolean backlog = this.merge && this.pending.size() > this.sendCapacity();
+        for (Message.Priority priority : Message.Priority.values()) {
+            ArrayDeque<Message> queue = this.queues.get(priority);
+            Stats s = this.stats.get(priority);
+            Message head;
+            while ((head = this.take(queue, now, s)) != null) {
+                if (!backlog || !isMergeable(head.getMessage())) {
+                    return head;
+                }
+
+                boolean action = head.getMessage().startsWith(ACTION);
+                StringBuilder sb = new StringBuilder(head.getMessage());
+                Message next;
+                while ((next = queue.peek()) != null) {
+                    if (next.isExpired(now)) {
+                        this.take(queue, now, s);
+                        continue;
+                    }
+
+                    String text = next.getMessage();
+                    if (!isMergeable(text) || text.startsWith(ACTION) != action) {
+                        break;
+                    }
+
+                    text = action ? text.substring(ACTION.length()) : text;
+                    if (sb.length() + MERGE_SEPARATOR.length() + text.length() > MAX_LENGTH) {
+                        break;
+                    }
+
+                    this.take(queue, now, s);
+                    sb.append(MERGE_SEPARATOR).append(text);
+                    s.merged.incrementAndGet();
+                }
+
+                return sb.length() == head.getMessage().length() ? head : new Message(sb.toString(), priority, head.queuedAt(), head.deadline());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the first unexpired message of a queue and records its latency. Must be called while holding the lock
+     */
+    private Message take(ArrayDeque<Message> queue, long now, Stats s) {
+        Message message;
+        while ((message = queue.poll()) != null) {
+            this.pending.remove(message.getMessage(), message);
+            if (message.isExpired(now)) {
+                s.expired.incrementAndGet();
+                continue;
+            }
+
+            s.latency.record((now - message.queuedAt()) / 1_000_000L);
+            return message;
+        }
+
+        return null;
+    }
+
+    /**
+     * Indicates if a message is plain chat, or a {@code /me} action, which can be merged with others of the same kind
+     */
+    private static boolean isMergeable(String message) {
+        if (message.startsWith(ACTION)) {
+            return message.length() > ACTION.length() && !message.startsWith("/", ACTION.length()) && !message.startsWith(".", ACTION.length());
+        }
+
+        return !message.isEmpty() && !message.startsWith("/") && !message.startsWith(".");
+    }
+
+    /**
+     * The counters of a priority class
+     */
+    private static final class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong merged = new AtomicLong(0L);
+        private final AtomicLong coalesced = new AtomicLong(0L);
+        private final AtomicLong expired = new AtomicLong(0L);
+        private final AtomicLong dropped = new AtomicLong(0L);
     }
 }